@@ -0,0 +1,103 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
+import ulcambridge.foundations.viewer.crowdsourcing.spatial.AnnotationRegionIndex;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Handles requests for the annotations of all users within a region of a
+ * page.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing")
+public class AnnotationRegionController {
+
+    private static final CacheControl CACHE_PRIVATE = CacheControl.noCache();
+
+    private final AnnotationRegionIndex index;
+
+    @Autowired
+    public AnnotationRegionController(AnnotationRegionIndex index) {
+        Assert.notNull(index);
+
+        this.index = index;
+    }
+
+    static class IllegalRegionException extends RuntimeException {
+        public IllegalRegionException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the annotations of all users whose positions intersect a box.
+     *
+     * @param bbox The box, as {@code minX,minY,maxX,maxY} in the coordinates
+     *             of annotation positions.
+     */
+    @RequestMapping(value = "/anno/{docId}/{docPage}/region",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<DocumentAnnotations> handleRegionFetch(
+        @PathVariable("docId") String documentId,
+        @PathVariable("docPage") int documentPageNo,
+        @RequestParam("bbox") String bbox) {
+
+        double[] box = parseBox(bbox);
+        List<Annotation> annotations = index.getAnnotations(
+            documentId, documentPageNo, box[0], box[1], box[2], box[3]);
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PRIVATE)
+            .body(new DocumentAnnotations(null, documentId, annotations));
+    }
+
+    private static double[] parseBox(String bbox) {
+        String[] parts = bbox.split(",");
+        if(parts.length != 4)
+            throw new IllegalRegionException(
+                "bbox must be minX,minY,maxX,maxY");
+
+        double[] box = new double[4];
+        try {
+            for(int i = 0; i < 4; ++i)
+                box[i] = Double.parseDouble(parts[i].trim());
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalRegionException(
+                "bbox coordinates must be numbers");
+        }
+
+        if(!(box[0] <= box[2] && box[1] <= box[3]))
+            throw new IllegalRegionException(
+                "bbox minimums must not exceed its maximums");
+        return box;
+    }
+
+    @ExceptionHandler
+    public void handleIllegalRegion(
+        HttpServletResponse resp, IllegalRegionException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
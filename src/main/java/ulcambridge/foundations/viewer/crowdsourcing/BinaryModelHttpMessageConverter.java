@@ -0,0 +1,97 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads and writes the document model types ({@link DocumentTerms} and its
+ * subclasses) in a binary JSON format, such as Smile or CBOR, for clients
+ * which request one in their Accept header.
+ *
+ * <p>Other types, and clients which accept JSON, are left to the JSON message
+ * converter.
+ */
+public class BinaryModelHttpMessageConverter
+    extends AbstractJackson2HttpMessageConverter {
+
+    public static final String APPLICATION_SMILE_VALUE =
+        "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE =
+        MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+    public static final MediaType APPLICATION_CBOR =
+        MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+    /**
+     * @param objectMapper A mapper whose factory creates the binary format.
+     * @param mediaType The media type of the format.
+     */
+    public BinaryModelHttpMessageConverter(
+        ObjectMapper objectMapper, MediaType mediaType) {
+
+        super(objectMapper, mediaType);
+        Assert.isTrue(objectMapper.getFactory().canHandleBinaryNatively(),
+                      "objectMapper does not create a binary format");
+    }
+
+    private static boolean isModelType(Class<?> clazz) {
+        return clazz != null && DocumentTerms.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return isModelType(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return isModelType(clazz) && super.canRead(clazz, mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass,
+                           MediaType mediaType) {
+        return type instanceof Class && isModelType((Class<?>)type) &&
+               super.canRead(type, contextClass, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return isModelType(clazz) && super.canWrite(clazz, mediaType);
+    }
+
+    /**
+     * Choose the representation of a response which a client prefers.
+     *
+     * @param accept The value of the Accept header, or null if there is none.
+     * @param mediaTypes The available media types, the default first.
+     * @return The first of mediaTypes which is included by the most preferred
+     *         type of the Accept header.
+     */
+    public static MediaType negotiate(String accept,
+                                      List<MediaType> mediaTypes) {
+        Assert.notEmpty(mediaTypes);
+
+        if(accept == null || accept.isEmpty())
+            return mediaTypes.get(0);
+
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for(MediaType acceptable : accepted) {
+            if(acceptable.getQualityValue() == 0)
+                continue;
+            for(MediaType mediaType : mediaTypes) {
+                if(acceptable.includes(mediaType))
+                    return mediaType;
+            }
+        }
+        return mediaTypes.get(0);
+    }
+}
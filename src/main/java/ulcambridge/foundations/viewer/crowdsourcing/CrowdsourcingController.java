@@ -1,12 +1,16 @@
 package ulcambridge.foundations.viewer.crowdsourcing;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
 import org.apache.jena.riot.RDFFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -18,11 +22,18 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AsyncRequestExecutor;
+import ulcambridge.foundations.viewer.crowdsourcing.async.ServiceOverloadedException;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.PrecompressedBody;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.VersionedBodyCache;
 import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
 import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao.UpsertResult;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
@@ -32,16 +43,22 @@ import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
 import ulcambridge.foundations.viewer.crowdsourcing.model.ImageResolver;
 import ulcambridge.foundations.viewer.crowdsourcing.model.ImageResolverException;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
-import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
-import ulcambridge.foundations.viewer.crowdsourcing.model.TermCombiner;
 import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
 import ulcambridge.foundations.viewer.crowdsourcing.model.UserAnnotations;
+import ulcambridge.foundations.viewer.crowdsourcing.ratelimit.RateLimitExceededException;
+import ulcambridge.foundations.viewer.crowdsourcing.ratelimit.WriteAdmissionControl;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.PageTagCloudIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.SerializedTagCloud;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudQuery;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudResponseCache;
 import ulcambridge.foundations.viewer.rdf.RDFReader;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.sql.SQLException;
 import java.time.Instant;
@@ -50,12 +67,20 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter.APPLICATION_CBOR_VALUE;
+import static ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter.APPLICATION_SMILE_VALUE;
 
 /**
  * Handles requests for the crowdsourcing platform.
@@ -71,10 +96,21 @@ public class CrowdsourcingController {
     private static final Logger logger = LoggerFactory.getLogger(CrowdsourcingController.class);
     private static final String MEDIA_RDF = "application/rdf+xml";
 
+    /** The representations of tag clouds, the default first. */
+    private static final List<MediaType> TAG_CLOUD_MEDIA_TYPES =
+        Arrays.asList(MediaType.APPLICATION_JSON,
+                      BinaryModelHttpMessageConverter.APPLICATION_SMILE,
+                      BinaryModelHttpMessageConverter.APPLICATION_CBOR);
+
     private final CrowdsourcingDao dataSource;
-    private final TermCombiner.Factory<TermType, Term, Term, Collection<Term>>
-        termCombinerFactory;
+    private final TagCloudResponseCache tagClouds;
+    private final PageTagCloudIndex pageTagClouds;
     private final ImageResolver imageResolver;
+    private final ObjectMapper objectMapper;
+    private final VersionedBodyCache<List<String>> exports;
+    private final AsyncRequestExecutor async;
+    private final WriteAdmissionControl writeAdmission;
+    private final int maxAnnotationsLimit;
 
     private static final DateTimeFormatter FILENAME_DATE_FORMATTER =
         new DateTimeFormatterBuilder()
@@ -95,17 +131,35 @@ public class CrowdsourcingController {
     @Autowired
     public CrowdsourcingController(
         CrowdsourcingDao crowdsourcingDao,
-        @Qualifier("weightedTermCombiner") TermCombiner.Factory<
-            TermType, Term, Term, Collection<Term>> termCombinerFactory,
-        ImageResolver imageResolver) {
+        TagCloudResponseCache tagClouds,
+        PageTagCloudIndex pageTagClouds,
+        ImageResolver imageResolver,
+        ObjectMapper objectMapper,
+        VersionedBodyCache<List<String>> exportBodyCache,
+        AsyncRequestExecutor asyncRequestExecutor,
+        WriteAdmissionControl writeAdmissionControl,
+        @Value("${cudl.tagging.anno.max-limit:1000}") int maxAnnotationsLimit) {
 
         Assert.notNull(crowdsourcingDao);
-        Assert.notNull(termCombinerFactory);
+        Assert.notNull(tagClouds);
+        Assert.notNull(pageTagClouds);
         Assert.notNull(imageResolver);
+        Assert.notNull(objectMapper);
+        Assert.notNull(exportBodyCache);
+        Assert.notNull(asyncRequestExecutor);
+        Assert.notNull(writeAdmissionControl);
+        Assert.isTrue(maxAnnotationsLimit > 0,
+                      "maxAnnotationsLimit must be positive");
 
         this.dataSource = crowdsourcingDao;
-        this.termCombinerFactory = termCombinerFactory;
+        this.tagClouds = tagClouds;
+        this.pageTagClouds = pageTagClouds;
         this.imageResolver = imageResolver;
+        this.objectMapper = objectMapper;
+        this.exports = exportBodyCache;
+        this.async = asyncRequestExecutor;
+        this.writeAdmission = writeAdmissionControl;
+        this.maxAnnotationsLimit = maxAnnotationsLimit;
     }
 
     private static final CacheControl CACHE_PRIVATE = CacheControl.noCache();
@@ -129,32 +183,191 @@ public class CrowdsourcingController {
                 .build();
     }
 
+    /**
+     * Work was rejected or timed out because the database or services it
+     * depends on are busy.
+     */
+    @ExceptionHandler({ ServiceOverloadedException.class,
+                        RejectedExecutionException.class })
+    private ResponseEntity<Void> handleOverload(RuntimeException e) {
+        logger.warn("Request not served: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .build();
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    private ResponseEntity<String> handleRateLimitExceeded(
+        RateLimitExceededException e) {
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER,
+                    Long.toString(e.getRetryAfterSeconds()))
+            .contentType(MediaType.TEXT_PLAIN)
+            .body(e.getMessage());
+    }
+
     private String getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return auth.getName();
     }
 
+    /**
+     * Run the database work of a request which modifies a user's annotations
+     * or removed tags, if the user and database can take another write.
+     */
+    private <T> DeferredResult<T> write(String userId, Callable<T> work) {
+        WriteAdmissionControl.Permit permit = writeAdmission.admit(userId);
+
+        // The work releases the permit when it finishes, even if the request
+        // has timed out by then. Work which is rejected, or dropped before
+        // it starts, never runs, so its permit is abandoned.
+        return async.execute(stages -> stages.db(permit.holdWhile(work))
+            .whenComplete((result, e) -> permit.abandon()));
+    }
+
     class IllegalAnnotationValueException extends RuntimeException {
         public IllegalAnnotationValueException(String message) {
             super(message);
         }
     }
 
+    static class IllegalTagCloudQueryException extends RuntimeException {
+        public IllegalTagCloudQueryException(String message) {
+            super(message);
+        }
+    }
+
+    static class IllegalAnnotationsQueryException extends RuntimeException {
+        public IllegalAnnotationsQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the annotations created by the logged-in user on every document, in
+     * order of document ID.
+     *
+     * <p>Documents are written to the response as they're read from the
+     * database, so the user's annotations are never held in memory at once.
+     * The number of documents and annotations isn't known until the end, so
+     * the {@code total} and {@code next} properties follow the annotations.
+     *
+     * @param after The ID of the document to start after: the {@code next}
+     *              value of the previous page.
+     * @param limit The maximum number of documents to return. All are
+     *              returned if not specified.
+     */
+    @RequestMapping(value = "/anno",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> handleUserAnnotationsFetch(
+        @RequestParam(value = "after", required = false) String after,
+        @RequestParam(value = "limit", required = false) Integer limit) {
+
+        if(limit != null && (limit < 1 || limit > maxAnnotationsLimit))
+            throw new IllegalAnnotationsQueryException(
+                "limit must be between 1 and " + maxAnnotationsLimit);
+
+        String userId = getCurrentUserId();
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PRIVATE)
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .body(out -> new UserAnnotationsWriter(out, userId, limit)
+                .write(after));
+    }
+
+    /**
+     * Writes a user's annotations in the form of {@link UserAnnotations}, one
+     * document at a time.
+     */
+    private class UserAnnotationsWriter
+        implements Consumer<DocumentAnnotations> {
+
+        private final OutputStream out;
+        private final String userId;
+        private final Integer limit;
+
+        private JsonGenerator json;
+        private int documents;
+        private int total;
+        private String lastDocumentId;
+        private boolean more;
+
+        UserAnnotationsWriter(OutputStream out, String userId, Integer limit) {
+            this.out = out;
+            this.userId = userId;
+            this.limit = limit;
+        }
+
+        void write(String after) throws IOException {
+            try(JsonGenerator json = objectMapper.getFactory()
+                    .createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+                this.json = json;
+                json.writeStartObject();
+                json.writeStringField("oid", userId);
+                json.writeArrayFieldStart("annotations");
+
+                // Read one more document than the limit to know whether
+                // there's another page
+                dataSource.forEachDocumentAnnotations(
+                    userId, after, limit == null ? 0 : limit + 1, this);
+
+                json.writeEndArray();
+                json.writeNumberField("total", total);
+                json.writeStringField("next", more ? lastDocumentId : null);
+                json.writeEndObject();
+            }
+            catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void accept(DocumentAnnotations annotations) {
+            if(limit != null && documents == limit) {
+                more = true;
+                return;
+            }
+
+            try {
+                objectMapper.writeValue(json, annotations);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ++documents;
+            total += annotations.getTerms().size();
+            lastDocumentId = annotations.getDocumentId();
+        }
+    }
+
     // on path /anno/get
     @RequestMapping(value = "/anno/{docId}/{docPage}",
                     method = RequestMethod.GET,
-                    produces = { "application/json" })
+                    produces = { "application/json", APPLICATION_SMILE_VALUE,
+                                 APPLICATION_CBOR_VALUE })
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<DocumentAnnotations> handleAnnotationsFetch(
+    public DeferredResult<ResponseEntity<DocumentAnnotations>>
+    handleAnnotationsFetch(
         @PathVariable("docId") String documentId,
-        @PathVariable("docPage") int documentPageNo) throws IOException {
+        @PathVariable("docPage") int documentPageNo) {
 
-        DocumentAnnotations docAnnotations = dataSource.getAnnotations(
-            getCurrentUserId(), documentId, documentPageNo);
+        String userId = getCurrentUserId();
 
-        return ResponseEntity.status(HttpStatus.OK)
-                .cacheControl(CACHE_PRIVATE)
-                .body(docAnnotations);
+        return async.execute(stages -> stages.db(() -> {
+            DocumentAnnotations docAnnotations = dataSource.getAnnotations(
+                userId, documentId, documentPageNo);
+
+            return ResponseEntity.status(HttpStatus.OK)
+                    .cacheControl(CACHE_PRIVATE)
+                    .body(docAnnotations);
+        }));
     }
 
     @RequestMapping(
@@ -163,9 +376,9 @@ public class CrowdsourcingController {
         headers = { "Content-type=application/json" },
         consumes = { "application/json" }, produces = { "application/json" })
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Annotation> handleAnnotationAdd(
+    public DeferredResult<ResponseEntity<Annotation>> handleAnnotationAdd(
         @PathVariable("docId") String documentId,
-        @RequestBody Annotation annotation) throws SQLException, IOException {
+        @RequestBody Annotation annotation) {
 
         if(annotation.getRaw() != 1 || annotation.getValue() != 1)
             throw new IllegalAnnotationValueException(
@@ -175,25 +388,31 @@ public class CrowdsourcingController {
             .fromUriString("./{docId}/{docPage}")
             .buildAndExpand(documentId, annotation.getPage()).encode().toUri();
 
-        return ResponseEntity.status(HttpStatus.CREATED)
-            .location(annotationLocation)
-            .body(dataSource.addAnnotation(
-                getCurrentUserId(), documentId, annotation));
+        String userId = getCurrentUserId();
+
+        return write(userId, () ->
+            ResponseEntity.status(HttpStatus.CREATED)
+                .location(annotationLocation)
+                .body(dataSource.addAnnotation(
+                    userId, documentId, annotation)));
     }
 
     @RequestMapping(value = "/anno/{docId}/{uuid}",
                     method = RequestMethod.DELETE)
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> handleAnnotationRemove(
+    public DeferredResult<ResponseEntity<Void>> handleAnnotationRemove(
             @PathVariable("docId") String documentId,
-            @PathVariable("uuid") UUID annotationId)
-            throws SQLException, IOException {
+            @PathVariable("uuid") UUID annotationId) {
+
+        String userId = getCurrentUserId();
 
-        boolean removed = dataSource.removeAnnotation(
-            getCurrentUserId(), documentId, annotationId);
+        return write(userId, () -> {
+            boolean removed = dataSource.removeAnnotation(
+                userId, documentId, annotationId);
 
-        return (removed ? ResponseEntity.noContent()
-                        : ResponseEntity.notFound()).build();
+            return (removed ? ResponseEntity.noContent()
+                            : ResponseEntity.notFound()).<Void>build();
+        });
     }
 
     /**
@@ -205,174 +424,335 @@ public class CrowdsourcingController {
                     consumes = { MediaType.APPLICATION_FORM_URLENCODED_VALUE,
                                  MediaType.MULTIPART_FORM_DATA_VALUE})
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Set<UUID>> removeAnnotations(
+    public DeferredResult<ResponseEntity<Set<UUID>>> removeAnnotations(
             @PathVariable("docId") String documentId,
-            @RequestParam("uuid") List<UUID> annotationIds)
-            throws SQLException, IOException {
+            @RequestParam("uuid") List<UUID> annotationIds) {
+
+        String userId = getCurrentUserId();
+
+        return write(userId, () -> {
+            Set<UUID> removed = dataSource.removeAnnotations(
+                    userId, documentId, annotationIds);
+
+            return ResponseEntity.ok().body(removed);
+        });
+    }
+
+    /**
+     * Complete a response with the form of a precompressed body the client
+     * accepts. Each form has its own entity tag.
+     */
+    private static ResponseEntity<byte[]> encodedResponse(
+        ResponseEntity.BodyBuilder response, String version,
+        PrecompressedBody body, String acceptEncoding) {
+
+        PrecompressedBody.Encoded encoded = body.select(acceptEncoding);
+        if(encoded.getCoding() == null)
+            return response.eTag(version).body(encoded.getBody());
+
+        String coding = encoded.getCoding().getName();
+        return response
+            .eTag(version + "-" + coding)
+            .header(HttpHeaders.CONTENT_ENCODING, coding)
+            .body(encoded.getBody());
+    }
+
+    private static TagCloudQuery createTagCloudQuery(
+        Integer limit, Double minValue, List<String> types) {
+
+        if(limit == null && minValue == null && types == null)
+            return TagCloudQuery.DEFAULT;
 
-        Set<UUID> removed = dataSource.removeAnnotations(
-                getCurrentUserId(), documentId, annotationIds);
+        if(limit != null && limit < 1)
+            throw new IllegalTagCloudQueryException("limit must be positive");
+        if(minValue != null && minValue.isNaN())
+            throw new IllegalTagCloudQueryException("minValue was NaN");
+
+        Set<TermType> termTypes = EnumSet.allOf(TermType.class);
+        if(types != null) {
+            termTypes.clear();
+            try {
+                for(String type : types)
+                    termTypes.add(TagCloudQuery.parseTermType(type));
+            }
+            catch(IllegalArgumentException e) {
+                throw new IllegalTagCloudQueryException(e.getMessage());
+            }
+        }
 
-        return ResponseEntity.ok().body(removed);
+        return new TagCloudQuery(
+            termTypes,
+            minValue == null ? Double.NEGATIVE_INFINITY : minValue,
+            limit == null ? TagCloudQuery.NO_LIMIT : limit);
     }
 
     // on path /tag/get
+    /**
+     * Get the tag cloud of a document.
+     *
+     * <p>The response body is the cached JSON serialisation of the tag cloud,
+     * compressed if the client accepts it, so the message converters are
+     * bypassed. Clients which prefer a binary format receive the tag cloud
+     * from its message converter.
+     *
+     * @param limit The maximum number of terms to return.
+     * @param minValue The minimum value of returned terms.
+     * @param types The names of the term types to combine.
+     */
     @RequestMapping(value = "/tag/{docId}",
                     method = RequestMethod.GET,
-                    produces = { "application/json" })
-    public ResponseEntity<DocumentTerms> handleTagsFetch(
-        @PathVariable("docId") String documentId) throws IOException {
+                    produces = { "application/json", APPLICATION_SMILE_VALUE,
+                                 APPLICATION_CBOR_VALUE })
+    public DeferredResult<ResponseEntity<?>> handleTagsFetch(
+        @PathVariable("docId") String documentId,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "minValue", required = false) Double minValue,
+        @RequestParam(value = "type", required = false) List<String> types,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+            String accept,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+
+        TagCloudQuery query = createTagCloudQuery(limit, minValue, types);
+
+        return async.execute(stages -> stages.db(() -> tagCloudResponse(
+            tagClouds.getTagCloud(documentId, query), accept,
+            acceptEncoding)));
+    }
 
-        // combine tags with annotations and removed tags
-        DocumentTags docTags = dataSource.getTagsByDocument(documentId);
-        Collection<Term> docRemovedTags =
-            dataSource.getMergedRemovedTagsByDocument(documentId);
-        Collection<Term> docAnnotations =
-            dataSource.getMergedAnnotationsByDocument(documentId);
+    private static ResponseEntity<?> tagCloudResponse(
+        SerializedTagCloud tagCloud, String accept, String acceptEncoding) {
 
-        Collection<Term> terms = termCombinerFactory.newInstance()
-            .addTerms(TermType.TAG, docTags.getTerms()::stream)
-            .addTerms(TermType.ANNOTATION, docAnnotations::stream)
-            .addTerms(TermType.REMOVED_TAG, docRemovedTags::stream)
-            .getCombinedTerms();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .cacheControl(CACHE_PUBLIC_INFREQUENTLY_CHANGING)
+            .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
 
-        DocumentTerms docTerms = new DocumentTerms(null, documentId, terms);
+        MediaType mediaType = BinaryModelHttpMessageConverter.negotiate(
+            accept, TAG_CLOUD_MEDIA_TYPES);
+        if(!MediaType.APPLICATION_JSON.equals(mediaType)) {
+            return response
+                .eTag(tagCloud.getVersion() + "-" + mediaType.getSubtype())
+                .contentType(mediaType)
+                .body(tagCloud.getTerms());
+        }
 
-        return ResponseEntity.ok()
+        response.contentType(MediaType.APPLICATION_JSON_UTF8);
+
+        return encodedResponse(response, tagCloud.getVersion(),
+                               tagCloud.getJson(), acceptEncoding);
+    }
+
+    /**
+     * Get the tag cloud of a document page, combining the annotations which
+     * tag the page.
+     *
+     * @param limit The maximum number of terms to return.
+     * @param minValue The minimum value of returned terms.
+     */
+    @RequestMapping(value = "/tag/{docId}/{docPage}",
+                    method = RequestMethod.GET,
+                    produces = { "application/json", APPLICATION_SMILE_VALUE,
+                                 APPLICATION_CBOR_VALUE })
+    public DeferredResult<ResponseEntity<DocumentTerms>> handlePageTagsFetch(
+        @PathVariable("docId") String documentId,
+        @PathVariable("docPage") int documentPageNo,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "minValue", required = false) Double minValue) {
+
+        TagCloudQuery query = createTagCloudQuery(limit, minValue, null);
+
+        return async.execute(stages -> stages.db(() -> {
+            DocumentTerms tagCloud = pageTagClouds.getTagCloud(
+                documentId, documentPageNo, query);
+
+            return ResponseEntity.ok()
                 .cacheControl(CACHE_PUBLIC_INFREQUENTLY_CHANGING)
-                .body(docTerms);
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(tagCloud);
+        }));
     }
 
     // on path /rmvtag/get
     @RequestMapping(value = "/rmvtag/{docId}",
                     method = RequestMethod.GET,
-                    produces = { "application/json" })
+                    produces = { "application/json", APPLICATION_SMILE_VALUE,
+                                 APPLICATION_CBOR_VALUE })
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<DocumentTags> handleRemovedTagsFetch(
-        @PathVariable("docId") String documentId) throws IOException {
+    public DeferredResult<ResponseEntity<DocumentTags>> handleRemovedTagsFetch(
+        @PathVariable("docId") String documentId) {
 
-        DocumentTags docTags = dataSource.getRemovedTags(
-            getCurrentUserId(), documentId);
+        String userId = getCurrentUserId();
 
-        return ResponseEntity.ok()
-                .cacheControl(CACHE_PRIVATE)
-                .body(docTags);
+        return async.execute(stages -> stages.db(() -> {
+            DocumentTags docTags = dataSource.getRemovedTags(
+                userId, documentId);
+
+            return ResponseEntity.ok()
+                    .cacheControl(CACHE_PRIVATE)
+                    .body(docTags);
+        }));
     }
 
     @RequestMapping(value = "/rmvtag/{docId}/{tag}",
         method = RequestMethod.GET,
         produces = { "application/json" })
     @PreAuthorize("isAuthenticated()")
-    public Tag handleRemovedTagsFetch(
+    public DeferredResult<ResponseEntity<Tag>> handleRemovedTagsFetch(
         @PathVariable("docId") String documentId,
-        @PathVariable("tag") String tag) throws IOException {
+        @PathVariable("tag") String tag) {
 
-        return dataSource.getRemovedTag(getCurrentUserId(), documentId, tag);
+        String userId = getCurrentUserId();
+
+        return async.execute(stages -> stages.db(() ->
+            ResponseEntity.ok()
+                .cacheControl(CACHE_PRIVATE)
+                .body(dataSource.getRemovedTag(userId, documentId, tag))));
     }
 
     @RequestMapping(value = "/rmvtag/{docId}",
         method = RequestMethod.POST,
         headers = { "Content-type=application/json" },
-        consumes = { "application/json" }, produces = { "application/json" })
+        consumes = { "application/json" },
+        produces = { "application/json", APPLICATION_SMILE_VALUE,
+                     APPLICATION_CBOR_VALUE })
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<DocumentTags> handleRemovedTagAddOrUpdate(
-        @PathVariable("docId") String documentId, @RequestBody Tag removedTag)
-        throws SQLException, IOException {
-
-        UpsertResult<DocumentTags> dt = dataSource.addRemovedTag(
-            getCurrentUserId(), documentId, removedTag);
+    public DeferredResult<ResponseEntity<DocumentTags>>
+    handleRemovedTagAddOrUpdate(
+        @PathVariable("docId") String documentId, @RequestBody Tag removedTag) {
 
         if(removedTag.getRaw() != -1 || removedTag.getValue() != -1)
             throw new IllegalAnnotationValueException(
                 "Attempted to create annotation with abnormal weight");
 
-        // 201 if new, 200 if updated
-        return ResponseEntity
-            .status(dt.wasCreated() ? HttpStatus.CREATED : HttpStatus.OK)
-            .location(
-                UriComponentsBuilder.fromUriString("./{docId}/{tag}")
-                    .buildAndExpand(documentId, removedTag.getName())
-                    .encode().toUri())
-            .body(dt.getValue());
+        String userId = getCurrentUserId();
+
+        return write(userId, () -> {
+            UpsertResult<DocumentTags> dt = dataSource.addRemovedTag(
+                userId, documentId, removedTag);
+
+            // 201 if new, 200 if updated
+            return ResponseEntity
+                .status(dt.wasCreated() ? HttpStatus.CREATED : HttpStatus.OK)
+                .location(
+                    UriComponentsBuilder.fromUriString("./{docId}/{tag}")
+                        .buildAndExpand(documentId, removedTag.getName())
+                        .encode().toUri())
+                .body(dt.getValue());
+        });
     }
 
     @RequestMapping(value = "/rmvtag/{docId}/{tag}",
                     method = RequestMethod.DELETE)
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> handleRemovedTagDelete(
+    public DeferredResult<ResponseEntity<?>> handleRemovedTagDelete(
         @PathVariable("docId") String documentId,
-        @PathVariable("tag") String tagName) throws SQLException {
+        @PathVariable("tag") String tagName) {
 
-        boolean deleted = dataSource.removeRemovedTag(
-            getCurrentUserId(), documentId, tagName);
+        String userId = getCurrentUserId();
 
-        if(deleted)
-            return ResponseEntity.noContent().build();
+        return write(userId, () -> {
+            boolean deleted = dataSource.removeRemovedTag(
+                userId, documentId, tagName);
 
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-            .body("Tag does not exist: " + tagName);
-    }
-
-    // on path /export
-    @RequestMapping(value = "/export", method = RequestMethod.GET, produces = MEDIA_RDF)
-    @PreAuthorize("isAuthenticated()")
-    public void handleUserContributionsExport(HttpServletRequest request, HttpServletResponse response) throws IOException, ImageResolverException {
+            if(deleted)
+                return ResponseEntity.noContent().build();
 
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body("Tag does not exist: " + tagName);
+        });
+    }
 
-        UserAnnotations userAnnotations = dataSource.getAnnotationsByUser(auth.getName());
+    /**
+     * Respond with the RDF export of a user's annotations.
+     *
+     * <p>The rendered RDF is cached with its compressed forms until the
+     * annotations change, which is detected by hashing their serialisation.
+     * The hash is the entity tag of the response.
+     *
+     * @param documentId The exported document, or null for all documents.
+     */
+    private ResponseEntity<byte[]> exportResponse(
+        String userId, String documentId, String baseUrl,
+        String acceptEncoding, List<DocumentAnnotations> annotations)
+        throws IOException, ImageResolverException {
+
+        String version = Hashing.murmur3_128()
+            .hashBytes(objectMapper.writeValueAsBytes(annotations)).toString();
+
+        PrecompressedBody rdf = exports.get(
+            Arrays.asList(userId, documentId, baseUrl), version,
+            () -> renderExport(userId, baseUrl, annotations));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" +
+                (documentId == null ? "USER" : documentId) + "_" +
+                getFilenameDateString() + ".rdf")
+            .cacheControl(CACHE_PRIVATE)
+            .contentType(MediaType.valueOf(MEDIA_RDF))
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        return encodedResponse(response, version, rdf, acceptEncoding);
+    }
 
-        String baseUrl = String.format("%s://%s:%d/", request.getScheme(), request.getServerName(), request.getServerPort());
+    private byte[] renderExport(
+        String userId, String baseUrl, List<DocumentAnnotations> annotations)
+        throws ImageResolverException {
 
-        RDFReader rr = new RDFReader(auth.getName(), baseUrl, imageResolver);
+        RDFReader rr = new RDFReader(userId, baseUrl, imageResolver);
 
-        for (DocumentAnnotations docAnnotations : userAnnotations.getDocumentAnnotations()) {
+        for (DocumentAnnotations docAnnotations : annotations) {
             String documentId = docAnnotations.getDocumentId();
             for (Annotation annotation : docAnnotations.getTerms()) {
                 rr.addElement(annotation, documentId);
             }
         }
 
-        response.setHeader("Content-Disposition", "attachment; filename=" +
-            ("USER" + "_" + getFilenameDateString()) + ".rdf");
-        response.setHeader("Cache-Control", CACHE_PRIVATE.getHeaderValue());
-        response.setHeader("Content-Type", MEDIA_RDF);
-
-        OutputStream os = response.getOutputStream();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
         rr.getModel().write(os, RDFFormat.RDFXML.getLang().getName());
-        response.flushBuffer();
-        os.close();
+        return os.toByteArray();
+    }
+
+    private static String getBaseUrl(HttpServletRequest request) {
+        return String.format("%s://%s:%d/", request.getScheme(), request.getServerName(), request.getServerPort());
     }
 
     // on path /export
-    @RequestMapping(value = "/export/{docId}", method = RequestMethod.GET, produces = MEDIA_RDF)
+    @RequestMapping(value = "/export", method = RequestMethod.GET, produces = MEDIA_RDF)
     @PreAuthorize("isAuthenticated()")
-    public void handleUserDocumentContributionsExport(@PathVariable("docId") String documentId, HttpServletRequest request,
-            HttpServletResponse response) throws IOException, ImageResolverException {
-
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-
-        DocumentAnnotations docAnnotations = dataSource.getAnnotations(auth.getName(), documentId);
-
-        String baseUrl = String.format("%s://%s:%d/", request.getScheme(), request.getServerName(), request.getServerPort());
-
-        RDFReader rr = new RDFReader(auth.getName(), baseUrl, imageResolver);
-
-        for (Annotation annotation : docAnnotations.getTerms()) {
-            rr.addElement(annotation, documentId);
-        }
-
-        // prepareResp(response, "application/rdf+xml; charset=utf-8");
-        response.setHeader("Content-Disposition", "attachment; filename=" +
-            (documentId + "_" + getFilenameDateString()) + ".rdf");
-        response.setHeader("Cache-Control", CACHE_PRIVATE.getHeaderValue());
-
-
+    public DeferredResult<ResponseEntity<byte[]>> handleUserContributionsExport(
+        HttpServletRequest request,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+
+        String userId = getCurrentUserId();
+        String baseUrl = getBaseUrl(request);
+
+        // Rendering resolves images over HTTP, so it's kept off the database
+        // pool
+        return async.execute(stages -> stages
+            .db(() -> dataSource.getAnnotationsByUser(userId))
+            .thenCompose(userAnnotations -> stages.http(() -> exportResponse(
+                userId, null, baseUrl, acceptEncoding,
+                userAnnotations.getDocumentAnnotations()))));
+    }
 
-        OutputStream os = response.getOutputStream();
-        rr.getModel().write(os, RDFFormat.RDFXML.getLang().getName());
-        response.flushBuffer();
-        os.close();
+    // on path /export
+    @RequestMapping(value = "/export/{docId}", method = RequestMethod.GET, produces = MEDIA_RDF)
+    @PreAuthorize("isAuthenticated()")
+    public DeferredResult<ResponseEntity<byte[]>>
+    handleUserDocumentContributionsExport(
+        @PathVariable("docId") String documentId, HttpServletRequest request,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+
+        String userId = getCurrentUserId();
+        String baseUrl = getBaseUrl(request);
+
+        return async.execute(stages -> stages
+            .db(() -> dataSource.getAnnotations(userId, documentId))
+            .thenCompose(docAnnotations -> stages.http(() -> exportResponse(
+                userId, documentId, baseUrl, acceptEncoding,
+                Collections.singletonList(docAnnotations)))));
     }
 
     @ExceptionHandler
@@ -390,4 +770,20 @@ public class CrowdsourcingController {
 
         resp.sendError(HttpStatus.FORBIDDEN.value(), e.getMessage());
     }
+
+    @ExceptionHandler
+    public void handleIllegalTagCloudQuery(
+        HttpServletResponse resp, IllegalTagCloudQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+
+    @ExceptionHandler
+    public void handleIllegalAnnotationsQuery(
+        HttpServletResponse resp, IllegalAnnotationsQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
 }
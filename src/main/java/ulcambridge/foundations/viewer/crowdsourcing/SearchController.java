@@ -0,0 +1,114 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.search.DocumentTermIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.search.SearchResults;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles requests to find documents by the terms they have.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing")
+public class SearchController {
+
+    private static final int MAX_TERMS = 10;
+
+    private static final CacheControl CACHE_PUBLIC_FREQUENTLY_CHANGING =
+        CacheControl.empty()
+            .cachePublic()
+            .sMaxAge(1, TimeUnit.MINUTES);
+
+    private final DocumentTermIndex index;
+    private final int maxLimit;
+
+    @Autowired
+    public SearchController(
+        DocumentTermIndex index,
+        @Value("${cudl.tagging.search.max-limit:100}") int maxLimit) {
+
+        Assert.notNull(index);
+        Assert.isTrue(maxLimit > 0, "maxLimit must be positive");
+
+        this.index = index;
+        this.maxLimit = maxLimit;
+    }
+
+    static class IllegalSearchQueryException extends RuntimeException {
+        public IllegalSearchQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the documents which have all or any of a set of terms.
+     *
+     * @param terms The term names to search for.
+     * @param operator {@code and} to match documents with every term, or
+     *                 {@code or} to match documents with any of them.
+     * @param limit The maximum number of documents to return.
+     * @param cursor The {@code next} value of the previous page of results.
+     */
+    @RequestMapping(value = "/search",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    public ResponseEntity<SearchResults> handleSearch(
+        @RequestParam("term") List<String> terms,
+        @RequestParam(value = "op", defaultValue = "and") String operator,
+        @RequestParam(value = "limit", defaultValue = "20") int limit,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+
+        if(terms.isEmpty() || terms.size() > MAX_TERMS)
+            throw new IllegalSearchQueryException(
+                "between 1 and " + MAX_TERMS + " terms must be specified");
+        if(limit < 1 || limit > maxLimit)
+            throw new IllegalSearchQueryException(
+                "limit must be between 1 and " + maxLimit);
+
+        DocumentTermIndex.Operator op;
+        try {
+            op = DocumentTermIndex.Operator.valueOf(
+                operator.toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException e) {
+            throw new IllegalSearchQueryException("op must be and or or");
+        }
+
+        SearchResults results;
+        try {
+            results = index.search(terms, op, limit, cursor);
+        }
+        catch(IllegalArgumentException e) {
+            throw new IllegalSearchQueryException(e.getMessage());
+        }
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PUBLIC_FREQUENTLY_CHANGING)
+            .body(results);
+    }
+
+    @ExceptionHandler
+    public void handleIllegalSearchQuery(
+        HttpServletResponse resp, IllegalSearchQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
@@ -0,0 +1,91 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.similar.DocumentSimilarityIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.similar.SimilarDocuments;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles requests for documents with terms similar to a document's.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing")
+public class SimilarDocumentsController {
+
+    private static final CacheControl CACHE_PUBLIC_INFREQUENTLY_CHANGING =
+        CacheControl.empty()
+            .cachePublic()
+            .sMaxAge(1, TimeUnit.HOURS);
+
+    private final DocumentSimilarityIndex similarity;
+    private final int maxLimit;
+
+    @Autowired
+    public SimilarDocumentsController(
+        DocumentSimilarityIndex similarity,
+        @Value("${cudl.tagging.similar.max-limit:50}") int maxLimit) {
+
+        Assert.notNull(similarity);
+        Assert.isTrue(maxLimit > 0, "maxLimit must be positive");
+
+        this.similarity = similarity;
+        this.maxLimit = maxLimit;
+    }
+
+    static class IllegalSimilarDocumentsQueryException
+        extends RuntimeException {
+
+        public IllegalSimilarDocumentsQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the documents whose combined terms are most similar to a
+     * document's.
+     *
+     * @param documentId The document to find similar documents to.
+     * @param limit The maximum number of documents to return.
+     */
+    @RequestMapping(value = "/similar/{docId}",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    public ResponseEntity<SimilarDocuments> handleSimilarDocumentsFetch(
+        @PathVariable("docId") String documentId,
+        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        if(limit < 1 || limit > maxLimit)
+            throw new IllegalSimilarDocumentsQueryException(
+                "limit must be between 1 and " + maxLimit);
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PUBLIC_INFREQUENTLY_CHANGING)
+            .body(new SimilarDocuments(
+                documentId,
+                similarity.getSimilarDocuments(documentId, limit)));
+    }
+
+    @ExceptionHandler
+    public void handleIllegalSimilarDocumentsQuery(
+        HttpServletResponse resp, IllegalSimilarDocumentsQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
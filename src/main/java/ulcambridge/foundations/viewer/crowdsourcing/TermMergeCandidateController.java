@@ -0,0 +1,111 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import com.google.common.collect.ImmutableSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.canonical.MergeCandidate;
+import ulcambridge.foundations.viewer.crowdsourcing.canonical.TermMergeCandidateIndex;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Handles administrators' requests to review term names which are probably
+ * variants of another name.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing/admin")
+public class TermMergeCandidateController {
+
+    private static final CacheControl CACHE_PRIVATE = CacheControl.noCache();
+
+    private final TermMergeCandidateIndex candidates;
+    private final Set<String> adminUsers;
+    private final int maxLimit;
+
+    @Autowired
+    public TermMergeCandidateController(
+        TermMergeCandidateIndex candidates,
+        @Value("${cudl.tagging.admin.users:}") String[] adminUsers,
+        @Value("${cudl.tagging.canonical.max-limit:1000}") int maxLimit) {
+
+        Assert.notNull(candidates);
+        Assert.notNull(adminUsers);
+        Assert.isTrue(maxLimit > 0, "maxLimit must be positive");
+
+        this.candidates = candidates;
+        this.adminUsers = ImmutableSet.copyOf(Arrays.stream(adminUsers)
+            .map(String::trim)
+            .filter(u -> !u.isEmpty())
+            .iterator());
+        this.maxLimit = maxLimit;
+    }
+
+    private static class PermissionDeniedException extends RuntimeException { }
+
+    static class IllegalMergeCandidateQueryException extends RuntimeException {
+        public IllegalMergeCandidateQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get names which are probably variants of a more used name, to be
+     * reviewed before being added to the aliases file.
+     *
+     * @param names The number of most used names to find variants of.
+     * @param limit The maximum number of candidates to return.
+     */
+    @RequestMapping(value = "/terms/merge-candidates",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<MergeCandidate>> handleMergeCandidatesFetch(
+        @RequestParam(value = "names", defaultValue = "200") int names,
+        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        String userId = SecurityContextHolder.getContext()
+            .getAuthentication().getName();
+        if(!adminUsers.contains(userId))
+            throw new PermissionDeniedException();
+
+        if(names < 1 || names > maxLimit || limit < 1 || limit > maxLimit)
+            throw new IllegalMergeCandidateQueryException(
+                "names and limit must be between 1 and " + maxLimit);
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PRIVATE)
+            .body(candidates.getMergeCandidates(names, limit));
+    }
+
+    @ExceptionHandler(PermissionDeniedException.class)
+    private ResponseEntity<Void> handlePermissionDenied(
+        PermissionDeniedException e) {
+
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    @ExceptionHandler
+    public void handleIllegalMergeCandidateQuery(
+        HttpServletResponse resp, IllegalMergeCandidateQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
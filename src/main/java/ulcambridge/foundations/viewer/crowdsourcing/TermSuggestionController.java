@@ -0,0 +1,86 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.suggest.TermSuggestionIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.suggest.TermSuggestions;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles requests for type-ahead suggestions of existing term names.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing")
+public class TermSuggestionController {
+
+    private static final CacheControl CACHE_PUBLIC_FREQUENTLY_CHANGING =
+        CacheControl.empty()
+            .cachePublic()
+            .sMaxAge(1, TimeUnit.MINUTES);
+
+    private final TermSuggestionIndex suggestions;
+    private final int maxLimit;
+
+    @Autowired
+    public TermSuggestionController(
+        TermSuggestionIndex suggestions,
+        @Value("${cudl.tagging.suggest.max-limit:50}") int maxLimit) {
+
+        Assert.notNull(suggestions);
+        Assert.isTrue(maxLimit > 0, "maxLimit must be positive");
+
+        this.suggestions = suggestions;
+        this.maxLimit = maxLimit;
+    }
+
+    static class IllegalSuggestionQueryException extends RuntimeException {
+        public IllegalSuggestionQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the most popular term names starting with a prefix.
+     *
+     * @param query The prefix to match, ignoring case and accents.
+     * @param limit The maximum number of terms to return.
+     */
+    @RequestMapping(value = "/terms/suggest",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    public ResponseEntity<TermSuggestions> handleTermSuggestionFetch(
+        @RequestParam("q") String query,
+        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        if(limit < 1 || limit > maxLimit)
+            throw new IllegalSuggestionQueryException(
+                "limit must be between 1 and " + maxLimit);
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PUBLIC_FREQUENTLY_CHANGING)
+            .body(new TermSuggestions(
+                query, suggestions.suggest(query, limit)));
+    }
+
+    @ExceptionHandler
+    public void handleIllegalSuggestionQuery(
+        HttpServletResponse resp, IllegalSuggestionQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
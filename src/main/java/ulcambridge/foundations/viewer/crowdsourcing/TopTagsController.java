@@ -0,0 +1,101 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.toptags.TopTags;
+import ulcambridge.foundations.viewer.crowdsourcing.toptags.TopTagsIndex;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles requests for the site-wide popular and trending tags.
+ */
+@RestController
+@CrossOrigin(allowCredentials = "false")
+@RequestMapping("/crowdsourcing")
+public class TopTagsController {
+
+    private static final String WINDOW_ALL = "all";
+    private static final String WINDOW_TRENDING = "trending";
+
+    private static final CacheControl CACHE_PUBLIC_FREQUENTLY_CHANGING =
+        CacheControl.empty()
+            .cachePublic()
+            .sMaxAge(5, TimeUnit.MINUTES);
+
+    private final TopTagsIndex topTags;
+    private final int maxLimit;
+
+    @Autowired
+    public TopTagsController(
+        TopTagsIndex topTags,
+        @Value("${cudl.tagging.top-tags.max-limit:500}") int maxLimit) {
+
+        Assert.notNull(topTags);
+        Assert.isTrue(maxLimit > 0, "maxLimit must be positive");
+
+        this.topTags = topTags;
+        this.maxLimit = maxLimit;
+    }
+
+    static class IllegalTopTagsQueryException extends RuntimeException {
+        public IllegalTopTagsQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Get the highest valued terms across all documents.
+     *
+     * @param window {@code all} for all time, or {@code trending} for terms
+     *               contributed by users recently.
+     * @param limit The maximum number of terms to return.
+     */
+    @RequestMapping(value = "/tags/top",
+                    method = RequestMethod.GET,
+                    produces = { "application/json" })
+    public ResponseEntity<TopTags> handleTopTagsFetch(
+        @RequestParam(value = "window", defaultValue = WINDOW_ALL)
+            String window,
+        @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        if(limit < 1 || limit > maxLimit)
+            throw new IllegalTopTagsQueryException(
+                "limit must be between 1 and " + maxLimit);
+
+        List<Term> terms;
+        if(WINDOW_ALL.equals(window))
+            terms = topTags.getTopTerms(limit);
+        else if(WINDOW_TRENDING.equals(window))
+            terms = topTags.getTrendingTerms(limit);
+        else
+            throw new IllegalTopTagsQueryException(
+                "window must be " + WINDOW_ALL + " or " + WINDOW_TRENDING);
+
+        return ResponseEntity.ok()
+            .cacheControl(CACHE_PUBLIC_FREQUENTLY_CHANGING)
+            .body(new TopTags(window, terms));
+    }
+
+    @ExceptionHandler
+    public void handleIllegalTopTagsQuery(
+        HttpServletResponse resp, IllegalTopTagsQueryException e)
+        throws IOException {
+
+        resp.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
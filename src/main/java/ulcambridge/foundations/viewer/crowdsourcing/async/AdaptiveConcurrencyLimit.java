@@ -0,0 +1,182 @@
+package ulcambridge.foundations.viewer.crowdsourcing.async;
+
+import org.springframework.util.Assert;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of calls to a service which run at once, adapting the
+ * limit to the service's latency.
+ *
+ * <p>The limit follows the gradient between a long-term average of latency,
+ * the service's baseline, and a short-term average. While latency stays
+ * within {@value #TOLERANCE} times the baseline, the limit grows; as it rises
+ * beyond that, the limit shrinks in proportion, down to half per sample. A
+ * rise which lasts becomes the new baseline, so the limit recovers once the
+ * service settles at its new latency. The limit is only adjusted while at
+ * least half of it is in use, as it says nothing about a service which isn't
+ * busy.
+ *
+ * <p>Calls of lower priority may only use part of the limit, so as the limit
+ * shrinks they're refused before those of higher priority.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /** The kinds of call, from the first to be refused to the last. */
+    public enum Priority {
+        /** Reads of everything a user has done, such as exports. */
+        EXPORT(0.5),
+        /** Reads of a single document's terms. */
+        READ(0.75),
+        /** Changes to a user's annotations or removed tags. */
+        WRITE(1.0);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+
+        /** @return The fraction of the limit calls of this kind may use. */
+        public double getShare() {
+            return share;
+        }
+    }
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SHORT_SMOOTHING = 2.0 / (10 + 1);
+    private static final double LONG_SMOOTHING = 2.0 / (600 + 1);
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, LongAdder> refused = new EnumMap<>(Priority.class);
+
+    private volatile double limit;
+    // Guarded by this
+    private double shortLatency;
+    private double longLatency;
+
+    /** A call which has been allowed to run. */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        private Permit() { }
+
+        /**
+         * End the call, using its duration to adjust the limit. Only calls
+         * whose duration depends on the service's load should be measured.
+         */
+        public void complete() {
+            if(end())
+                sample(System.nanoTime() - start);
+        }
+
+        /** End the call without measuring it. */
+        public void release() {
+            end();
+        }
+
+        private boolean end() {
+            if(released)
+                return false;
+            released = true;
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * @param initialLimit The limit until latency has been measured.
+     * @param minLimit The lowest the limit can shrink to.
+     * @param maxLimit The highest the limit can grow to.
+     */
+    public AdaptiveConcurrencyLimit(
+        int initialLimit, int minLimit, int maxLimit) {
+
+        Assert.isTrue(minLimit > 0, "minLimit must be positive");
+        Assert.isTrue(maxLimit >= minLimit, "maxLimit was less than minLimit");
+        Assert.isTrue(initialLimit >= minLimit && initialLimit <= maxLimit,
+                      "initialLimit must be between minLimit and maxLimit");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        for(Priority priority : Priority.values())
+            refused.put(priority, new LongAdder());
+    }
+
+    /**
+     * Allow a call to start if its priority's share of the limit isn't in use.
+     * The permit must be completed or released by the thread which makes the
+     * call.
+     *
+     * @return A permit, or null if the call is refused.
+     */
+    public Permit tryAcquire(Priority priority) {
+        double allowed = limit * priority.getShare();
+        while(true) {
+            int current = inFlight.get();
+            if(current >= allowed) {
+                refused.get(priority).increment();
+                return null;
+            }
+            if(inFlight.compareAndSet(current, current + 1))
+                return new Permit();
+        }
+    }
+
+    private synchronized void sample(long latency) {
+        if(shortLatency == 0) {
+            shortLatency = longLatency = latency;
+            return;
+        }
+
+        shortLatency += (latency - shortLatency) * SHORT_SMOOTHING;
+        longLatency += (latency - longLatency) * LONG_SMOOTHING;
+
+        // Recover quickly from a baseline raised by a passing slowdown
+        if(longLatency > 2 * shortLatency)
+            longLatency *= 0.95;
+
+        if(inFlight.get() + 1 < limit / 2)
+            return;
+
+        double gradient = Math.max(
+            0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /** @return The short-term average latency in milliseconds. */
+    public synchronized double getLatencyMillis() {
+        return shortLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /** @return The long-term average latency in milliseconds. */
+    public synchronized double getBaselineLatencyMillis() {
+        return longLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /** @return The number of calls of a priority which were refused. */
+    public long getRefusedCount(Priority priority) {
+        return refused.get(priority).sum();
+    }
+}
@@ -0,0 +1,175 @@
+package ulcambridge.foundations.viewer.crowdsourcing.async;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Runs the blocking work of request handlers, either on the request's thread
+ * or, when asynchronous, on bounded pools for database and HTTP work so that
+ * request threads aren't held while waiting.
+ *
+ * <p>Handlers describe their work as {@link Stages} and return the
+ * {@link DeferredResult} of the last. When the request completes, including
+ * when it times out or the client disconnects, its outstanding stages are
+ * cancelled.
+ */
+public class AsyncRequestExecutor {
+
+    /** The ways a handler can run blocking work. */
+    public interface Stages {
+        /** Run work which uses the database. */
+        <T> CompletableFuture<T> db(Callable<T> task);
+
+        /** Run work which calls other services over HTTP. */
+        <T> CompletableFuture<T> http(Callable<T> task);
+    }
+
+    private final RequestPool dbPool;
+    private final RequestPool httpPool;
+
+    /**
+     * Create an executor which runs work on the request's thread.
+     */
+    public AsyncRequestExecutor() {
+        this.dbPool = null;
+        this.httpPool = null;
+    }
+
+    /**
+     * Create an executor which runs work asynchronously.
+     */
+    public AsyncRequestExecutor(RequestPool dbPool, RequestPool httpPool) {
+        Assert.notNull(dbPool);
+        Assert.notNull(httpPool);
+
+        this.dbPool = dbPool;
+        this.httpPool = httpPool;
+    }
+
+    public boolean isAsync() {
+        return dbPool != null;
+    }
+
+    /**
+     * Run a handler's work.
+     *
+     * @param handler Starts the handler's stages with the {@link Stages}
+     *                passed to it, returning the last.
+     */
+    public <T> DeferredResult<T> execute(
+        Function<Stages, ? extends CompletionStage<T>> handler) {
+
+        DeferredResult<T> result;
+        Stages stages;
+        if(isAsync()) {
+            // Each stage times out on its own; this is a backstop
+            AsyncStages async = new AsyncStages(
+                SecurityContextHolder.getContext());
+            result = new DeferredResult<>(
+                dbPool.getTimeoutMillis() + httpPool.getTimeoutMillis(),
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build());
+            result.onCompletion(async::cancel);
+            stages = async;
+        }
+        else {
+            result = new DeferredResult<>();
+            stages = SYNC_STAGES;
+        }
+
+        try {
+            handler.apply(stages).whenComplete((value, e) -> {
+                if(e == null)
+                    result.setResult(value);
+                else
+                    result.setErrorResult(unwrap(e));
+            });
+        }
+        catch(RuntimeException e) {
+            result.setErrorResult(e);
+        }
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while(e instanceof CompletionException && e.getCause() != null)
+            e = e.getCause();
+        return e;
+    }
+
+    private static final Stages SYNC_STAGES = new Stages() {
+        @Override
+        public <T> CompletableFuture<T> db(Callable<T> task) {
+            return call(task);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> http(Callable<T> task) {
+            return call(task);
+        }
+
+        private <T> CompletableFuture<T> call(Callable<T> task) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                result.complete(task.call());
+            }
+            catch(Exception e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+    };
+
+    private final class AsyncStages implements Stages {
+        private final SecurityContext context;
+        private final List<CompletableFuture<?>> started = new ArrayList<>();
+        private boolean cancelled;
+
+        AsyncStages(SecurityContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> db(Callable<T> task) {
+            return start(dbPool, task);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> http(Callable<T> task) {
+            return start(httpPool, task);
+        }
+
+        private synchronized <T> CompletableFuture<T> start(
+            RequestPool pool, Callable<T> task) {
+
+            if(cancelled) {
+                CompletableFuture<T> result = new CompletableFuture<>();
+                result.cancel(false);
+                return result;
+            }
+
+            CompletableFuture<T> result = pool.submit(task, context);
+            started.add(result);
+            return result;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            started.forEach(stage -> stage.cancel(false));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ulcambridge.foundations.viewer.crowdsourcing.async;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of threads which runs one kind of blocking work for
+ * requests, such as database queries or calls to other services.
+ *
+ * <p>Work is queued up to a limit, beyond which it's rejected. Work which
+ * hasn't completed within the pool's timeout fails with a
+ * {@link ServiceOverloadedException}. Work which is cancelled or times out
+ * while queued is dropped from the queue; work which is already running can't
+ * be interrupted, as JDBC and HTTP calls don't respond to interrupts, so it
+ * completes and its result is discarded.
+ */
+public class RequestPool {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * @param name The name of the pool, used to name its threads.
+     * @param timer Schedules the timeouts of work.
+     */
+    public RequestPool(String name, int threads, int queueSize,
+                       long timeoutMillis, ScheduledExecutorService timer) {
+        Assert.hasText(name);
+        Assert.isTrue(threads > 0, "threads must be positive");
+        Assert.isTrue(queueSize > 0, "queueSize must be positive");
+        Assert.isTrue(timeoutMillis > 0, "timeoutMillis must be positive");
+        Assert.notNull(timer);
+
+        this.name = name;
+        this.timer = timer;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            new ThreadFactoryBuilder()
+                .setNameFormat(name + "-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /** @return The executor running the pool's work. */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Run a task in the pool.
+     *
+     * @param context The security context to run the task with, or null.
+     * @return The result of the task. Cancelling it cancels the task.
+     */
+    public <T> CompletableFuture<T> submit(
+        Callable<T> callable, SecurityContext context) {
+
+        Task<T> task = new Task<>(callable, context);
+        try {
+            executor.execute(task);
+        }
+        catch(RejectedExecutionException e) {
+            rejected.increment();
+            task.completeExceptionally(new ServiceOverloadedException(
+                "The " + name + " queue is full"));
+            return task;
+        }
+
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            // Drop the task before its waiters are woken
+            executor.remove(task);
+            if(task.completeExceptionally(new ServiceOverloadedException(
+                    "Timed out waiting for " + name)))
+                timedOut.increment();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        task.whenComplete((result, e) -> timeout.cancel(false));
+
+        return task;
+    }
+
+    /** The number of tasks rejected because the queue was full. */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** The number of tasks which didn't complete within the timeout. */
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    /** The number of tasks cancelled before they completed. */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class Task<T> extends CompletableFuture<T>
+        implements Runnable {
+
+        private final Callable<T> callable;
+        private final SecurityContext context;
+
+        Task(Callable<T> callable, SecurityContext context) {
+            this.callable = callable;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            // Skip tasks cancelled or timed out while queued
+            if(isDone())
+                return;
+
+            if(context != null)
+                SecurityContextHolder.setContext(context);
+            try {
+                complete(callable.call());
+            }
+            catch(Throwable e) {
+                completeExceptionally(e);
+            }
+            finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean wasCancelled = super.cancel(false);
+            if(wasCancelled) {
+                cancelled.increment();
+                executor.remove(this);
+            }
+            return wasCancelled;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ulcambridge.foundations.viewer.crowdsourcing.async;
+
+/**
+ * Thrown when a request can't be served because the service is busy. Clients
+ * should retry later.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,164 @@
+package ulcambridge.foundations.viewer.crowdsourcing.canonical;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Burkhard-Keller tree of strings, to find those within an edit distance of
+ * a string.
+ *
+ * <p>Each child of a node is at a distinct Levenshtein distance from it. By
+ * the triangle inequality, the strings within distance k of a query are
+ * only found under children whose distance from their parent differs from
+ * the query's by at most k, so searches skip most of the tree when k is
+ * small.
+ *
+ * <p>Instances are not thread safe.
+ */
+final class BKTree {
+
+    private static final class Node {
+        final String value;
+        /** Children by their distance from this node. */
+        Node[] children;
+
+        Node(String value) {
+            this.value = value;
+        }
+    }
+
+    private Node root;
+    private int size;
+    private int[] row = new int[16];
+    private int[] previousRow = new int[16];
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a string to the tree, if it's not already present.
+     *
+     * @return true if the string was added.
+     */
+    public boolean add(String value) {
+        Assert.notNull(value);
+
+        if(root == null) {
+            root = new Node(value);
+            size = 1;
+            return true;
+        }
+
+        Node node = root;
+        while(true) {
+            int d = distance(node.value, value);
+            if(d == 0)
+                return false;
+
+            if(node.children == null || node.children.length <= d)
+                node.children = Arrays.copyOf(
+                    node.children == null ? new Node[0] : node.children,
+                    d + 1);
+
+            if(node.children[d] == null) {
+                node.children[d] = new Node(value);
+                ++size;
+                return true;
+            }
+            node = node.children[d];
+        }
+    }
+
+    /**
+     * Pass each string within maxDistance of a query, and its distance, to a
+     * consumer.
+     */
+    public void search(String query, int maxDistance,
+                       ObjIntConsumer<String> consumer) {
+        Assert.notNull(query);
+        Assert.isTrue(maxDistance >= 0, "maxDistance was negative");
+
+        if(root == null)
+            return;
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while(!pending.isEmpty()) {
+            Node node = pending.pop();
+
+            // Distances beyond those of the node's children only tell us
+            // that neither the node nor its children match.
+            int maxChild = node.children == null ? 0 : node.children.length - 1;
+            int d = distance(node.value, query, maxChild + maxDistance);
+            if(d <= maxDistance)
+                consumer.accept(node.value, d);
+
+            if(node.children == null)
+                continue;
+            int end = Math.min(d + maxDistance, maxChild);
+            for(int i = Math.max(1, d - maxDistance); i <= end; ++i) {
+                if(node.children[i] != null)
+                    pending.push(node.children[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The Levenshtein distance between two strings, in UTF-16 code
+     *         units.
+     */
+    int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @return The Levenshtein distance between two strings, in UTF-16 code
+     *         units, or limit + 1 if it's greater than limit.
+     */
+    private int distance(String a, String b, int limit) {
+        if(a.length() < b.length()) {
+            String t = a;
+            a = b;
+            b = t;
+        }
+        int n = b.length();
+        if(a.length() - n > limit)
+            return limit + 1;
+        if(n == 0)
+            return a.length();
+
+        if(row.length <= n) {
+            row = new int[n + 1];
+            previousRow = new int[n + 1];
+        }
+        int[] previous = previousRow, current = row;
+        for(int j = 0; j <= n; ++j)
+            previous[j] = j;
+
+        for(int i = 1; i <= a.length(); ++i) {
+            char c = a.charAt(i - 1);
+            current[0] = i;
+            int rowMin = i;
+            for(int j = 1; j <= n; ++j) {
+                int substitution = previous[j - 1] +
+                    (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(
+                    substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // The distance is at least the minimum of any row
+            if(rowMin > limit)
+                return limit + 1;
+
+            int[] t = previous;
+            previous = current;
+            current = t;
+        }
+        return previous[n];
+    }
+}
@@ -0,0 +1,69 @@
+package ulcambridge.foundations.viewer.crowdsourcing.canonical;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.util.Assert;
+
+import java.util.Comparator;
+
+/**
+ * A term name which is probably a variant of a more used name.
+ */
+public final class MergeCandidate {
+    static final Comparator<MergeCandidate> ORDER = Comparator
+        .comparingInt(MergeCandidate::getCanonicalCount).reversed()
+        .thenComparingInt(MergeCandidate::getDistance)
+        .thenComparing(MergeCandidate::getCanonical)
+        .thenComparing(MergeCandidate::getVariant);
+
+    private final String variant;
+    private final int variantCount;
+    private final String canonical;
+    private final int canonicalCount;
+    private final int distance;
+
+    MergeCandidate(String variant, int variantCount,
+                   String canonical, int canonicalCount, int distance) {
+        Assert.notNull(variant);
+        Assert.notNull(canonical);
+
+        this.variant = variant;
+        this.variantCount = variantCount;
+        this.canonical = canonical;
+        this.canonicalCount = canonicalCount;
+        this.distance = distance;
+    }
+
+    @JsonProperty("variant")
+    public String getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return The number of terms with the variant name.
+     */
+    @JsonProperty("variantCount")
+    public int getVariantCount() {
+        return variantCount;
+    }
+
+    @JsonProperty("canonical")
+    public String getCanonical() {
+        return canonical;
+    }
+
+    /**
+     * @return The number of terms with the canonical name.
+     */
+    @JsonProperty("canonicalCount")
+    public int getCanonicalCount() {
+        return canonicalCount;
+    }
+
+    /**
+     * @return The edit distance between the names, ignoring case.
+     */
+    @JsonProperty("distance")
+    public int getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,64 @@
+package ulcambridge.foundations.viewer.crowdsourcing.canonical;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Term names which have been reviewed and found to be variants of another
+ * name, such as misspellings, mapped to the canonical name.
+ *
+ * <p>Aliases are read from a JSON object of alias to canonical name, for
+ * example {@code {"Darwn": "Darwin"}}, and added to a
+ * {@link TermDictionary} so terms with an alias are merged with, and
+ * reported as, the canonical name.
+ */
+public final class TermAliases {
+
+    private final ImmutableMap<String, String> aliases;
+
+    public TermAliases(Map<String, String> aliases) {
+        Assert.notNull(aliases);
+
+        this.aliases = ImmutableMap.copyOf(aliases);
+    }
+
+    /**
+     * Read aliases from a JSON file.
+     */
+    public static TermAliases load(Path file, ObjectMapper objectMapper)
+        throws IOException {
+
+        Assert.notNull(file);
+        Assert.notNull(objectMapper);
+
+        try(InputStream in = Files.newInputStream(file)) {
+            return new TermAliases(objectMapper.readValue(
+                in, new TypeReference<LinkedHashMap<String, String>>() {}));
+        }
+    }
+
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Add the aliases to a dictionary.
+     *
+     * @throws IllegalArgumentException if an alias is not valid in the
+     *         dictionary.
+     * @see TermDictionary#addAlias(String, String)
+     */
+    public void addTo(TermDictionary dictionary) {
+        aliases.forEach(dictionary::addAlias);
+    }
+}
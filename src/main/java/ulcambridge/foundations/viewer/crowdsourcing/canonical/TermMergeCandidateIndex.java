@@ -0,0 +1,185 @@
+package ulcambridge.foundations.viewer.crowdsourcing.canonical;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermNameNormaliser;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Finds term names which are probably variants of a more popular name, such
+ * as misspellings, for review before being made aliases of it.
+ *
+ * <p>Variants which differ only in case or whitespace are already merged by
+ * the {@link TermDictionary}.
+ * This index holds the usage count of every canonical name, maintained from
+ * the changes published by the DAO, and a {@link BKTree} of the keys of each
+ * length.
+ * Candidates are found on request by searching the tree for the names within
+ * the maximum edit distance of each of the most used names, so the cost of
+ * finding them falls on reviewers rather than on writes; writes only add
+ * names not seen before to a queue, which is drained into the tree before
+ * each search.
+ *
+ * <p>The index is seeded from the database in the background after startup,
+ * by a {@link TermsSeeder}.
+ */
+public class TermMergeCandidateIndex {
+
+    private static final class Name {
+        /**
+         * The spelling reported, which is the first in Unicode order of those
+         * seen, as with {@link TermDictionary#preferredName}.
+         */
+        final AtomicReference<String> name;
+        final AtomicInteger count = new AtomicInteger();
+
+        Name(String name) {
+            this.name = new AtomicReference<>(name);
+        }
+
+        void addSpelling(String spelling) {
+            name.accumulateAndGet(
+                spelling, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+    }
+
+    private final int maxDistance;
+    private final int minLength;
+    private final TermsSeeder.Subscriber subscriber;
+
+    private final ConcurrentMap<String, Name> names = new ConcurrentHashMap<>();
+    private final Queue<String> unindexed = new ConcurrentLinkedQueue<>();
+    /** A tree of the names of each length. */
+    private final Map<Integer, BKTree> trees = new HashMap<>();
+
+    /**
+     * @param seeder Seeds the index from the database.
+     * @param maxDistance The maximum edit distance between a name and its
+     *                    variants.
+     * @param minLength The minimum length of names to find variants of.
+     *                  Short names are more often within a small distance
+     *                  of unrelated names.
+     */
+    public TermMergeCandidateIndex(
+        TermsSeeder seeder, int maxDistance, int minLength) {
+
+        Assert.notNull(seeder);
+        Assert.isTrue(maxDistance > 0, "maxDistance must be positive");
+        Assert.isTrue(minLength >= 0, "minLength was negative");
+
+        this.maxDistance = maxDistance;
+        this.minLength = minLength;
+        this.subscriber = seeder.subscribe(
+            "term merge candidate index", EnumSet.allOf(TermType.class),
+            this::apply);
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        event.getAdded().forEach(t -> count(t, 1));
+        event.getRemoved().forEach(t -> count(t, -1));
+    }
+
+    private void count(Term term, int delta) {
+        String key = TermNameNormaliser.key(term.getName());
+        Name name = names.computeIfAbsent(key, k -> {
+            unindexed.add(k);
+            return new Name(term.getName());
+        });
+        name.addSpelling(term.getName());
+        name.count.addAndGet(delta);
+    }
+
+    /**
+     * Find the variants of the most used names.
+     *
+     * @param popularNames The number of most used names to find variants
+     *                     of.
+     * @param limit The maximum number of candidates to return.
+     * @return Candidates to merge, most used canonical names first.
+     */
+    public synchronized List<MergeCandidate> getMergeCandidates(
+        int popularNames, int limit) {
+
+        Assert.isTrue(popularNames >= 0, "popularNames was negative");
+        Assert.isTrue(limit >= 0, "limit was negative");
+
+        for(String key; (key = unindexed.poll()) != null; ) {
+            if(key.length() >= minLength)
+                trees.computeIfAbsent(key.length(), l -> new BKTree()).add(key);
+        }
+
+        List<String> popular = names.entrySet().stream()
+            .filter(e -> e.getKey().length() >= minLength &&
+                         e.getValue().count.get() > 0)
+            .sorted(Comparator.comparingInt(
+                (Map.Entry<String, Name> e) -> -e.getValue().count.get()))
+            .limit(popularNames)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+        List<MergeCandidate> candidates = new ArrayList<>();
+        Set<String> variants = new HashSet<>();
+        for(String key : popular) {
+            // Names to be merged into another aren't canonical themselves
+            if(variants.contains(key))
+                continue;
+
+            Name canonical = names.get(key);
+            int canonicalCount = canonical.count.get();
+
+            // Names within the distance differ in length by at most as much
+            for(int length = key.length() - maxDistance;
+                length <= key.length() + maxDistance; ++length) {
+                BKTree tree = trees.get(length);
+                if(tree == null)
+                    continue;
+
+                tree.search(key, maxDistance, (variantKey, distance) -> {
+                    Name variant = names.get(variantKey);
+                    int count = variant.count.get();
+
+                    // Only suggest merging a name into a more used one
+                    if(distance == 0 || count <= 0 || count > canonicalCount ||
+                       (count == canonicalCount &&
+                        variantKey.compareTo(key) < 0) ||
+                       !variants.add(variantKey))
+                        return;
+
+                    candidates.add(new MergeCandidate(
+                        variant.name.get(), count, canonical.name.get(),
+                        canonicalCount,
+                        distance));
+                });
+            }
+        }
+
+        candidates.sort(MergeCandidate.ORDER);
+        return candidates.size() > limit ?
+            new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+}
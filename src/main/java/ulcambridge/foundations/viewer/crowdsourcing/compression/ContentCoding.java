@@ -0,0 +1,74 @@
+package ulcambridge.foundations.viewer.crowdsourcing.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The HTTP content codings response bodies can be compressed with.
+ */
+public enum ContentCoding {
+    GZIP("gzip") {
+        @Override
+        OutputStream wrap(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out) {{ def.setLevel(level); }};
+        }
+    },
+
+    /** The zlib format, as specified by HTTP, rather than raw deflate. */
+    DEFLATE("deflate") {
+        @Override
+        OutputStream wrap(OutputStream out, int level) {
+            return new DeflaterOutputStream(out) {{ def.setLevel(level); }};
+        }
+    };
+
+    private final String name;
+
+    ContentCoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the coding, as used in Accept-Encoding and
+     *         Content-Encoding headers.
+     */
+    public String getName() {
+        return name;
+    }
+
+    abstract OutputStream wrap(OutputStream out, int level) throws IOException;
+
+    /**
+     * Compress data with this coding.
+     *
+     * @param level The {@link java.util.zip.Deflater} compression level.
+     */
+    public byte[] compress(byte[] data, int level) {
+        ByteArrayOutputStream bytes =
+            new ByteArrayOutputStream(data.length / 4 + 32);
+        try(OutputStream out = wrap(bytes, level)) {
+            out.write(data);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return The coding with a name, ignoring case and surrounding space.
+     * @throws IllegalArgumentException If no coding has the name.
+     */
+    public static ContentCoding forName(String name) {
+        for(ContentCoding coding : values()) {
+            if(coding.name.equalsIgnoreCase(name.trim()))
+                return coding;
+        }
+        throw new IllegalArgumentException(
+            "Unsupported content coding: " + name);
+    }
+}
@@ -0,0 +1,87 @@
+package ulcambridge.foundations.viewer.crowdsourcing.compression;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A response body which is compressed with each coding at most once, the
+ * first time a client accepting the coding requests it.
+ */
+public class PrecompressedBody {
+
+    /** Marks codings which don't make the body smaller. */
+    private static final byte[] UNCOMPRESSED = new byte[0];
+
+    private final ResponseCompressor compressor;
+    private final byte[] identity;
+    private final AtomicReferenceArray<byte[]> variants =
+        new AtomicReferenceArray<>(ContentCoding.values().length);
+
+    public PrecompressedBody(ResponseCompressor compressor, byte[] identity) {
+        Assert.notNull(compressor);
+        Assert.notNull(identity);
+
+        this.compressor = compressor;
+        this.identity = identity;
+    }
+
+    /** @return The uncompressed body. */
+    public byte[] getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Choose the form of the body to serve to a client.
+     *
+     * @param acceptEncoding The request's Accept-Encoding header, or null.
+     */
+    public Encoded select(String acceptEncoding) {
+        ContentCoding coding = compressor.negotiate(acceptEncoding);
+        if(coding != null) {
+            byte[] variant = variant(coding);
+            if(variant != UNCOMPRESSED) {
+                compressor.recordCompressedResponse(
+                    identity.length, variant.length);
+                return new Encoded(coding, variant);
+            }
+        }
+        return new Encoded(null, identity);
+    }
+
+    private byte[] variant(ContentCoding coding) {
+        byte[] variant = variants.get(coding.ordinal());
+        if(variant == null) {
+            synchronized(this) {
+                variant = variants.get(coding.ordinal());
+                if(variant == null) {
+                    variant = compressor.compress(identity, coding);
+                    if(variant == null)
+                        variant = UNCOMPRESSED;
+                    variants.set(coding.ordinal(), variant);
+                }
+            }
+        }
+        return variant;
+    }
+
+    /** A body and the content coding it's encoded with. */
+    public static final class Encoded {
+        private final ContentCoding coding;
+        private final byte[] body;
+
+        private Encoded(ContentCoding coding, byte[] body) {
+            this.coding = coding;
+            this.body = body;
+        }
+
+        /** @return The coding of the body, or null if it's uncompressed. */
+        public ContentCoding getCoding() {
+            return coding;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
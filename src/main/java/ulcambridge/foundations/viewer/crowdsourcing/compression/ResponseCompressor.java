@@ -0,0 +1,185 @@
+package ulcambridge.foundations.viewer.crowdsourcing.compression;
+
+import org.springframework.util.Assert;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Chooses and applies the content coding of response bodies which are
+ * compressed once and served many times, keeping count of what it costs and
+ * saves.
+ *
+ * <p>Bodies smaller than the minimum size aren't compressed, as the saving
+ * doesn't cover the cost of decompressing them. As bodies are compressed once
+ * per version, the best compression level is used.
+ */
+public class ResponseCompressor {
+
+    private static final ThreadMXBean THREADS =
+        ManagementFactory.getThreadMXBean();
+
+    private final List<ContentCoding> codings;
+    private final int minSize;
+    private final int level;
+
+    private final LongAdder compressions = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder bytesCompressed = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * @param codings The codings to offer, in order of preference.
+     * @param minSize The size in bytes below which bodies aren't compressed.
+     */
+    public ResponseCompressor(List<ContentCoding> codings, int minSize) {
+        this(codings, minSize, Deflater.BEST_COMPRESSION);
+    }
+
+    public ResponseCompressor(List<ContentCoding> codings, int minSize,
+                              int level) {
+        Assert.notNull(codings);
+        Assert.isTrue(minSize >= 0, "minSize must be >= 0");
+
+        this.codings = Collections.unmodifiableList(new ArrayList<>(codings));
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    public List<ContentCoding> getCodings() {
+        return codings;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Choose the coding to serve a response with.
+     *
+     * @param acceptEncoding The request's Accept-Encoding header, or null.
+     * @return The most acceptable of the offered codings, or null if the
+     *         response should be sent without a content coding.
+     */
+    public ContentCoding negotiate(String acceptEncoding) {
+        if(acceptEncoding == null || codings.isEmpty())
+            return null;
+
+        float[] qualities = new float[ContentCoding.values().length];
+        float wildcard = 0, identity = -1;
+        for(String element : acceptEncoding.split(",")) {
+            String[] params = element.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            float q = quality(params);
+
+            if(name.equals("*"))
+                wildcard = q;
+            else if(name.equals("identity"))
+                identity = q;
+            else {
+                for(ContentCoding coding : codings) {
+                    if(coding.getName().equals(name))
+                        qualities[coding.ordinal()] = q > 0 ? q : -1;
+                }
+            }
+        }
+
+        ContentCoding best = null;
+        float bestQ = 0;
+        for(ContentCoding coding : codings) {
+            float q = qualities[coding.ordinal()];
+            if(q == 0)
+                q = wildcard;
+            if(q > bestQ) {
+                best = coding;
+                bestQ = q;
+            }
+        }
+        // Without an explicit preference compressed responses are preferred
+        return identity > bestQ ? null : best;
+    }
+
+    private static float quality(String[] params) {
+        for(int i = 1; i < params.length; ++i) {
+            String param = params[i].trim();
+            if(param.startsWith("q=") || param.startsWith("Q=")) {
+                try {
+                    return Math.max(0, Math.min(1,
+                        Float.parseFloat(param.substring(2))));
+                }
+                catch(NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Compress a body with a coding.
+     *
+     * @return The compressed body, or null if the body is smaller than the
+     *         minimum size or doesn't get smaller when compressed.
+     */
+    public byte[] compress(byte[] body, ContentCoding coding) {
+        Assert.notNull(body);
+        Assert.notNull(coding);
+
+        if(body.length < minSize)
+            return null;
+
+        long start = cpuTime();
+        byte[] compressed = coding.compress(body, level);
+        compressionNanos.add(cpuTime() - start);
+        compressions.increment();
+        bytesCompressed.add(body.length);
+
+        return compressed.length < body.length ? compressed : null;
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ?
+            THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Record that a compressed body was served in place of the uncompressed
+     * one.
+     */
+    void recordCompressedResponse(int identitySize, int compressedSize) {
+        compressedResponses.increment();
+        bytesSaved.add(identitySize - compressedSize);
+    }
+
+    /** The number of bodies compressed. */
+    public long getCompressionCount() {
+        return compressions.sum();
+    }
+
+    /** The CPU time spent compressing bodies, in nanoseconds. */
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    /** The uncompressed size of the bodies compressed. */
+    public long getBytesCompressed() {
+        return bytesCompressed.sum();
+    }
+
+    /** The number of responses served with a content coding. */
+    public long getCompressedResponseCount() {
+        return compressedResponses.sum();
+    }
+
+    /** The bytes not sent by serving compressed responses. */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+}
@@ -0,0 +1,83 @@
+package ulcambridge.foundations.viewer.crowdsourcing.compression;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches rendered response bodies along with their compressed variants, so a
+ * body is rendered and compressed once per version of its content.
+ *
+ * <p>The cache is bounded by the uncompressed size of the bodies; their
+ * compressed variants are a small fraction of it.
+ *
+ * @param <K> The type identifying bodies.
+ */
+public class VersionedBodyCache<K> {
+
+    /** Renders a body. */
+    @FunctionalInterface
+    public interface Renderer<E extends Exception> {
+        byte[] render() throws E;
+    }
+
+    private final ResponseCompressor compressor;
+    private final Cache<K, Versioned> bodies;
+
+    /**
+     * @param maximumBytes The maximum uncompressed size of the cached bodies.
+     * @param expireAfterAccess How long unused bodies are retained.
+     */
+    public VersionedBodyCache(ResponseCompressor compressor, long maximumBytes,
+                              long expireAfterAccess, TimeUnit unit) {
+        Assert.notNull(compressor);
+        Assert.isTrue(maximumBytes >= 0, "maximumBytes must be >= 0");
+        Assert.notNull(unit);
+
+        this.compressor = compressor;
+        this.bodies = CacheBuilder.newBuilder()
+            .maximumWeight(maximumBytes)
+            .<K, Versioned>weigher((k, v) -> v.body.getIdentity().length)
+            .expireAfterAccess(expireAfterAccess, unit)
+            .build();
+    }
+
+    /**
+     * Get a body, rendering it if the cached body is of a different version.
+     *
+     * @param key Identifies the body.
+     * @param version The version of the body's content.
+     * @param renderer Renders the current version of the body.
+     */
+    public <E extends Exception> PrecompressedBody get(
+        K key, String version, Renderer<E> renderer) throws E {
+
+        Assert.notNull(key);
+        Assert.notNull(version);
+
+        Versioned cached = bodies.getIfPresent(key);
+        if(cached != null && cached.version.equals(version))
+            return cached.body;
+
+        PrecompressedBody body =
+            new PrecompressedBody(compressor, renderer.render());
+        bodies.put(key, new Versioned(version, body));
+        return body;
+    }
+
+    public long size() {
+        return bodies.size();
+    }
+
+    private static final class Versioned {
+        private final String version;
+        private final PrecompressedBody body;
+
+        Versioned(String version, PrecompressedBody body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AsyncRequestExecutor;
+import ulcambridge.foundations.viewer.crowdsourcing.async.RequestPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Runs the database and HTTP work of requests on bounded pools, releasing
+ * request threads while they wait.
+ */
+@Configuration
+public class AsyncConfig extends WebMvcConfigurerAdapter {
+
+    @Value("${cudl.tagging.async.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private RequestPool streamRequestPool;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledThreadPoolExecutor requestTimeoutTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(
+            1, new ThreadFactoryBuilder()
+                .setNameFormat("request-timeouts-%d")
+                .setDaemon(true)
+                .build());
+        // Most timeouts are cancelled, so don't keep them until they expire
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RequestPool dbRequestPool(
+        ScheduledThreadPoolExecutor requestTimeoutTimer,
+        @Value("${cudl.tagging.async.db.threads:16}") int threads,
+        @Value("${cudl.tagging.async.db.queue-size:100}") int queueSize,
+        @Value("${cudl.tagging.async.db.timeout-ms:10000}") long timeout) {
+
+        return new RequestPool(
+            "db-requests", threads, queueSize, timeout, requestTimeoutTimer);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RequestPool httpRequestPool(
+        ScheduledThreadPoolExecutor requestTimeoutTimer,
+        @Value("${cudl.tagging.async.http.threads:8}") int threads,
+        @Value("${cudl.tagging.async.http.queue-size:50}") int queueSize,
+        @Value("${cudl.tagging.async.http.timeout-ms:20000}") long timeout) {
+
+        return new RequestPool(
+            "http-requests", threads, queueSize, timeout, requestTimeoutTimer);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RequestPool streamRequestPool(
+        ScheduledThreadPoolExecutor requestTimeoutTimer,
+        @Value("${cudl.tagging.async.stream.threads:8}") int threads,
+        @Value("${cudl.tagging.async.stream.queue-size:20}") int queueSize,
+        @Value("${cudl.tagging.async.stream.timeout-ms:60000}") long timeout) {
+
+        return new RequestPool(
+            "stream-requests", threads, queueSize, timeout, requestTimeoutTimer);
+    }
+
+    @Bean
+    public AsyncRequestExecutor asyncRequestExecutor(
+        RequestPool dbRequestPool, RequestPool httpRequestPool) {
+
+        if(!enabled)
+            return new AsyncRequestExecutor();
+
+        return new AsyncRequestExecutor(dbRequestPool, httpRequestPool);
+    }
+
+    /**
+     * Streamed responses are written at the client's pace, so they run on
+     * their own pool rather than holding database threads, and are ended
+     * after the pool's timeout so a slow client can't hold a thread for long.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if(enabled) {
+            configurer.setTaskExecutor(
+                new ConcurrentTaskExecutor(streamRequestPool.getExecutor()));
+            configurer.setDefaultTimeout(streamRequestPool.getTimeoutMillis());
+        }
+    }
+
+    /**
+     * Report the load on the request pools in the actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics asyncMetrics(
+        RequestPool dbRequestPool, RequestPool httpRequestPool,
+        RequestPool streamRequestPool) {
+
+        return () -> {
+            List<Metric<?>> metrics = new ArrayList<>();
+            for(RequestPool pool : Arrays.asList(
+                    dbRequestPool, httpRequestPool, streamRequestPool)) {
+                String prefix = "async." + pool.getName() + ".";
+                metrics.add(new Metric<>(prefix + "active",
+                                         pool.getExecutor().getActiveCount()));
+                metrics.add(new Metric<>(prefix + "queued",
+                                         pool.getExecutor().getQueue().size()));
+                metrics.add(new Metric<>(prefix + "rejected",
+                                         pool.getRejectedCount()));
+                metrics.add(new Metric<>(prefix + "timeouts",
+                                         pool.getTimedOutCount()));
+                metrics.add(new Metric<>(prefix + "cancelled",
+                                         pool.getCancelledCount()));
+            }
+            return metrics;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter;
+
+/**
+ * Message converters for the Smile and CBOR binary JSON formats, used when
+ * clients request them in their Accept header.
+ *
+ * <p>Beans of type {@link HttpMessageConverter} are added to Spring Boot's
+ * default converters. Their mappers are configured as the default JSON
+ * ObjectMapper is, with the same modules.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    private static HttpMessageConverter<Object> converter(
+        Jackson2ObjectMapperBuilder builder, JsonFactory factory,
+        MediaType mediaType) {
+
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+        builder.configure(objectMapper);
+        return new BinaryModelHttpMessageConverter(objectMapper, mediaType);
+    }
+
+    @Bean
+    public HttpMessageConverter<Object> smileHttpMessageConverter(
+        Jackson2ObjectMapperBuilder builder) {
+
+        return converter(builder, new SmileFactory(),
+                         BinaryModelHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    @Bean
+    public HttpMessageConverter<Object> cborHttpMessageConverter(
+        Jackson2ObjectMapperBuilder builder) {
+
+        return converter(builder, new CBORFactory(),
+                         BinaryModelHttpMessageConverter.APPLICATION_CBOR);
+    }
+}
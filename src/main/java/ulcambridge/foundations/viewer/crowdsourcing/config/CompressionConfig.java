@@ -0,0 +1,64 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ContentCoding;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ResponseCompressor;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.VersionedBodyCache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Configuration
+public class CompressionConfig {
+
+    @Bean
+    public ResponseCompressor responseCompressor(
+        @Value("${cudl.tagging.compression.codings:gzip}") String codings,
+        @Value("${cudl.tagging.compression.min-size:1024}") int minSize) {
+
+        List<ContentCoding> offered = Arrays.stream(codings.split(","))
+            .filter(name -> !name.trim().isEmpty())
+            .map(ContentCoding::forName)
+            .distinct()
+            .collect(Collectors.toList());
+
+        return new ResponseCompressor(offered, minSize);
+    }
+
+    /**
+     * The rendered RDF of exports, keyed by the user, document (null for all
+     * documents) and base URL of the export.
+     */
+    @Bean
+    public VersionedBodyCache<List<String>> exportBodyCache(
+        ResponseCompressor responseCompressor,
+        @Value("${cudl.tagging.export.cache-size-mb:32}") long cacheSizeMb) {
+
+        return new VersionedBodyCache<>(
+            responseCompressor, cacheSizeMb << 20, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Report the cost and saving of compressing cached response bodies in the
+     * actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics compressionMetrics(ResponseCompressor compressor) {
+        return () -> Arrays.asList(
+            new Metric<>("compression.bodies", compressor.getCompressionCount()),
+            new Metric<>("compression.bodies.bytes",
+                         compressor.getBytesCompressed()),
+            new Metric<>("compression.cpu-time-ms",
+                         compressor.getCompressionNanos() / 1e6),
+            new Metric<>("compression.responses",
+                         compressor.getCompressedResponseCount()),
+            new Metric<>("compression.responses.bytes-saved",
+                         compressor.getBytesSaved()));
+    }
+}
@@ -5,23 +5,26 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import ulcambridge.foundations.viewer.crowdsourcing.model.AnnotationModelModule;
 import ulcambridge.foundations.viewer.crowdsourcing.model.CudlJsonHttpRequestImageResolver;
 import ulcambridge.foundations.viewer.crowdsourcing.model.ImageResolver;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermAccumulator;
 import ulcambridge.foundations.viewer.crowdsourcing.model.TermCombiner;
 import ulcambridge.foundations.viewer.crowdsourcing.model.TermCombiners;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
 import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
-import ulcambridge.foundations.viewer.crowdsourcing.model.Terms;
 
 import java.net.URI;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Configuration
 public class CrowdsourcingConfig {
@@ -42,13 +45,26 @@ public class CrowdsourcingConfig {
 
     @Bean
     public TermCombiner.Factory<
-        TermType, Term, Term, Collection<Term>> weightedTermCombiner(
+        TermType, Term, Term, TermAccumulator> weightedTermCombiner(
         @Qualifier("termTypeWeights") Map<TermType, Double> weights) {
 
-        return TermCombiners.weightedToMap(weights)
-            .postProcessedBy(terms -> terms.values().stream()
-                .filter(Terms::hasPositiveValue)
-                .collect(Collectors.toList()));
+        return TermCombiners.weightedToAccumulator(weights);
+    }
+
+    /**
+     * Report the size and hit rate of the global {@link TermDictionary} in the
+     * actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics termDictionaryMetrics() {
+        return () -> {
+            TermDictionary dictionary = TermDictionary.global();
+            return Arrays.asList(
+                new Metric<>("termdictionary.size", dictionary.size()),
+                new Metric<>("termdictionary.hits", dictionary.hitCount()),
+                new Metric<>("termdictionary.misses", dictionary.missCount()),
+                new Metric<>("termdictionary.hit-rate", dictionary.hitRate()));
+        };
     }
 
     @Bean
@@ -77,4 +93,13 @@ public class CrowdsourcingConfig {
     public Module guavaModule() {
         return new GuavaModule();
     }
+
+    /**
+     * Read and write the annotation model with streaming serializers rather
+     * than reflectively.
+     */
+    @Bean
+    public Module annotationModelModule() {
+        return new AnnotationModelModule();
+    }
 }
@@ -0,0 +1,71 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit.Priority;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDBDao;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.LoadSheddingCrowdsourcingDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class LoadSheddingConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimit daoConcurrencyLimit(
+        @Value("${cudl.tagging.load-shedding.initial-limit:16}") int initial,
+        @Value("${cudl.tagging.load-shedding.min-limit:4}") int min,
+        @Value("${cudl.tagging.load-shedding.max-limit:32}") int max) {
+
+        return new AdaptiveConcurrencyLimit(initial, min, max);
+    }
+
+    /**
+     * The DAO used by everything else, which sheds load when the database
+     * slows down.
+     */
+    @Bean
+    @Primary
+    public CrowdsourcingDao loadSheddingCrowdsourcingDao(
+        CrowdsourcingDBDao crowdsourcingDBDao,
+        AdaptiveConcurrencyLimit daoConcurrencyLimit,
+        @Value("${cudl.tagging.load-shedding.enabled:true}") boolean enabled) {
+
+        if(!enabled)
+            return crowdsourcingDBDao;
+
+        return new LoadSheddingCrowdsourcingDao(
+            crowdsourcingDBDao, daoConcurrencyLimit);
+    }
+
+    /**
+     * Report the limit on database calls, and the calls refused, in the
+     * actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics loadSheddingMetrics(AdaptiveConcurrencyLimit limit) {
+        return () -> {
+            List<Metric<?>> metrics = new ArrayList<>();
+            metrics.add(new Metric<>("load-shedding.limit", limit.getLimit()));
+            metrics.add(new Metric<>("load-shedding.in-flight",
+                                     limit.getInFlightCount()));
+            metrics.add(new Metric<>("load-shedding.latency-ms",
+                                     limit.getLatencyMillis()));
+            metrics.add(new Metric<>("load-shedding.baseline-latency-ms",
+                                     limit.getBaselineLatencyMillis()));
+            for(Priority priority : Priority.values()) {
+                metrics.add(new Metric<>(
+                    "load-shedding.refused." + priority.name().toLowerCase(),
+                    limit.getRefusedCount(priority)));
+            }
+            return metrics;
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.ratelimit.UserRateLimiter;
+import ulcambridge.foundations.viewer.crowdsourcing.ratelimit.WriteAdmissionControl;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    public UserRateLimiter userWriteRateLimiter(
+        @Value("${cudl.tagging.rate-limit.writes-per-second:5}")
+            double writesPerSecond,
+        @Value("${cudl.tagging.rate-limit.burst:30}") int burst) {
+
+        return new UserRateLimiter(writesPerSecond, burst);
+    }
+
+    @Bean
+    public WriteAdmissionControl writeAdmissionControl(
+        UserRateLimiter userWriteRateLimiter,
+        @Value("${cudl.tagging.rate-limit.max-concurrent-writes:8}")
+            int maxConcurrentWrites) {
+
+        return new WriteAdmissionControl(
+            userWriteRateLimiter, maxConcurrentWrites);
+    }
+
+    /**
+     * Periodically drops the rate limits of users who've stopped writing.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService rateLimitEvictionScheduler(
+        UserRateLimiter userWriteRateLimiter,
+        @Value("${cudl.tagging.rate-limit.eviction-interval-seconds:60}")
+            long interval) {
+
+        ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("rate-limit-eviction-%d")
+                    .setDaemon(true)
+                    .build());
+
+        scheduler.scheduleWithFixedDelay(
+            userWriteRateLimiter::evictIdle, interval, interval,
+            TimeUnit.SECONDS);
+
+        return scheduler;
+    }
+
+    /**
+     * Report the writes admitted and refused in the actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics rateLimitMetrics(
+        UserRateLimiter userWriteRateLimiter,
+        WriteAdmissionControl writeAdmissionControl) {
+
+        return () -> Arrays.asList(
+            new Metric<>("rate-limit.users", userWriteRateLimiter.size()),
+            new Metric<>("rate-limit.users.evicted",
+                         userWriteRateLimiter.getEvictedCount()),
+            new Metric<>("rate-limit.writes.admitted",
+                         writeAdmissionControl.getAdmittedCount()),
+            new Metric<>("rate-limit.writes.in-flight",
+                         writeAdmissionControl.getInFlightCount()),
+            new Metric<>("rate-limit.writes.rate-limited",
+                         writeAdmissionControl.getRateLimitedCount()),
+            new Metric<>("rate-limit.writes.busy",
+                         writeAdmissionControl.getBusyCount()));
+    }
+}
@@ -0,0 +1,30 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.search.DocumentTermIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.spatial.AnnotationRegionIndex;
+
+import java.util.Map;
+
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public DocumentTermIndex documentTermIndex(
+        TermsSeeder termsSeeder,
+        @Qualifier("termTypeWeights") Map<TermType, Double> weights) {
+
+        return new DocumentTermIndex(termsSeeder, weights);
+    }
+
+    @Bean
+    public AnnotationRegionIndex annotationRegionIndex(
+        TermsSeeder termsSeeder) {
+
+        return new AnnotationRegionIndex(termsSeeder);
+    }
+}
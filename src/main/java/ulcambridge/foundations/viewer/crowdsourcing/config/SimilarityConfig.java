@@ -0,0 +1,66 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.search.DocumentTermIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.similar.DocumentSimilarityIndex;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class SimilarityConfig {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(SimilarityConfig.class);
+
+    /** How often to check whether the similarity index is due a rebuild. */
+    private static final long REFRESH_CHECK_SECONDS = 10;
+
+    @Bean
+    public DocumentSimilarityIndex documentSimilarityIndex(
+        DocumentTermIndex documentTermIndex,
+        @Value("${cudl.tagging.similar.max-terms-per-document:50}")
+            int maxTermsPerDocument,
+        @Value("${cudl.tagging.similar.memory-budget-mb:64}")
+            long memoryBudgetMb,
+        @Value("${cudl.tagging.similar.rebuild-interval-minutes:60}")
+            long rebuildInterval) {
+
+        return new DocumentSimilarityIndex(
+            documentTermIndex, maxTermsPerDocument,
+            memoryBudgetMb * 1024 * 1024, rebuildInterval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Builds the similarity index once the document term index is seeded,
+     * and rebuilds it each rebuild interval to include recent changes.
+     */
+    @Bean
+    public ScheduledExecutorService documentSimilarityRefreshScheduler(
+        DocumentSimilarityIndex index) {
+
+        ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("document-similarity-refresh-%d")
+                    .setDaemon(true)
+                    .build());
+
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                index.refresh();
+            }
+            catch(RuntimeException e) {
+                logger.error("Failed to refresh document similarity index", e);
+            }
+        }, REFRESH_CHECK_SECONDS, REFRESH_CHECK_SECONDS, TimeUnit.SECONDS);
+
+        return scheduler;
+    }
+}
@@ -0,0 +1,52 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StoredTermsCodec;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public StoredTermsCodec storedTermsCodec(
+        ObjectMapper objectMapper,
+        @Value("${cudl.tagging.storage.mode:json}") String mode) {
+
+        return new StoredTermsCodec(
+            objectMapper,
+            StoredTermsCodec.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Replays the stored terms once after startup, to seed the indexes
+     * derived from them.
+     */
+    @Bean
+    public TermsSeeder termsSeeder(CrowdsourcingDao crowdsourcingDao) {
+        return new TermsSeeder(crowdsourcingDao);
+    }
+
+    /**
+     * Report the formats rows of annotations and removed tags are read from in
+     * the actuator's metrics.
+     */
+    @Bean
+    public PublicMetrics storedTermsMetrics(StoredTermsCodec codec) {
+        return () -> Arrays.asList(
+            new Metric<>("storage.reads.json", codec.getJsonReadCount()),
+            new Metric<>("storage.reads.binary", codec.getBinaryReadCount()),
+            new Metric<>("storage.reads.verified",
+                         codec.getVerifiedReadCount()),
+            new Metric<>("storage.reads.mismatched",
+                         codec.getMismatchedReadCount()));
+    }
+}
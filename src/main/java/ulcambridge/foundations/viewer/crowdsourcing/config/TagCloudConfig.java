@@ -0,0 +1,215 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ResponseCompressor;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermAccumulator;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermCombiner;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.CombiningTagCloudProvider;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.PageTagCloudIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.StaleWhileRevalidateTagCloudProvider;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudAccessStatistics;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudProvider;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudResponseCache;
+import ulcambridge.foundations.viewer.crowdsourcing.tagcloud.TagCloudWarmer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TagCloudConfig {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(TagCloudConfig.class);
+
+    @Bean
+    public CombiningTagCloudProvider combiningTagCloudProvider(
+        CrowdsourcingDao crowdsourcingDao,
+        @Qualifier("weightedTermCombiner") TermCombiner.Factory<
+            TermType, Term, Term, TermAccumulator> termCombinerFactory) {
+
+        return new CombiningTagCloudProvider(
+            crowdsourcingDao, termCombinerFactory);
+    }
+
+    @Bean
+    public PageTagCloudIndex pageTagCloudIndex(
+        TermsSeeder termsSeeder,
+        @Qualifier("termTypeWeights") Map<TermType, Double> weights) {
+
+        return new PageTagCloudIndex(termsSeeder, weights);
+    }
+
+    /**
+     * Answers requests for tag clouds, recording each in the access
+     * statistics.
+     */
+    @Bean
+    public TagCloudResponseCache tagCloudResponseCache(
+        @Qualifier("cachingTagCloudProvider") TagCloudProvider provider,
+        @Value("${cudl.tagging.tag-cloud.stale-while-revalidate:true}")
+            boolean staleWhileRevalidate,
+        TagCloudAccessStatistics statistics,
+        ObjectMapper objectMapper,
+        ResponseCompressor responseCompressor,
+        @Value("${cudl.tagging.tag-cloud.cache-size:10000}") long cacheSize,
+        @Value("${cudl.tagging.tag-cloud.queries-per-document:8}")
+            int queriesPerDocument,
+        @Value("${cudl.tagging.tag-cloud.max-staleness-seconds:300}")
+            long maxStalenessSeconds) {
+
+        return new TagCloudResponseCache(
+            provider, staleWhileRevalidate, statistics, objectMapper,
+            responseCompressor, cacheSize, queriesPerDocument,
+            maxStalenessSeconds, TimeUnit.SECONDS);
+    }
+
+    @Bean(name = "cachingTagCloudProvider")
+    @ConditionalOnProperty(name = "cudl.tagging.tag-cloud.stale-while-revalidate",
+                           havingValue = "false")
+    public TagCloudProvider uncachedTagCloudProvider(
+        CombiningTagCloudProvider combiningTagCloudProvider) {
+
+        return combiningTagCloudProvider;
+    }
+
+    @Bean(destroyMethod = "save")
+    public TagCloudAccessStatistics tagCloudAccessStatistics(
+        @Value("${cudl.tagging.tag-cloud.access-statistics.file:}")
+            String file,
+        @Value("${cudl.tagging.tag-cloud.access-statistics.size:10000}")
+            int size,
+        ObjectMapper objectMapper) {
+
+        Optional<Path> path = Optional.of(file)
+            .filter(f -> !f.isEmpty())
+            .map(Paths::get);
+
+        TagCloudAccessStatistics statistics =
+            new TagCloudAccessStatistics(size, path, objectMapper);
+
+        try {
+            statistics.load();
+        }
+        catch(IOException e) {
+            logger.warn("Failed to load tag cloud access statistics, " +
+                        "starting without them", e);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Periodically saves and decays the access statistics. The interval is
+     * the half-life of a recorded access.
+     */
+    @Bean
+    public ScheduledExecutorService tagCloudAccessStatisticsScheduler(
+        TagCloudAccessStatistics statistics,
+        @Value("${cudl.tagging.tag-cloud.access-statistics.save-interval-seconds:3600}")
+            long interval) {
+
+        ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("tag-cloud-statistics-%d")
+                    .setDaemon(true)
+                    .build());
+
+        scheduler.scheduleWithFixedDelay(
+            statistics::saveAndDecay, interval, interval, TimeUnit.SECONDS);
+
+        return scheduler;
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "cudl.tagging.tag-cloud.stale-while-revalidate",
+                           havingValue = "true", matchIfMissing = true)
+    public static class StaleWhileRevalidateConfig {
+
+        /**
+         * The executor which recomputes stale tag clouds. Both its thread
+         * count and its queue are bounded; refreshes which don't fit are
+         * retried by the next request for the document.
+         */
+        @Bean
+        public ExecutorService tagCloudRefreshExecutor(
+            @Value("${cudl.tagging.tag-cloud.refresh-threads:2}") int threads,
+            @Value("${cudl.tagging.tag-cloud.refresh-queue-size:1000}")
+                int queueSize) {
+
+            return new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("tag-cloud-refresh-%d")
+                    .setDaemon(true)
+                    .build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean(name = "cachingTagCloudProvider")
+        public StaleWhileRevalidateTagCloudProvider
+        staleWhileRevalidateTagCloudProvider(
+            CombiningTagCloudProvider combiningTagCloudProvider,
+            @Qualifier("tagCloudRefreshExecutor")
+                ExecutorService refreshExecutor,
+            @Value("${cudl.tagging.tag-cloud.max-staleness-seconds:300}")
+                long maxStalenessSeconds,
+            @Value("${cudl.tagging.tag-cloud.cache-size:10000}")
+                long cacheSize,
+            @Value("${cudl.tagging.tag-cloud.queries-per-document:8}")
+                int queriesPerDocument) {
+
+            return new StaleWhileRevalidateTagCloudProvider(
+                combiningTagCloudProvider, refreshExecutor,
+                maxStalenessSeconds, TimeUnit.SECONDS, cacheSize,
+                queriesPerDocument);
+        }
+
+        /**
+         * Warms the cache after startup. Warm-up requests go directly to the
+         * cache, so they aren't counted in the access statistics.
+         */
+        @Bean
+        @ConditionalOnProperty(name = "cudl.tagging.tag-cloud.warm-up.enabled",
+                               havingValue = "true", matchIfMissing = true)
+        public TagCloudWarmer tagCloudWarmer(
+            @Qualifier("cachingTagCloudProvider") TagCloudProvider cache,
+            CrowdsourcingDao crowdsourcingDao,
+            TagCloudAccessStatistics statistics,
+            @Value("${cudl.tagging.tag-cloud.warm-up.hot-set-size:1000}")
+                int hotSetSize,
+            @Value("${cudl.tagging.tag-cloud.warm-up.threads:4}")
+                int threads,
+            @Value("${cudl.tagging.tag-cloud.warm-up.loads-per-second:50}")
+                double loadsPerSecond,
+            @Value("${cudl.tagging.tag-cloud.warm-up.ready-fraction:0.9}")
+                double readyFraction) {
+
+            return new TagCloudWarmer(
+                cache, crowdsourcingDao, statistics, hotSetSize, threads,
+                loadsPerSecond, readyFraction);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.canonical.TermAliases;
+import ulcambridge.foundations.viewer.crowdsourcing.canonical.TermMergeCandidateIndex;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+@Configuration
+public class TermCanonicalisationConfig {
+
+    /**
+     * The reviewed aliases of term names, which are added to the global
+     * {@link TermDictionary} on startup, before any terms are read.
+     */
+    @Bean
+    public TermAliases termAliases(
+        @Value("${cudl.tagging.canonical.aliases-file:}") String file,
+        ObjectMapper objectMapper) throws IOException {
+
+        TermAliases aliases = file.isEmpty() ?
+            new TermAliases(Collections.emptyMap()) :
+            TermAliases.load(Paths.get(file), objectMapper);
+
+        aliases.addTo(TermDictionary.global());
+        return aliases;
+    }
+
+    @Bean
+    public TermMergeCandidateIndex termMergeCandidateIndex(
+        TermsSeeder termsSeeder,
+        @Value("${cudl.tagging.canonical.max-edit-distance:1}")
+            int maxDistance,
+        @Value("${cudl.tagging.canonical.min-length:5}") int minLength) {
+
+        return new TermMergeCandidateIndex(
+            termsSeeder, maxDistance, minLength);
+    }
+}
@@ -0,0 +1,61 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.suggest.TermSuggestionIndex;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TermSuggestionConfig {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(TermSuggestionConfig.class);
+
+    @Bean
+    public TermSuggestionIndex termSuggestionIndex(
+        TermsSeeder termsSeeder,
+        @Qualifier("termTypeWeights") Map<TermType, Double> weights) {
+
+        return new TermSuggestionIndex(termsSeeder, weights);
+    }
+
+    /**
+     * Periodically rebuilds the suggestion index to include recent changes.
+     */
+    @Bean
+    public ScheduledExecutorService termSuggestionRefreshScheduler(
+        TermSuggestionIndex index,
+        @Value("${cudl.tagging.suggest.refresh-interval-ms:1000}")
+            long interval) {
+
+        ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("term-suggestion-refresh-%d")
+                    .setDaemon(true)
+                    .build());
+
+        // A task which throws isn't run again, so failures are only logged
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                index.refresh();
+            }
+            catch(RuntimeException e) {
+                logger.error("Failed to refresh term suggestion index", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        return scheduler;
+    }
+}
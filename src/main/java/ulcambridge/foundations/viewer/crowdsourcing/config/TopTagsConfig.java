@@ -0,0 +1,32 @@
+package ulcambridge.foundations.viewer.crowdsourcing.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.toptags.TopTagsIndex;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TopTagsConfig {
+
+    @Bean
+    public TopTagsIndex topTagsIndex(
+        TermsSeeder termsSeeder,
+        @Qualifier("termTypeWeights") Map<TermType, Double> weights,
+        @Value("${cudl.tagging.top-tags.capacity:10000}") int capacity,
+        @Value("${cudl.tagging.top-tags.trending.window-hours:168}")
+            long windowHours,
+        @Value("${cudl.tagging.top-tags.trending.buckets:28}") int buckets,
+        @Value("${cudl.tagging.top-tags.trending.cache-seconds:60}")
+            long cacheSeconds) {
+
+        return new TopTagsIndex(
+            termsSeeder, weights, capacity, windowHours, TimeUnit.HOURS,
+            buckets, cacheSeconds);
+    }
+}
@@ -1,5 +1,7 @@
 package ulcambridge.foundations.viewer.crowdsourcing.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.Compression;
 import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
 import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
 import org.springframework.context.annotation.Bean;
@@ -18,12 +20,28 @@ public class WebMvcConfig extends WebMvcConfigurerAdapter {
         registry.addMapping("/**");
     }
 
+    /**
+     * Responses whose bodies aren't precompressed are gzipped by Tomcat when
+     * they're at least as large as the compression threshold. Tomcat leaves
+     * responses which already have a Content-Encoding alone.
+     */
     @Bean
-    public EmbeddedServletContainerCustomizer containerCustomizer() {
+    public EmbeddedServletContainerCustomizer containerCustomizer(
+        @Value("${cudl.tagging.compression.min-size:1024}") int minSize) {
+
         return container -> {
             TomcatEmbeddedServletContainerFactory tomcat =
                 (TomcatEmbeddedServletContainerFactory) container;
 
+            Compression compression = new Compression();
+            compression.setEnabled(true);
+            compression.setMinResponseSize(minSize);
+            compression.setMimeTypes(new String[] {
+                "application/json", "application/rdf+xml", "application/xml",
+                "text/html", "text/xml", "text/plain"
+            });
+            tomcat.setCompression(compression);
+
             tomcat.addConnectorCustomizers(
                 connector -> {
                     // Allow bodies in DELETE requests.
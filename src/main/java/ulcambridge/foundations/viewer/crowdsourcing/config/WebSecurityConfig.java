@@ -20,6 +20,8 @@ import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
 import ulcambridge.foundations.viewer.crowdsourcing.jwt.DefaultJwtAuthenticationToken;
 import ulcambridge.foundations.viewer.crowdsourcing.jwt.JwtAuthenticationFilter;
 import ulcambridge.foundations.viewer.crowdsourcing.jwt.JwtAuthenticationProvider;
@@ -144,6 +146,15 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter
             .headers()
                 .frameOptions()
                     .disable()
+                // The default cache headers are written when the filter
+                // chain returns, which is before the response of an async
+                // request is known, so they'd replace its own. Async
+                // responses set their cache headers themselves.
+                .cacheControl()
+                    .disable()
+                .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(
+                    request -> !request.isAsyncStarted(),
+                    new CacheControlHeadersWriter()))
                 .and()
             .authorizeRequests()
                 // We use annotations on controller methods for enable auth
@@ -1,29 +1,45 @@
 package ulcambridge.foundations.viewer.crowdsourcing.dao;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.postgresql.util.PGobject;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
 import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
 import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Terms;
 import ulcambridge.foundations.viewer.crowdsourcing.model.UserAnnotations;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -31,13 +47,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -50,34 +71,76 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
+    private final StoredTermsCodec termsCodec;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong changeSequence = new AtomicLong();
+    // Held for reading while a change is written and published, and for
+    // writing while replayTerms() takes a snapshot.
+    private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
 
     @Autowired
     public CrowdsourcingDBDao(
-        JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+        StoredTermsCodec termsCodec, ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager) {
 
         Assert.notNull(jdbcTemplate);
         Assert.notNull(objectMapper);
+        Assert.notNull(termsCodec);
+        Assert.notNull(eventPublisher);
+        Assert.notNull(transactionManager);
 
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.objectMapper = objectMapper;
+        this.termsCodec = termsCodec;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public DocumentAnnotations getAnnotations(
         String userId, String documentId, int documentPageNo) {
 
-        List<Annotation> annotations = queryJsonList(
-            Annotation.class,
-            "SELECT annotations\n" +
-            "FROM\n" +
-            "  \"DocumentAnnotations\",\n" +
-            "  json_array_elements(annos->'annotations') as annotations\n" +
-            "WHERE \"docId\" = ? AND oid = ? AND (annotations->>'page')::int = ?;\n",
-            documentId, userId, documentPageNo);
+        // The binary column can't be queried by page, so when it's preferred
+        // the page's annotations are selected from all of the document's.
+        if(termsCodec.getMode() == StoredTermsCodec.Mode.BINARY) {
+            return new DocumentAnnotations(userId, documentId, onPage(
+                getAnnotations(userId, documentId).getTerms(),
+                documentPageNo));
+        }
 
+        // Otherwise the page is selected from the JSON column, and only rows
+        // which have yet to be written with it are decoded in full.
+        List<List<Annotation>> rows = jdbcTemplate.query(
+            SQL_USER_DOCUMENT_PAGE_ANNOTATIONS,
+            new Object[] {documentPageNo, documentId, userId},
+            (rs, rowNum) -> {
+                if(rs.getBoolean(1)) {
+                    String page = rs.getString(2);
+                    return page == null ? Collections.<Annotation>emptyList()
+                        : readJson(ANNOTATION_LIST, page);
+                }
+                DocumentAnnotations all = readStoredTerms(
+                    DocumentAnnotations.class, null, rs.getBytes(3));
+                return all == null ? Collections.<Annotation>emptyList()
+                    : onPage(all.getTerms(), documentPageNo);
+            });
+
+        List<Annotation> annotations = rows.isEmpty() ?
+            Collections.emptyList() : rows.get(0);
         return new DocumentAnnotations(userId, documentId, annotations);
     }
 
+    private static List<Annotation> onPage(
+        List<? extends Annotation> annotations, int documentPageNo) {
+
+        return annotations.stream()
+            .filter(a -> a.getPage() == documentPageNo)
+            .collect(Collectors.toList());
+    }
+
     @Override
     public DocumentAnnotations getAnnotations(String userId, String documentId) {
         return getAnnotationsOpt(userId, documentId)
@@ -89,7 +152,7 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
     public Optional<DocumentAnnotations> getAnnotationsOpt(
         String userId, String documentId) {
 
-        return queryJsonOptional(
+        return queryStoredTermsOptional(
             DocumentAnnotations.class, SQL_USER_DOCUMENT_ANNOTATIONS,
             documentId, userId);
     }
@@ -105,14 +168,15 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
     }
 
     private static final String GET_REMOVED_TAGS_QUERY =
-        "SELECT removedtags FROM \"DocumentRemovedTags\" " +
+        "SELECT removedtags, removedtags_bin FROM \"DocumentRemovedTags\" " +
         "WHERE \"oid\" = ? AND \"docId\" = ?";
 
     @Override
     public DocumentTags getRemovedTags(String userId, String documentId) {
 
-        return queryJsonOptional(DocumentTags.class, GET_REMOVED_TAGS_QUERY, userId,
-                         documentId)
+        return queryStoredTermsOptional(DocumentTags.class,
+                                        GET_REMOVED_TAGS_QUERY, userId,
+                                        documentId)
             .orElseGet(() ->
                 new DocumentTags(userId, documentId, Collections.emptyList()));
     }
@@ -122,31 +186,35 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
             String userId, String documentId, Annotation annotation)
             throws SQLException {
 
-        List<Annotation> annotations =
-            queryJsonOptional(
-                DocumentAnnotations.class,
-                SQL_USER_DOCUMENT_ANNOTATIONS, documentId, userId)
-            .map(DocumentAnnotations::getTerms)
-            .orElse(Collections.emptyList())
-            .stream()
-            // Remove any matching annotation
-            .filter(((Predicate<Annotation>)annotation::equals).negate())
-            .collect(Collectors.toList());
-
         Annotation created = new Annotation(
             annotation.getName(), annotation.getRaw(), annotation.getValue(),
             annotation.getTarget(), annotation.getType(), annotation.getPage(),
             UUID.randomUUID(), Instant.now(),
             annotation.getPosition());
 
-        annotations.add(created);
-
-        DocumentAnnotations da = new DocumentAnnotations(
-            userId, documentId, annotations);
+        return change(() -> {
+            // Partition into annotations to be kept and any matching
+            // annotation, which will be replaced.
+            Map<Boolean, List<Annotation>> partitionedAnnotations =
+                selectForUpdate(DocumentAnnotations.class,
+                                SQL_LOCK_USER_DOCUMENT_ANNOTATIONS,
+                                SQL_CREATE_USER_DOCUMENT_ANNOTATIONS,
+                                userId, documentId)
+                .map(DocumentAnnotations::getTerms)
+                .orElse(Collections.emptyList())
+                .stream()
+                .collect(Collectors.partitioningBy(annotation::equals));
+
+            List<Annotation> annotations = partitionedAnnotations.get(false);
+            annotations.add(created);
 
-        sqlUpsertAnnotations(da);
-
-        return created;
+            sqlUpsertAnnotations(new DocumentAnnotations(
+                userId, documentId, annotations));
+            publishOnCommit(userId, documentId, TermType.ANNOTATION,
+                            Collections.singletonList(created),
+                            partitionedAnnotations.get(true));
+            return created;
+        });
     }
 
     @Override
@@ -160,27 +228,34 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
             String userId, String documentId, Collection<UUID> annotationIds)
             throws SQLException {
 
-        DocumentAnnotations annotations = this.getAnnotations(
-            userId, documentId);
-
         Set<UUID> toRemove = new HashSet<>(annotationIds);
 
-        // Partition annotations into two groups: to be removed and to be kept.
-        Map<Boolean, List<Annotation>> partitionedAnnotations =
-            annotations.getTerms().stream()
+        return change(() -> {
+            // Partition annotations into two groups: to be removed and to be
+            // kept.
+            Map<Boolean, List<Annotation>> partitionedAnnotations =
+                selectForUpdate(DocumentAnnotations.class,
+                                SQL_LOCK_USER_DOCUMENT_ANNOTATIONS, null,
+                                userId, documentId)
+                .map(DocumentAnnotations::getTerms)
+                .orElse(Collections.emptyList())
+                .stream()
                 .collect(Collectors.partitioningBy(
                     a -> toRemove.contains(a.getUuid())));
 
-        Set<UUID> removed = partitionedAnnotations.get(true).stream()
-            .map(Annotation::getUuid)
-            .collect(Collectors.toSet());
-
-        if(!removed.isEmpty())
-            sqlUpsertAnnotations(new DocumentAnnotations(
-                annotations.getUserId(), annotations.getDocumentId(),
-                partitionedAnnotations.get(false)));
+            Set<UUID> removed = partitionedAnnotations.get(true).stream()
+                .map(Annotation::getUuid)
+                .collect(Collectors.toSet());
 
-        return removed;
+            if(!removed.isEmpty()) {
+                sqlUpsertAnnotations(new DocumentAnnotations(
+                    userId, documentId, partitionedAnnotations.get(false)));
+                publishOnCommit(userId, documentId, TermType.ANNOTATION,
+                                Collections.emptyList(),
+                                partitionedAnnotations.get(true));
+            }
+            return removed;
+        });
     }
 
     @Override
@@ -190,73 +265,120 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
         Assert.notNull(docId);
         PGobject json = jsonValue(documentTags);
 
-        return jdbcTemplate.update(
-            "INSERT INTO \"DocumentTags\" (\"docId\", tags) VALUES (?, ?)\n" +
-            "ON CONFLICT (\"docId\") DO UPDATE SET tags = ?;",
-            docId, json, json);
+        Lock lock = lockForChange();
+        try {
+            // The previous tags are read in the same statement as the upsert,
+            // which sees the row as it was before the statement ran.
+            List<Tag> previous = new ArrayList<>();
+            int updated = jdbcTemplate.query(SQL_UPSERT_TAGS, rs -> {
+                rs.next();
+                String previousJson = rs.getString(1);
+                if(previousJson != null)
+                    previous.addAll(readJson(TAG_LIST, previousJson));
+                return rs.getInt(2);
+            }, docId, docId, json);
+
+            if(updated > 0)
+                publishChange(null, docId, TermType.TAG,
+                              documentTags.getTerms(), previous);
+
+            return updated;
+        }
+        finally {
+            lock.unlock();
+        }
     }
 
+    private static final String SQL_UPSERT_TAGS =
+        "WITH previous AS (\n" +
+        "  SELECT tags->'tags' AS tags FROM \"DocumentTags\"\n" +
+        "  WHERE \"docId\" = ? FOR UPDATE\n" +
+        "), upserted AS (\n" +
+        "  INSERT INTO \"DocumentTags\" (\"docId\", tags) VALUES (?, ?)\n" +
+        "  ON CONFLICT (\"docId\") DO UPDATE SET tags = EXCLUDED.tags\n" +
+        "  RETURNING 1\n" +
+        ")\n" +
+        "SELECT (SELECT tags FROM previous), (SELECT count(*) FROM upserted);";
+
     @Override
     public Tag getRemovedTag(String userId, String documentId, String tagName) {
-        return queryJson(Tag.class,
-            "SELECT tag FROM \n" +
-            "  (SELECT json_array_elements(removedTags::json->'tags') as tag\n" +
-            "   FROM \"DocumentRemovedTags\"\n" +
-            "   WHERE \"docId\" = ?\n" +
-            "         AND oid = ?\n" +
-            "  ) AS tags\n" +
-            "WHERE tag->>'name' = ?;",
-            documentId, userId, tagName);
+        List<? extends Tag> removedTags =
+            getRemovedTags(userId, documentId).getTerms();
+        // Looked up once the stored names are interned, so it's found if any
+        // of them are a variant of it
+        TermDictionary.Entry name = TermDictionary.global().find(tagName);
+
+        return removedTags.stream()
+            .filter(t -> name != null && t.getNameEntry() == name)
+            .findFirst()
+            .orElseThrow(() -> new EmptyResultDataAccessException(1));
     }
 
     @Override
     public UpsertResult<DocumentTags> addRemovedTag(
         String userId, String documentId, Tag removedTag) throws SQLException {
 
-        DocumentTags dt = getRemovedTags(userId, documentId);
-
-        List<Tag> removedTags = dt.getTerms().stream()
-            .filter(((Predicate<Object>)removedTag::equals).negate())
-            .collect(Collectors.toList());
-
-        boolean updated = removedTags.size() < dt.getTerms().size();
-        removedTags.add(removedTag);
-        dt = new DocumentTags(dt.getUserId(), dt.getDocumentId(), removedTags);
-
-        sqlUpsertRemovedTags(dt);
-
-        return CrowdsourcingDao.upsertResult(dt, !updated);
+        return change(() -> {
+            Map<Boolean, List<Tag>> partitionedTags = selectForUpdate(
+                    DocumentTags.class, SQL_LOCK_USER_DOCUMENT_REMOVED_TAGS,
+                    SQL_CREATE_USER_DOCUMENT_REMOVED_TAGS, userId, documentId)
+                .map(DocumentTags::getTerms)
+                .orElse(Collections.emptyList())
+                .stream()
+                .collect(Collectors.partitioningBy(removedTag::equals));
+            List<Tag> removedTags = partitionedTags.get(false);
+
+            boolean updated = !partitionedTags.get(true).isEmpty();
+            removedTags.add(removedTag);
+            DocumentTags dt = new DocumentTags(
+                userId, documentId, removedTags);
+
+            sqlUpsertRemovedTags(dt);
+            publishOnCommit(userId, documentId, TermType.REMOVED_TAG,
+                            Collections.singletonList(removedTag),
+                            partitionedTags.get(true));
+            return CrowdsourcingDao.upsertResult(dt, !updated);
+        });
     }
 
     public boolean removeRemovedTag(
         String userId, String documentId, String tagName) throws SQLException {
 
-        DocumentTags dt = getRemovedTags(userId, documentId);
-        List<Tag> tags = dt.getTerms().stream()
-            .filter(t -> !t.getName().equals(tagName))
-            .collect(Collectors.toList());
+        return change(() -> {
+            List<? extends Tag> removedTags = selectForUpdate(
+                    DocumentTags.class, SQL_LOCK_USER_DOCUMENT_REMOVED_TAGS,
+                    null, userId, documentId)
+                .map(DocumentTags::getTerms)
+                .orElse(Collections.emptyList());
+            // Looked up once the stored names are interned, as above
+            TermDictionary.Entry name = TermDictionary.global().find(tagName);
 
-        boolean removed = dt.getTerms().size() > tags.size();
+            Map<Boolean, List<Tag>> partitionedTags = removedTags.stream()
+                .collect(Collectors.partitioningBy(
+                    t -> name != null && t.getNameEntry() == name));
 
-        if(!removed)
-            return false;
+            if(partitionedTags.get(true).isEmpty())
+                return false;
 
-        dt = new DocumentTags(dt.getUserId(), dt.getDocumentId(), tags);
-        return sqlUpsertRemovedTags(dt) > 0;
+            sqlUpsertRemovedTags(new DocumentTags(
+                userId, documentId, partitionedTags.get(false)));
+            publishOnCommit(userId, documentId, TermType.REMOVED_TAG,
+                            Collections.emptyList(), partitionedTags.get(true));
+            return true;
+        });
     }
 
     private static final String GET_DOCUMENT_ANNOTATIONS_QUERY =
-        "SELECT annotation\n" +
-        "FROM\n" +
-        "  \"DocumentAnnotations\",\n" +
-        "  json_array_elements(annos->'annotations') as annotation\n" +
+        "SELECT annos, annos_bin FROM \"DocumentAnnotations\"\n" +
         "WHERE \"docId\" = ?";
 
     @Override
     public Collection<Term> getMergedAnnotationsByDocument(String documentId) {
         return this.queryStream(rows -> {
-            Map<String, Term> merged = rows.map(row -> row.getString(1))
-                .map(jsonConverter(Annotation.class))
+            Map<String, Term> merged = rows
+                .map(storedTermsConverter(DocumentAnnotations.class, 1))
+                .filter(Objects::nonNull)
+                .flatMap(annotations -> annotations.getTerms().stream())
                 .collect(Terms.mergeTerms(true));
 
             return merged.values();
@@ -265,10 +387,7 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
     }
 
     private static final String GET_DOCUMENT_REMOVED_TAGS_QUERY =
-        "SELECT tag\n" +
-        "FROM\n" +
-        "  \"DocumentRemovedTags\",\n" +
-        "  json_array_elements(removedTags->'tags') as tag\n" +
+        "SELECT removedtags, removedtags_bin FROM \"DocumentRemovedTags\"\n" +
         "WHERE \"docId\" = ?\n";
 
     @Override
@@ -276,8 +395,9 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
 
         return this.queryStream(rows -> {
             Map<String, Term> mergedTags = rows
-                .map(row -> row.getString(1))
-                .map(jsonConverter(Tag.class))
+                .map(storedTermsConverter(DocumentTags.class, 1))
+                .filter(Objects::nonNull)
+                .flatMap(tags -> tags.getTerms().stream())
                 .collect(Terms.mergeTerms(true));
 
             return mergedTags.values();
@@ -295,16 +415,116 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
         };
     }
 
+    private static final TypeReference<List<Annotation>> ANNOTATION_LIST =
+        new TypeReference<List<Annotation>>() { };
+
+    private static final TypeReference<List<Tag>> TAG_LIST =
+        new TypeReference<List<Tag>>() { };
+
+    private <T> T readJson(TypeReference<T> type, String json) {
+        try {
+            return this.objectMapper.readValue(json, type);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T extends DocumentTerms> T readStoredTerms(
+        Class<T> type, String json, byte[] binary) {
+
+        try {
+            return termsCodec.read(type, json, binary);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Convert rows holding the JSON column of stored terms, followed by their
+     * binary column. Rows with neither are converted to null.
+     */
+    private <T extends DocumentTerms> Function<SqlRowSet, T>
+    storedTermsConverter(Class<T> type, int jsonColumn) {
+
+        return row -> readStoredTerms(type, row.getString(jsonColumn),
+                                      (byte[])row.getObject(jsonColumn + 1));
+    }
+
     @Override
     public UserAnnotations getAnnotationsByUser(String userId) {
-        List<DocumentAnnotations> docAnnotations = queryJsonList(
-            DocumentAnnotations.class,
-            "SELECT annos FROM \"DocumentAnnotations\" WHERE \"oid\" = ?",
+        List<DocumentAnnotations> docAnnotations = jdbcTemplate.query(
+            "SELECT annos, annos_bin FROM \"DocumentAnnotations\"\n" +
+            "WHERE \"oid\" = ?",
+            (rs, rowNum) -> readStoredTerms(
+                DocumentAnnotations.class, rs.getString(1), rs.getBytes(2)),
             userId);
+        docAnnotations.removeIf(Objects::isNull);
 
         return new UserAnnotations(userId, docAnnotations);
     }
 
+    /**
+     * The number of rows fetched from the database at a time when streaming
+     * a user's annotations or replaying stored terms.
+     */
+    private static final int STREAM_FETCH_SIZE = 50;
+
+    @Override
+    public void forEachDocumentAnnotations(
+        String userId, String afterDocumentId, int limit,
+        Consumer<? super DocumentAnnotations> consumer) {
+
+        Assert.notNull(userId);
+        Assert.isTrue(limit >= 0, "limit was negative");
+        Assert.notNull(consumer);
+
+        StringBuilder query = new StringBuilder(
+            "SELECT annos, annos_bin FROM \"DocumentAnnotations\"\n" +
+            "WHERE oid = ?");
+        if(afterDocumentId != null)
+            query.append(" AND \"docId\" > ?");
+        query.append(" ORDER BY \"docId\"");
+        if(limit > 0)
+            query.append(" LIMIT ?");
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // PostgreSQL only reads results from a cursor, fetchSize rows at
+            // a time, within a transaction. Otherwise all rows are read into
+            // memory at once.
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try(PreparedStatement statement =
+                    connection.prepareStatement(query.toString())) {
+
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                int param = 1;
+                statement.setString(param++, userId);
+                if(afterDocumentId != null)
+                    statement.setString(param++, afterDocumentId);
+                if(limit > 0)
+                    statement.setInt(param, limit);
+
+                try(ResultSet rs = statement.executeQuery()) {
+                    while(rs.next()) {
+                        DocumentAnnotations annotations = readStoredTerms(
+                            DocumentAnnotations.class, rs.getString(1),
+                            rs.getBytes(2));
+                        if(annotations != null)
+                            consumer.accept(annotations);
+                    }
+                }
+            }
+            finally {
+                // Nothing was written, so the transaction is always discarded
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
     @Override
     public List<String> getAnnotatedDocuments() {
         return jdbcTemplate.query(
@@ -319,57 +539,323 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
             (rs, r) -> rs.getString(1));
     }
 
+    @Override
+    public void forEachAnnotation(Consumer<? super Annotation> consumer) {
+        forEachStoredTerm(
+            DocumentAnnotations.class, DocumentAnnotations::getTerms, consumer,
+            "SELECT annos, annos_bin FROM \"DocumentAnnotations\"");
+    }
+
+    @Override
+    public void forEachTag(Consumer<? super Tag> consumer) {
+        forEachJsonRow(Tag.class, consumer,
+            "SELECT tag\n" +
+            "FROM \"DocumentTags\", json_array_elements(tags->'tags') as tag");
+    }
+
+    @Override
+    public void forEachRemovedTag(Consumer<? super Tag> consumer) {
+        forEachStoredTerm(DocumentTags.class, DocumentTags::getTerms, consumer,
+            "SELECT removedtags, removedtags_bin FROM \"DocumentRemovedTags\"");
+    }
+
+    @Override
+    public long replayTerms(
+        Set<TermType> termTypes, Consumer<? super TermsChangedEvent> consumer) {
+
+        Assert.notNull(termTypes);
+        Assert.notNull(consumer);
+
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(
+                Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                long snapshot;
+                // PostgreSQL takes a repeatable read transaction's snapshot at
+                // its first query, which must not see a change whose event
+                // hasn't been published yet, or vice versa.
+                Lock lock = changeLock.writeLock();
+                lock.lock();
+                try(Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                    snapshot = changeSequence.get();
+                }
+                finally {
+                    lock.unlock();
+                }
+
+                for(TermType termType : termTypes)
+                    replayRows(connection, termType, consumer);
+
+                return snapshot;
+            }
+            finally {
+                // Nothing was written, so the transaction is always discarded
+                connection.rollback();
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Replay the stored terms of a type, read within the connection's
+     * transaction.
+     */
+    private void replayRows(
+        Connection connection, TermType termType,
+        Consumer<? super TermsChangedEvent> consumer) throws SQLException {
+
+        Function<SqlRowSet, ? extends DocumentTerms> converter;
+        String query;
+        switch(termType) {
+            case TAG:
+                Function<String, DocumentTags> tagsConverter =
+                    jsonConverter(DocumentTags.class);
+                converter = row -> {
+                    String json = row.getString(3);
+                    return json == null ? null : tagsConverter.apply(json);
+                };
+                query = "SELECT NULL, \"docId\", tags FROM \"DocumentTags\"";
+                break;
+            case ANNOTATION:
+                converter = storedTermsConverter(DocumentAnnotations.class, 3);
+                query = "SELECT oid, \"docId\", annos, annos_bin\n" +
+                        "FROM \"DocumentAnnotations\"";
+                break;
+            case REMOVED_TAG:
+                converter = storedTermsConverter(DocumentTags.class, 3);
+                query = "SELECT oid, \"docId\", removedtags, removedtags_bin\n" +
+                        "FROM \"DocumentRemovedTags\"";
+                break;
+            default:
+                throw new AssertionError("Unhandled term type: " + termType);
+        }
+
+        try(PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            try(ResultSet rs = statement.executeQuery()) {
+                SqlRowSet row = new ResultSetWrappingSqlRowSet(rs);
+                while(row.next()) {
+                    DocumentTerms terms = converter.apply(row);
+                    if(terms != null) {
+                        consumer.accept(new TermsChangedEvent(
+                            row.getString(1), row.getString(2), termType,
+                            terms.getTerms(), Collections.emptyList()));
+                    }
+                }
+            }
+        }
+    }
+
+    private <D extends DocumentTerms, T> void forEachStoredTerm(
+        Class<D> type, Function<? super D, List<? extends T>> getTerms,
+        Consumer<? super T> consumer, String query) {
+
+        this.queryStream(rows -> {
+            rows.map(storedTermsConverter(type, 1))
+                .filter(Objects::nonNull)
+                .forEach(terms -> getTerms.apply(terms).forEach(consumer));
+            return null;
+        }, query);
+    }
+
+    private <T> void forEachJsonRow(
+        Class<T> type, Consumer<? super T> consumer, String query) {
+
+        this.queryStream(rows -> {
+            rows.map(row -> row.getString(1))
+                .map(jsonConverter(type))
+                .forEach(consumer);
+            return null;
+        }, query);
+    }
+
+    private static final String SQL_USER_DOCUMENT_PAGE_ANNOTATIONS =
+            "SELECT\n" +
+            "  annos IS NOT NULL,\n" +
+            "  (SELECT json_agg(annotation)\n" +
+            "   FROM json_array_elements(annos->'annotations') AS annotation\n" +
+            "   WHERE (annotation->>'page')::int = ?),\n" +
+            "  CASE WHEN annos IS NULL THEN annos_bin END\n" +
+            "FROM\n" +
+            "  \"DocumentAnnotations\"\n" +
+            "WHERE \"docId\" = ? AND oid = ?;\n";
+
     private static final String SQL_USER_DOCUMENT_ANNOTATIONS =
-            "SELECT annos\n" +
+            "SELECT annos, annos_bin\n" +
             "FROM\n" +
             "  \"DocumentAnnotations\"\n" +
             "WHERE \"docId\" = ? AND oid = ?\n" +
             "LIMIT 1;";
 
+    /**
+     * Lock out snapshots of the stored terms while a change is written and
+     * published.
+     */
+    private static final String SQL_LOCK_USER_DOCUMENT_ANNOTATIONS =
+            "SELECT annos, annos_bin\n" +
+            "FROM\n" +
+            "  \"DocumentAnnotations\"\n" +
+            "WHERE oid = ? AND \"docId\" = ?\n" +
+            "FOR UPDATE;";
+
+    private static final String SQL_CREATE_USER_DOCUMENT_ANNOTATIONS =
+            "INSERT INTO \"DocumentAnnotations\" (oid, \"docId\")\n" +
+            "VALUES (?, ?)\n" +
+            "ON CONFLICT (oid, \"docId\") DO NOTHING;";
+
+    private static final String SQL_LOCK_USER_DOCUMENT_REMOVED_TAGS =
+            "SELECT removedtags, removedtags_bin\n" +
+            "FROM \"DocumentRemovedTags\"\n" +
+            "WHERE oid = ? AND \"docId\" = ?\n" +
+            "FOR UPDATE;";
+
+    private static final String SQL_CREATE_USER_DOCUMENT_REMOVED_TAGS =
+            "INSERT INTO \"DocumentRemovedTags\" (oid, \"docId\")\n" +
+            "VALUES (?, ?)\n" +
+            "ON CONFLICT (oid, \"docId\") DO NOTHING;";
+
+    @FunctionalInterface
+    private interface ChangeCallback<T> {
+        T doInTransaction() throws SQLException;
+    }
+
+    /**
+     * Make a change in a transaction, holding the lock from
+     * {@link #lockForChange()} until it has been committed and published.
+     *
+     * <p>The change should read the row it modifies with
+     * {@link #selectForUpdate}, so that concurrent changes to the row are
+     * made one after another, and each publishes the difference it made.
+     */
+    private <T> T change(ChangeCallback<T> callback) {
+        Lock lock = lockForChange();
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return callback.doInTransaction();
+                }
+                catch(SQLException e) {
+                    throw jdbcTemplate.getExceptionTranslator().translate(
+                        "change", null, e);
+                }
+            });
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read a user's stored terms of a document, locking their row until the
+     * transaction ends.
+     *
+     * @param createQuery Inserts an empty row for the user and document if
+     *                    there isn't one, so that it can be locked. If null,
+     *                    a missing row isn't created.
+     * @return The stored terms, or nothing if the row is missing or empty.
+     */
+    private <T extends DocumentTerms> Optional<T> selectForUpdate(
+        Class<T> type, String lockQuery, String createQuery, String userId,
+        String documentId) {
+
+        List<T> results = jdbcTemplate.query(
+            lockQuery, new Object[] {userId, documentId},
+            (rs, rowNum) -> readStoredTerms(
+                type, rs.getString(1), rs.getBytes(2)));
+
+        if(results.isEmpty() && createQuery != null) {
+            jdbcTemplate.update(createQuery, userId, documentId);
+            return selectForUpdate(type, lockQuery, null, userId, documentId);
+        }
+        return results.stream().filter(Objects::nonNull).findFirst();
+    }
+
+    /**
+     * Publish a change once the current transaction has been committed.
+     */
+    private void publishOnCommit(
+        String userId, String documentId, TermType termType,
+        Collection<? extends Term> added, Collection<? extends Term> removed) {
+
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    publishChange(userId, documentId, termType, added,
+                                  removed);
+                }
+            });
+    }
+
+    private Lock lockForChange() {
+        Lock lock = changeLock.readLock();
+        lock.lock();
+        return lock;
+    }
+
+    /** Must be called while holding the lock from {@link #lockForChange()}. */
+    private void publishChange(
+        String userId, String documentId, TermType termType,
+        Collection<? extends Term> added, Collection<? extends Term> removed) {
+
+        eventPublisher.publishEvent(new TermsChangedEvent(
+            changeSequence.incrementAndGet(), userId, documentId, termType,
+            added, removed));
+    }
+
     private PGobject jsonValue(Object value)
         throws SQLException {
 
-        PGobject obj = new PGobject();
-        obj.setType("json");
         try {
-            obj.setValue(this.objectMapper.writeValueAsString(value));
+            return jsonColumn(this.objectMapper.writeValueAsString(value));
         }
         catch(JsonProcessingException e) {
             throw new UncheckedIOException(e);
         }
+    }
+
+    private static PGobject jsonColumn(String json) throws SQLException {
+        PGobject obj = new PGobject();
+        obj.setType("json");
+        obj.setValue(json);
         return obj;
     }
 
+    private static SqlParameterValue binaryColumn(byte[] value) {
+        return new SqlParameterValue(Types.BINARY, value);
+    }
+
     private int sqlUpsertAnnotations(DocumentAnnotations da)
         throws SQLException {
 
         String query =
-            "INSERT INTO \"DocumentAnnotations\" (oid, \"docId\", annos) \n" +
-            "VALUES (?, ?, ?) \n" +
-            "ON CONFLICT (oid, \"docId\") DO UPDATE SET annos=?;";
+            "INSERT INTO \"DocumentAnnotations\" (oid, \"docId\", annos, annos_bin) \n" +
+            "VALUES (?, ?, ?, ?) \n" +
+            "ON CONFLICT (oid, \"docId\") DO UPDATE\n" +
+            "SET annos = EXCLUDED.annos, annos_bin = EXCLUDED.annos_bin;";
 
         Assert.notNull(da.getUserId());
         Assert.notNull(da.getDocumentId());
 
-        PGobject annoJson = jsonValue(da);
-        return jdbcTemplate.update(query, da.getUserId(), da.getDocumentId(), annoJson, annoJson);
+        return jdbcTemplate.update(
+            query, da.getUserId(), da.getDocumentId(),
+            jsonColumn(termsCodec.writeJson(da)),
+            binaryColumn(termsCodec.writeBinary(da)));
     }
 
     private int sqlUpsertRemovedTags(DocumentTags docTags) throws SQLException {
-        String query = "UPDATE \"DocumentRemovedTags\" SET \"removedtags\" = ? WHERE \"oid\" = ? AND \"docId\" = ?; "
-                + "INSERT INTO \"DocumentRemovedTags\" (\"oid\", \"docId\", \"removedtags\") " + "SELECT ?, ?, ? "
+        String query = "UPDATE \"DocumentRemovedTags\" SET \"removedtags\" = ?, \"removedtags_bin\" = ? WHERE \"oid\" = ? AND \"docId\" = ?; "
+                + "INSERT INTO \"DocumentRemovedTags\" (\"oid\", \"docId\", \"removedtags\", \"removedtags_bin\") " + "SELECT ?, ?, ?, ? "
                 + "WHERE NOT EXISTS (SELECT * FROM \"DocumentRemovedTags\" WHERE \"oid\" = ? AND \"docId\" = ?);";
 
-        PGobject json = new PGobject();
-        json.setType("json");
-
-        try {
-            json.setValue(this.objectMapper.writeValueAsString(docTags));
-        }
-        catch(JsonProcessingException e) {
-            throw new RuntimeException(
-                "Failed to convert DocumentTags to JSON", e);
-        }
+        PGobject json = jsonColumn(termsCodec.writeJson(docTags));
+        SqlParameterValue binary =
+            binaryColumn(termsCodec.writeBinary(docTags));
 
         String uid = docTags.getUserId();
         Assert.notNull(uid);
@@ -377,7 +863,7 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
         Assert.notNull(did);
 
         return jdbcTemplate.update(
-            query, json, uid, did, uid, did, json, uid, did);
+            query, json, binary, uid, did, uid, did, json, binary, uid, did);
     }
 
     @FunctionalInterface
@@ -437,40 +923,18 @@ public class CrowdsourcingDBDao implements CrowdsourcingDao {
         return queryJsonList(type, DEFAULT_JSON_COLUMN, query, params);
     }
 
-    private <T> T queryJson(
-        Class<T> type, ColumnExtractor<String> jsonColumn, String query,
-        Object...params) {
-
-        return internalQueryJson(
-            this.jdbcTemplate::queryForObject, type, jsonColumn, query, params);
-    }
-
-    private <T> T queryJson(
+    /**
+     * Query for the stored terms of at most one row, whose first two columns
+     * are the JSON and binary columns.
+     */
+    private <T extends DocumentTerms> Optional<T> queryStoredTermsOptional(
         Class<T> type, String query, Object...params) {
 
-        return queryJson(type, DEFAULT_JSON_COLUMN, query, params);
-    }
-
-    private <T> Optional<T> queryJsonOptional(
-        Class<T> type, ColumnExtractor<String> jsonColumn, String query,
-        Object...params) {
-
-        try {
-            return Optional.of(internalQueryJson(
-                this.jdbcTemplate::queryForObject, type, jsonColumn, query,
-                params));
-
-        }
-        catch(IncorrectResultSizeDataAccessException e) {
-            return Optional.empty();
-        }
-    }
-
-    private <T> Optional<T> queryJsonOptional(
-        Class<T> type, String query,
-        Object...params) {
+        List<T> results = jdbcTemplate.query(
+            query, params, (rs, rowNum) -> readStoredTerms(
+                type, rs.getString(1), rs.getBytes(2)));
 
-        return queryJsonOptional(type, DEFAULT_JSON_COLUMN, query, params);
+        return results.stream().filter(Objects::nonNull).findFirst();
     }
 
     /**
@@ -5,6 +5,7 @@ import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
 import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
 import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
 import ulcambridge.foundations.viewer.crowdsourcing.model.UserAnnotations;
 
 import java.sql.SQLException;
@@ -12,6 +13,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  *
@@ -30,6 +32,21 @@ public interface CrowdsourcingDao {
 
     UserAnnotations getAnnotationsByUser(String userId);
 
+    /**
+     * Pass each document's annotations by a user to a consumer, in order of
+     * document ID, as they're read from the database. Only one document's
+     * annotations are held in memory at a time.
+     *
+     * @param userId The ID of the user whose annotations are read
+     * @param afterDocumentId The ID of the document to start after, or null
+     *                        to start at the first
+     * @param limit The maximum number of documents to read, or 0 to read all
+     * @param consumer A function to receive each document's annotations
+     */
+    void forEachDocumentAnnotations(
+        String userId, String afterDocumentId, int limit,
+        Consumer<? super DocumentAnnotations> consumer);
+
     DocumentTags getTagsByDocument(String documentId);
 
     Tag getRemovedTag(String userId, String documentId, String tagName);
@@ -59,6 +76,35 @@ public interface CrowdsourcingDao {
 
     List<String> getAnnotatedDocuments();
 
+    /**
+     * Pass every annotation of every user and document to a consumer.
+     */
+    void forEachAnnotation(Consumer<? super Annotation> consumer);
+
+    /**
+     * Pass every tag of every document to a consumer.
+     */
+    void forEachTag(Consumer<? super Tag> consumer);
+
+    /**
+     * Pass every removed tag of every user and document to a consumer.
+     */
+    void forEachRemovedTag(Consumer<? super Tag> consumer);
+
+    /**
+     * Pass the stored terms of some types to a consumer, as events adding
+     * them. One event is produced per document and user, so listeners can
+     * build derived state by replaying the events.
+     *
+     * <p>The terms are read from a single snapshot, which includes exactly the
+     * changes whose events have sequence numbers up to the one returned.
+     *
+     * @return The sequence number of the last change included in the snapshot.
+     * @see TermsChangedEvent#getSequence()
+     */
+    long replayTerms(Set<TermType> termTypes,
+                     Consumer<? super TermsChangedEvent> consumer);
+
     List<String> getTaggedDocuments();
 
     interface UpsertResult<T> {
@@ -0,0 +1,226 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit.Priority;
+import ulcambridge.foundations.viewer.crowdsourcing.async.ServiceOverloadedException;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.model.UserAnnotations;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Refuses calls to another DAO when the database is slowing down, rather
+ * than letting them queue for connections.
+ *
+ * <p>Calls made for requests are run within an
+ * {@link AdaptiveConcurrencyLimit}, with exports refused first, then reads
+ * and finally writes. Refused calls fail with a
+ * {@link ServiceOverloadedException}. Calls which read everything, made when
+ * building indexes in the background, aren't limited.
+ */
+public class LoadSheddingCrowdsourcingDao implements CrowdsourcingDao {
+
+    private final CrowdsourcingDao dao;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @FunctionalInterface
+    private interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    public LoadSheddingCrowdsourcingDao(
+        CrowdsourcingDao dao, AdaptiveConcurrencyLimit concurrencyLimit) {
+
+        Assert.notNull(dao);
+        Assert.notNull(concurrencyLimit);
+
+        this.dao = dao;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * @param measured Whether the call's duration reflects the load on the
+     *                 database, rather than the amount of data read.
+     */
+    private <T, E extends Exception> T limited(
+        Priority priority, boolean measured, Call<T, E> call) throws E {
+
+        AdaptiveConcurrencyLimit.Permit permit =
+            concurrencyLimit.tryAcquire(priority);
+        if(permit == null) {
+            throw new ServiceOverloadedException(
+                "The database is overloaded; refused " +
+                priority.name().toLowerCase() + " call");
+        }
+
+        try {
+            return call.call();
+        }
+        finally {
+            if(measured)
+                permit.complete();
+            else
+                permit.release();
+        }
+    }
+
+    @Override
+    public DocumentAnnotations getAnnotations(
+        String userId, String documentId, int documentPageNo) {
+
+        return limited(Priority.READ, true, () ->
+            dao.getAnnotations(userId, documentId, documentPageNo));
+    }
+
+    @Override
+    public DocumentAnnotations getAnnotations(
+        String userId, String documentId) {
+
+        return limited(Priority.EXPORT, true, () ->
+            dao.getAnnotations(userId, documentId));
+    }
+
+    @Override
+    public Collection<Term> getMergedAnnotationsByDocument(String documentId) {
+        return limited(Priority.READ, true, () ->
+            dao.getMergedAnnotationsByDocument(documentId));
+    }
+
+    @Override
+    public Collection<Term> getMergedRemovedTagsByDocument(String documentId) {
+        return limited(Priority.READ, true, () ->
+            dao.getMergedRemovedTagsByDocument(documentId));
+    }
+
+    @Override
+    public UserAnnotations getAnnotationsByUser(String userId) {
+        return limited(Priority.EXPORT, false, () ->
+            dao.getAnnotationsByUser(userId));
+    }
+
+    @Override
+    public void forEachDocumentAnnotations(
+        String userId, String afterDocumentId, int limit,
+        Consumer<? super DocumentAnnotations> consumer) {
+
+        // Includes the time taken to write the annotations to the client
+        limited(Priority.EXPORT, false, () -> {
+            dao.forEachDocumentAnnotations(
+                userId, afterDocumentId, limit, consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public DocumentTags getTagsByDocument(String documentId) {
+        return limited(Priority.READ, true, () ->
+            dao.getTagsByDocument(documentId));
+    }
+
+    @Override
+    public Tag getRemovedTag(
+        String userId, String documentId, String tagName) {
+
+        return limited(Priority.READ, true, () ->
+            dao.getRemovedTag(userId, documentId, tagName));
+    }
+
+    @Override
+    public DocumentTags getRemovedTags(String userId, String documentId) {
+        return limited(Priority.READ, true, () ->
+            dao.getRemovedTags(userId, documentId));
+    }
+
+    @Override
+    public Annotation addAnnotation(
+        String userId, String documentId, Annotation annotation)
+        throws SQLException {
+
+        return limited(Priority.WRITE, true, () ->
+            dao.addAnnotation(userId, documentId, annotation));
+    }
+
+    @Override
+    public int addTag(DocumentTags documentTags) throws SQLException {
+        return limited(Priority.WRITE, true, () -> dao.addTag(documentTags));
+    }
+
+    @Override
+    public UpsertResult<DocumentTags> addRemovedTag(
+        String userId, String documentId, Tag removedTag)
+        throws SQLException {
+
+        return limited(Priority.WRITE, true, () ->
+            dao.addRemovedTag(userId, documentId, removedTag));
+    }
+
+    @Override
+    public boolean removeRemovedTag(
+        String userId, String documentId, String tagName)
+        throws SQLException {
+
+        return limited(Priority.WRITE, true, () ->
+            dao.removeRemovedTag(userId, documentId, tagName));
+    }
+
+    @Override
+    public boolean removeAnnotation(
+        String userId, String documentId, UUID annotationUuid)
+        throws SQLException {
+
+        return limited(Priority.WRITE, true, () ->
+            dao.removeAnnotation(userId, documentId, annotationUuid));
+    }
+
+    @Override
+    public Set<UUID> removeAnnotations(
+        String userId, String documentId, Collection<UUID> annotationIds)
+        throws SQLException {
+
+        return limited(Priority.WRITE, true, () ->
+            dao.removeAnnotations(userId, documentId, annotationIds));
+    }
+
+    @Override
+    public List<String> getAnnotatedDocuments() {
+        return dao.getAnnotatedDocuments();
+    }
+
+    @Override
+    public void forEachAnnotation(Consumer<? super Annotation> consumer) {
+        dao.forEachAnnotation(consumer);
+    }
+
+    @Override
+    public void forEachTag(Consumer<? super Tag> consumer) {
+        dao.forEachTag(consumer);
+    }
+
+    @Override
+    public void forEachRemovedTag(Consumer<? super Tag> consumer) {
+        dao.forEachRemovedTag(consumer);
+    }
+
+    @Override
+    public long replayTerms(
+        Set<TermType> termTypes, Consumer<? super TermsChangedEvent> consumer) {
+
+        return dao.replayTerms(termTypes, consumer);
+    }
+
+    @Override
+    public List<String> getTaggedDocuments() {
+        return dao.getTaggedDocuments();
+    }
+}
@@ -0,0 +1,174 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.BinaryTermsFormat;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads and writes the stored form of a user's annotations or removed tags of
+ * a document. They're held in a JSON column, a binary column in
+ * {@link BinaryTermsFormat}, or both.
+ *
+ * <p>Rows are migrated lazily: either column can be read, and the columns of
+ * the {@link Mode} are written when a row is next updated.
+ */
+public class StoredTermsCodec {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(StoredTermsCodec.class);
+
+    public enum Mode {
+        /** Write JSON only, preferring it when reading. */
+        JSON,
+        /**
+         * Write both formats. Rows with both are decoded from each and
+         * differences are logged, and the JSON is returned.
+         */
+        DUAL,
+        /** Write the binary format only, preferring it when reading. */
+        BINARY
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Mode mode;
+
+    private final LongAdder jsonReads = new LongAdder();
+    private final LongAdder binaryReads = new LongAdder();
+    private final LongAdder verifiedReads = new LongAdder();
+    private final LongAdder mismatchedReads = new LongAdder();
+
+    public StoredTermsCodec(ObjectMapper objectMapper, Mode mode) {
+        Assert.notNull(objectMapper);
+        Assert.notNull(mode);
+
+        this.objectMapper = objectMapper;
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Decode the columns of a row.
+     *
+     * @param json The value of the JSON column, or null.
+     * @param binary The value of the binary column, or null.
+     * @return The decoded terms, or null if both columns are null.
+     */
+    public <T extends DocumentTerms> T read(
+        Class<T> type, String json, byte[] binary) throws IOException {
+
+        Assert.notNull(type);
+
+        if(json != null && binary != null && mode == Mode.DUAL)
+            return readVerified(type, json, binary);
+        if(binary != null && (json == null || mode == Mode.BINARY)) {
+            binaryReads.increment();
+            return readBinary(type, binary);
+        }
+        if(json != null) {
+            jsonReads.increment();
+            return objectMapper.readValue(json, type);
+        }
+        return null;
+    }
+
+    private <T extends DocumentTerms> T readBinary(Class<T> type, byte[] binary)
+        throws IOException {
+
+        DocumentTerms terms = BinaryTermsFormat.read(binary);
+        if(!type.isInstance(terms)) {
+            throw new IOException(String.format(
+                "Expected %s but binary column held %s",
+                type.getSimpleName(), terms.getClass().getSimpleName()));
+        }
+        return type.cast(terms);
+    }
+
+    private <T extends DocumentTerms> T readVerified(
+        Class<T> type, String json, byte[] binary) throws IOException {
+
+        T fromJson = objectMapper.readValue(json, type);
+        verifiedReads.increment();
+        jsonReads.increment();
+
+        try {
+            T fromBinary = readBinary(type, binary);
+            if(!objectMapper.writeValueAsString(fromJson).equals(
+                    objectMapper.writeValueAsString(fromBinary))) {
+                mismatchedReads.increment();
+                logger.warn("Binary {} of user {} on document {} differ from " +
+                            "their JSON", type.getSimpleName(),
+                            fromJson.getUserId(), fromJson.getDocumentId());
+            }
+        }
+        catch(IOException e) {
+            mismatchedReads.increment();
+            logger.warn(String.format(
+                "Binary %s of user %s on document %s could not be read",
+                type.getSimpleName(), fromJson.getUserId(),
+                fromJson.getDocumentId()), e);
+        }
+        return fromJson;
+    }
+
+    /**
+     * @return The value to store in the JSON column, or null if the mode
+     *         doesn't store JSON.
+     */
+    public String writeJson(DocumentTerms terms) {
+        if(mode == Mode.BINARY)
+            return null;
+
+        try {
+            return objectMapper.writeValueAsString(terms);
+        }
+        catch(JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The value to store in the binary column, or null if the mode
+     *         doesn't store the binary format.
+     */
+    public byte[] writeBinary(DocumentTerms terms) {
+        if(mode == Mode.JSON)
+            return null;
+        if(terms instanceof DocumentAnnotations)
+            return BinaryTermsFormat.write((DocumentAnnotations)terms);
+        if(terms instanceof DocumentTags)
+            return BinaryTermsFormat.write((DocumentTags)terms);
+        throw new IllegalArgumentException(
+            "Unsupported terms: " + terms.getClass());
+    }
+
+    public long getJsonReadCount() {
+        return jsonReads.sum();
+    }
+
+    public long getBinaryReadCount() {
+        return binaryReads.sum();
+    }
+
+    /** The number of rows read from both columns in {@link Mode#DUAL}. */
+    public long getVerifiedReadCount() {
+        return verifiedReads.sum();
+    }
+
+    /** The number of verified rows whose columns differed. */
+    public long getMismatchedReadCount() {
+        return mismatchedReads.sum();
+    }
+}
@@ -0,0 +1,93 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import com.google.common.collect.ImmutableList;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by a {@link CrowdsourcingDao} after it has written a change to the
+ * terms held for a document.
+ *
+ * <p>The event describes the change as the terms which were added and the
+ * terms which were removed, so that listeners can update derived state without
+ * re-reading the document. Updating an existing term is reported as the
+ * removal of the old version and the addition of the new one.
+ *
+ * <p>Changes are numbered in the order they're published, so that they can be
+ * matched against a snapshot of the stored terms, as with
+ * {@link CrowdsourcingDao#replayTerms}.
+ */
+public class TermsChangedEvent {
+
+    private final long sequence;
+    private final String userId;
+    private final String documentId;
+    private final TermType termType;
+    private final List<Term> added;
+    private final List<Term> removed;
+
+    /**
+     * Create an event which isn't part of a numbered sequence of changes.
+     */
+    public TermsChangedEvent(
+        String userId, String documentId, TermType termType,
+        Collection<? extends Term> added, Collection<? extends Term> removed) {
+
+        this(0, userId, documentId, termType, added, removed);
+    }
+
+    /**
+     * @param sequence The number of the change, greater than those of the
+     *                 changes published before it.
+     * @param userId The user who owns the changed terms, or null for
+     *               system-provided terms.
+     * @param documentId The document whose terms changed.
+     * @param termType The type of the changed terms.
+     * @param added The terms which were added.
+     * @param removed The terms which were removed.
+     */
+    public TermsChangedEvent(
+        long sequence, String userId, String documentId, TermType termType,
+        Collection<? extends Term> added, Collection<? extends Term> removed) {
+
+        Assert.notNull(documentId);
+        Assert.notNull(termType);
+        Assert.notNull(added);
+        Assert.notNull(removed);
+
+        this.sequence = sequence;
+        this.userId = userId;
+        this.documentId = documentId;
+        this.termType = termType;
+        this.added = ImmutableList.copyOf(added);
+        this.removed = ImmutableList.copyOf(removed);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public TermType getTermType() {
+        return termType;
+    }
+
+    public List<Term> getAdded() {
+        return added;
+    }
+
+    public List<Term> getRemoved() {
+        return removed;
+    }
+}
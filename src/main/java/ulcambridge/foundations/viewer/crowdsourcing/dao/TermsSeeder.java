@@ -0,0 +1,196 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds state derived from stored terms, such as indexes, with the terms
+ * replayed from the database followed by the changes published after them.
+ *
+ * <p>The stored terms are replayed once, and each replayed term is passed to
+ * every {@link Subscriber} of its type. Changes published while the terms are
+ * being replayed may or may not be in the replayed snapshot, so each
+ * subscriber holds them until the replay has finished. Those numbered after
+ * the snapshot are then applied in order, and later changes are applied as
+ * they're published. Each change is therefore applied exactly once, whenever
+ * it's made.
+ *
+ * <p>If the replay fails, the held changes are all applied, and the state
+ * reflects only the changes made since startup.
+ */
+public class TermsSeeder {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(TermsSeeder.class);
+
+    private final CrowdsourcingDao dataSource;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean started;
+
+    /**
+     * @param dataSource The DAO to replay the stored terms from.
+     */
+    public TermsSeeder(CrowdsourcingDao dataSource) {
+        Assert.notNull(dataSource);
+
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Subscribe to the stored terms and the changes to them. Subscribers must
+     * be added before seeding starts.
+     *
+     * @param name What's being seeded, for logging.
+     * @param termTypes The types of terms the listener receives.
+     * @param listener Applies replayed terms and published changes.
+     * @param onSeeded Called once the changes held while seeding have been
+     *                 applied.
+     */
+    public Subscriber subscribe(
+        String name, Set<TermType> termTypes,
+        Consumer<? super TermsChangedEvent> listener, Runnable onSeeded) {
+
+        Assert.state(!started, "Seeding has already started");
+
+        Subscriber subscriber = new Subscriber(
+            name, termTypes, listener, onSeeded);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public Subscriber subscribe(
+        String name, Set<TermType> termTypes,
+        Consumer<? super TermsChangedEvent> listener) {
+
+        return subscribe(name, termTypes, listener, () -> { });
+    }
+
+    /**
+     * Seed the subscribers in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::seed, "terms-seed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Replay the stored terms to the subscribers, then the changes held since
+     * seeding started which the replay didn't include.
+     */
+    public void seed() {
+        started = true;
+
+        Set<TermType> termTypes = EnumSet.noneOf(TermType.class);
+        subscribers.forEach(s -> termTypes.addAll(s.termTypes));
+
+        long start = System.nanoTime();
+        long snapshot;
+        boolean seeded;
+        try {
+            snapshot = dataSource.replayTerms(termTypes, event -> {
+                for(Subscriber subscriber : subscribers) {
+                    if(subscriber.termTypes.contains(event.getTermType()))
+                        subscriber.listener.accept(event);
+                }
+            });
+            seeded = true;
+        }
+        catch(RuntimeException e) {
+            logger.error("Failed to seed from stored terms", e);
+            snapshot = Long.MIN_VALUE;
+            seeded = false;
+        }
+
+        for(Subscriber subscriber : subscribers)
+            subscriber.finish(snapshot, seeded);
+
+        if(seeded) {
+            logger.info("Seeded {} in {} ms", subscribers.stream()
+                    .map(s -> s.name).collect(Collectors.joining(", ")),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Receives the stored terms of some types, and the changes published to
+     * them.
+     */
+    public static final class Subscriber {
+
+        private final String name;
+        private final Set<TermType> termTypes;
+        private final Consumer<? super TermsChangedEvent> listener;
+        private final Runnable onSeeded;
+
+        // Guarded by this; null once changes are applied as they're published
+        private List<TermsChangedEvent> held = new ArrayList<>();
+        private volatile boolean seeded;
+
+        private Subscriber(
+            String name, Set<TermType> termTypes,
+            Consumer<? super TermsChangedEvent> listener, Runnable onSeeded) {
+
+            Assert.notNull(name);
+            Assert.notNull(termTypes);
+            Assert.notNull(listener);
+            Assert.notNull(onSeeded);
+
+            this.name = name;
+            this.termTypes = ImmutableSet.copyOf(termTypes);
+            this.listener = listener;
+            this.onSeeded = onSeeded;
+        }
+
+        /**
+         * Apply a published change, or hold it until seeding has finished.
+         */
+        public void onTermsChanged(TermsChangedEvent event) {
+            if(!termTypes.contains(event.getTermType()))
+                return;
+
+            synchronized(this) {
+                if(held != null) {
+                    held.add(event);
+                    return;
+                }
+            }
+            listener.accept(event);
+        }
+
+        private void finish(long snapshot, boolean seeded) {
+            synchronized(this) {
+                for(TermsChangedEvent event : held) {
+                    if(event.getSequence() > snapshot)
+                        listener.accept(event);
+                }
+                held = null;
+            }
+            this.seeded = seeded;
+            onSeeded.run();
+        }
+
+        /**
+         * @return true once the stored terms have been replayed.
+         */
+        public boolean isSeeded() {
+            return seeded;
+        }
+    }
+}
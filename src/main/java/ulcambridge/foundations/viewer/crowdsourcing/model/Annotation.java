@@ -5,15 +5,20 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.time.Instant;
 import java.util.Date;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
 /**
+ * An annotation of a document or one of its pages.
+ *
+ * <p>Annotations are equal if they have the same identity: annotations with
+ * the {@code doc} target are identified by their page, target and type, and
+ * others also by their name and position. The hash of the identity is
+ * computed once, when the annotation is created.
  *
  * @author Lei
  *
@@ -27,11 +32,23 @@ public class Annotation extends Term {
     private final UUID uuid;
     private final Instant date;
     private final Position position;
+    private final int identityHash;
 
-    public Annotation(String name, int raw, Double value, String target,
+    public Annotation(String name, int raw, double value, String target,
                       String type, int page, UUID uuid, Instant date,
                       Position position) {
 
+        this(name == null ? null : TermDictionary.global().intern(name),
+             raw, value, target, type, page, uuid, date, position);
+    }
+
+    /**
+     * Create an annotation with a name which has already been interned.
+     */
+    Annotation(TermDictionary.Name name, int raw, double value,
+               String target, String type, int page, UUID uuid,
+               Instant date, Position position) {
+
         super(name, raw, value);
 
         this.target = target;
@@ -40,6 +57,14 @@ public class Annotation extends Term {
         this.uuid = uuid;
         this.date = date;
         this.position = position;
+        this.identityHash = isDocumentTarget() ?
+            Objects.hash(page, target, type) :
+            Objects.hash(name == null ? null : name.getEntry().getKey(),
+                         page, target, type, position);
+    }
+
+    private boolean isDocumentTarget() {
+        return "doc".equals(target);
     }
 
     @JsonProperty("target")
@@ -92,55 +117,28 @@ public class Annotation extends Term {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == null)
-            return false;
-        if (!(obj instanceof Annotation))
-            return false;
         if (obj == this)
             return true;
+        if (!(obj instanceof Annotation))
+            return false;
 
         Annotation rhs = (Annotation) obj;
+        if (identityHash != rhs.identityHash ||
+            isDocumentTarget() != rhs.isDocumentTarget())
+            return false;
 
-        // compare target, type and page number if it is 'doc'
-        //
-        if (rhs.getTarget().equals(this.getTarget()) && rhs.getTarget().equals("doc")) {
-            return new EqualsBuilder().
-                append(page, rhs.page).
-                append(target, rhs.target).
-                append(type, rhs.type).
-                isEquals();
-        }
-        // otherwise (it is 'tag') compare name, target, type, name and position
-        //
-        else {
-            return new EqualsBuilder().
-                // if deriving: appendSuper(super.equals(obj)).
-                append(getName(), rhs.getName()).
-                append(page, rhs.getPage()).
-                append(target, rhs.getTarget()).
-                append(type, rhs.getType()).
-                append(position, rhs.getPosition()).
-                isEquals();
-        }
+        // 'doc' annotations are compared by page, target and type. Others
+        // ('tag') are compared by name, ignoring variants, and position too.
+        return page == rhs.page &&
+               Objects.equals(target, rhs.target) &&
+               Objects.equals(type, rhs.type) &&
+               (isDocumentTarget() ||
+                getNameEntry() == rhs.getNameEntry() &&
+                Objects.equals(position, rhs.position));
     }
 
     @Override
     public int hashCode() {
-        if (this.getTarget().equals("doc")) {
-            return new HashCodeBuilder(99, 101).
-                    append(page).
-                    append(target).
-                    append(type).
-                    toHashCode();
-        } else {
-            return new HashCodeBuilder(99, 101).
-                    append(getName()).
-                    append(page).
-                    append(target).
-                    append(type).
-                    append(position).
-                    toHashCode();
-        }
+        return identityHash;
     }
-
 }
@@ -0,0 +1,568 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A Jackson module with streaming serializers and deserializers for the
+ * annotation model: {@link Term}, {@link Tag}, {@link Annotation},
+ * {@link Position} and {@link DocumentAnnotations}.
+ *
+ * <p>The JSON is the same as that produced and accepted by the annotations
+ * on the model classes, which still apply to mappers without this module.
+ * Reading and writing fields directly avoids the reflective creator path,
+ * which buffers each property and boxes optional values, and the
+ * intermediate lists of points and annotations.
+ */
+public class AnnotationModelModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public AnnotationModelModule() {
+        super(AnnotationModelModule.class.getSimpleName());
+
+        TermSerializer termSerializer = new TermSerializer();
+        addSerializer(Term.class, termSerializer);
+        addSerializer(Tag.class, termSerializer);
+        addSerializer(Annotation.class, new AnnotationSerializer());
+        addSerializer(Position.class, new PositionSerializer());
+        addSerializer(DocumentAnnotations.class,
+                      new DocumentAnnotationsSerializer());
+
+        addDeserializer(Term.class, new TermDeserializer());
+        addDeserializer(Tag.class, new TagDeserializer());
+        addDeserializer(Annotation.class, new AnnotationDeserializer());
+        addDeserializer(Position.class, new PositionDeserializer());
+        addDeserializer(DocumentAnnotations.class,
+                        new DocumentAnnotationsDeserializer());
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Write a UUID in its canonical form, without the intermediate strings
+     * of {@link UUID#toString()}.
+     */
+    private static void writeUuid(UUID uuid, JsonGenerator gen)
+        throws IOException {
+
+        char[] chars = new char[36];
+        writeHex(uuid.getMostSignificantBits() >>> 32, chars, 0, 8);
+        chars[8] = '-';
+        writeHex(uuid.getMostSignificantBits() >>> 16, chars, 9, 4);
+        chars[13] = '-';
+        writeHex(uuid.getMostSignificantBits(), chars, 14, 4);
+        chars[18] = '-';
+        writeHex(uuid.getLeastSignificantBits() >>> 48, chars, 19, 4);
+        chars[23] = '-';
+        writeHex(uuid.getLeastSignificantBits(), chars, 24, 12);
+        gen.writeString(chars, 0, chars.length);
+    }
+
+    private static void writeHex(long bits, char[] chars, int offset,
+                                 int digits) {
+        for(int i = offset + digits - 1; i >= offset; --i, bits >>>= 4)
+            chars[i] = HEX_DIGITS[(int)bits & 0xf];
+    }
+
+    /**
+     * Parse a UUID, without the intermediate strings of
+     * {@link UUID#fromString(String)} when it's in the canonical form.
+     */
+    static UUID parseUuid(String text) {
+        if(text.length() != 36 || text.charAt(8) != '-' ||
+           text.charAt(13) != '-' || text.charAt(18) != '-' ||
+           text.charAt(23) != '-')
+            return UUID.fromString(text);
+
+        long most = 0, least = 0;
+        for(int i = 0; i < 36; ++i) {
+            if(i == 8 || i == 13 || i == 18 || i == 23)
+                continue;
+            int digit = Character.digit(text.charAt(i), 16);
+            if(digit < 0)
+                return UUID.fromString(text);
+            if(i < 19)
+                most = most << 4 | digit;
+            else
+                least = least << 4 | digit;
+        }
+        return new UUID(most, least);
+    }
+
+    private static final class TermSerializer extends StdSerializer<Term> {
+        TermSerializer() {
+            super(Term.class);
+        }
+
+        @Override
+        public void serialize(Term value, JsonGenerator gen,
+                              SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("name", value.getName());
+            gen.writeNumberField("raw", value.getRaw());
+            gen.writeNumberField("value", value.getValue());
+            gen.writeEndObject();
+        }
+    }
+
+    private static final class AnnotationSerializer
+        extends StdSerializer<Annotation> {
+
+        AnnotationSerializer() {
+            super(Annotation.class);
+        }
+
+        @Override
+        public void serialize(Annotation value, JsonGenerator gen,
+                              SerializerProvider provider) throws IOException {
+            write(value, gen);
+        }
+
+        /** Write an annotation, omitting null properties. */
+        static void write(Annotation value, JsonGenerator gen)
+            throws IOException {
+
+            gen.writeStartObject();
+            if(value.getName() != null)
+                gen.writeStringField("name", value.getName());
+            gen.writeNumberField("raw", value.getRaw());
+            gen.writeNumberField("value", value.getValue());
+            if(value.getTarget() != null)
+                gen.writeStringField("target", value.getTarget());
+            if(value.getType() != null)
+                gen.writeStringField("type", value.getType());
+            gen.writeNumberField("page", value.getPage());
+            if(value.getUuid() != null) {
+                gen.writeFieldName("uuid");
+                writeUuid(value.getUuid(), gen);
+            }
+            if(value.getDate() != null) {
+                gen.writeFieldName("date");
+                JsonDateFormat.writeDate(value.getDate(), gen);
+            }
+            if(value.getPosition() != null) {
+                gen.writeFieldName("position");
+                PositionSerializer.write(value.getPosition(), gen);
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static final class PositionSerializer
+        extends StdSerializer<Position> {
+
+        PositionSerializer() {
+            super(Position.class);
+        }
+
+        @Override
+        public void serialize(Position value, JsonGenerator gen,
+                              SerializerProvider provider) throws IOException {
+            write(value, gen);
+        }
+
+        static void write(Position value, JsonGenerator gen)
+            throws IOException {
+
+            gen.writeStartObject();
+            gen.writeStringField("type", value.getType());
+            gen.writeArrayFieldStart("coordinates");
+            for(int i = 0; i < value.getPointCount(); ++i) {
+                gen.writeStartObject();
+                gen.writeNumberField("x", value.getX(i));
+                gen.writeNumberField("y", value.getY(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    private static final class DocumentAnnotationsSerializer
+        extends StdSerializer<DocumentAnnotations> {
+
+        DocumentAnnotationsSerializer() {
+            super(DocumentAnnotations.class);
+        }
+
+        @Override
+        public void serialize(DocumentAnnotations value, JsonGenerator gen,
+                              SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("oid", value.getUserId());
+            gen.writeStringField("docId", value.getDocumentId());
+            gen.writeArrayFieldStart("annotations");
+            List<? extends Annotation> annotations = value.getTerms();
+            for(int i = 0; i < annotations.size(); ++i)
+                AnnotationSerializer.write(annotations.get(i), gen);
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * A deserializer of JSON objects, which reads their fields in a single
+     * pass.
+     */
+    private abstract static class ObjectDeserializer<T>
+        extends StdDeserializer<T> {
+
+        ObjectDeserializer(Class<T> type) {
+            super(type);
+        }
+
+        /**
+         * @return The name of the first field of the object the parser is
+         *         at, with the parser at the field, or null if the object is
+         *         empty.
+         */
+        final String firstField(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            if(p.isExpectedStartObjectToken())
+                return p.nextFieldName();
+            if(p.hasToken(JsonToken.FIELD_NAME))
+                return p.getCurrentName();
+            if(p.hasToken(JsonToken.END_OBJECT))
+                return null;
+            throw ctxt.wrongTokenException(
+                p, JsonToken.START_OBJECT,
+                "Expected an object for " + handledType().getSimpleName());
+        }
+
+        /**
+         * Skip the value of a field which isn't a property, or fail,
+         * depending on whether unknown properties are allowed.
+         */
+        final void unknownField(JsonParser p, DeserializationContext ctxt,
+                                Class<?> type, String field)
+            throws IOException {
+
+            ctxt.handleUnknownProperty(p, this, type, field);
+        }
+
+        final String string(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            if(p.hasToken(JsonToken.VALUE_STRING))
+                return p.getText();
+            if(p.hasToken(JsonToken.VALUE_NULL))
+                return null;
+            return _parseString(p, ctxt);
+        }
+
+        final int intValue(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            if(p.hasToken(JsonToken.VALUE_NUMBER_INT))
+                return p.getIntValue();
+            return _parseIntPrimitive(p, ctxt);
+        }
+
+        final double doubleValue(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            if(p.hasToken(JsonToken.VALUE_NUMBER_INT) ||
+               p.hasToken(JsonToken.VALUE_NUMBER_FLOAT))
+                return p.getDoubleValue();
+            return _parseDoublePrimitive(p, ctxt);
+        }
+    }
+
+    private static final class TermDeserializer
+        extends ObjectDeserializer<Term> {
+
+        TermDeserializer() {
+            super(Term.class);
+        }
+
+        @Override
+        public Term deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            String name = null;
+            int raw = 0;
+            double value = 0;
+
+            for(String field = firstField(p, ctxt); field != null;
+                field = p.nextFieldName()) {
+                p.nextToken();
+                switch(field) {
+                    case "name": name = string(p, ctxt); break;
+                    case "raw": raw = intValue(p, ctxt); break;
+                    case "value": value = doubleValue(p, ctxt); break;
+                    default: unknownField(p, ctxt, Term.class, field);
+                }
+            }
+            return new Term(name, raw, value);
+        }
+    }
+
+    private static final class TagDeserializer
+        extends ObjectDeserializer<Tag> {
+
+        TagDeserializer() {
+            super(Tag.class);
+        }
+
+        @Override
+        public Tag deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            String name = null;
+            int raw = 0;
+            double value = 0;
+            boolean hasValue = false;
+
+            for(String field = firstField(p, ctxt); field != null;
+                field = p.nextFieldName()) {
+                p.nextToken();
+                switch(field) {
+                    case "name": name = string(p, ctxt); break;
+                    case "raw": raw = intValue(p, ctxt); break;
+                    case "value":
+                        hasValue = !p.hasToken(JsonToken.VALUE_NULL);
+                        if(hasValue)
+                            value = doubleValue(p, ctxt);
+                        break;
+                    default: unknownField(p, ctxt, Tag.class, field);
+                }
+            }
+            return new Tag(name, raw, hasValue ? value : raw);
+        }
+    }
+
+    private static final class AnnotationDeserializer
+        extends ObjectDeserializer<Annotation> {
+
+        private final PositionDeserializer positionDeserializer =
+            new PositionDeserializer();
+
+        AnnotationDeserializer() {
+            super(Annotation.class);
+        }
+
+        @Override
+        public Annotation deserialize(JsonParser p,
+                                      DeserializationContext ctxt)
+            throws IOException {
+
+            String name = null, target = null, type = null;
+            int raw = 0, page = 0;
+            double value = 0;
+            boolean hasValue = false;
+            UUID uuid = null;
+            Instant date = null;
+            Position position = null;
+
+            for(String field = firstField(p, ctxt); field != null;
+                field = p.nextFieldName()) {
+                p.nextToken();
+                switch(field) {
+                    case "name": name = string(p, ctxt); break;
+                    case "raw": raw = intValue(p, ctxt); break;
+                    case "value":
+                        hasValue = !p.hasToken(JsonToken.VALUE_NULL);
+                        if(hasValue)
+                            value = doubleValue(p, ctxt);
+                        break;
+                    case "target": target = string(p, ctxt); break;
+                    case "type": type = string(p, ctxt); break;
+                    case "page": page = intValue(p, ctxt); break;
+                    case "uuid": uuid = uuid(p, ctxt); break;
+                    case "date": date = date(p, ctxt); break;
+                    case "position":
+                        if(!p.hasToken(JsonToken.VALUE_NULL))
+                            position = positionDeserializer.deserialize(
+                                p, ctxt);
+                        break;
+                    default: unknownField(p, ctxt, Annotation.class, field);
+                }
+            }
+            return new Annotation(name, raw, hasValue ? value : raw, target,
+                                  type, page, uuid, date, position);
+        }
+
+        private UUID uuid(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            String text = string(p, ctxt);
+            if(text == null)
+                return null;
+            try {
+                return parseUuid(text);
+            }
+            catch(IllegalArgumentException e) {
+                throw ctxt.weirdStringException(
+                    text, UUID.class, e.getMessage());
+            }
+        }
+
+        private Instant date(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            String text = string(p, ctxt);
+            if(text == null)
+                return null;
+            try {
+                return JsonDateFormat.parseDate(text);
+            }
+            catch(DateTimeParseException e) {
+                throw ctxt.weirdStringException(
+                    text, Instant.class, e.getMessage());
+            }
+        }
+    }
+
+    private static final class PositionDeserializer
+        extends ObjectDeserializer<Position> {
+
+        PositionDeserializer() {
+            super(Position.class);
+        }
+
+        @Override
+        public Position deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+            String type = null;
+            double[] coordinates = null;
+
+            for(String field = firstField(p, ctxt); field != null;
+                field = p.nextFieldName()) {
+                p.nextToken();
+                switch(field) {
+                    case "type": type = string(p, ctxt); break;
+                    case "coordinates":
+                        coordinates = coordinates(p, ctxt);
+                        break;
+                    default: unknownField(p, ctxt, Position.class, field);
+                }
+            }
+            if(coordinates == null) {
+                throw ctxt.mappingException(
+                    "Missing required property 'coordinates' of Position");
+            }
+            return Position.ofPacked(type, coordinates);
+        }
+
+        /**
+         * @return The points of an array, packed as x0, y0, x1, y1, ...
+         */
+        private double[] coordinates(
+            JsonParser p, DeserializationContext ctxt) throws IOException {
+
+            if(p.hasToken(JsonToken.VALUE_NULL))
+                return null;
+            if(!p.isExpectedStartArrayToken())
+                return (double[])ctxt.handleUnexpectedToken(double[].class, p);
+
+            // Sized for a rectangle: 4 corners and the first again
+            double[] coordinates = new double[10];
+            int length = 0;
+            for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY;
+                t = p.nextToken()) {
+                if(t == JsonToken.VALUE_NULL)
+                    throw ctxt.mappingException("Position has null point");
+                if(length == coordinates.length)
+                    coordinates = Arrays.copyOf(coordinates, length * 2);
+
+                double x = 0, y = 0;
+                for(String field = firstField(p, ctxt); field != null;
+                    field = p.nextFieldName()) {
+                    p.nextToken();
+                    switch(field) {
+                        case "x": x = doubleValue(p, ctxt); break;
+                        case "y": y = doubleValue(p, ctxt); break;
+                        default: unknownField(p, ctxt, Point2D.class, field);
+                    }
+                }
+                coordinates[length++] = x;
+                coordinates[length++] = y;
+            }
+            return length == coordinates.length ? coordinates :
+                Arrays.copyOf(coordinates, length);
+        }
+    }
+
+    private static final class DocumentAnnotationsDeserializer
+        extends ObjectDeserializer<DocumentAnnotations> {
+
+        private final AnnotationDeserializer annotationDeserializer =
+            new AnnotationDeserializer();
+
+        DocumentAnnotationsDeserializer() {
+            super(DocumentAnnotations.class);
+        }
+
+        @Override
+        public DocumentAnnotations deserialize(
+            JsonParser p, DeserializationContext ctxt) throws IOException {
+
+            String userId = null, documentId = null;
+            List<Annotation> annotations = null;
+
+            for(String field = firstField(p, ctxt); field != null;
+                field = p.nextFieldName()) {
+                p.nextToken();
+                switch(field) {
+                    case "oid": userId = string(p, ctxt); break;
+                    case "docId": documentId = string(p, ctxt); break;
+                    case "annotations":
+                        annotations = annotations(p, ctxt);
+                        break;
+                    // Ignored, as by @JsonIgnoreProperties
+                    case "terms": p.skipChildren(); break;
+                    default:
+                        unknownField(p, ctxt, DocumentAnnotations.class,
+                                     field);
+                }
+            }
+            if(documentId == null || annotations == null) {
+                throw ctxt.mappingException(
+                    "DocumentAnnotations requires docId and annotations");
+            }
+            return new DocumentAnnotations(userId, documentId, annotations);
+        }
+
+        private List<Annotation> annotations(
+            JsonParser p, DeserializationContext ctxt) throws IOException {
+
+            if(p.hasToken(JsonToken.VALUE_NULL))
+                return null;
+            if(!p.isExpectedStartArrayToken()) {
+                @SuppressWarnings("unchecked")
+                List<Annotation> annotations =
+                    (List<Annotation>)ctxt.handleUnexpectedToken(List.class, p);
+                return annotations;
+            }
+
+            ImmutableList.Builder<Annotation> annotations =
+                ImmutableList.builder();
+            for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY;
+                t = p.nextToken()) {
+                if(t == JsonToken.VALUE_NULL) {
+                    throw ctxt.mappingException(
+                        "DocumentAnnotations has null annotation");
+                }
+                annotations.add(annotationDeserializer.deserialize(p, ctxt));
+            }
+            return annotations.build();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A compact binary encoding of a user's annotations or removed tags of a
+ * document, used to store them in the database.
+ *
+ * <p>An encoded value starts with a header: the magic bytes {@code CTB}, the
+ * format {@link #VERSION version} and the kind of terms it holds. Strings
+ * (term names, targets and types) are written once, in a table following the
+ * user and document IDs, and terms refer to them by index. Integers are
+ * written as variable length (zigzag) integers, values equal to a term's raw
+ * value are omitted, and whole-number coordinates are written as deltas from
+ * the previous point. Dates are stored to the second, as they are in JSON.
+ */
+public final class BinaryTermsFormat {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'C', 'T', 'B'};
+
+    private static final int KIND_ANNOTATIONS = 1;
+    private static final int KIND_TAGS = 2;
+
+    private static final int VALUE_IS_RAW = 1;
+    private static final int HAS_UUID = 1 << 1;
+    private static final int HAS_DATE = 1 << 2;
+    private static final int HAS_POSITION = 1 << 3;
+    private static final int INTEGRAL_COORDINATES = 1 << 4;
+
+    private static final long NEGATIVE_ZERO_BITS =
+        Double.doubleToRawLongBits(-0.0);
+    private static final double MAX_INTEGRAL_COORDINATE = 1L << 52;
+
+    private BinaryTermsFormat() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return true if the value starts with the header of this format.
+     */
+    public static boolean isBinaryTerms(byte[] value) {
+        return value != null && value.length > MAGIC.length + 1 &&
+               value[0] == MAGIC[0] && value[1] == MAGIC[1] &&
+               value[2] == MAGIC[2];
+    }
+
+    public static byte[] write(DocumentAnnotations annotations) {
+        List<? extends Annotation> terms = annotations.getTerms();
+        StringTable strings = new StringTable();
+        for(Annotation annotation : terms) {
+            strings.add(annotation.getName());
+            strings.add(annotation.getTarget());
+            strings.add(annotation.getType());
+            if(annotation.getPosition() != null)
+                strings.add(annotation.getPosition().getType());
+        }
+
+        Output out = writeHeader(annotations, KIND_ANNOTATIONS, strings,
+                                 terms.size() * 40);
+        for(Annotation annotation : terms)
+            writeAnnotation(out, strings, annotation);
+        return out.toByteArray();
+    }
+
+    public static byte[] write(DocumentTags tags) {
+        List<? extends Tag> terms = tags.getTerms();
+        StringTable strings = new StringTable();
+        for(Tag tag : terms)
+            strings.add(tag.getName());
+
+        Output out = writeHeader(tags, KIND_TAGS, strings, terms.size() * 4);
+        for(Tag tag : terms) {
+            int flags = valueIsRaw(tag) ? VALUE_IS_RAW : 0;
+            out.writeByte(flags);
+            out.writeVarint(strings.indexOf(tag.getName()));
+            out.writeZigzag(tag.getRaw());
+            if((flags & VALUE_IS_RAW) == 0)
+                out.writeDouble(tag.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return A {@link DocumentAnnotations} or {@link DocumentTags}, according
+     *         to the kind of terms in the value.
+     * @throws IOException If the value is not in a supported version of this
+     *                     format.
+     */
+    public static DocumentTerms read(byte[] value) throws IOException {
+        if(!isBinaryTerms(value))
+            throw new IOException("Value is not in the binary terms format");
+
+        Input in = new Input(value, MAGIC.length);
+        int version = in.readByte();
+        if(version != VERSION) {
+            throw new IOException(
+                "Unsupported binary terms format version: " + version);
+        }
+        int kind = in.readByte();
+
+        String userId = in.readString();
+        String documentId = in.readString();
+        if(documentId == null)
+            throw new IOException("Document ID was null");
+
+        String[] strings = new String[in.readCount()];
+        for(int i = 0; i < strings.length; ++i)
+            strings[i] = in.readString();
+        Names names = new Names(strings);
+
+        int count = in.readCount();
+        DocumentTerms terms;
+        switch(kind) {
+            case KIND_ANNOTATIONS:
+                List<Annotation> annotations = new ArrayList<>(count);
+                for(int i = 0; i < count; ++i)
+                    annotations.add(readAnnotation(in, names));
+                terms = new DocumentAnnotations(
+                    userId, documentId, annotations);
+                break;
+            case KIND_TAGS:
+                List<Tag> tags = new ArrayList<>(count);
+                for(int i = 0; i < count; ++i) {
+                    int flags = in.readByte();
+                    TermDictionary.Name name = names.name(in.readCount());
+                    int raw = in.readZigzagInt();
+                    double tagValue = (flags & VALUE_IS_RAW) != 0 ?
+                        raw : in.readDouble();
+                    tags.add(new Tag(name, raw, tagValue));
+                }
+                terms = new DocumentTags(userId, documentId, tags);
+                break;
+            default:
+                throw new IOException("Unknown kind of terms: " + kind);
+        }
+
+        if(in.remaining() != 0)
+            throw new IOException("Trailing bytes after terms");
+        return terms;
+    }
+
+    private static Output writeHeader(
+        DocumentTerms terms, int kind, StringTable strings, int termBytes) {
+
+        Output out = new Output(64 + strings.byteLength + termBytes);
+        out.writeBytes(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeString(terms.getUserId());
+        out.writeString(terms.getDocumentId());
+        out.writeVarint(strings.strings.size());
+        for(String s : strings.strings)
+            out.writeString(s);
+        out.writeVarint(terms.getTerms().size());
+        return out;
+    }
+
+    private static boolean valueIsRaw(Term term) {
+        return Double.doubleToLongBits(term.getValue()) ==
+               Double.doubleToLongBits(term.getRaw());
+    }
+
+    private static boolean isIntegral(Position position) {
+        for(int i = 0; i < position.getPointCount(); ++i) {
+            if(!isIntegral(position.getX(i)) || !isIntegral(position.getY(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isIntegral(double coordinate) {
+        return Math.rint(coordinate) == coordinate &&
+               Math.abs(coordinate) < MAX_INTEGRAL_COORDINATE &&
+               Double.doubleToRawLongBits(coordinate) != NEGATIVE_ZERO_BITS;
+    }
+
+    private static void writeAnnotation(
+        Output out, StringTable strings, Annotation annotation) {
+
+        Position position = annotation.getPosition();
+        int flags = 0;
+        if(valueIsRaw(annotation))
+            flags |= VALUE_IS_RAW;
+        if(annotation.getUuid() != null)
+            flags |= HAS_UUID;
+        if(annotation.getDate() != null)
+            flags |= HAS_DATE;
+        if(position != null) {
+            flags |= HAS_POSITION;
+            if(isIntegral(position))
+                flags |= INTEGRAL_COORDINATES;
+        }
+
+        out.writeByte(flags);
+        out.writeVarint(strings.indexOf(annotation.getName()));
+        out.writeZigzag(annotation.getRaw());
+        if((flags & VALUE_IS_RAW) == 0)
+            out.writeDouble(annotation.getValue());
+        out.writeVarint(strings.indexOf(annotation.getTarget()));
+        out.writeVarint(strings.indexOf(annotation.getType()));
+        out.writeZigzag(annotation.getPage());
+        if((flags & HAS_UUID) != 0) {
+            out.writeLong(annotation.getUuid().getMostSignificantBits());
+            out.writeLong(annotation.getUuid().getLeastSignificantBits());
+        }
+        if((flags & HAS_DATE) != 0)
+            out.writeZigzag(annotation.getDate().getEpochSecond());
+        if((flags & HAS_POSITION) == 0)
+            return;
+
+        out.writeVarint(strings.indexOf(position.getType()));
+        out.writeVarint(position.getPointCount());
+        if((flags & INTEGRAL_COORDINATES) != 0) {
+            long x = 0, y = 0;
+            for(int i = 0; i < position.getPointCount(); ++i) {
+                long nextX = (long)position.getX(i);
+                long nextY = (long)position.getY(i);
+                out.writeZigzag(nextX - x);
+                out.writeZigzag(nextY - y);
+                x = nextX;
+                y = nextY;
+            }
+        }
+        else {
+            for(int i = 0; i < position.getPointCount(); ++i) {
+                out.writeDouble(position.getX(i));
+                out.writeDouble(position.getY(i));
+            }
+        }
+    }
+
+    private static Annotation readAnnotation(Input in, Names names)
+        throws IOException {
+
+        int flags = in.readByte();
+        TermDictionary.Name name = names.name(in.readCount());
+        int raw = in.readZigzagInt();
+        double value = (flags & VALUE_IS_RAW) != 0 ? raw : in.readDouble();
+        String target = names.string(in.readCount());
+        String type = names.string(in.readCount());
+        int page = in.readZigzagInt();
+        UUID uuid = (flags & HAS_UUID) == 0 ? null :
+            new UUID(in.readLong(), in.readLong());
+        Instant date = (flags & HAS_DATE) == 0 ? null :
+            Instant.ofEpochSecond(in.readZigzag());
+
+        Position position = null;
+        if((flags & HAS_POSITION) != 0) {
+            String positionType = names.string(in.readCount());
+            int pointCount = in.readCount();
+            if(pointCount > in.remaining())
+                throw new EOFException("Truncated coordinates");
+            double[] coordinates = new double[pointCount * 2];
+            if((flags & INTEGRAL_COORDINATES) != 0) {
+                long x = 0, y = 0;
+                for(int i = 0; i < coordinates.length; i += 2) {
+                    coordinates[i] = x += in.readZigzag();
+                    coordinates[i + 1] = y += in.readZigzag();
+                }
+            }
+            else {
+                for(int i = 0; i < coordinates.length; ++i)
+                    coordinates[i] = in.readDouble();
+            }
+            position = Position.ofPacked(positionType, coordinates);
+        }
+
+        return new Annotation(name, raw, value, target, type, page, uuid,
+                              date, position);
+    }
+
+    /**
+     * The strings of the terms being written. Index 0 refers to null.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int byteLength;
+
+        void add(String s) {
+            if(s != null && !indexes.containsKey(s)) {
+                indexes.put(s, strings.size() + 1);
+                strings.add(s);
+                byteLength += 1 + s.length();
+            }
+        }
+
+        int indexOf(String s) {
+            return s == null ? 0 : indexes.get(s);
+        }
+    }
+
+    /**
+     * The strings of the terms being read. Strings used as names are interned
+     * in the global {@link TermDictionary} once per value.
+     */
+    private static final class Names {
+        private final String[] strings;
+        private final TermDictionary.Name[] names;
+
+        Names(String[] strings) {
+            this.strings = strings;
+            this.names = new TermDictionary.Name[strings.length];
+        }
+
+        String string(int index) throws IOException {
+            if(index > strings.length)
+                throw new IOException("String index out of range: " + index);
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        TermDictionary.Name name(int index) throws IOException {
+            String string = string(index);
+            if(string == null)
+                return null;
+            TermDictionary.Name name = names[index - 1];
+            if(name == null)
+                name = names[index - 1] = TermDictionary.global().intern(string);
+            return name;
+        }
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int length;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void ensureCapacity(int count) {
+            if(length + count > buffer.length) {
+                buffer = Arrays.copyOf(
+                    buffer, Math.max(buffer.length * 2, length + count));
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[length++] = (byte)b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while((value & ~0x7FL) != 0) {
+                buffer[length++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte)value;
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for(int shift = 56; shift >= 0; shift -= 8)
+                buffer[length++] = (byte)(value >>> shift);
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToRawLongBits(value));
+        }
+
+        /** Strings are written as their UTF-8 length + 1, 0 being null. */
+        void writeString(String s) {
+            if(s == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int remaining() {
+            return buffer.length - position;
+        }
+
+        int readByte() throws IOException {
+            if(position == buffer.length)
+                throw new EOFException();
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long)(b & 0x7F) << shift;
+                if((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed variable length integer");
+        }
+
+        long readZigzag() throws IOException {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readZigzagInt() throws IOException {
+            long value = readZigzag();
+            if((int)value != value)
+                throw new IOException("Integer out of range: " + value);
+            return (int)value;
+        }
+
+        /** Read a non-negative count or index, which fits in the input. */
+        int readCount() throws IOException {
+            long value = readVarint();
+            if(value < 0 || value > buffer.length)
+                throw new IOException("Count out of range: " + value);
+            return (int)value;
+        }
+
+        long readLong() throws IOException {
+            if(remaining() < 8)
+                throw new EOFException();
+            long value = 0;
+            for(int i = 0; i < 8; ++i)
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            return value;
+        }
+
+        double readDouble() throws IOException {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            if(length == 0)
+                return null;
+            if(length - 1 > remaining())
+                throw new EOFException();
+            String s = new String(buffer, position, length - 1,
+                                  StandardCharsets.UTF_8);
+            position += length - 1;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.springframework.util.Assert;
+
+/**
+ * Identifies a page of a document.
+ */
+public final class DocumentPage {
+
+    private final String documentId;
+    private final int page;
+
+    public DocumentPage(String documentId, int page) {
+        Assert.notNull(documentId);
+
+        this.documentId = documentId;
+        this.page = page;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+        if(!(obj instanceof DocumentPage))
+            return false;
+        DocumentPage other = (DocumentPage)obj;
+        return page == other.page && documentId.equals(other.documentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return documentId.hashCode() * 31 + page;
+    }
+
+    @Override
+    public String toString() {
+        return documentId + "/" + page;
+    }
+}
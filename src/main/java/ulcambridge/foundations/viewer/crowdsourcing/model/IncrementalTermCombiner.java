@@ -0,0 +1,235 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A {@link TermCombiner} which maintains its combined terms as terms are added
+ * and removed, rather than recombining every source when the result is
+ * requested.
+ *
+ * <p>Terms are scaled by the weight of their type and summed by name, as with
+ * {@link TermCombiners#weightedToAccumulator(Map)}. Each added or removed term
+ * updates the sums of its spelling in O(1) time, and spellings are merged
+ * with their variants when the result is requested, so the spelling reported
+ * for a name is chosen from those currently contributing to it. Removing a
+ * term subtracts the contribution that adding it made, so a combiner to which
+ * a set of terms has been added and some of them removed holds the same sums
+ * as one to which only the remaining terms were added. A name is dropped once
+ * every term contributing to it has been removed.
+ *
+ * <p>Instances are thread safe. Updates to different names don't contend, and
+ * reads never block updates: {@link #getCombinedTerms()} returns an immutable
+ * {@link Snapshot}, which is reused until the next update. A snapshot taken
+ * during concurrent updates may reflect some of them and not others.
+ *
+ * @param <T> Type of identifier for term types
+ */
+public class IncrementalTermCombiner<T>
+    implements TermCombiner<T, Term, Term, IncrementalTermCombiner.Snapshot> {
+
+    private final Map<T, Double> weights;
+    private final ConcurrentMap<TermDictionary.Name, Sums> sums =
+        new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, new TermAccumulator());
+
+    public IncrementalTermCombiner(Map<T, Double> weights) {
+        Assert.notNull(weights);
+
+        this.weights = weights;
+    }
+
+    private double getWeight(T type) {
+        Double weight = weights.get(type);
+        if(weight == null)
+            throw new NoSuchElementException("No weight for: " + type);
+        return weight;
+    }
+
+    /**
+     * Add the weighted raw and value of a term to the sums of its name.
+     */
+    public void addTerm(T termType, Term term) {
+        update(termType, term, 1);
+    }
+
+    /**
+     * Subtract the weighted raw and value of a previously added term from the
+     * sums of its name.
+     */
+    public void removeTerm(T termType, Term term) {
+        update(termType, term, -1);
+    }
+
+    /**
+     * Apply a change to the terms of a type, removing and then adding terms.
+     */
+    public void update(T termType, Iterable<? extends Term> removed,
+                       Iterable<? extends Term> added) {
+        removed.forEach(t -> removeTerm(termType, t));
+        added.forEach(t -> addTerm(termType, t));
+    }
+
+    private void update(T termType, Term term, int sign) {
+        Assert.notNull(termType);
+        Assert.notNull(term);
+
+        Sums delta = new Sums(sign, sign * term.getRaw(),
+                              sign * term.getValue() * getWeight(termType));
+
+        sums.merge(term.getInternedName(), delta, Sums::plus);
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return The number of names with sums.
+     */
+    public int size() {
+        return sums.size();
+    }
+
+    /**
+     * Drop the sums of all but the count highest valued names. Names whose
+     * value equals the lowest retained value are also retained.
+     *
+     * <p>This bounds the memory used by a combiner which counts an open set of
+     * names, at the cost of exactness: the contributions of dropped names are
+     * forgotten, so a dropped name which is seen again starts from zero, and
+     * removing a term of a dropped name creates a negative sum. Updates made
+     * concurrently with pruning may be lost.
+     */
+    public void retainTop(int count) {
+        Assert.isTrue(count >= 0, "count was negative");
+
+        if(sums.size() <= count)
+            return;
+
+        double[] values = sums.values().stream()
+            .mapToDouble(s -> s.value).sorted().toArray();
+        if(values.length <= count)
+            return;
+
+        double threshold = count == 0 ? Double.POSITIVE_INFINITY :
+            values[values.length - count];
+        sums.values().removeIf(s -> s.value < threshold);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Add each term of a source, as if by {@link #addTerm(Object, Term)}. The
+     * source is read immediately.
+     */
+    @Override
+    public IncrementalTermCombiner<T> addTerms(
+        T termType, Supplier<Stream<? extends Term>> terms) {
+
+        Assert.notNull(terms);
+
+        terms.get().forEach(t -> addTerm(termType, t));
+        return this;
+    }
+
+    /**
+     * @return The current combined terms.
+     */
+    @Override
+    public Snapshot getCombinedTerms() {
+        Snapshot current = this.snapshot;
+        long version = this.version.get();
+
+        if(current.version == version)
+            return current;
+
+        TermAccumulator accumulator = new TermAccumulator(sums.size());
+        sums.forEach((name, s) -> accumulator.add(name, s.raw, s.value));
+
+        Snapshot updated = new Snapshot(version, accumulator);
+        this.snapshot = updated;
+        return updated;
+    }
+
+    /**
+     * The contribution of one or more terms to the sums of a name.
+     */
+    private static final class Sums {
+        final int count;
+        final int raw;
+        final double value;
+
+        Sums(int count, int raw, double value) {
+            this.count = count;
+            this.raw = raw;
+            this.value = value;
+        }
+
+        /** @return The combined sums, or null if no terms contribute. */
+        Sums plus(Sums other) {
+            int count = this.count + other.count;
+            return count == 0 ? null :
+                new Sums(count, raw + other.raw, value + other.value);
+        }
+    }
+
+    /**
+     * An immutable view of the combined terms at a point in time.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final TermAccumulator terms;
+
+        private Snapshot(long version, TermAccumulator terms) {
+            this.version = version;
+            this.terms = terms;
+        }
+
+        /**
+         * @return The number of changes made to the combiner when the
+         *         snapshot was taken.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return terms.size();
+        }
+
+        /**
+         * @see TermAccumulator#select(double, int)
+         */
+        public List<Term> select(double minValue, int limit) {
+            return terms.select(minValue, limit);
+        }
+
+        /**
+         * @see TermAccumulator#forEach(TermAccumulator.SlotConsumer)
+         */
+        public void forEach(TermAccumulator.SlotConsumer consumer) {
+            terms.forEach(consumer);
+        }
+
+        /**
+         * @see TermAccumulator#toTerms()
+         */
+        public List<Term> toTerms() {
+            return terms.toTerms();
+        }
+
+        /**
+         * @see TermAccumulator#toMap()
+         */
+        public Map<String, Term> toMap() {
+            return terms.toMap();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package ulcambridge.foundations.viewer.crowdsourcing.model;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.util.StdConverter;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.chrono.IsoChronology;
@@ -15,12 +17,17 @@ import java.util.Locale;
 
 /**
  * The date format used in serialised JSON output.
+ *
+ * <p>Dates are written in UTC, as "yyyy-MM-dd HH:mm:ss UTC". As formatting
+ * and parsing zone text with a {@link DateTimeFormatter} is slow, dates in
+ * UTC are formatted and parsed by fixed offsets, without intermediate
+ * objects. Other dates, such as those in other zones, use the formatter.
  */
 class JsonDateFormat {
 
     private static final ZoneId DEFAULT_TZ = ZoneId.of("UTC");
 
-    private static final DateTimeFormatter DATE_FORMATTER =
+    static final DateTimeFormatter DATE_FORMATTER =
         new DateTimeFormatterBuilder()
             .appendValue(ChronoField.YEAR, 4).appendLiteral('-')
             .appendValue(ChronoField.MONTH_OF_YEAR, 2).appendLiteral('-')
@@ -33,20 +40,171 @@ class JsonDateFormat {
             .withResolverStyle(ResolverStyle.STRICT)
             .withChronology(IsoChronology.INSTANCE);
 
+    /** The length of "yyyy-MM-dd HH:mm:ss UTC". */
+    private static final int UTC_LENGTH = 23;
+    private static final String UTC = "UTC";
+
+    private static final long SECONDS_PER_DAY = 86400;
+    /** Days from 0000-03-01 to 1970-01-01. */
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final long DAYS_PER_400_YEARS = 146097;
+
+    private static final ThreadLocal<char[]> BUFFER =
+        ThreadLocal.withInitial(() -> new char[UTC_LENGTH]);
+
+    static String formatDate(Instant instant) {
+        char[] buffer = BUFFER.get();
+        if(!formatUtc(instant, buffer))
+            return formatDate(instant, DEFAULT_TZ);
+        return new String(buffer, 0, UTC_LENGTH);
+    }
+
+    /**
+     * Write a date as a JSON string, without creating the string.
+     */
+    static void writeDate(Instant instant, JsonGenerator gen)
+        throws IOException {
+
+        char[] buffer = BUFFER.get();
+        if(formatUtc(instant, buffer))
+            gen.writeString(buffer, 0, UTC_LENGTH);
+        else
+            gen.writeString(formatDate(instant, DEFAULT_TZ));
+    }
+
     static String formatDate(Instant instant, ZoneId zone) {
         return DATE_FORMATTER.format(instant.atZone(zone));
     }
 
     static Instant parseDate(String date) {
+        Instant instant = parseUtc(date);
+        if(instant != null)
+            return instant;
         return DATE_FORMATTER.parse(date, Instant::from);
     }
 
+    /**
+     * Format an instant in UTC into a buffer.
+     *
+     * @return false if the year can't be formatted with 4 digits.
+     */
+    private static boolean formatUtc(Instant instant, char[] buffer) {
+        long seconds = instant.getEpochSecond();
+        long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int)Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        // Howard Hinnant's civil_from_days, with years starting in March
+        long z = days + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        int dayOfEra = (int)(z - era * DAYS_PER_400_YEARS);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 -
+                         dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra -
+            (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if(year < 0 || year > 9999)
+            return false;
+
+        writeDigits(buffer, 0, (int)year, 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, month, 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, day, 2);
+        buffer[10] = ' ';
+        writeDigits(buffer, 11, secondOfDay / 3600, 2);
+        buffer[13] = ':';
+        writeDigits(buffer, 14, secondOfDay / 60 % 60, 2);
+        buffer[16] = ':';
+        writeDigits(buffer, 17, secondOfDay % 60, 2);
+        buffer[19] = ' ';
+        UTC.getChars(0, UTC.length(), buffer, 20);
+        return true;
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value,
+                                    int digits) {
+        for(int i = offset + digits - 1; i >= offset; --i, value /= 10)
+            buffer[i] = (char)('0' + value % 10);
+    }
+
+    /**
+     * Parse a valid date in UTC.
+     *
+     * @return The date, or null if it's not a valid date in UTC.
+     */
+    private static Instant parseUtc(String date) {
+        if(date.length() != UTC_LENGTH || !date.endsWith(UTC) ||
+           date.charAt(4) != '-' || date.charAt(7) != '-' ||
+           date.charAt(10) != ' ' || date.charAt(13) != ':' ||
+           date.charAt(16) != ':' || date.charAt(19) != ' ')
+            return null;
+
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 2);
+        int day = parseDigits(date, 8, 2);
+        int hour = parseDigits(date, 11, 2);
+        int minute = parseDigits(date, 14, 2);
+        int second = parseDigits(date, 17, 2);
+
+        if(year < 0 || month < 1 || month > 12 || day < 1)
+            return null;
+        if(day > (IsoChronology.INSTANCE.isLeapYear(year) ?
+                  leapYearMonthLength(month) : monthLength(month)))
+            return null;
+        if(hour < 0 || hour > 23 || minute < 0 || minute > 59 ||
+           second < 0 || second > 59)
+            return null;
+
+        // Howard Hinnant's days_from_civil
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 +
+                        day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 +
+                       dayOfYear;
+        long days = era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+
+        return Instant.ofEpochSecond(
+            days * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second);
+    }
+
+    /**
+     * @return The value of a run of ASCII digits, or -1 if it isn't one.
+     */
+    private static int parseDigits(String s, int offset, int digits) {
+        int value = 0;
+        for(int i = offset; i < offset + digits; ++i) {
+            char c = s.charAt(i);
+            if(c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int monthLength(int month) {
+        return month == 2 ? 28 : leapYearMonthLength(month);
+    }
+
+    private static int leapYearMonthLength(int month) {
+        switch(month) {
+            case 2: return 29;
+            case 4: case 6: case 9: case 11: return 30;
+            default: return 31;
+        }
+    }
+
     private JsonDateFormat() { throw new RuntimeException(); }
 
     public static class Serializer extends StdConverter<Instant, String> {
         @Override
         public String convert(Instant value) {
-            return formatDate(value, DEFAULT_TZ);
+            return formatDate(value);
         }
     }
 
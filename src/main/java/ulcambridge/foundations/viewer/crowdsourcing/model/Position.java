@@ -1,36 +1,97 @@
 package ulcambridge.foundations.viewer.crowdsourcing.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.collect.ImmutableList;
+import com.google.common.base.Preconditions;
 import io.jsonwebtoken.lang.Assert;
 
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
+ * The coordinates of an annotation.
+ *
+ * <p>Coordinates are held packed in a single array, as x0, y0, x1, y1, ...,
+ * with their bounding box. {@link #getX(int)} and {@link #getY(int)} read
+ * them without creating {@link Point2D}s, which are only created by the
+ * {@link #getCoordinates()} view.
  *
  * @author Lei
  *
  */
 public class Position {
 
-    public static final Position EMPTY =
-        new Position(null, Collections.emptyList());
+    public static final Position EMPTY = new Position(null, new double[0]);
 
     private final String type;
-    private final List<Point2D> coordinates;
+    private final double[] coordinates;
+    private final double minX, minY, maxX, maxY;
 
     @JsonCreator
     public Position(
         String type,
         @JsonProperty(required = true)
             Iterable<? extends Point2D> coordinates) {
-        Assert.notNull(coordinates, "coordinates was null");
+        this(type, pack(coordinates));
+    }
 
+    private Position(String type, double[] coordinates) {
         this.type = type;
-        this.coordinates = ImmutableList.copyOf(coordinates);
-        this.coordinates.forEach(Assert::notNull);
+        this.coordinates = coordinates;
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < coordinates.length; i += 2) {
+            minX = Math.min(minX, coordinates[i]);
+            minY = Math.min(minY, coordinates[i + 1]);
+            maxX = Math.max(maxX, coordinates[i]);
+            maxY = Math.max(maxY, coordinates[i + 1]);
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Create a position from packed coordinates, which are copied.
+     *
+     * @param coordinates Points as x0, y0, x1, y1, ...
+     */
+    public static Position of(String type, double... coordinates) {
+        Assert.notNull(coordinates, "coordinates was null");
+        return ofPacked(type, coordinates.clone());
+    }
+
+    /**
+     * Create a position which takes ownership of packed coordinates.
+     */
+    static Position ofPacked(String type, double[] coordinates) {
+        Assert.isTrue(coordinates.length % 2 == 0,
+                      "coordinates had an odd length");
+        return new Position(type, coordinates);
+    }
+
+    private static double[] pack(Iterable<? extends Point2D> coordinates) {
+        Assert.notNull(coordinates, "coordinates was null");
+
+        double[] packed = new double[10];
+        int length = 0;
+        for(Point2D point : coordinates) {
+            Assert.notNull(point);
+            if(length == packed.length)
+                packed = Arrays.copyOf(packed, length * 2);
+            packed[length++] = point.getX();
+            packed[length++] = point.getY();
+        }
+        return length == packed.length ? packed :
+            Arrays.copyOf(packed, length);
     }
 
     @JsonProperty("type")
@@ -38,9 +99,57 @@ public class Position {
         return type;
     }
 
+    /**
+     * @return A view of the coordinates, which creates a point on each
+     *         access.
+     */
     @JsonProperty("coordinates")
     public List<Point2D> getCoordinates() {
-        return coordinates;
+        return new Points();
+    }
+
+    @JsonIgnore
+    public int getPointCount() {
+        return coordinates.length / 2;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return coordinates.length == 0;
+    }
+
+    public double getX(int index) {
+        Preconditions.checkElementIndex(index, getPointCount());
+        return coordinates[index * 2];
+    }
+
+    public double getY(int index) {
+        Preconditions.checkElementIndex(index, getPointCount());
+        return coordinates[index * 2 + 1];
+    }
+
+    /**
+     * The bounding box of the coordinates. The box of an empty position has
+     * infinite minimums and negative infinite maximums.
+     */
+    @JsonIgnore
+    public double getMinX() {
+        return minX;
+    }
+
+    @JsonIgnore
+    public double getMinY() {
+        return minY;
+    }
+
+    @JsonIgnore
+    public double getMaxX() {
+        return maxX;
+    }
+
+    @JsonIgnore
+    public double getMaxY() {
+        return maxY;
     }
 
     /**
@@ -51,15 +160,46 @@ public class Position {
      * @return
      */
     public String formatCoordinatesToFragmentSelector() {
-        if (coordinates.size() < 1) {
+        int size = getPointCount();
+        if (size < 1) {
             return "0,0,0,0";
-        } else if (coordinates.size() == 1) {
-            return (int) coordinates.get(0).getX() + "," + (int) coordinates.get(0).getY() + ",1,1";
+        } else if (size == 1) {
+            return (int) getX(0) + "," + (int) getY(0) + ",1,1";
         } else { // size <= 5
-            int w = (int) Math.abs(coordinates.get(2).getX() - coordinates.get(1).getX());
-            int h = (int) Math.abs(coordinates.get(4).getY() - coordinates.get(1).getY());
-            return (int) coordinates.get(0).getX() + "," + (int) coordinates.get(0).getY() + "," + w + "," + h;
+            int w = (int) Math.abs(getX(2) - getX(1));
+            int h = (int) Math.abs(getY(4) - getY(1));
+            return (int) getX(0) + "," + (int) getY(0) + "," + w + "," + h;
         }
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof Position))
+            return false;
+
+        Position rhs = (Position) obj;
+        return Objects.equals(type, rhs.type) &&
+               Arrays.equals(coordinates, rhs.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(type) + Arrays.hashCode(coordinates);
+    }
+
+    private final class Points extends AbstractList<Point2D>
+        implements RandomAccess {
+
+        @Override
+        public Point2D get(int index) {
+            return new Point2D(getX(index), getY(index));
+        }
+
+        @Override
+        public int size() {
+            return getPointCount();
+        }
+    }
 }
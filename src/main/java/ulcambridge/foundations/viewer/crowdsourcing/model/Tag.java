@@ -16,6 +16,13 @@ public class Tag extends Term {
         super(name, raw, value);
     }
 
+    /**
+     * Create a tag with a name which has already been interned.
+     */
+    Tag(TermDictionary.Name name, int raw, double value) {
+        super(name, raw, value);
+    }
+
     @JsonCreator
     static Tag createTag(
         @JsonProperty("name") String name,
@@ -1,6 +1,7 @@
 package ulcambridge.foundations.viewer.crowdsourcing.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -12,12 +13,25 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  */
 public class Term {
 
-    private final String name;
+    private final TermDictionary.Name name;
     private final int raw;
     private final double value;
 
+    /**
+     * Create a term. The name is interned in the
+     * {@link TermDictionary#global() global term dictionary}, which keeps its
+     * spelling but normalises its whitespace.
+     */
     @JsonCreator
     public Term(String name, int raw, double value) {
+        this(name == null ? null : TermDictionary.global().intern(name),
+             raw, value);
+    }
+
+    /**
+     * Create a term with a name which has already been interned.
+     */
+    public Term(TermDictionary.Name name, int raw, double value) {
         this.name = name;
         this.raw = raw;
         this.value = value;
@@ -25,9 +39,26 @@ public class Term {
 
     @JsonProperty("name")
     public String getName() {
+        return name == null ? null : name.getName();
+    }
+
+    /**
+     * @return The interned name of the term, or null if the term has no name.
+     */
+    @JsonIgnore
+    public TermDictionary.Name getInternedName() {
         return name;
     }
 
+    /**
+     * @return The dictionary entry of the term's name, which it's merged with
+     *         other terms by, or null if the term has no name.
+     */
+    @JsonIgnore
+    public TermDictionary.Entry getNameEntry() {
+        return name == null ? null : name.getEntry();
+    }
+
     @JsonProperty("raw")
     public int getRaw() {
         return raw;
@@ -49,12 +80,18 @@ public class Term {
 
         Term rhs = (Term) obj;
 
-        return new EqualsBuilder().append(name, rhs.getName()).isEquals();
+        // Variants of a name are equal, as they're merged
+        return new EqualsBuilder()
+            .append(getNameKey(), rhs.getNameKey()).isEquals();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(99, 97).append(name).toHashCode();
+        return new HashCodeBuilder(99, 97).append(getNameKey()).toHashCode();
+    }
+
+    private String getNameKey() {
+        return name == null ? null : name.getEntry().getKey();
     }
 
 }
@@ -0,0 +1,294 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges terms with the same name by summing their raw and value properties,
+ * without creating a {@link Term} for each intermediate result.
+ *
+ * <p>Sums are held in an open-addressing hash table of name to
+ * {@code (int raw, double value)} slots, stored in parallel arrays. Names are
+ * keyed by the id of their {@link TermDictionary} entry, so names are never
+ * hashed, and variants of a name are merged. Each slot also holds the
+ * spelling reported for its merged term, chosen by
+ * {@link TermDictionary#preferredName}. Output terms are only created when the
+ * result is requested.
+ *
+ * <p>Instances are not thread safe.
+ */
+public final class TermAccumulator {
+
+    /** A function which receives the name and sums of a merged term. */
+    @FunctionalInterface
+    public interface SlotConsumer {
+        void accept(TermDictionary.Name name, int raw, double value);
+    }
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private TermDictionary.Entry[] entries;
+    private TermDictionary.Name[] names;
+    private int[] raws;
+    private double[] values;
+    private int size;
+    private int resizeThreshold;
+
+    public TermAccumulator() {
+        this(MINIMUM_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize The number of distinct names expected. The table is
+     *                     sized to hold this many without resizing.
+     */
+    public TermAccumulator(int expectedSize) {
+        Assert.isTrue(expectedSize >= 0, "expectedSize was negative");
+
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // Maximum load factor is 0.5
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+        return Math.max(capacity, MINIMUM_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.entries = new TermDictionary.Entry[capacity];
+        this.names = new TermDictionary.Name[capacity];
+        this.raws = new int[capacity];
+        this.values = new double[capacity];
+        this.resizeThreshold = capacity / 2;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return The index of the slot holding entry, or of the empty slot where
+     *         it should be inserted.
+     */
+    private int slot(TermDictionary.Entry entry) {
+        TermDictionary.Entry[] entries = this.entries;
+        int mask = entries.length - 1;
+        int i = mix(entry.getId()) & mask;
+
+        TermDictionary.Entry existing;
+        while((existing = entries[i]) != null) {
+            // Entries are canonical, so identity implies equal ids
+            if(existing == entry)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Add raw and value to the sums held for name.
+     */
+    public void add(String name, int raw, double value) {
+        add(TermDictionary.global().intern(name), raw, value);
+    }
+
+    /**
+     * Add raw and value to the sums held for an interned name.
+     */
+    public void add(TermDictionary.Name name, int raw, double value) {
+        Assert.notNull(name);
+
+        int i = slot(name.getEntry());
+
+        if(entries[i] == null) {
+            entries[i] = name.getEntry();
+            names[i] = TermDictionary.preferredName(name, name);
+            raws[i] = raw;
+            values[i] = value;
+
+            if(++size > resizeThreshold)
+                resize();
+        }
+        else {
+            names[i] = TermDictionary.preferredName(names[i], name);
+            raws[i] += raw;
+            values[i] += value;
+        }
+    }
+
+    /**
+     * Add a term's raw and value to the sums held for its name.
+     */
+    public void add(Term term) {
+        add(term.getInternedName(), term.getRaw(), term.getValue());
+    }
+
+    /**
+     * Add a term's raw value and its value scaled by weight to the sums held
+     * for its name.
+     */
+    public void add(Term term, double weight) {
+        add(term.getInternedName(), term.getRaw(), term.getValue() * weight);
+    }
+
+    /**
+     * Add the sums held by another accumulator to this one.
+     *
+     * @return this accumulator
+     */
+    public TermAccumulator addAll(TermAccumulator other) {
+        other.forEach(this::add);
+        return this;
+    }
+
+    private void resize() {
+        TermDictionary.Entry[] oldEntries = this.entries;
+        TermDictionary.Name[] oldNames = this.names;
+        int[] oldRaws = this.raws;
+        double[] oldValues = this.values;
+
+        allocate(oldEntries.length * 2);
+
+        for(int i = 0; i < oldEntries.length; ++i) {
+            if(oldEntries[i] != null) {
+                int j = slot(oldEntries[i]);
+                entries[j] = oldEntries[i];
+                names[j] = oldNames[i];
+                raws[j] = oldRaws[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return The number of distinct names held.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all names, retaining the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(entries, null);
+        Arrays.fill(names, null);
+        size = 0;
+    }
+
+    /**
+     * Pass the name and sums of each merged term to the consumer.
+     */
+    public void forEach(SlotConsumer consumer) {
+        TermDictionary.Name[] names = this.names;
+        for(int i = 0; i < names.length; ++i) {
+            if(names[i] != null)
+                consumer.accept(names[i], raws[i], values[i]);
+        }
+    }
+
+    /**
+     * @return A new list containing a {@link Term} for each merged term.
+     */
+    public List<Term> toTerms() {
+        List<Term> terms = new ArrayList<>(size);
+        forEach((name, raw, value) -> terms.add(new Term(name, raw, value)));
+        return terms;
+    }
+
+    /**
+     * Select the highest valued merged terms.
+     *
+     * <p>Selection uses a min-heap bounded to limit slots, so it takes
+     * O(n log limit) time and only creates terms for the selected names.
+     *
+     * @param minValue The minimum value of selected terms (inclusive).
+     * @param limit The maximum number of terms to select.
+     * @return A new list of the selected terms, in descending order of value.
+     *         Terms with equal values are ordered by name.
+     */
+    public List<Term> select(double minValue, int limit) {
+        Assert.isTrue(limit >= 0, "limit was negative");
+
+        int[] heap = new int[Math.min(limit, size)];
+        int heapSize = 0;
+
+        for(int i = 0; i < names.length; ++i) {
+            if(names[i] == null || !(values[i] >= minValue))
+                continue;
+
+            if(heapSize < heap.length) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++);
+            }
+            else if(heapSize > 0 && ranksAbove(i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, 0, heapSize);
+            }
+        }
+
+        // Repeatedly removing the heap's minimum yields ascending order
+        Term[] selected = new Term[heapSize];
+        for(int n = heapSize - 1; n >= 0; --n) {
+            int slot = heap[0];
+            selected[n] = new Term(names[slot], raws[slot], values[slot]);
+            heap[0] = heap[n];
+            siftDown(heap, 0, n);
+        }
+
+        return Arrays.asList(selected);
+    }
+
+    /**
+     * @return true if the term in slot a should be selected in preference to
+     *         the term in slot b.
+     */
+    private boolean ranksAbove(int a, int b) {
+        if(values[a] != values[b])
+            return values[a] > values[b];
+        return names[a].getName().compareTo(names[b].getName()) < 0;
+    }
+
+    private void siftUp(int[] heap, int i) {
+        int slot = heap[i];
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(!ranksAbove(heap[parent], slot))
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private void siftDown(int[] heap, int i, int heapSize) {
+        int slot = heap[i];
+        int half = heapSize >>> 1;
+        while(i < half) {
+            int child = 2 * i + 1;
+            if(child + 1 < heapSize && ranksAbove(heap[child], heap[child + 1]))
+                ++child;
+            if(!ranksAbove(slot, heap[child]))
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = slot;
+    }
+
+    /**
+     * @return A new map of name to {@link Term} for each merged term.
+     */
+    public Map<String, Term> toMap() {
+        Map<String, Term> terms = new HashMap<>(size * 4 / 3 + 1);
+        forEach((name, raw, value) ->
+            terms.put(name.getName(), new Term(name, raw, value)));
+        return terms;
+    }
+}
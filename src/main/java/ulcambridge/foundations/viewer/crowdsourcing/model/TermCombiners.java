@@ -27,18 +27,39 @@ public class TermCombiners {
      *
      * @param weights The weights to scale each term type by.
      * @param <T> The type of the term type identifier values.
+     * @see WeightedTermCombiner
      */
     public static <T> TermCombiner.Factory<T, Term, Term, Map<String, Term>>
         weightedToMap(Map<T, Double> weights) {
 
-        return () -> new DefaultTermCombiner<>(
-            (type, terms) -> {
-                Double weight = weights.get(type);
-                if(weight == null)
-                    throw new NoSuchElementException("No weight for: " + type);
-                return terms.map(Terms.weightTerms(weight));
-            },
-            () -> Terms.mergeTerms(true));
+        return weightedToAccumulator(weights)
+            .postProcessedBy(TermAccumulator::toMap);
+    }
+
+    /**
+     * As {@link #weightedToMap(Map)}, except the combined terms are returned
+     * in the {@link TermAccumulator} they were merged in, allowing terms to be
+     * {@link TermAccumulator#select(double, int) selected} without creating
+     * the full set.
+     */
+    public static <T> TermCombiner.Factory<T, Term, Term, TermAccumulator>
+        weightedToAccumulator(Map<T, Double> weights) {
+
+        return () -> new WeightedTermCombiner<>(weights);
+    }
+
+    /**
+     * Create a term combiner which weights and merges terms as
+     * {@link #weightedToAccumulator(Map)} does, but which maintains its result
+     * as terms are added and removed.
+     *
+     * @see IncrementalTermCombiner
+     */
+    public static <T> TermCombiner.Factory<
+        T, Term, Term, IncrementalTermCombiner.Snapshot>
+        incremental(Map<T, Double> weights) {
+
+        return () -> new IncrementalTermCombiner<>(weights);
     }
 
     /**
@@ -181,5 +202,59 @@ public class TermCombiners {
         }
     }
 
+    /**
+     * A {@link TermCombiner} which scales term values by the weight of their
+     * type and sums the values of terms with the same name.
+     *
+     * <p>Terms are accumulated into a {@link TermAccumulator} as they're
+     * streamed, so no intermediate weighted or merged terms are created.
+     */
+    public static class WeightedTermCombiner<T>
+        implements TermCombiner<T, Term, Term, TermAccumulator> {
+
+        private final Map<T, Double> weights;
+        private final List<T> sourceTypes;
+        private final List<Supplier<Stream<? extends Term>>> sources;
+
+        public WeightedTermCombiner(Map<T, Double> weights) {
+            Assert.notNull(weights);
+
+            this.weights = weights;
+            this.sourceTypes = new ArrayList<>();
+            this.sources = new ArrayList<>();
+        }
+
+        @Override
+        public WeightedTermCombiner<T> addTerms(
+            T termType, Supplier<Stream<? extends Term>> terms) {
+
+            Assert.notNull(termType);
+            Assert.notNull(terms);
+
+            sourceTypes.add(termType);
+            sources.add(terms);
+            return this;
+        }
+
+        private double getWeight(T type) {
+            Double weight = weights.get(type);
+            if(weight == null)
+                throw new NoSuchElementException("No weight for: " + type);
+            return weight;
+        }
+
+        @Override
+        public TermAccumulator getCombinedTerms() {
+            TermAccumulator accumulator = new TermAccumulator();
+
+            for(int i = 0; i < sources.size(); ++i) {
+                double weight = getWeight(sourceTypes.get(i));
+                sources.get(i).get().forEach(t -> accumulator.add(t, weight));
+            }
+
+            return accumulator;
+        }
+    }
+
     private TermCombiners() { throw new RuntimeException(); }
 }
@@ -0,0 +1,277 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent dictionary of term names, assigning each distinct name a
+ * canonical {@link Entry} with an int id.
+ *
+ * <p>{@link Term}s hold an interned {@link Name} rather than the name itself,
+ * so terms parsed from separate JSON documents share a single copy of each
+ * spelling, and terms can be merged by the id of its entry without hashing or
+ * comparing names.
+ *
+ * <p>Names are normalised by {@link TermNameNormaliser} before being assigned
+ * an entry, so names which differ only in case, surrounding or repeated
+ * whitespace or their composition of accented characters share an entry. A
+ * name can also be made an alias of another by
+ * {@link #addAlias(String, String)}, for variants such as misspellings which
+ * normalisation doesn't merge. Entries are only used to decide which names are
+ * merged: each {@link Name} keeps its own spelling, with only its whitespace
+ * and composition normalised, so a term is stored and returned as it was
+ * written. Where variants are merged, the spelling reported is chosen by
+ * {@link #preferredName(Name, Name)}, which doesn't depend on the order names
+ * were interned in.
+ *
+ * <p>Names and entries are held weakly. An entry is removed once no name
+ * refers to it, and the name is assigned a new id if it's seen again. Because
+ * every name of an entry refers to it for as long as any of them exist, two
+ * live names with the same key never have different ids.
+ */
+public final class TermDictionary {
+
+    /** The id of a set of names which are merged, and the key they share. */
+    public static final class Entry {
+        private final int id;
+        private final String key;
+        private final Name aliasedName;
+
+        private Entry(int id, String key, String aliasedName) {
+            this.id = id;
+            this.key = key;
+            this.aliasedName = aliasedName == null ? null :
+                new Name(aliasedName, this);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return The {@link TermNameNormaliser#key(String) key} of the
+         *         entry's names.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return The name the entry's names are aliases of, or null if it's
+         *         not the canonical name of any alias.
+         */
+        public Name getAliasedName() {
+            return aliasedName;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + key;
+        }
+    }
+
+    /** A spelling of a name, and the entry it's merged under. */
+    public static final class Name {
+        private final String name;
+        private final Entry entry;
+
+        private Name(String name, Entry entry) {
+            this.name = name;
+            this.entry = entry;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final TermDictionary GLOBAL = new TermDictionary();
+
+    /**
+     * @return The dictionary used by {@link Term}.
+     */
+    public static TermDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Choose the spelling to report for terms of the same entry which are
+     * merged: the canonical name if the entry has aliases, otherwise the first
+     * in Unicode order, which prefers capitalised spellings. The choice depends
+     * only on the spellings being merged, not the order they're seen in.
+     */
+    public static Name preferredName(Name a, Name b) {
+        Name aliased = a.entry.aliasedName;
+        if(aliased != null)
+            return aliased;
+        return a.name.compareTo(b.name) <= 0 ? a : b;
+    }
+
+    /** Names by their spelling, as given and as normalised. */
+    private final Cache<String, Name> names = CacheBuilder.newBuilder()
+        .weakValues()
+        .build();
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder()
+        .weakValues()
+        .build();
+
+    /** The key of each alias to the name it's an alias of. */
+    private final ConcurrentMap<String, String> aliases =
+        new ConcurrentHashMap<>();
+    /** The key of each name with aliases to the name. */
+    private final ConcurrentMap<String, String> aliasedNames =
+        new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Get the interned name of a spelling, assigning it to the entry of its
+     * variants, or to a new entry if no variant of it is already in the
+     * dictionary.
+     */
+    public Name intern(String name) {
+        Assert.notNull(name);
+        lookups.increment();
+
+        Name interned = names.getIfPresent(name);
+        if(interned != null)
+            return interned;
+
+        String spelling = TermNameNormaliser.normalise(name);
+        try {
+            interned = names.get(spelling,
+                                 () -> new Name(spelling, entry(spelling)));
+        }
+        catch(ExecutionException e) {
+            throw new AssertionError("Name creation can't fail", e);
+        }
+
+        // Also index names which aren't normalised, to find them without
+        // normalising
+        if(!spelling.equals(name))
+            names.asMap().putIfAbsent(name, interned);
+
+        return interned;
+    }
+
+    /**
+     * Get the entry of a spelling's variants, without adding it to the
+     * dictionary if it's not already there. Lookups made with this aren't
+     * counted in the dictionary's hit rate.
+     *
+     * @return The entry, or null if no variant of the name is held.
+     */
+    public Entry find(String name) {
+        Assert.notNull(name);
+
+        Name interned = names.getIfPresent(name);
+        if(interned != null)
+            return interned.entry;
+
+        return entries.getIfPresent(
+            entryKey(TermNameNormaliser.normalise(name)));
+    }
+
+    private String entryKey(String spelling) {
+        String key = TermNameNormaliser.key(spelling);
+        String alias = aliases.get(key);
+        return alias == null ? key : TermNameNormaliser.key(alias);
+    }
+
+    private Entry entry(String spelling) throws ExecutionException {
+        String entryKey = entryKey(spelling);
+        return entries.get(entryKey, () -> {
+            misses.increment();
+            return new Entry(nextId.getAndIncrement(), entryKey,
+                             aliasedNames.get(entryKey));
+        });
+    }
+
+    /**
+     * Make a name an alias of another, so that it and its variants are
+     * merged with the canonical name, and reported as it.
+     *
+     * <p>Aliases should be added before either name is first interned.
+     * Entries already held for the names are not affected.
+     *
+     * @throws IllegalArgumentException if the names are variants of each
+     *         other, the alias already has or is an alias, or the canonical
+     *         name is an alias.
+     */
+    public void addAlias(String alias, String canonical) {
+        Assert.notNull(alias);
+        Assert.notNull(canonical);
+
+        String aliasKey = TermNameNormaliser.key(alias);
+        String canonicalKey = TermNameNormaliser.key(canonical);
+
+        if(aliasKey.equals(canonicalKey)) {
+            throw new IllegalArgumentException(String.format(
+                "\"%s\" is already a variant of \"%s\"", alias, canonical));
+        }
+        if(aliases.containsKey(canonicalKey)) {
+            throw new IllegalArgumentException(String.format(
+                "\"%s\" is itself an alias", canonical));
+        }
+        if(aliases.values().stream().anyMatch(
+            name -> TermNameNormaliser.key(name).equals(aliasKey))) {
+            throw new IllegalArgumentException(String.format(
+                "\"%s\" already has an alias", alias));
+        }
+        String canonicalName = TermNameNormaliser.normalise(canonical);
+        if(aliases.putIfAbsent(aliasKey, canonicalName) != null) {
+            throw new IllegalArgumentException(String.format(
+                "\"%s\" is already an alias", alias));
+        }
+        aliasedNames.putIfAbsent(canonicalKey, canonicalName);
+    }
+
+    /**
+     * @return The approximate number of entries held. Entries which have been
+     *         garbage collected may still be counted.
+     */
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups which found an existing entry.
+     */
+    public long hitCount() {
+        return lookups.sum() - misses.sum();
+    }
+
+    /**
+     * @return The number of lookups which created a new entry.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups which found an existing entry, or 1 if
+     *         there have been no lookups.
+     */
+    public double hitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 1 : 1 - (double)misses.sum() / total;
+    }
+}
@@ -0,0 +1,80 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.springframework.util.Assert;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalises term names, so that names which differ only in how they were
+ * typed are treated as the same name.
+ *
+ * <p>{@link #normalise(String)} produces the form of a name which is
+ * displayed: Unicode NFC, without leading or trailing whitespace, and with
+ * each run of whitespace replaced by a single space. {@link #key(String)}
+ * also ignores case, and identifies the names which are merged by the
+ * {@link TermDictionary}.
+ */
+public final class TermNameNormaliser {
+
+    /**
+     * @return The name in NFC, trimmed, with internal whitespace collapsed to
+     *         single spaces.
+     */
+    public static String normalise(String name) {
+        Assert.notNull(name);
+
+        if(isNormalAscii(name))
+            return name;
+
+        String composed = Normalizer.normalize(name, Normalizer.Form.NFC);
+        StringBuilder normalised = new StringBuilder(composed.length());
+        boolean pendingSpace = false;
+        for(int i = 0; i < composed.length(); ) {
+            int c = composed.codePointAt(i);
+            i += Character.charCount(c);
+
+            if(Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = normalised.length() > 0;
+                continue;
+            }
+            if(pendingSpace) {
+                normalised.append(' ');
+                pendingSpace = false;
+            }
+            normalised.appendCodePoint(c);
+        }
+        return normalised.toString();
+    }
+
+    /**
+     * @return The key of a name: its normalised form in lower case. Names
+     *         with equal keys are variants of the same name.
+     */
+    public static String key(String name) {
+        return normalise(name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return true if name is ASCII, and has no whitespace other than single
+     *         spaces between other characters, so is already normalised.
+     */
+    private static boolean isNormalAscii(String name) {
+        int length = name.length();
+        if(length == 0)
+            return true;
+        if(name.charAt(0) == ' ' || name.charAt(length - 1) == ' ')
+            return false;
+
+        char previous = 0;
+        for(int i = 0; i < length; ++i) {
+            char c = name.charAt(i);
+            if(c > 0x7e || (c < 0x20) || (c == ' ' && previous == ' '))
+                return false;
+            previous = c;
+        }
+        return true;
+    }
+
+    private TermNameNormaliser() { throw new RuntimeException(); }
+}
@@ -64,7 +64,7 @@ public final class Terms {
         MappedTermModifier<TIn, Term> weightValueBy(double amount) {
 
         return (tin, tout) ->
-            new Term(tin.getName(), tin.getRaw(), tin.getValue() * amount);
+            new Term(tin.getInternedName(), tin.getRaw(), tin.getValue() * amount);
     }
 
     /**
@@ -72,7 +72,7 @@ public final class Terms {
      * other more specific type).
      */
     public static Term createTerm(Term term) {
-        return new Term(term.getName(), term.getRaw(), term.getValue());
+        return new Term(term.getInternedName(), term.getRaw(), term.getValue());
     }
 
     /**
@@ -102,11 +102,13 @@ public final class Terms {
     /**
      * Merge two terms into one by summing their raw and value properties.
      *
-     * <p>The name from the first term is used for the output term (it's assumed
-     * that both share the same name).
+     * <p>It's assumed that both terms share the same name. The output term has
+     * the {@link TermDictionary#preferredName preferred} of their spellings.
      */
     public static Term mergeTermsByAddingValues(Term t1, Term t2) {
-        return new Term(t1.getName(), t1.getRaw() + t2.getRaw(),
+        return new Term(TermDictionary.preferredName(t1.getInternedName(),
+                                                     t2.getInternedName()),
+                        t1.getRaw() + t2.getRaw(),
                         t1.getValue() + t2.getValue());
     }
 
@@ -117,15 +119,19 @@ public final class Terms {
      * <p>This can be used to reduce a stream of Terms, potentially containing
      * duplicates, into a unique set of terms.
      *
-     * @param concurrent Whether the collector should support concurrent
-     *                   merging.
+     * <p>Merging is performed by a {@link TermAccumulator}, so output terms
+     * are only created once per name.
+     *
+     * @param concurrent Retained for compatibility. The collector supports
+     *                   parallel streams regardless, by combining the partial
+     *                   results of each thread.
      * @param <T> The type of input term to merge e.g. {@link Annotation}
      * @return A term-merging Collector
      */
     public static <T extends Term> Collector<T, ?, ? extends Map<String, Term>>
     mergeTerms(boolean concurrent) {
-        return mergeTerms(concurrent, Term::getName, Terms::createTerm,
-                          Terms::mergeTermsByAddingValues);
+        return Collector.of(TermAccumulator::new, TermAccumulator::add,
+                            TermAccumulator::addAll, TermAccumulator::toMap);
     }
 
     /**
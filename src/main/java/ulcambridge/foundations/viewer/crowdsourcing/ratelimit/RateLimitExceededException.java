@@ -0,0 +1,20 @@
+package ulcambridge.foundations.viewer.crowdsourcing.ratelimit;
+
+/**
+ * Thrown when a request is refused because its user, or all users together,
+ * are making too many requests.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /** @return The number of seconds to wait before retrying. */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,56 @@
+package ulcambridge.foundations.viewer.crowdsourcing.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket which is updated without locking.
+ *
+ * <p>Rather than a count of tokens and the time it was last refilled, the
+ * bucket holds the single time at which it will next be full, so taking a
+ * token is one compare-and-set. This is the generic cell rate algorithm,
+ * which admits the same requests as a token bucket.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+
+    /** The time at which the bucket is full. */
+    private final AtomicLong fullAt;
+
+    /**
+     * Create a full bucket.
+     *
+     * @param intervalNanos The time taken to add a token to the bucket.
+     * @param capacity The number of tokens the bucket holds.
+     * @param now The current time in nanoseconds.
+     */
+    TokenBucket(long intervalNanos, int capacity, long now) {
+        this.intervalNanos = intervalNanos;
+        this.capacityNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Take a token from the bucket if it has one.
+     *
+     * @return 0 if a token was taken, otherwise the time in nanoseconds until
+     *         the bucket has one.
+     */
+    long tryTake(long now) {
+        while(true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - capacityNanos;
+            if(wait > 0)
+                return wait;
+            if(fullAt.compareAndSet(current, next))
+                return 0;
+        }
+    }
+
+    /** @return true if the bucket has refilled since it was last used. */
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
@@ -0,0 +1,95 @@
+package ulcambridge.foundations.viewer.crowdsourcing.ratelimit;
+
+import com.google.common.base.Ticker;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate of each user's requests with a token bucket per user.
+ *
+ * <p>Buckets are held in a {@link ConcurrentHashMap}, so users' buckets are
+ * found and updated without locking, and only the creation of a bucket
+ * locks one bin of the map. A bucket which has refilled is the same as a new
+ * one, so {@link #evictIdle()} drops them to bound the memory used by users
+ * who've stopped making requests.
+ */
+public class UserRateLimiter {
+
+    private final long intervalNanos;
+    private final int burst;
+    private final Ticker ticker;
+    private final ConcurrentMap<String, TokenBucket> buckets =
+        new ConcurrentHashMap<>();
+
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param requestsPerSecond The rate at which each user can make requests.
+     * @param burst The number of requests a user can make at once after
+     *              making none for a while.
+     */
+    public UserRateLimiter(double requestsPerSecond, int burst) {
+        this(requestsPerSecond, burst, Ticker.systemTicker());
+    }
+
+    UserRateLimiter(double requestsPerSecond, int burst, Ticker ticker) {
+        Assert.isTrue(requestsPerSecond > 0,
+                      "requestsPerSecond must be positive");
+        Assert.isTrue(burst > 0, "burst must be positive");
+        Assert.notNull(ticker);
+
+        this.intervalNanos = Math.max(
+            1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.burst = burst;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Take one of a user's requests from their bucket.
+     *
+     * @return 0 if the request is allowed, otherwise the time in nanoseconds
+     *         until the user can make another.
+     */
+    public long tryAcquire(String userId) {
+        long now = ticker.read();
+
+        // Java 8's computeIfAbsent() locks even when the key is present
+        TokenBucket bucket = buckets.get(userId);
+        if(bucket == null) {
+            TokenBucket created = new TokenBucket(intervalNanos, burst, now);
+            bucket = buckets.putIfAbsent(userId, created);
+            if(bucket == null)
+                bucket = created;
+        }
+
+        return bucket.tryTake(now);
+    }
+
+    /**
+     * Drop the buckets of users whose buckets have refilled.
+     *
+     * <p>A request racing with the eviction of its user's bucket may take
+     * its token from the dropped bucket, allowing the user one more request.
+     */
+    public void evictIdle() {
+        long now = ticker.read();
+        buckets.forEach((userId, bucket) -> {
+            if(bucket.isFull(now) && buckets.remove(userId, bucket))
+                evicted.increment();
+        });
+    }
+
+    /** @return The number of users with buckets. */
+    public int size() {
+        return buckets.size();
+    }
+
+    /** @return The number of buckets dropped by {@link #evictIdle()}. */
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+}
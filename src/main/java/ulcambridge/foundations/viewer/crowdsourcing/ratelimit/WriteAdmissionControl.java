@@ -0,0 +1,153 @@
+package ulcambridge.foundations.viewer.crowdsourcing.ratelimit;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether requests which write to the database are run.
+ *
+ * <p>Each user's writes are rate limited, and the number of writes running
+ * at once is limited across all users. Writes beyond either limit are
+ * refused straight away rather than queued, as each rewrites the user's
+ * annotations of a document, and a backlog of them only delays everyone
+ * else's requests.
+ */
+public class WriteAdmissionControl {
+
+    private final UserRateLimiter rateLimiter;
+    private final int maxConcurrentWrites;
+    private final Semaphore writes;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+
+    /**
+     * A write which has been admitted.
+     *
+     * <p>A write's work can outlive the request which made it, such as when
+     * the request times out while the write is running, so the permit is held
+     * by the work itself: {@link #holdWhile(Callable)} releases it when the
+     * work finishes, on the thread which ran it. If the work never runs, the
+     * request's {@link #abandon()} releases it instead.
+     */
+    public final class Permit {
+        private static final int ADMITTED = 0;
+        private static final int RUNNING = 1;
+        private static final int RELEASED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(ADMITTED);
+
+        private Permit() { }
+
+        /**
+         * Wrap the write's work so that the permit is released when it
+         * finishes. The work is skipped, failing with a
+         * {@link CancellationException}, if the permit has already been
+         * abandoned or released.
+         */
+        public <T> Callable<T> holdWhile(Callable<T> work) {
+            Assert.notNull(work);
+
+            return () -> {
+                if(!state.compareAndSet(ADMITTED, RUNNING))
+                    throw new CancellationException("The write was abandoned");
+                try {
+                    return work.call();
+                }
+                finally {
+                    release();
+                }
+            };
+        }
+
+        /**
+         * Release the permit unless the write's work has started, in which
+         * case it's released when the work finishes. Further calls have no
+         * effect.
+         */
+        public void abandon() {
+            if(state.compareAndSet(ADMITTED, RELEASED))
+                writes.release();
+        }
+
+        /** End the write. Further calls have no effect. */
+        public void release() {
+            if(state.getAndSet(RELEASED) != RELEASED)
+                writes.release();
+        }
+    }
+
+    /**
+     * @param rateLimiter Limits each user's writes.
+     * @param maxConcurrentWrites The number of writes which can run at once.
+     */
+    public WriteAdmissionControl(
+        UserRateLimiter rateLimiter, int maxConcurrentWrites) {
+
+        Assert.notNull(rateLimiter);
+        Assert.isTrue(maxConcurrentWrites > 0,
+                      "maxConcurrentWrites must be positive");
+
+        this.rateLimiter = rateLimiter;
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.writes = new Semaphore(maxConcurrentWrites);
+    }
+
+    /**
+     * Admit a write by a user. The returned permit must be released when the
+     * write completes, or used to {@link Permit#holdWhile(Callable) run} it.
+     *
+     * @throws RateLimitExceededException if the user has made too many
+     *                                    writes, or too many are running.
+     */
+    public Permit admit(String userId) {
+        Assert.notNull(userId);
+
+        // Check the shared limit first so that refused writes don't use up
+        // the user's tokens
+        if(!writes.tryAcquire()) {
+            busy.increment();
+            throw new RateLimitExceededException(
+                "Too many writes are in progress", 1);
+        }
+
+        long wait = rateLimiter.tryAcquire(userId);
+        if(wait > 0) {
+            writes.release();
+            rateLimited.increment();
+            throw new RateLimitExceededException(
+                "Too many writes by " + userId,
+                Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) /
+                            TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        admitted.increment();
+        return new Permit();
+    }
+
+    /** @return The number of admitted writes which haven't completed. */
+    public int getInFlightCount() {
+        return maxConcurrentWrites - writes.availablePermits();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /** @return The number of writes refused by users' rate limits. */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /** @return The number of writes refused as too many were running. */
+    public long getBusyCount() {
+        return busy.sum();
+    }
+}
@@ -0,0 +1,400 @@
+package ulcambridge.foundations.viewer.crowdsourcing.search;
+
+import com.google.common.collect.ImmutableSet;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermDictionary;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An inverted index from term names to the documents whose combined terms
+ * include them.
+ *
+ * <p>For each name, a posting list holds the documents with a term of that
+ * name and the name's weighted value in each, summed over tags, annotations
+ * and removed tags as in the document's tag cloud. A document matches a name
+ * while its combined value for the name is positive. Posting lists are
+ * maintained from the changes published by the DAO, and seeded from the
+ * database in the background after startup by a {@link TermsSeeder}.
+ *
+ * <p>Document IDs are held once, and posting lists as sorted arrays of int
+ * document numbers, so an AND query is answered by probing the other lists
+ * for each document of the shortest one, and an OR query by merging them.
+ */
+public class DocumentTermIndex {
+
+    public enum Operator { AND, OR }
+
+    private final Map<TermType, Double> weights;
+    private final TermsSeeder.Subscriber subscriber;
+
+    private final ConcurrentMap<TermDictionary.Entry, Postings> postings =
+        new ConcurrentHashMap<>();
+    private final DocumentIds documents = new DocumentIds();
+
+    public DocumentTermIndex(
+        TermsSeeder seeder, Map<TermType, Double> weights) {
+
+        Assert.notNull(seeder);
+        Assert.notNull(weights);
+
+        this.weights = weights;
+        this.subscriber = seeder.subscribe(
+            "document term index", EnumSet.allOf(TermType.class),
+            this::apply);
+    }
+
+    private double getWeight(TermType type) {
+        Double weight = weights.get(type);
+        if(weight == null)
+            throw new NoSuchElementException("No weight for: " + type);
+        return weight;
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        int document = documents.getId(event.getDocumentId());
+        double weight = getWeight(event.getTermType());
+
+        event.getRemoved().forEach(t -> update(t, document, -1, weight));
+        event.getAdded().forEach(t -> update(t, document, 1, weight));
+    }
+
+    private void update(Term term, int document, int sign, double weight) {
+        double value = sign * weight * term.getValue();
+
+        postings.compute(term.getNameEntry(), (name, list) -> {
+            if(list == null)
+                list = new Postings();
+            list.add(document, sign, value);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /** Receives the postings of {@link #forEachPosting(PostingConsumer)}. */
+    @FunctionalInterface
+    public interface PostingConsumer {
+        void accept(TermDictionary.Entry name, String documentId, double value);
+    }
+
+    /**
+     * Pass each document's positive value for each name to a consumer. The
+     * postings of one name are read atomically, but changes to other names
+     * made during iteration may or may not be seen.
+     */
+    public void forEachPosting(PostingConsumer consumer) {
+        Assert.notNull(consumer);
+
+        postings.forEach((name, list) -> {
+            Postings.View view = list.view();
+            for(int i = 0; i < view.size; ++i) {
+                consumer.accept(name, documents.getName(view.documents[i]),
+                                view.values[i]);
+            }
+        });
+    }
+
+    /**
+     * @return true once the posting lists have been seeded from the database.
+     */
+    public boolean isSeeded() {
+        return subscriber.isSeeded();
+    }
+
+    /**
+     * Find the documents matching all or any of a set of term names.
+     *
+     * <p>Matches are ranked by the sum of the values of the matched names, in
+     * descending order, with equal values ordered by document ID.
+     *
+     * @param names The term names to match.
+     * @param operator Whether documents must match all names, or any.
+     * @param limit The maximum number of matches to return.
+     * @param cursor The {@link SearchResults#getNext() next} value of the
+     *               previous page, or null to get the first page.
+     * @throws IllegalArgumentException if the cursor is invalid.
+     */
+    public SearchResults search(List<String> names, Operator operator,
+                                int limit, String cursor) {
+        Assert.notEmpty(names);
+        Assert.notNull(operator);
+        Assert.isTrue(limit > 0, "limit must be positive");
+
+        Match after = cursor == null ? null : decodeCursor(cursor);
+
+        List<Postings.View> lists = new ArrayList<>(names.size());
+        for(String name : ImmutableSet.copyOf(names)) {
+            // Names which aren't in the dictionary have no postings, and
+            // aren't added to it
+            TermDictionary.Entry entry = TermDictionary.global().find(name);
+            Postings list = entry == null ? null : postings.get(entry);
+            lists.add(list == null ? Postings.View.EMPTY : list.view());
+        }
+        Postings.View matches = operator == Operator.AND ?
+            intersect(lists) : union(lists);
+
+        // Select the first limit + 1 matches after the cursor, keeping the
+        // lowest ranked at the head of the queue.
+        Comparator<Match> order = Match.ORDER;
+        PriorityQueue<Match> selected =
+            new PriorityQueue<>(limit + 1, order.reversed());
+        for(int i = 0; i < matches.size; ++i) {
+            Match match = new Match(
+                documents.getName(matches.documents[i]), matches.values[i]);
+            if(after != null && order.compare(match, after) <= 0)
+                continue;
+
+            selected.add(match);
+            if(selected.size() > limit + 1)
+                selected.poll();
+        }
+
+        List<Match> page = new ArrayList<>(selected);
+        page.sort(order);
+        String next = null;
+        if(page.size() > limit) {
+            page = page.subList(0, limit);
+            next = encodeCursor(page.get(limit - 1));
+        }
+
+        return new SearchResults(
+            names, operator.name().toLowerCase(Locale.ROOT), matches.size,
+            page, next);
+    }
+
+    private static Postings.View intersect(List<Postings.View> lists) {
+        List<Postings.View> bySize = new ArrayList<>(lists);
+        bySize.sort(Comparator.comparingInt(v -> v.size));
+        Postings.View shortest = bySize.get(0);
+
+        int[] documents = new int[shortest.size];
+        double[] values = new double[shortest.size];
+        int size = 0;
+
+        candidates:
+        for(int i = 0; i < shortest.size; ++i) {
+            int document = shortest.documents[i];
+            double value = shortest.values[i];
+
+            for(Postings.View other : bySize.subList(1, bySize.size())) {
+                int j = Arrays.binarySearch(
+                    other.documents, 0, other.size, document);
+                if(j < 0)
+                    continue candidates;
+                value += other.values[j];
+            }
+
+            documents[size] = document;
+            values[size++] = value;
+        }
+        return new Postings.View(documents, values, size);
+    }
+
+    private static Postings.View union(List<Postings.View> lists) {
+        Postings.View result = Postings.View.EMPTY;
+        for(Postings.View list : lists)
+            result = union(result, list);
+        return result;
+    }
+
+    private static Postings.View union(Postings.View a, Postings.View b) {
+        int[] documents = new int[a.size + b.size];
+        double[] values = new double[a.size + b.size];
+        int i = 0, j = 0, size = 0;
+
+        while(i < a.size || j < b.size) {
+            if(j == b.size ||
+               i < a.size && a.documents[i] < b.documents[j]) {
+                documents[size] = a.documents[i];
+                values[size++] = a.values[i++];
+            }
+            else if(i == a.size || b.documents[j] < a.documents[i]) {
+                documents[size] = b.documents[j];
+                values[size++] = b.values[j++];
+            }
+            else {
+                documents[size] = a.documents[i];
+                values[size++] = a.values[i++] + b.values[j++];
+            }
+        }
+        return new Postings.View(documents, values, size);
+    }
+
+    private static String encodeCursor(Match last) {
+        String cursor = Long.toHexString(
+            Double.doubleToLongBits(last.getValue())) + ":" +
+            last.getDocumentId();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Match decodeCursor(String cursor) {
+        try {
+            String decoded = new String(
+                Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+
+            double value = Double.longBitsToDouble(Long.parseUnsignedLong(
+                decoded.substring(0, separator), 16));
+            return new Match(decoded.substring(separator + 1), value);
+        }
+        catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Assigns each document ID a dense int, so posting lists can hold ints.
+     */
+    private static final class DocumentIds {
+        private final ConcurrentMap<String, Integer> ids =
+            new ConcurrentHashMap<>();
+        private volatile String[] names = new String[16];
+        private int count;
+
+        int getId(String name) {
+            Integer id = ids.get(name);
+            if(id != null)
+                return id;
+
+            synchronized(this) {
+                id = ids.get(name);
+                if(id != null)
+                    return id;
+
+                if(count == names.length)
+                    names = Arrays.copyOf(names, count * 2);
+                names[count] = name;
+                ids.put(name, count);
+                return count++;
+            }
+        }
+
+        String getName(int id) {
+            return names[id];
+        }
+    }
+
+    /**
+     * The documents containing a name, sorted by document number, with the
+     * number of terms contributing to the name in each and their summed value.
+     */
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int[] counts = new int[4];
+        private double[] values = new double[4];
+        private int size;
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized void add(int document, int count, double value) {
+            int i = Arrays.binarySearch(documents, 0, size, document);
+            if(i >= 0) {
+                counts[i] += count;
+                values[i] += value;
+
+                if(counts[i] == 0) {
+                    int tail = size - i - 1;
+                    System.arraycopy(documents, i + 1, documents, i, tail);
+                    System.arraycopy(counts, i + 1, counts, i, tail);
+                    System.arraycopy(values, i + 1, values, i, tail);
+                    --size;
+                }
+                return;
+            }
+
+            i = -(i + 1);
+            if(size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int tail = size - i;
+            System.arraycopy(documents, i, documents, i + 1, tail);
+            System.arraycopy(counts, i, counts, i + 1, tail);
+            System.arraycopy(values, i, values, i + 1, tail);
+            documents[i] = document;
+            counts[i] = count;
+            values[i] = value;
+            ++size;
+        }
+
+        /** @return A copy of the documents whose value is positive. */
+        synchronized View view() {
+            int[] matchDocuments = new int[size];
+            double[] matchValues = new double[size];
+            int matches = 0;
+
+            for(int i = 0; i < size; ++i) {
+                if(values[i] > 0) {
+                    matchDocuments[matches] = documents[i];
+                    matchValues[matches++] = values[i];
+                }
+            }
+            return new View(matchDocuments, matchValues, matches);
+        }
+
+        static final class View {
+            static final View EMPTY = new View(new int[0], new double[0], 0);
+
+            final int[] documents;
+            final double[] values;
+            final int size;
+
+            View(int[] documents, double[] values, int size) {
+                this.documents = documents;
+                this.values = values;
+                this.size = size;
+            }
+        }
+    }
+
+    /**
+     * A document matching a search, and its value.
+     */
+    public static final class Match {
+        static final Comparator<Match> ORDER = Comparator
+            .<Match>comparingDouble(Match::getValue).reversed()
+            .thenComparing(Match::getDocumentId);
+
+        private final String documentId;
+        private final double value;
+
+        Match(String documentId, double value) {
+            this.documentId = documentId;
+            this.value = value;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
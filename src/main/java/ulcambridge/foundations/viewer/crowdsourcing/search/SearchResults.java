@@ -0,0 +1,66 @@
+package ulcambridge.foundations.viewer.crowdsourcing.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * A page of the documents matching a search of the {@link DocumentTermIndex}.
+ */
+public class SearchResults {
+
+    private final ImmutableList<String> terms;
+    private final String operator;
+    private final int total;
+    private final ImmutableList<DocumentTermIndex.Match> results;
+    private final String next;
+
+    /**
+     * @param terms The term names searched for.
+     * @param operator How the names were combined.
+     * @param total The number of matching documents, on all pages.
+     * @param results The matches on this page, in rank order.
+     * @param next The cursor of the next page, or null if this is the last.
+     */
+    public SearchResults(
+        List<String> terms, String operator, int total,
+        List<DocumentTermIndex.Match> results, String next) {
+
+        Assert.notNull(terms);
+        Assert.notNull(operator);
+        Assert.notNull(results);
+
+        this.terms = ImmutableList.copyOf(terms);
+        this.operator = operator;
+        this.total = total;
+        this.results = ImmutableList.copyOf(results);
+        this.next = next;
+    }
+
+    @JsonProperty("terms")
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    @JsonProperty("operator")
+    public String getOperator() {
+        return operator;
+    }
+
+    @JsonProperty("total")
+    public int getTotal() {
+        return total;
+    }
+
+    @JsonProperty("results")
+    public List<DocumentTermIndex.Match> getResults() {
+        return results;
+    }
+
+    @JsonProperty("next")
+    public String getNext() {
+        return next;
+    }
+}
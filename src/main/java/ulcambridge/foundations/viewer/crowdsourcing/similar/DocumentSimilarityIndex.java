@@ -0,0 +1,356 @@
+package ulcambridge.foundations.viewer.crowdsourcing.similar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.search.DocumentTermIndex;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds documents whose combined terms are similar to those of a document.
+ *
+ * <p>Each document is represented by a sparse vector of the positive,
+ * weighted values of its terms, as held by the {@link DocumentTermIndex}, and
+ * documents are compared by the cosine similarity of their vectors. Rather
+ * than comparing a document with every other, candidates are found by
+ * locality-sensitive hashing: each vector is reduced to a
+ * {@value #SIGNATURE_BITS} bit SimHash signature, in which each bit is the
+ * sign of a random projection of the vector, so the probability of two
+ * signatures agreeing in a bit falls with the angle between the vectors. The
+ * signatures are split into {@value #BANDS} bands, and documents sharing any
+ * band with the queried document are reranked by their exact similarity.
+ *
+ * <p>The vectors and hash tables are built by {@link #refresh()} from the
+ * current state of the term index, at most once per rebuild interval, and
+ * replaced atomically. To bound memory use, a document's vector holds only
+ * its highest valued terms; if the estimated size of the index would exceed
+ * the memory budget, fewer terms are kept per document.
+ */
+public class DocumentSimilarityIndex {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(DocumentSimilarityIndex.class);
+
+    static final int SIGNATURE_BITS = 128;
+    static final int BANDS = 16;
+    private static final int BAND_BITS = SIGNATURE_BITS / BANDS;
+    private static final int BUCKETS = 1 << BAND_BITS;
+
+    /**
+     * The approximate heap used per document, besides its terms: the
+     * document's entries in the lookup map and hash tables, its signature,
+     * norm and array headers.
+     */
+    static final long BYTES_PER_DOCUMENT = 200;
+    /** The heap used per term of a vector: an int id and a float value. */
+    static final long BYTES_PER_TERM = 8;
+
+    private final DocumentTermIndex terms;
+    private final int maxTermsPerDocument;
+    private final long memoryBudgetBytes;
+    private final long rebuildIntervalMillis;
+    private final Clock clock;
+
+    private volatile Index index;
+    private volatile long lastBuilt;
+
+    /**
+     * @param terms The index to take document vectors from.
+     * @param maxTermsPerDocument The maximum number of terms to keep in each
+     *                            document's vector.
+     * @param memoryBudgetBytes The maximum estimated size of the index.
+     * @param rebuildInterval The minimum time between rebuilds.
+     * @param rebuildIntervalUnit The unit of rebuildInterval.
+     */
+    public DocumentSimilarityIndex(
+        DocumentTermIndex terms, int maxTermsPerDocument,
+        long memoryBudgetBytes, long rebuildInterval,
+        TimeUnit rebuildIntervalUnit) {
+
+        this(terms, maxTermsPerDocument, memoryBudgetBytes, rebuildInterval,
+             rebuildIntervalUnit, Clock.systemUTC());
+    }
+
+    DocumentSimilarityIndex(
+        DocumentTermIndex terms, int maxTermsPerDocument,
+        long memoryBudgetBytes, long rebuildInterval,
+        TimeUnit rebuildIntervalUnit, Clock clock) {
+
+        Assert.notNull(terms);
+        Assert.isTrue(maxTermsPerDocument > 0,
+                      "maxTermsPerDocument must be positive");
+        Assert.isTrue(memoryBudgetBytes > 0,
+                      "memoryBudgetBytes must be positive");
+        Assert.isTrue(rebuildInterval >= 0, "rebuildInterval was negative");
+        Assert.notNull(rebuildIntervalUnit);
+        Assert.notNull(clock);
+
+        this.terms = terms;
+        this.maxTermsPerDocument = maxTermsPerDocument;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.rebuildIntervalMillis = rebuildIntervalUnit.toMillis(
+            rebuildInterval);
+        this.clock = clock;
+    }
+
+    /**
+     * Get the documents most similar to a document.
+     *
+     * @return The similar documents in descending order of similarity, or an
+     *         empty list if the document has no terms or the index has not
+     *         been built yet.
+     */
+    public List<SimilarDocument> getSimilarDocuments(
+        String documentId, int limit) {
+
+        Assert.notNull(documentId);
+        Assert.isTrue(limit > 0, "limit must be positive");
+
+        Index index = this.index;
+        if(index == null)
+            return Collections.emptyList();
+        return index.query(documentId, limit);
+    }
+
+    /**
+     * Rebuild the index if the term index has been seeded and the rebuild
+     * interval has passed since the last build.
+     */
+    public synchronized void refresh() {
+        if(!terms.isSeeded())
+            return;
+        if(index != null &&
+           clock.millis() - lastBuilt < rebuildIntervalMillis)
+            return;
+
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from the current state of the term index.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lastBuilt = clock.millis();
+
+        Map<String, VectorBuilder> builders = new HashMap<>();
+        terms.forEachPosting((name, documentId, value) ->
+            builders.computeIfAbsent(documentId, d -> new VectorBuilder())
+                .add(name.getId(), value));
+
+        long totalTerms = 0;
+        for(VectorBuilder builder : builders.values())
+            totalTerms += builder.size;
+
+        // Keep fewer terms per document until the estimate fits the budget
+        int termLimit = maxTermsPerDocument;
+        while(termLimit > 1 &&
+              estimateBytes(builders.values(), termLimit) > memoryBudgetBytes)
+            termLimit /= 2;
+        if(estimateBytes(builders.values(), termLimit) > memoryBudgetBytes) {
+            logger.warn("Document similarity index exceeds its memory " +
+                        "budget with one term per document");
+        }
+
+        List<String> documentIds = new ArrayList<>(builders.keySet());
+        Collections.sort(documentIds);
+        Vector[] vectors = new Vector[documentIds.size()];
+        for(int i = 0; i < vectors.length; ++i)
+            vectors[i] = builders.get(documentIds.get(i)).build(termLimit);
+
+        this.index = new Index(documentIds, vectors);
+        logger.info("Built document similarity index of {} documents " +
+                    "({} of {} terms, {} per document) in {} ms",
+                    vectors.length,
+                    Arrays.stream(vectors).mapToLong(v -> v.ids.length).sum(),
+                    totalTerms, termLimit,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static long estimateBytes(
+        Iterable<VectorBuilder> builders, int termLimit) {
+
+        long bytes = 0;
+        for(VectorBuilder builder : builders) {
+            bytes += BYTES_PER_DOCUMENT +
+                BYTES_PER_TERM * Math.min(builder.size, termLimit);
+        }
+        return bytes;
+    }
+
+    /** 64 bits of a hash of a term id, distinct for each seed. */
+    private static long hash(int id, long seed) {
+        long h = id * 0x9E3779B97F4A7C15L + seed;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** Collects the terms of a document. */
+    private static final class VectorBuilder {
+        int[] ids = new int[8];
+        double[] values = new double[8];
+        int size;
+
+        void add(int id, double value) {
+            if(size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ids[size] = id;
+            values[size++] = value;
+        }
+
+        /** @return A vector of the highest valued terms, sorted by id. */
+        Vector build(int termLimit) {
+            Integer[] order = new Integer[size];
+            for(int i = 0; i < size; ++i)
+                order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> -values[i]));
+
+            int n = Math.min(size, termLimit);
+            Integer[] kept = Arrays.copyOf(order, n);
+            Arrays.sort(kept, Comparator.comparingInt(i -> ids[i]));
+
+            int[] vectorIds = new int[n];
+            float[] vectorValues = new float[n];
+            for(int i = 0; i < n; ++i) {
+                vectorIds[i] = ids[kept[i]];
+                vectorValues[i] = (float)values[kept[i]];
+            }
+            return new Vector(vectorIds, vectorValues);
+        }
+    }
+
+    /** A sparse vector of term values, with its norm and signature. */
+    static final class Vector {
+        final int[] ids;
+        final float[] values;
+        final double norm;
+        final long[] signature = new long[SIGNATURE_BITS / 64];
+
+        Vector(int[] ids, float[] values) {
+            this.ids = ids;
+            this.values = values;
+
+            double sumOfSquares = 0;
+            double[] projections = new double[SIGNATURE_BITS];
+            for(int i = 0; i < ids.length; ++i) {
+                sumOfSquares += (double)values[i] * values[i];
+                for(int word = 0; word < signature.length; ++word) {
+                    long bits = hash(ids[i], word);
+                    for(int bit = 0; bit < 64; ++bit) {
+                        projections[word * 64 + bit] +=
+                            (bits >>> bit & 1) == 1 ? values[i] : -values[i];
+                    }
+                }
+            }
+            this.norm = Math.sqrt(sumOfSquares);
+
+            for(int b = 0; b < SIGNATURE_BITS; ++b) {
+                if(projections[b] > 0)
+                    signature[b / 64] |= 1L << (b % 64);
+            }
+        }
+
+        int band(int band) {
+            int bit = band * BAND_BITS;
+            return (int)(signature[bit / 64] >>> (bit % 64)) & (BUCKETS - 1);
+        }
+
+        double cosine(Vector other) {
+            double dot = 0;
+            int i = 0, j = 0;
+            while(i < ids.length && j < other.ids.length) {
+                if(ids[i] < other.ids[j])
+                    ++i;
+                else if(ids[i] > other.ids[j])
+                    ++j;
+                else
+                    dot += (double)values[i++] * other.values[j++];
+            }
+            // Clamp rounding errors in the norms of identical vectors
+            return dot == 0 ? 0 : Math.min(1, dot / (norm * other.norm));
+        }
+    }
+
+    /** The immutable vectors and hash tables. */
+    private static final class Index {
+        final List<String> documentIds;
+        final Vector[] vectors;
+        /**
+         * For each band, the documents ordered by their value of the band,
+         * and the start of each value's documents.
+         */
+        final int[][] bucketDocuments = new int[BANDS][];
+        final int[][] bucketStarts = new int[BANDS][];
+
+        Index(List<String> documentIds, Vector[] vectors) {
+            this.documentIds = documentIds;
+            this.vectors = vectors;
+
+            for(int band = 0; band < BANDS; ++band) {
+                int[] starts = new int[BUCKETS + 1];
+                for(Vector vector : vectors)
+                    ++starts[vector.band(band) + 1];
+                for(int b = 0; b < BUCKETS; ++b)
+                    starts[b + 1] += starts[b];
+
+                int[] next = Arrays.copyOf(starts, BUCKETS);
+                int[] documents = new int[vectors.length];
+                for(int d = 0; d < vectors.length; ++d)
+                    documents[next[vectors[d].band(band)]++] = d;
+
+                bucketDocuments[band] = documents;
+                bucketStarts[band] = starts;
+            }
+        }
+
+        List<SimilarDocument> query(String documentId, int limit) {
+            int document = Collections.binarySearch(documentIds, documentId);
+            if(document < 0)
+                return Collections.emptyList();
+            Vector vector = vectors[document];
+
+            BitSet seen = new BitSet(vectors.length);
+            seen.set(document);
+            PriorityQueue<SimilarDocument> best = new PriorityQueue<>(
+                limit + 1, SimilarDocument.ORDER.reversed());
+
+            for(int band = 0; band < BANDS; ++band) {
+                int bucket = vector.band(band);
+                int[] documents = bucketDocuments[band];
+                for(int i = bucketStarts[band][bucket];
+                    i < bucketStarts[band][bucket + 1]; ++i) {
+                    int candidate = documents[i];
+                    if(seen.get(candidate))
+                        continue;
+                    seen.set(candidate);
+
+                    double similarity = vector.cosine(vectors[candidate]);
+                    if(similarity <= 0)
+                        continue;
+                    best.add(new SimilarDocument(
+                        documentIds.get(candidate), similarity));
+                    if(best.size() > limit)
+                        best.poll();
+                }
+            }
+
+            List<SimilarDocument> results = new ArrayList<>(best);
+            results.sort(SimilarDocument.ORDER);
+            return results;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ulcambridge.foundations.viewer.crowdsourcing.similar;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.util.Assert;
+
+import java.util.Comparator;
+
+/**
+ * A document and its similarity to another.
+ */
+public final class SimilarDocument {
+    static final Comparator<SimilarDocument> ORDER = Comparator
+        .<SimilarDocument>comparingDouble(SimilarDocument::getSimilarity)
+        .reversed()
+        .thenComparing(SimilarDocument::getDocumentId);
+
+    private final String documentId;
+    private final double similarity;
+
+    SimilarDocument(String documentId, double similarity) {
+        Assert.notNull(documentId);
+
+        this.documentId = documentId;
+        this.similarity = similarity;
+    }
+
+    @JsonProperty("documentId")
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * @return The cosine similarity of the documents' term vectors, between
+     *         0 and 1.
+     */
+    @JsonProperty("similarity")
+    public double getSimilarity() {
+        return similarity;
+    }
+}
@@ -0,0 +1,34 @@
+package ulcambridge.foundations.viewer.crowdsourcing.similar;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * The documents most similar to a document.
+ */
+public class SimilarDocuments {
+
+    private final String documentId;
+    private final ImmutableList<SimilarDocument> similar;
+
+    public SimilarDocuments(String documentId, List<SimilarDocument> similar) {
+        Assert.notNull(documentId);
+        Assert.notNull(similar);
+
+        this.documentId = documentId;
+        this.similar = ImmutableList.copyOf(similar);
+    }
+
+    @JsonProperty("docId")
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    @JsonProperty("similar")
+    public List<SimilarDocument> getSimilar() {
+        return similar;
+    }
+}
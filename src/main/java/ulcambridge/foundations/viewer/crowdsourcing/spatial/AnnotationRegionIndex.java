@@ -0,0 +1,145 @@
+package ulcambridge.foundations.viewer.crowdsourcing.spatial;
+
+import com.google.common.collect.Sets;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentPage;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Position;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Indexes the positioned annotations of every user by document page, to find
+ * those within a region of a page.
+ *
+ * <p>Each page's annotations are held in a {@link PackedRTree} of the bounding
+ * boxes of their positions. Trees are immutable and are replaced when an
+ * annotation on the page is added or removed; pages hold few annotations, so
+ * rebuilding a page's tree is cheap, and queries never wait for writes.
+ * Annotations without coordinates (such as those of a whole document) are not
+ * indexed.
+ *
+ * <p>The index is maintained from the changes published by the DAO, and
+ * seeded from the database in the background after startup by a
+ * {@link TermsSeeder}.
+ */
+public class AnnotationRegionIndex {
+
+    private final TermsSeeder.Subscriber subscriber;
+    private final ConcurrentMap<DocumentPage, PackedRTree<Annotation>> pages =
+        new ConcurrentHashMap<>();
+
+    public AnnotationRegionIndex(TermsSeeder seeder) {
+        Assert.notNull(seeder);
+
+        this.subscriber = seeder.subscribe(
+            "annotation region index", EnumSet.of(TermType.ANNOTATION),
+            this::apply);
+    }
+
+    /**
+     * @return The annotations on a page whose positions intersect a box, in
+     *         no particular order.
+     */
+    public List<Annotation> getAnnotations(
+        String documentId, int page,
+        double minX, double minY, double maxX, double maxY) {
+
+        Assert.notNull(documentId);
+
+        PackedRTree<Annotation> tree = pages.get(
+            new DocumentPage(documentId, page));
+        if(tree == null)
+            return new ArrayList<>();
+
+        return tree.search(minX, minY, maxX, maxY);
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        // Apply the changes to each page at once, as a page's tree is
+        // rebuilt on each update.
+        Map<Integer, List<Annotation>> removed = byPage(event.getRemoved());
+        Map<Integer, List<Annotation>> added = byPage(event.getAdded());
+
+        Sets.union(removed.keySet(), added.keySet()).forEach(page -> update(
+            new DocumentPage(event.getDocumentId(), page),
+            removed.getOrDefault(page, Collections.emptyList()),
+            added.getOrDefault(page, Collections.emptyList())));
+    }
+
+    private static Map<Integer, List<Annotation>> byPage(List<Term> terms) {
+        return terms.stream()
+            .filter(t -> t instanceof Annotation)
+            .map(t -> (Annotation)t)
+            .filter(a -> getBox(a) != null)
+            .collect(Collectors.groupingBy(Annotation::getPage));
+    }
+
+    private void update(DocumentPage key, List<Annotation> removed,
+                        List<Annotation> added) {
+        pages.compute(key, (k, tree) -> {
+            List<Annotation> items = new ArrayList<>();
+            if(tree != null)
+                items.addAll(tree.getItems());
+
+            removed.forEach(a -> removeFirst(items, a));
+            items.addAll(added);
+
+            return items.isEmpty() ? null :
+                new PackedRTree<>(items, AnnotationRegionIndex::getBox);
+        });
+    }
+
+    /**
+     * Remove the annotation with the same UUID as a removed one, or if it
+     * has none, the first with the same name and bounding box.
+     */
+    private static void removeFirst(List<Annotation> items, Annotation removed) {
+        for(Iterator<Annotation> it = items.iterator(); it.hasNext(); ) {
+            Annotation a = it.next();
+            boolean matches = removed.getUuid() != null ?
+                removed.getUuid().equals(a.getUuid()) :
+                a.getName().equals(removed.getName()) &&
+                    Arrays.equals(getBox(a), getBox(removed));
+
+            if(matches) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The bounding box of an annotation's position, or null if it has
+     *         no coordinates.
+     */
+    static double[] getBox(Annotation annotation) {
+        Position position = annotation.getPosition();
+        if(position == null || position.isEmpty())
+            return null;
+
+        return new double[] {
+            position.getMinX(), position.getMinY(),
+            position.getMaxX(), position.getMaxY()
+        };
+    }
+}
@@ -0,0 +1,201 @@
+package ulcambridge.foundations.viewer.crowdsourcing.spatial;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An immutable R-tree of items with bounding boxes, packed in Hilbert curve
+ * order.
+ *
+ * <p>Items are sorted by the Hilbert value of the centre of their box, then
+ * grouped {@value #NODE_SIZE} at a time into leaf nodes, which are grouped
+ * into parent nodes in the same way up to a single root. Sorting along the
+ * curve keeps nearby items in the same nodes, so a query descends into few
+ * nodes and takes O(log n) time plus the number of results. The boxes of all
+ * nodes are held in a single array of doubles.
+ *
+ * @param <T> Type of the indexed items
+ */
+public final class PackedRTree<T> {
+
+    static final int NODE_SIZE = 16;
+
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    /** The items, in leaf order. */
+    private final List<T> items;
+    /**
+     * minX, minY, maxX and maxY of each item, then of each level of nodes
+     * above them.
+     */
+    private final double[] boxes;
+    /** The index of the first box of each level, and the total. */
+    private final int[] levelStarts;
+
+    /**
+     * @param items The items to index.
+     * @param getBox A function producing the box of an item, as
+     *               {@code {minX, minY, maxX, maxY}}.
+     */
+    public PackedRTree(List<? extends T> items,
+                       Function<? super T, double[]> getBox) {
+        Assert.notNull(items);
+        Assert.notNull(getBox);
+
+        int n = items.size();
+        double[] itemBoxes = new double[n * 4];
+        double minX = Double.POSITIVE_INFINITY, minY = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+        for(int i = 0; i < n; ++i) {
+            double[] box = getBox.apply(items.get(i));
+            Assert.isTrue(box.length == 4 && box[0] <= box[2] &&
+                          box[1] <= box[3], "invalid box");
+            System.arraycopy(box, 0, itemBoxes, i * 4, 4);
+            minX = Math.min(minX, box[0]);
+            minY = Math.min(minY, box[1]);
+            maxX = Math.max(maxX, box[2]);
+            maxY = Math.max(maxY, box[3]);
+        }
+
+        // Sort by Hilbert value of box centres, scaled to the extent
+        long[] hilbert = new long[n];
+        double width = maxX - minX, height = maxY - minY;
+        for(int i = 0; i < n; ++i) {
+            int b = i * 4;
+            int x = scale((itemBoxes[b] + itemBoxes[b + 2]) / 2 - minX, width);
+            int y = scale((itemBoxes[b + 1] + itemBoxes[b + 3]) / 2 - minY,
+                          height);
+            hilbert[i] = hilbert(x, y);
+        }
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; ++i)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingLong(i -> hilbert[i]));
+
+        // Count the boxes of each level, up to the level with a single root
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int total = n;
+        for(int count = n; count > 1; ) {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            starts.add(total);
+            total += count;
+        }
+        starts.add(total);
+
+        this.levelStarts = starts.stream().mapToInt(i -> i).toArray();
+        this.boxes = new double[total * 4];
+
+        List<T> sorted = new ArrayList<>(n);
+        for(int i = 0; i < n; ++i) {
+            sorted.add(items.get(order[i]));
+            System.arraycopy(itemBoxes, order[i] * 4, boxes, i * 4, 4);
+        }
+        this.items = Collections.unmodifiableList(sorted);
+
+        // Each node's box covers its children in the level below
+        for(int level = 1; level < levelStarts.length - 1; ++level) {
+            int childStart = levelStarts[level - 1];
+            int childEnd = levelStarts[level];
+            for(int node = levelStarts[level], child = childStart;
+                child < childEnd; ++node, child += NODE_SIZE) {
+                int b = node * 4;
+                boxes[b] = boxes[b + 1] = Double.POSITIVE_INFINITY;
+                boxes[b + 2] = boxes[b + 3] = Double.NEGATIVE_INFINITY;
+                for(int c = child; c < Math.min(child + NODE_SIZE, childEnd);
+                    ++c) {
+                    boxes[b] = Math.min(boxes[b], boxes[c * 4]);
+                    boxes[b + 1] = Math.min(boxes[b + 1], boxes[c * 4 + 1]);
+                    boxes[b + 2] = Math.max(boxes[b + 2], boxes[c * 4 + 2]);
+                    boxes[b + 3] = Math.max(boxes[b + 3], boxes[c * 4 + 3]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return The items, in the tree's order.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The items whose boxes intersect the box, including those which
+     *         only touch its edges.
+     */
+    public List<T> search(double minX, double minY, double maxX, double maxY) {
+        List<T> results = new ArrayList<>();
+        if(items.isEmpty())
+            return results;
+
+        // Pairs of (level, node index) to visit, starting at the root
+        int[] stack = new int[2 * NODE_SIZE * levelStarts.length];
+        int top = 0;
+        stack[top++] = levelStarts.length - 2;
+        stack[top++] = levelStarts[levelStarts.length - 2];
+
+        while(top > 0) {
+            int node = stack[--top];
+            int level = stack[--top];
+            int b = node * 4;
+            if(boxes[b] > maxX || boxes[b + 1] > maxY ||
+               boxes[b + 2] < minX || boxes[b + 3] < minY)
+                continue;
+
+            if(level == 0) {
+                results.add(items.get(node));
+                continue;
+            }
+
+            int childLevelStart = levelStarts[level - 1];
+            int first = childLevelStart +
+                (node - levelStarts[level]) * NODE_SIZE;
+            int end = Math.min(first + NODE_SIZE, levelStarts[level]);
+            for(int child = end - 1; child >= first; --child) {
+                stack[top++] = level - 1;
+                stack[top++] = child;
+            }
+        }
+        return results;
+    }
+
+    private static int scale(double offset, double extent) {
+        return extent == 0 ? 0 : (int)(HILBERT_MAX * (offset / extent));
+    }
+
+    /**
+     * @return The distance along a Hilbert curve filling a 2^16 square of a
+     *         point within it.
+     */
+    static long hilbert(int x, int y) {
+        long d = 0;
+        for(int s = 1 << 15; s > 0; s >>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long)s * s * ((3 * rx) ^ ry);
+
+            // Rotate the quadrant so the curve within it has the same shape
+            if(ry == 0) {
+                if(rx == 1) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
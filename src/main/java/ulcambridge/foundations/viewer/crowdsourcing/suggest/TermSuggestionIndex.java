@@ -0,0 +1,244 @@
+package ulcambridge.foundations.viewer.crowdsourcing.suggest;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.IncrementalTermCombiner;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Suggests existing term names which start with a prefix, ordered by their
+ * combined value across all documents.
+ *
+ * <p>Values are maintained incrementally from the changes published by the
+ * DAO, as for {@link ulcambridge.foundations.viewer.crowdsourcing.toptags.TopTagsIndex},
+ * but for every name with a positive value. Queries are answered from an
+ * immutable index: the names sorted by their folded (lower case, without
+ * accents) form, and a max segment tree of their values. The names matching
+ * a prefix are a contiguous range of the sorted array, and the highest
+ * valued k of them are found in O(k log n) time by a best-first search of the
+ * tree.
+ *
+ * <p>The index is rebuilt by {@link #refresh()} when values have changed, so
+ * suggestions lag writes by up to the refresh interval. Values are seeded from
+ * the database in the background after startup, by a {@link TermsSeeder}.
+ */
+public class TermSuggestionIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final IncrementalTermCombiner<TermType> values;
+    private final TermsSeeder.Subscriber subscriber;
+
+    private volatile Index index = Index.EMPTY;
+
+    public TermSuggestionIndex(
+        TermsSeeder seeder, Map<TermType, Double> weights) {
+
+        Assert.notNull(seeder);
+        Assert.notNull(weights);
+
+        this.values = new IncrementalTermCombiner<>(weights);
+        this.subscriber = seeder.subscribe(
+            "term suggestions", EnumSet.allOf(TermType.class),
+            this::apply, this::refresh);
+    }
+
+    /**
+     * @return The highest valued names starting with prefix, ignoring case
+     *         and accents, in descending order of value.
+     */
+    public List<Term> suggest(String prefix, int limit) {
+        Assert.notNull(prefix);
+        Assert.isTrue(limit >= 0, "limit was negative");
+
+        return index.query(fold(prefix), limit);
+    }
+
+    /**
+     * @return The number of names in the current index.
+     */
+    public int size() {
+        return index.terms.length;
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        values.update(event.getTermType(), event.getRemoved(),
+                      event.getAdded());
+    }
+
+    /**
+     * Rebuild the index if values have changed since it was last built.
+     */
+    public synchronized void refresh() {
+        IncrementalTermCombiner.Snapshot snapshot = values.getCombinedTerms();
+        if(snapshot.getVersion() == index.version)
+            return;
+
+        List<Row> rows = new ArrayList<>(snapshot.size());
+        snapshot.forEach((name, raw, value) -> {
+            if(value > 0)
+                rows.add(new Row(fold(name.getName()),
+                                 new Term(name, raw, value)));
+        });
+        rows.sort(Row.ORDER);
+
+        index = new Index(snapshot.getVersion(), rows);
+    }
+
+    static String fold(String name) {
+        if(isAscii(name))
+            return name.toLowerCase(Locale.ROOT);
+
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+            .toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String s) {
+        for(int i = 0; i < s.length(); ++i) {
+            if(s.charAt(i) > 0x7f)
+                return false;
+        }
+        return true;
+    }
+
+    private static final class Row {
+        static final Comparator<Row> ORDER = Comparator
+            .<Row, String>comparing(r -> r.key)
+            .thenComparing(r -> r.term.getName());
+
+        final String key;
+        final Term term;
+
+        Row(String key, Term term) {
+            this.key = key;
+            this.term = term;
+        }
+    }
+
+    private static final class Index {
+        static final Index EMPTY = new Index(0, Collections.emptyList());
+
+        final long version;
+        final String[] keys;
+        final Term[] terms;
+        /**
+         * A max segment tree of values. Node i has children 2i and 2i + 1;
+         * the leaves start at leafOffset, and unused leaves hold -infinity.
+         */
+        final double[] tree;
+        final int leafOffset;
+
+        Index(long version, List<Row> rows) {
+            int n = rows.size();
+            this.version = version;
+            this.keys = new String[n];
+            this.terms = new Term[n];
+
+            int offset = 1;
+            while(offset < n)
+                offset <<= 1;
+            this.leafOffset = offset;
+            this.tree = new double[offset * 2];
+            Arrays.fill(tree, Double.NEGATIVE_INFINITY);
+
+            for(int i = 0; i < n; ++i) {
+                keys[i] = rows.get(i).key;
+                terms[i] = rows.get(i).term;
+                tree[offset + i] = terms[i].getValue();
+            }
+            for(int i = offset - 1; i > 0; --i)
+                tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+        }
+
+        /** @return The first index whose key is not less than prefix. */
+        private int lowerBound(String prefix) {
+            int lo = 0, hi = keys.length;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(keys[mid].compareTo(prefix) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * @return The first index at or after from whose key does not start
+         *         with prefix.
+         */
+        private int endOfPrefix(String prefix, int from) {
+            int lo = from, hi = keys.length;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(keys[mid].startsWith(prefix))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        List<Term> query(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = endOfPrefix(prefix, from);
+            if(from == to || limit == 0)
+                return Collections.emptyList();
+
+            // Highest value first; equal leaves in key order. Internal nodes
+            // have lower numbers than leaves, so are expanded before a leaf
+            // of the same value is emitted.
+            PriorityQueue<Integer> queue = new PriorityQueue<>(
+                (a, b) -> {
+                    int cmp = Double.compare(tree[b], tree[a]);
+                    return cmp != 0 ? cmp : Integer.compare(a, b);
+                });
+
+            // The nodes covering [from, to) exactly
+            for(int l = from + leafOffset, r = to + leafOffset; l < r;
+                l >>= 1, r >>= 1) {
+                if((l & 1) == 1)
+                    queue.add(l++);
+                if((r & 1) == 1)
+                    queue.add(--r);
+            }
+
+            List<Term> results = new ArrayList<>(Math.min(limit, to - from));
+            while(results.size() < limit && !queue.isEmpty()) {
+                int node = queue.poll();
+                if(tree[node] <= 0)
+                    break;
+
+                if(node >= leafOffset) {
+                    results.add(terms[node - leafOffset]);
+                }
+                else {
+                    queue.add(2 * node);
+                    queue.add(2 * node + 1);
+                }
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ulcambridge.foundations.viewer.crowdsourcing.suggest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+
+import java.util.List;
+
+/**
+ * The existing terms whose names start with a query.
+ */
+public class TermSuggestions {
+
+    private final String query;
+    private final ImmutableList<Term> terms;
+
+    /**
+     * @param query The prefix the terms were matched against.
+     * @param terms The terms, in descending order of value.
+     */
+    public TermSuggestions(String query, List<? extends Term> terms) {
+        Assert.notNull(query);
+        Assert.notNull(terms);
+
+        this.query = query;
+        this.terms = ImmutableList.copyOf(terms);
+    }
+
+    @JsonProperty("query")
+    public String getQuery() {
+        return query;
+    }
+
+    @JsonProperty("terms")
+    public List<Term> getTerms() {
+        return terms;
+    }
+}
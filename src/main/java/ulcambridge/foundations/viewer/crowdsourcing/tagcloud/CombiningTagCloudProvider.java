@@ -0,0 +1,65 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermAccumulator;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermCombiner;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link TagCloudProvider} which computes tag clouds on each request by
+ * combining a document's tags with its annotations and removed tags.
+ *
+ * <p>Only the term types included in the query are loaded. The query's terms
+ * are selected from the combined terms without creating the full set.
+ */
+public class CombiningTagCloudProvider implements TagCloudProvider {
+
+    private final CrowdsourcingDao dataSource;
+    private final TermCombiner.Factory<TermType, Term, Term, TermAccumulator>
+        termCombinerFactory;
+
+    public CombiningTagCloudProvider(
+        CrowdsourcingDao dataSource,
+        TermCombiner.Factory<TermType, Term, Term, TermAccumulator>
+            termCombinerFactory) {
+
+        Assert.notNull(dataSource);
+        Assert.notNull(termCombinerFactory);
+
+        this.dataSource = dataSource;
+        this.termCombinerFactory = termCombinerFactory;
+    }
+
+    @Override
+    public DocumentTerms getTagCloud(String documentId, TagCloudQuery query) {
+        TermCombiner<TermType, Term, Term, TermAccumulator> combiner =
+            termCombinerFactory.newInstance();
+        Set<TermType> types = query.getTypes();
+
+        // combine tags with annotations and removed tags
+        if(types.contains(TermType.TAG)) {
+            DocumentTags docTags = dataSource.getTagsByDocument(documentId);
+            combiner.addTerms(TermType.TAG, docTags.getTerms()::stream);
+        }
+        if(types.contains(TermType.ANNOTATION)) {
+            Collection<Term> docAnnotations =
+                dataSource.getMergedAnnotationsByDocument(documentId);
+            combiner.addTerms(TermType.ANNOTATION, docAnnotations::stream);
+        }
+        if(types.contains(TermType.REMOVED_TAG)) {
+            Collection<Term> docRemovedTags =
+                dataSource.getMergedRemovedTagsByDocument(documentId);
+            combiner.addTerms(TermType.REMOVED_TAG, docRemovedTags::stream);
+        }
+
+        return new DocumentTerms(null, documentId, combiner.getCombinedTerms()
+            .select(query.getMinValue(), query.getLimit()));
+    }
+}
@@ -0,0 +1,118 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentPage;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+import ulcambridge.foundations.viewer.crowdsourcing.model.IncrementalTermCombiner;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the tag cloud of each document page: the combined terms of all
+ * users' annotations which tag the page (those with the {@code tag} target).
+ *
+ * <p>Terms are weighted and combined by an {@link IncrementalTermCombiner}
+ * per page, as a document's annotations are by the weighted term combiner,
+ * and are kept up to date from the changes published by the DAO. Tags and
+ * removed tags apply to whole documents, so aren't included. The index is
+ * seeded from the database in the background after startup by a
+ * {@link TermsSeeder}.
+ */
+public class PageTagCloudIndex {
+
+    private static final String TARGET_TAG = "tag";
+
+    private final Map<TermType, Double> weights;
+    private final TermsSeeder.Subscriber subscriber;
+    private final ConcurrentMap<DocumentPage, IncrementalTermCombiner<TermType>>
+        pages = new ConcurrentHashMap<>();
+
+    public PageTagCloudIndex(
+        TermsSeeder seeder, Map<TermType, Double> weights) {
+
+        Assert.notNull(seeder);
+        Assert.notNull(weights);
+
+        this.weights = weights;
+        this.subscriber = seeder.subscribe(
+            "page tag clouds", EnumSet.of(TermType.ANNOTATION),
+            this::apply);
+    }
+
+    /**
+     * Get the combined terms of a document page.
+     *
+     * @param documentId The ID of the document
+     * @param page The page number
+     * @param query The terms to include. Only annotations are held for pages,
+     *              so other term types match nothing.
+     * @return The page's terms, without a user ID, in descending order of
+     *         value.
+     */
+    public DocumentTerms getTagCloud(
+        String documentId, int page, TagCloudQuery query) {
+
+        Assert.notNull(documentId);
+        Assert.notNull(query);
+
+        IncrementalTermCombiner<TermType> terms =
+            pages.get(new DocumentPage(documentId, page));
+
+        if(terms == null || !query.getTypes().contains(TermType.ANNOTATION))
+            return new DocumentTerms(null, documentId, Collections.emptyList());
+
+        return new DocumentTerms(null, documentId, terms.getCombinedTerms()
+            .select(query.getMinValue(), query.getLimit()));
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        Map<Integer, List<Annotation>> removed = byPage(event.getRemoved());
+        Map<Integer, List<Annotation>> added = byPage(event.getAdded());
+
+        removed.forEach((page, terms) -> update(
+            new DocumentPage(event.getDocumentId(), page), terms, false));
+        added.forEach((page, terms) -> update(
+            new DocumentPage(event.getDocumentId(), page), terms, true));
+    }
+
+    private static Map<Integer, List<Annotation>> byPage(List<Term> terms) {
+        return terms.stream()
+            .filter(t -> t instanceof Annotation)
+            .map(t -> (Annotation)t)
+            .filter(a -> TARGET_TAG.equals(a.getTarget()))
+            .collect(Collectors.groupingBy(Annotation::getPage));
+    }
+
+    private void update(DocumentPage page, List<Annotation> annotations,
+                        boolean added) {
+        pages.compute(page, (key, terms) -> {
+            if(terms == null)
+                terms = new IncrementalTermCombiner<>(weights);
+
+            for(Annotation annotation : annotations) {
+                if(added)
+                    terms.addTerm(TermType.ANNOTATION, annotation);
+                else
+                    terms.removeTerm(TermType.ANNOTATION, annotation);
+            }
+            return terms.size() == 0 ? null : terms;
+        });
+    }
+}
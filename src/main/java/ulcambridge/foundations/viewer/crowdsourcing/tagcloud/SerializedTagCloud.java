@@ -0,0 +1,56 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.google.common.hash.Hashing;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.PrecompressedBody;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ResponseCompressor;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+/**
+ * A tag cloud along with its UTF-8 JSON serialisation, ready to be written to
+ * a response.
+ *
+ * <p>Each compressed form of the JSON is created the first time it's
+ * requested, and then retained.
+ */
+public class SerializedTagCloud {
+
+    private final DocumentTerms terms;
+    private final PrecompressedBody json;
+    private final String version;
+
+    /**
+     * @param terms The tag cloud.
+     * @param json The JSON representation of terms.
+     * @param compressor Compresses the JSON.
+     */
+    public SerializedTagCloud(DocumentTerms terms, byte[] json,
+                              ResponseCompressor compressor) {
+        Assert.notNull(terms);
+        Assert.notNull(json);
+
+        this.terms = terms;
+        this.json = new PrecompressedBody(compressor, json);
+        this.version = Hashing.murmur3_128().hashBytes(json).toString();
+    }
+
+    public DocumentTerms getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return A version identifier derived from the content of the JSON. It's
+     *         suitable for use as an entity tag.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The UTF-8 encoded JSON and its compressed forms. The arrays
+     *         must not be modified.
+     */
+    public PrecompressedBody getJson() {
+        return json;
+    }
+}
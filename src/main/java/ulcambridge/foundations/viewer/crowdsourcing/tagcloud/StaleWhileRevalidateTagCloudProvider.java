@@ -0,0 +1,272 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link TagCloudProvider} which caches tag clouds from another provider,
+ * serving stale values while they're recomputed in the background.
+ *
+ * <p>Only the first request for a document waits for its tag cloud to be
+ * computed, along with any made while it's computed. Subsequent requests are
+ * always answered from the cache. A failed first computation isn't cached. A
+ * cached tag cloud becomes stale when it's
+ * {@link #invalidate(String) invalidated} (which happens automatically when a
+ * {@link TermsChangedEvent} is published for the document) or when it's older
+ * than the maximum staleness. Requests for stale tag clouds receive the stale
+ * value and schedule a refresh on the refresh {@link Executor}.
+ *
+ * <p>At most one refresh runs for a document and query at a time. If the
+ * document is invalidated while a refresh is in progress, another refresh is
+ * performed once the first completes. A refresh rejected by the executor is
+ * retried on the next request for the document.
+ *
+ * <p>Each document caches the tag clouds of a limited number of distinct
+ * queries. Once the limit is reached, other queries for the document are
+ * computed on each request.
+ */
+public class StaleWhileRevalidateTagCloudProvider implements TagCloudProvider {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(StaleWhileRevalidateTagCloudProvider.class);
+
+    private final TagCloudProvider source;
+    private final Executor refreshExecutor;
+    private final long maxStalenessNanos;
+    private final int maxQueriesPerDocument;
+    private final Ticker ticker;
+    private final Cache<String, Document> documents;
+
+    /**
+     * @param source The provider to compute tag clouds with.
+     * @param refreshExecutor The executor on which background refreshes are
+     *                        run. This should be bounded, as every stale
+     *                        document will submit a task to it.
+     * @param maxStaleness The time after which a cached tag cloud is
+     *                     refreshed, even if it's not been invalidated.
+     * @param maxStalenessUnit The unit of maxStaleness.
+     * @param maximumSize The maximum number of documents to cache tag clouds
+     *                    of.
+     * @param maxQueriesPerDocument The maximum number of distinct queries to
+     *                              cache tag clouds of for each document.
+     */
+    public StaleWhileRevalidateTagCloudProvider(
+        TagCloudProvider source, Executor refreshExecutor, long maxStaleness,
+        TimeUnit maxStalenessUnit, long maximumSize,
+        int maxQueriesPerDocument) {
+
+        this(source, refreshExecutor, maxStaleness, maxStalenessUnit,
+             maximumSize, maxQueriesPerDocument, Ticker.systemTicker());
+    }
+
+    StaleWhileRevalidateTagCloudProvider(
+        TagCloudProvider source, Executor refreshExecutor, long maxStaleness,
+        TimeUnit maxStalenessUnit, long maximumSize,
+        int maxQueriesPerDocument, Ticker ticker) {
+
+        Assert.notNull(source);
+        Assert.notNull(refreshExecutor);
+        Assert.isTrue(maxStaleness >= 0, "maxStaleness was negative");
+        Assert.notNull(maxStalenessUnit);
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        Assert.isTrue(maxQueriesPerDocument > 0,
+                      "maxQueriesPerDocument must be positive");
+        Assert.notNull(ticker);
+
+        this.source = source;
+        this.refreshExecutor = refreshExecutor;
+        this.maxStalenessNanos = maxStalenessUnit.toNanos(maxStaleness);
+        this.maxQueriesPerDocument = maxQueriesPerDocument;
+        this.ticker = ticker;
+        this.documents = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    @Override
+    public DocumentTerms getTagCloud(String documentId, TagCloudQuery query) {
+        Document document;
+        try {
+            document = documents.get(documentId, Document::new);
+        }
+        catch(ExecutionException e) {
+            throw new AssertionError("Document creation can't fail", e);
+        }
+
+        Entry entry = document.entries.get(query);
+
+        if(entry == null) {
+            if(document.entries.size() >= maxQueriesPerDocument)
+                return source.getTagCloud(documentId, query);
+
+            // Concurrent misses for the same query wait for one load, which
+            // runs outside the map so that it doesn't block other queries.
+            Entry created = new Entry(document);
+            entry = document.entries.putIfAbsent(query, created);
+            if(entry == null)
+                return created.load(documentId, query);
+        }
+
+        DocumentTerms value = entry.getValue();
+        if(entry.isStale())
+            scheduleRefresh(documentId, query, entry);
+
+        return value;
+    }
+
+    /**
+     * Mark the cached tag clouds of a document as stale, causing them to be
+     * recomputed in the background. The stale values continue to be served
+     * until their refresh completes.
+     */
+    public void invalidate(String documentId) {
+        Document document = documents.getIfPresent(documentId);
+
+        if(document != null) {
+            document.generation.incrementAndGet();
+            // Entries still being loaded are checked on their next request
+            document.entries.forEach((query, entry) -> {
+                if(entry.isLoaded())
+                    scheduleRefresh(documentId, query, entry);
+            });
+        }
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        invalidate(event.getDocumentId());
+    }
+
+    private void scheduleRefresh(
+        String documentId, TagCloudQuery query, Entry entry) {
+
+        if(!entry.refreshing.compareAndSet(false, true))
+            return;
+
+        try {
+            refreshExecutor.execute(() -> refresh(documentId, query, entry));
+        }
+        catch(RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            logger.debug("Tag cloud refresh rejected for: {}", documentId);
+        }
+    }
+
+    private void refresh(String documentId, TagCloudQuery query, Entry entry) {
+        try {
+            long generation = entry.document.generation.get();
+            entry.update(generation, source.getTagCloud(documentId, query));
+        }
+        catch(RuntimeException e) {
+            logger.warn("Failed to refresh tag cloud for: " + documentId, e);
+            entry.refreshing.set(false);
+            return;
+        }
+
+        entry.refreshing.set(false);
+
+        // Invalidations which happened during the refresh are not reflected in
+        // the value it computed.
+        if(entry.isStale())
+            scheduleRefresh(documentId, query, entry);
+    }
+
+    private static final class Document {
+        /** Incremented each time the document is invalidated. */
+        final AtomicLong generation = new AtomicLong();
+        final ConcurrentMap<TagCloudQuery, Entry> entries =
+            new ConcurrentHashMap<>(4);
+    }
+
+    private final class Entry {
+        final Document document;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        /** Completed when the first value has been computed, or has failed. */
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private volatile Snapshot snapshot;
+
+        Entry(Document document) {
+            this.document = document;
+        }
+
+        /**
+         * Compute the first value. If it fails, the entry is removed, and the
+         * requests waiting for it fail too.
+         */
+        DocumentTerms load(String documentId, TagCloudQuery query) {
+            try {
+                update(document.generation.get(),
+                       source.getTagCloud(documentId, query));
+            }
+            catch(RuntimeException | Error e) {
+                document.entries.remove(query, this);
+                loaded.completeExceptionally(e);
+                throw e;
+            }
+            loaded.complete(null);
+            return snapshot.value;
+        }
+
+        boolean isLoaded() {
+            return snapshot != null;
+        }
+
+        /** Get the current value, waiting for the first to be computed. */
+        DocumentTerms getValue() {
+            if(snapshot == null) {
+                try {
+                    loaded.join();
+                }
+                catch(CompletionException e) {
+                    if(e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException)e.getCause();
+                    if(e.getCause() instanceof Error)
+                        throw (Error)e.getCause();
+                    throw e;
+                }
+            }
+            return snapshot.value;
+        }
+
+        void update(long generation, DocumentTerms value) {
+            Assert.notNull(value);
+            this.snapshot = new Snapshot(generation, ticker.read(), value);
+        }
+
+        boolean isStale() {
+            Snapshot s = snapshot;
+            return s.generation != document.generation.get() ||
+                ticker.read() - s.computedAt > maxStalenessNanos;
+        }
+    }
+
+    private static final class Snapshot {
+        final long generation;
+        final long computedAt;
+        final DocumentTerms value;
+
+        Snapshot(long generation, long computedAt, DocumentTerms value) {
+            this.generation = generation;
+            this.computedAt = computedAt;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Counts requests for the tag clouds of documents, so that the most popular
+ * documents can be identified.
+ *
+ * <p>Counts are periodically {@link #decay() decayed} by halving them, so the
+ * ranking reflects recent access more than historic access. Counts can be
+ * {@link #save() saved} to and {@link #load() loaded} from a JSON file so
+ * that they survive restarts.
+ */
+public class TagCloudAccessStatistics {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(TagCloudAccessStatistics.class);
+
+    private static final TypeReference<Map<String, Long>> COUNTS_TYPE =
+        new TypeReference<Map<String, Long>>() { };
+
+    private final ConcurrentHashMap<String, AtomicLong> counts;
+    private final int maximumSize;
+    private final Optional<Path> file;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param maximumSize The number of documents to retain counts for when
+     *                    decaying. Between decays up to twice this many
+     *                    documents are counted.
+     * @param file The file to persist counts in, if any.
+     * @param objectMapper The mapper used to read and write the file.
+     */
+    public TagCloudAccessStatistics(
+        int maximumSize, Optional<Path> file, ObjectMapper objectMapper) {
+
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        Assert.notNull(file);
+        Assert.notNull(objectMapper);
+
+        this.counts = new ConcurrentHashMap<>();
+        this.maximumSize = maximumSize;
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Record a request for the tag cloud of a document.
+     */
+    public void recordAccess(String documentId) {
+        AtomicLong count = counts.get(documentId);
+
+        if(count == null) {
+            // Don't allow arbitrary document IDs to grow the map without limit
+            if(counts.size() >= maximumSize * 2)
+                return;
+            count = counts.computeIfAbsent(documentId, k -> new AtomicLong());
+        }
+
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return The IDs of the documents with counts, most accessed first.
+     */
+    public List<String> getRanking() {
+        return counts.entrySet().stream()
+            .sorted(Comparator.comparing(
+                (Map.Entry<String, AtomicLong> e) -> e.getValue().get())
+                .reversed())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Halve all counts, dropping documents whose count reaches zero and the
+     * least accessed documents beyond the maximum size.
+     */
+    public void decay() {
+        counts.values().forEach(c -> c.updateAndGet(n -> n / 2));
+        counts.values().removeIf(c -> c.get() == 0);
+
+        if(counts.size() > maximumSize) {
+            getRanking().stream()
+                .skip(maximumSize)
+                .forEach(counts::remove);
+        }
+    }
+
+    /**
+     * Replace the current counts with those in the statistics file, if it
+     * exists.
+     */
+    public void load() throws IOException {
+        if(!file.isPresent() || !Files.exists(file.get()))
+            return;
+
+        Map<String, Long> saved =
+            objectMapper.readValue(file.get().toFile(), COUNTS_TYPE);
+
+        counts.clear();
+        saved.forEach((docId, count) ->
+            counts.put(docId, new AtomicLong(count)));
+
+        logger.info("Loaded tag cloud access counts for {} documents from {}",
+                    counts.size(), file.get());
+    }
+
+    /**
+     * Write the current counts to the statistics file, if one is configured.
+     * The file is replaced atomically.
+     */
+    public void save() throws IOException {
+        if(!file.isPresent())
+            return;
+
+        Map<String, Long> snapshot = counts.entrySet().stream()
+            .collect(Collectors.toMap(
+                Map.Entry::getKey, e -> e.getValue().get()));
+
+        Path target = file.get().toAbsolutePath();
+        Path tmp = Files.createTempFile(
+            target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Save then decay the counts. Intended to be called periodically, making
+     * the save interval the half-life of an access.
+     */
+    public void saveAndDecay() {
+        try {
+            save();
+        }
+        catch(IOException e) {
+            logger.warn("Failed to save tag cloud access counts", e);
+        }
+        decay();
+    }
+}
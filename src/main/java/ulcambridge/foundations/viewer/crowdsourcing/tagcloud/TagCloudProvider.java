@@ -0,0 +1,28 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+/**
+ * A source of the aggregated tag cloud of a document, served by the
+ * {@code /crowdsourcing/tag/{docId}} endpoint.
+ */
+public interface TagCloudProvider {
+
+    /**
+     * Get the combined terms of a document.
+     *
+     * @param documentId The ID of the document
+     * @param query The terms to include
+     * @return The document's terms, without a user ID, in descending order of
+     *         value.
+     */
+    DocumentTerms getTagCloud(String documentId, TagCloudQuery query);
+
+    /**
+     * Get the combined terms of a document using the
+     * {@link TagCloudQuery#DEFAULT default query}.
+     */
+    default DocumentTerms getTagCloud(String documentId) {
+        return getTagCloud(documentId, TagCloudQuery.DEFAULT);
+    }
+}
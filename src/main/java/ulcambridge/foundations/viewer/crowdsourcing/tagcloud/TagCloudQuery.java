@@ -0,0 +1,112 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Options controlling which terms are included in a tag cloud.
+ *
+ * <p>A tag cloud contains the terms with positive values obtained by combining
+ * the term types of the query. Terms with values below the query's minimum
+ * are excluded, and at most limit terms are included, keeping those with the
+ * highest values.
+ */
+public final class TagCloudQuery {
+
+    /** The value of limit which includes every term. */
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    /** A query for every positive term of all term types. */
+    public static final TagCloudQuery DEFAULT = new TagCloudQuery(
+        EnumSet.allOf(TermType.class), Double.NEGATIVE_INFINITY, NO_LIMIT);
+
+    /**
+     * The names used to identify term types in requests. These match the
+     * names of the term type weight properties.
+     */
+    private static final Map<String, TermType> TYPE_NAMES = ImmutableMap.of(
+        "anno", TermType.ANNOTATION,
+        "tag", TermType.TAG,
+        "removedtag", TermType.REMOVED_TAG);
+
+    private final Set<TermType> types;
+    private final double minValue;
+    private final int limit;
+
+    /**
+     * @param types The term types to combine.
+     * @param minValue The minimum value of included terms (inclusive). Terms
+     *                 with values of 0 or less are never included.
+     * @param limit The maximum number of terms to include.
+     */
+    public TagCloudQuery(Set<TermType> types, double minValue, int limit) {
+        Assert.notNull(types);
+        Assert.isTrue(!Double.isNaN(minValue), "minValue was NaN");
+        Assert.isTrue(limit >= 0, "limit was negative");
+
+        this.types = Sets.immutableEnumSet(types);
+        this.minValue = minValue;
+        this.limit = limit;
+    }
+
+    /**
+     * Get the term type identified by a name used in requests.
+     *
+     * @throws IllegalArgumentException if the name is not a term type name.
+     */
+    public static TermType parseTermType(String name) {
+        TermType type = TYPE_NAMES.get(name);
+        if(type == null)
+            throw new IllegalArgumentException(
+                "Unknown term type: " + name + ", expected one of: " +
+                TYPE_NAMES.keySet());
+        return type;
+    }
+
+    public Set<TermType> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return The minimum value of included terms (inclusive). This is always
+     *         positive, as only terms with positive values are included.
+     */
+    public double getMinValue() {
+        return Math.max(minValue, Double.MIN_VALUE);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this)
+            return true;
+        if(!(obj instanceof TagCloudQuery))
+            return false;
+
+        TagCloudQuery rhs = (TagCloudQuery)obj;
+        return types.equals(rhs.types) &&
+               getMinValue() == rhs.getMinValue() &&
+               limit == rhs.limit;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(types, getMinValue(), limit);
+    }
+
+    @Override
+    public String toString() {
+        return "TagCloudQuery{types=" + types + ", minValue=" + minValue +
+               ", limit=" + limit + "}";
+    }
+}
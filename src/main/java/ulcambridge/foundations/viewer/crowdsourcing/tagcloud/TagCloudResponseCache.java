@@ -0,0 +1,181 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ResponseCompressor;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the serialised form of the tag clouds produced by a
+ * {@link TagCloudProvider}, and records each request in the access statistics.
+ *
+ * <p>Each document has a generation, which is incremented when a
+ * {@link TermsChangedEvent} is published for it. A cached serialisation is
+ * reused while its document's generation is unchanged, up to the maximum
+ * staleness, without asking the provider for the tag cloud again.
+ *
+ * <p>A provider which serves stale tag clouds while recomputing them, such as
+ * a {@link StaleWhileRevalidateTagCloudProvider}, is asked on every request,
+ * and the cached serialisation is reused for as long as it keeps returning the
+ * same {@link DocumentTerms} instance.
+ *
+ * <p>Each document caches the serialisations of a limited number of distinct
+ * queries. Once the limit is reached, other queries for the document are
+ * serialised on each request.
+ */
+public class TagCloudResponseCache {
+
+    private final TagCloudProvider provider;
+    private final boolean providerServesStale;
+    private final TagCloudAccessStatistics statistics;
+    private final ObjectMapper objectMapper;
+    private final ResponseCompressor compressor;
+    private final int maxQueriesPerDocument;
+    private final long maxStalenessNanos;
+    private final Ticker ticker;
+    private final Cache<String, Document> documents;
+
+    /**
+     * @param provider The source of tag clouds.
+     * @param providerServesStale Whether the provider may return a stale tag
+     *                            cloud after its document has changed.
+     * @param statistics Records requests for tag clouds.
+     * @param objectMapper The mapper used to serialise tag clouds. This should
+     *                     be the same as used by the JSON message converter.
+     * @param compressor Compresses the serialised tag clouds.
+     * @param maximumSize The maximum number of documents to cache serialised
+     *                    tag clouds of.
+     * @param maxQueriesPerDocument The maximum number of distinct queries to
+     *                              cache serialised tag clouds of for each
+     *                              document.
+     * @param maxStaleness The time after which a cached serialisation is
+     *                     replaced, even if its document hasn't changed.
+     * @param maxStalenessUnit The unit of maxStaleness.
+     */
+    public TagCloudResponseCache(
+        TagCloudProvider provider, boolean providerServesStale,
+        TagCloudAccessStatistics statistics, ObjectMapper objectMapper,
+        ResponseCompressor compressor, long maximumSize,
+        int maxQueriesPerDocument, long maxStaleness,
+        TimeUnit maxStalenessUnit) {
+
+        this(provider, providerServesStale, statistics, objectMapper,
+             compressor, maximumSize, maxQueriesPerDocument, maxStaleness,
+             maxStalenessUnit, Ticker.systemTicker());
+    }
+
+    TagCloudResponseCache(
+        TagCloudProvider provider, boolean providerServesStale,
+        TagCloudAccessStatistics statistics, ObjectMapper objectMapper,
+        ResponseCompressor compressor, long maximumSize,
+        int maxQueriesPerDocument, long maxStaleness,
+        TimeUnit maxStalenessUnit, Ticker ticker) {
+
+        Assert.notNull(provider);
+        Assert.notNull(statistics);
+        Assert.notNull(objectMapper);
+        Assert.notNull(compressor);
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        Assert.isTrue(maxQueriesPerDocument > 0,
+                      "maxQueriesPerDocument must be positive");
+        Assert.isTrue(maxStaleness >= 0, "maxStaleness was negative");
+        Assert.notNull(maxStalenessUnit);
+        Assert.notNull(ticker);
+
+        this.provider = provider;
+        this.providerServesStale = providerServesStale;
+        this.statistics = statistics;
+        this.objectMapper = objectMapper;
+        this.compressor = compressor;
+        this.maxQueriesPerDocument = maxQueriesPerDocument;
+        this.maxStalenessNanos = maxStalenessUnit.toNanos(maxStaleness);
+        this.ticker = ticker;
+        this.documents = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    public SerializedTagCloud getTagCloud(
+        String documentId, TagCloudQuery query) {
+
+        statistics.recordAccess(documentId);
+
+        Document document;
+        try {
+            document = documents.get(documentId, Document::new);
+        }
+        catch(ExecutionException e) {
+            throw new AssertionError("Document creation can't fail", e);
+        }
+
+        // Read before the tag cloud is computed, so that a change made while
+        // it's computed leaves the result out of date
+        long generation = document.generation.get();
+        Entry cached = document.tagClouds.get(query);
+
+        if(cached != null && !providerServesStale &&
+           cached.generation == generation &&
+           ticker.read() - cached.createdAt <= maxStalenessNanos)
+            return cached.tagCloud;
+
+        DocumentTerms terms = provider.getTagCloud(documentId, query);
+        if(cached != null && cached.tagCloud.getTerms() == terms)
+            return cached.tagCloud;
+
+        SerializedTagCloud tagCloud = serialize(terms);
+        if(cached != null ||
+           document.tagClouds.size() < maxQueriesPerDocument)
+            document.tagClouds.put(
+                query, new Entry(generation, ticker.read(), tagCloud));
+        return tagCloud;
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        Document document = documents.getIfPresent(event.getDocumentId());
+        if(document != null)
+            document.generation.incrementAndGet();
+    }
+
+    private SerializedTagCloud serialize(DocumentTerms terms) {
+        try {
+            return new SerializedTagCloud(
+                terms, objectMapper.writeValueAsBytes(terms), compressor);
+        }
+        catch(JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Document {
+        /** Incremented each time the document's terms change. */
+        final AtomicLong generation = new AtomicLong();
+        final ConcurrentMap<TagCloudQuery, Entry> tagClouds =
+            new ConcurrentHashMap<>(4);
+    }
+
+    private static final class Entry {
+        final long generation;
+        final long createdAt;
+        final SerializedTagCloud tagCloud;
+
+        Entry(long generation, long createdAt, SerializedTagCloud tagCloud) {
+            this.generation = generation;
+            this.createdAt = createdAt;
+            this.tagCloud = tagCloud;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precomputes the tag clouds of the most popular documents after startup, so
+ * that the cache isn't cold after a deploy.
+ *
+ * <p>The candidate documents are those with tags or annotations. They're
+ * ranked by {@link TagCloudAccessStatistics}, with documents that have no
+ * recorded accesses following in the order the DAO reports them. The first
+ * {@code hotSetSize} candidates are loaded into the cache in parallel, at a
+ * rate limited to avoid overloading the database.
+ *
+ * <p>As a {@link HealthIndicator}, the warmer reports the app as out of
+ * service until loading of the ready fraction of the hot set has been
+ * attempted. Loads which fail count as attempts, so a document whose tag
+ * cloud can't be computed doesn't hold the app out of service forever. If the
+ * hot set can't be determined, warm-up is skipped and the app is reported as
+ * ready, as the cache fills on demand regardless.
+ */
+public class TagCloudWarmer implements HealthIndicator {
+
+    private static final Logger logger =
+        LoggerFactory.getLogger(TagCloudWarmer.class);
+
+    private final TagCloudProvider cache;
+    private final CrowdsourcingDao dataSource;
+    private final TagCloudAccessStatistics statistics;
+    private final int hotSetSize;
+    private final int threads;
+    private final double loadsPerSecond;
+    private final double readyFraction;
+
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile int target = -1;
+    private volatile int required = -1;
+
+    /**
+     * @param cache The cache to warm.
+     * @param dataSource The source of candidate documents.
+     * @param statistics The access statistics used to rank candidates.
+     * @param hotSetSize The maximum number of tag clouds to precompute.
+     * @param threads The number of tag clouds to compute concurrently.
+     * @param loadsPerSecond The maximum rate at which to compute tag clouds.
+     * @param readyFraction The fraction of the hot set which must have been
+     *                      loaded, or failed to load, before the app is
+     *                      reported as ready.
+     */
+    public TagCloudWarmer(
+        TagCloudProvider cache, CrowdsourcingDao dataSource,
+        TagCloudAccessStatistics statistics, int hotSetSize, int threads,
+        double loadsPerSecond, double readyFraction) {
+
+        Assert.notNull(cache);
+        Assert.notNull(dataSource);
+        Assert.notNull(statistics);
+        Assert.isTrue(hotSetSize >= 0, "hotSetSize was negative");
+        Assert.isTrue(threads > 0, "threads must be positive");
+        Assert.isTrue(loadsPerSecond > 0, "loadsPerSecond must be positive");
+        Assert.isTrue(readyFraction >= 0 && readyFraction <= 1,
+                      "readyFraction must be in the range [0, 1]");
+
+        this.cache = cache;
+        this.dataSource = dataSource;
+        this.statistics = statistics;
+        this.hotSetSize = hotSetSize;
+        this.threads = threads;
+        this.loadsPerSecond = loadsPerSecond;
+        this.readyFraction = readyFraction;
+    }
+
+    /**
+     * Determine the hot set and load it in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ExecutorService executor = Executors.newFixedThreadPool(
+            threads, new ThreadFactoryBuilder()
+                .setNameFormat("tag-cloud-warm-up-%d")
+                .setDaemon(true)
+                .build());
+
+        executor.execute(() -> warm(executor));
+    }
+
+    private void warm(ExecutorService executor) {
+        List<String> hotSet;
+        try {
+            hotSet = getHotSet();
+        }
+        catch(RuntimeException e) {
+            logger.error("Failed to determine tag cloud hot set, skipping " +
+                         "warm-up", e);
+            hotSet = Collections.emptyList();
+        }
+
+        this.target = hotSet.size();
+        this.required = (int)Math.ceil(hotSet.size() * readyFraction);
+        logger.info("Warming {} tag clouds, ready after {}",
+                    target, required);
+
+        RateLimiter rateLimiter = RateLimiter.create(loadsPerSecond);
+        hotSet.forEach(documentId -> executor.execute(() -> {
+            rateLimiter.acquire();
+            try {
+                cache.getTagCloud(documentId);
+                warmed.incrementAndGet();
+            }
+            catch(RuntimeException e) {
+                failed.incrementAndGet();
+                logger.warn("Failed to warm tag cloud for: " + documentId, e);
+            }
+
+            if(completed.incrementAndGet() == target) {
+                logger.info("Tag cloud warm-up finished: {} warmed, {} failed",
+                            warmed.get(), failed.get());
+            }
+        }));
+
+        executor.shutdown();
+    }
+
+    private List<String> getHotSet() {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.addAll(dataSource.getTaggedDocuments());
+        candidates.addAll(dataSource.getAnnotatedDocuments());
+
+        List<String> hotSet = new ArrayList<>(hotSetSize);
+        for(String documentId : statistics.getRanking()) {
+            if(hotSet.size() == hotSetSize)
+                return hotSet;
+            if(candidates.remove(documentId))
+                hotSet.add(documentId);
+        }
+
+        candidates.stream()
+            .limit(hotSetSize - hotSet.size())
+            .forEach(hotSet::add);
+
+        return hotSet;
+    }
+
+    public boolean isReady() {
+        int required = this.required;
+        return required >= 0 && completed.get() >= required;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = isReady() ? Health.up() : Health.outOfService();
+
+        return health
+            .withDetail("hotSetSize", Math.max(target, 0))
+            .withDetail("warmed", warmed.get())
+            .withDetail("failed", failed.get())
+            .build();
+    }
+}
@@ -0,0 +1,39 @@
+package ulcambridge.foundations.viewer.crowdsourcing.toptags;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+
+import java.util.List;
+
+/**
+ * The highest valued terms across all documents over a period.
+ */
+public class TopTags {
+
+    private final String window;
+    private final ImmutableList<Term> terms;
+
+    /**
+     * @param window The name of the period the terms were counted over.
+     * @param terms The terms, in descending order of value.
+     */
+    public TopTags(String window, List<? extends Term> terms) {
+        Assert.notNull(window);
+        Assert.notNull(terms);
+
+        this.window = window;
+        this.terms = ImmutableList.copyOf(terms);
+    }
+
+    @JsonProperty("window")
+    public String getWindow() {
+        return window;
+    }
+
+    @JsonProperty("terms")
+    public List<Term> getTerms() {
+        return terms;
+    }
+}
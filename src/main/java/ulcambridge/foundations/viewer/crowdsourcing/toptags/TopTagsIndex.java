@@ -0,0 +1,217 @@
+package ulcambridge.foundations.viewer.crowdsourcing.toptags;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.Assert;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.IncrementalTermCombiner;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermAccumulator;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maintains the site-wide combined terms of all documents, for all time and
+ * for a recent window, from the changes published by the DAO.
+ *
+ * <p>All-time terms are weighted and combined as the tag cloud of a single
+ * document is, but across every document. The trending window only counts
+ * annotations, which are contributed by users and dated, so that bulk loads
+ * of text-mined tags don't dominate it. Removed tags aren't counted, as the
+ * time they were removed isn't stored, so they can't be placed in the window.
+ * The window is divided into fixed-size time buckets; an annotation is
+ * counted in the bucket of its date, and buckets are discarded as they fall
+ * out of the window.
+ *
+ * <p>Each update takes O(1) time. Memory is bounded by limiting each set of
+ * counts to a number of names: once a set holds twice its capacity, all but
+ * the highest valued names are dropped. Counts of the highest valued names
+ * are exact, as long as the capacity is well above the number of terms
+ * requested; the long tail is approximate.
+ *
+ * <p>After startup, the counts are seeded by reading every term from the
+ * database in the background, with a {@link TermsSeeder}.
+ */
+public class TopTagsIndex {
+
+    private final Map<TermType, Double> weights;
+    private final int capacity;
+    private final long bucketMillis;
+    private final Clock clock;
+    private final TermsSeeder.Subscriber subscriber;
+
+    private final IncrementalTermCombiner<TermType> allTime;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final Supplier<TermAccumulator> trending;
+
+    /**
+     * @param seeder Seeds the counts from the database.
+     * @param weights The weights of each term type.
+     * @param capacity The number of names to retain counts of.
+     * @param window The duration of the trending window.
+     * @param windowUnit The unit of window.
+     * @param bucketCount The number of buckets the window is divided into.
+     * @param trendingCacheSeconds The time to reuse the combined counts of
+     *                             the trending window for.
+     */
+    public TopTagsIndex(
+        TermsSeeder seeder, Map<TermType, Double> weights,
+        int capacity, long window, TimeUnit windowUnit, int bucketCount,
+        long trendingCacheSeconds) {
+
+        this(seeder, weights, capacity, window, windowUnit, bucketCount,
+             trendingCacheSeconds, Clock.systemUTC());
+    }
+
+    TopTagsIndex(
+        TermsSeeder seeder, Map<TermType, Double> weights,
+        int capacity, long window, TimeUnit windowUnit, int bucketCount,
+        long trendingCacheSeconds, Clock clock) {
+
+        Assert.notNull(seeder);
+        Assert.notNull(weights);
+        Assert.isTrue(capacity > 0, "capacity must be positive");
+        Assert.notNull(windowUnit);
+        Assert.isTrue(bucketCount > 0, "bucketCount must be positive");
+        Assert.isTrue(windowUnit.toMillis(window) >= bucketCount,
+                      "window must be at least 1ms per bucket");
+        Assert.isTrue(trendingCacheSeconds >= 0,
+                      "trendingCacheSeconds was negative");
+        Assert.notNull(clock);
+
+        this.weights = weights;
+        this.capacity = capacity;
+        this.bucketMillis = windowUnit.toMillis(window) / bucketCount;
+        this.clock = clock;
+        this.subscriber = seeder.subscribe(
+            "top tags", EnumSet.allOf(TermType.class), this::apply);
+
+        this.allTime = new IncrementalTermCombiner<>(weights);
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+        this.trending = trendingCacheSeconds == 0 ? this::combineWindow :
+            Suppliers.memoizeWithExpiration(
+                this::combineWindow, trendingCacheSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return The highest valued terms across all documents, in descending
+     *         order of value.
+     */
+    public List<Term> getTopTerms(int limit) {
+        return allTime.getCombinedTerms().select(Double.MIN_VALUE, limit);
+    }
+
+    /**
+     * @return The highest valued terms contributed by users during the
+     *         trending window, in descending order of value.
+     */
+    public List<Term> getTrendingTerms(int limit) {
+        return trending.get().select(Double.MIN_VALUE, limit);
+    }
+
+    @EventListener
+    public void onTermsChanged(TermsChangedEvent event) {
+        subscriber.onTermsChanged(event);
+    }
+
+    private void apply(TermsChangedEvent event) {
+        TermType type = event.getTermType();
+        event.getRemoved().forEach(t -> update(type, t, false));
+        event.getAdded().forEach(t -> update(type, t, true));
+    }
+
+    private void update(TermType type, Term term, boolean added) {
+        update(allTime, type, term, added);
+
+        Instant date = getDate(term);
+        if(date != null) {
+            Bucket bucket = getBucket(date.toEpochMilli());
+            if(bucket != null)
+                update(bucket.counts, type, term, added);
+        }
+    }
+
+    private void update(IncrementalTermCombiner<TermType> counts,
+                        TermType type, Term term, boolean added) {
+        if(added)
+            counts.addTerm(type, term);
+        else
+            counts.removeTerm(type, term);
+
+        if(counts.size() > capacity * 2)
+            counts.retainTop(capacity);
+    }
+
+    /**
+     * @return The time a term was created, or null if it's not known. Only
+     *         annotations are dated.
+     */
+    private static Instant getDate(Term term) {
+        return term instanceof Annotation ? ((Annotation)term).getDate() : null;
+    }
+
+    private long currentBucketIndex() {
+        return Math.floorDiv(clock.millis(), bucketMillis);
+    }
+
+    private boolean inWindow(long index, long current) {
+        return index <= current && index > current - buckets.length();
+    }
+
+    /**
+     * @return The bucket covering time, or null if time is not within the
+     *         window.
+     */
+    private Bucket getBucket(long time) {
+        long index = Math.floorDiv(time, bucketMillis);
+        if(!inWindow(index, currentBucketIndex()))
+            return null;
+
+        int slot = (int)Math.floorMod(index, (long)buckets.length());
+        while(true) {
+            Bucket bucket = buckets.get(slot);
+            if(bucket != null && bucket.index == index)
+                return bucket;
+            // The slot holds an expired bucket, or none
+            if(bucket != null && bucket.index > index)
+                return null;
+
+            Bucket created = new Bucket(index);
+            if(buckets.compareAndSet(slot, bucket, created))
+                return created;
+        }
+    }
+
+    private TermAccumulator combineWindow() {
+        long current = currentBucketIndex();
+        TermAccumulator combined = new TermAccumulator();
+
+        for(int i = 0; i < buckets.length(); ++i) {
+            Bucket bucket = buckets.get(i);
+            if(bucket != null && inWindow(bucket.index, current))
+                bucket.counts.getCombinedTerms().forEach(combined::add);
+        }
+
+        return combined;
+    }
+
+    private final class Bucket {
+        final long index;
+        final IncrementalTermCombiner<TermType> counts;
+
+        Bucket(long index) {
+            this.index = index;
+            this.counts = new IncrementalTermCombiner<>(weights);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ulcambridge.foundations.viewer.crowdsourcing;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.AnnotationModelModule;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter.APPLICATION_CBOR;
+import static ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter.APPLICATION_SMILE;
+import static ulcambridge.foundations.viewer.crowdsourcing.BinaryModelHttpMessageConverter.negotiate;
+
+public class BinaryModelHttpMessageConverterTest {
+
+    private static final List<MediaType> MEDIA_TYPES = Arrays.asList(
+        MediaType.APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR);
+
+    private static BinaryModelHttpMessageConverter cborConverter() {
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        Jackson2ObjectMapperBuilder.json()
+            .modules(new Jdk8Module(), new GuavaModule(),
+                     new ParameterNamesModule(JsonCreator.Mode.PROPERTIES),
+                     new AnnotationModelModule())
+            .configure(objectMapper);
+        return new BinaryModelHttpMessageConverter(
+            objectMapper, APPLICATION_CBOR);
+    }
+
+    @Test
+    public void testJsonIsPreferredByDefault() {
+        assertThat(negotiate(null, MEDIA_TYPES), is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("*/*", MEDIA_TYPES), is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("application/*", MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("text/html,application/xhtml+xml,*/*;q=0.8",
+                             MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("text/plain", MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testPreferredBinaryFormatIsChosen() {
+        assertThat(negotiate("application/cbor", MEDIA_TYPES),
+                   is(APPLICATION_CBOR));
+        assertThat(negotiate("application/x-jackson-smile, */*;q=0.1",
+                             MEDIA_TYPES),
+                   is(APPLICATION_SMILE));
+        assertThat(negotiate("application/cbor;q=0.5, application/json",
+                             MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("application/json;q=0, */*", MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+        assertThat(negotiate("application/cbor;q=0, application/*",
+                             MEDIA_TYPES),
+                   is(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testOnlyModelTypesAreConverted() {
+        BinaryModelHttpMessageConverter converter = cborConverter();
+
+        assertThat(converter.canWrite(DocumentTags.class, APPLICATION_CBOR),
+                   is(true));
+        assertThat(converter.canWrite(DocumentTerms.class, null), is(true));
+        assertThat(converter.canWrite(DocumentTags.class, APPLICATION_SMILE),
+                   is(false));
+        assertThat(converter.canWrite(Tag.class, APPLICATION_CBOR),
+                   is(false));
+        assertThat(converter.canWrite(Object.class, APPLICATION_CBOR),
+                   is(false));
+        assertThat(converter.canRead(Tag.class, APPLICATION_CBOR), is(false));
+        assertThat(converter.canRead(DocumentTags.class, APPLICATION_CBOR),
+                   is(true));
+    }
+
+    @Test
+    public void testModelRoundTrips() throws IOException {
+        BinaryModelHttpMessageConverter converter = cborConverter();
+        // Tags keep their own spelling, whichever variant was seen first
+        new Tag("LEIBNIZ", 1, 1);
+        DocumentTags tags = new DocumentTags("user1", "MS-FOO-00001",
+            Collections.singletonList(new Tag("Leibniz", 2, 1)));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpHeaders headers = new HttpHeaders();
+        converter.write(tags, APPLICATION_CBOR, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() { return body; }
+
+            @Override
+            public HttpHeaders getHeaders() { return headers; }
+        });
+        assertThat(headers.getContentType().isCompatibleWith(APPLICATION_CBOR),
+                   is(true));
+
+        DocumentTags read = (DocumentTags)converter.read(
+            DocumentTags.class, new HttpInputMessage() {
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body.toByteArray());
+                }
+
+                @Override
+                public HttpHeaders getHeaders() { return headers; }
+            });
+        assertThat(read.getDocumentId(), is("MS-FOO-00001"));
+        assertThat(read.getTerms().get(0).getName(), is("Leibniz"));
+        assertThat(read.getTerms().get(0).getRaw(), is(2));
+    }
+}
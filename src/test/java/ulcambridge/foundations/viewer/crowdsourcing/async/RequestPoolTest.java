@@ -0,0 +1,143 @@
+package ulcambridge.foundations.viewer.crowdsourcing.async;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RequestPoolTest {
+
+    private ScheduledThreadPoolExecutor timer;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        timer = new ScheduledThreadPoolExecutor(1);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        timer.shutdownNow();
+    }
+
+    private RequestPool pool(int queueSize, long timeoutMillis) {
+        return new RequestPool("test", 1, queueSize, timeoutMillis, timer);
+    }
+
+    private CompletableFuture<Boolean> blockPool(RequestPool pool) {
+        return pool.submit(() -> release.await(10, TimeUnit.SECONDS), null);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future)
+        throws InterruptedException {
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        catch(ExecutionException e) {
+            return e.getCause();
+        }
+        catch(TimeoutException e) {
+            throw new AssertionError("Future didn't complete", e);
+        }
+        fail("Future didn't fail");
+        return null;
+    }
+
+    @Test
+    public void testWorkIsRejectedWhenQueueIsFull() throws Exception {
+        RequestPool pool = pool(1, 10000);
+        blockPool(pool);
+        // Wait for the blocking task to leave the queue
+        while(pool.getExecutor().getActiveCount() == 0)
+            Thread.sleep(1);
+
+        CompletableFuture<String> queued = pool.submit(() -> "queued", null);
+        CompletableFuture<String> rejected = pool.submit(() -> "rejected", null);
+
+        assertThat(failure(rejected),
+                   instanceOf(ServiceOverloadedException.class));
+        assertThat(pool.getRejectedCount(), is(1L));
+
+        release.countDown();
+        assertThat(queued.get(10, TimeUnit.SECONDS), is("queued"));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testQueuedWorkTimesOutAndIsDropped() throws Exception {
+        RequestPool pool = pool(10, 50);
+        blockPool(pool);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> queued = pool.submit(
+            () -> ran.getAndSet(true), null);
+
+        assertThat(failure(queued),
+                   instanceOf(ServiceOverloadedException.class));
+        assertThat(pool.getExecutor().getQueue().size(), is(0));
+
+        release.countDown();
+        pool.shutdown();
+        pool.getExecutor().awaitTermination(10, TimeUnit.SECONDS);
+        assertThat(ran.get(), is(false));
+        assertThat(pool.getTimedOutCount() >= 1, is(true));
+    }
+
+    @Test
+    public void testCancelledWorkIsDropped() throws Exception {
+        RequestPool pool = pool(10, 10000);
+        blockPool(pool);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> queued = pool.submit(
+            () -> ran.getAndSet(true), null);
+
+        assertThat(queued.cancel(true), is(true));
+        assertThat(pool.getExecutor().getQueue().size(), is(0));
+        assertThat(pool.getCancelledCount(), is(1L));
+
+        release.countDown();
+        pool.shutdown();
+        pool.getExecutor().awaitTermination(10, TimeUnit.SECONDS);
+        assertThat(ran.get(), is(false));
+    }
+
+    @Test
+    public void testWorkRunsWithSecurityContext() throws Exception {
+        RequestPool pool = pool(10, 10000);
+        SecurityContext context = new SecurityContextImpl();
+        context.setAuthentication(
+            new TestingAuthenticationToken("user-1", null));
+
+        assertThat(pool.submit(
+            () -> SecurityContextHolder.getContext().getAuthentication()
+                .getName(), context).get(10, TimeUnit.SECONDS),
+            is("user-1"));
+
+        // The context doesn't leak into the pool's next task
+        assertThat(pool.submit(
+            () -> SecurityContextHolder.getContext().getAuthentication(),
+            null).get(10, TimeUnit.SECONDS), nullValue());
+        pool.shutdown();
+    }
+}
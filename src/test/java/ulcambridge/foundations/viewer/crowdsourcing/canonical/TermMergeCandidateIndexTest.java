@@ -0,0 +1,95 @@
+package ulcambridge.foundations.viewer.crowdsourcing.canonical;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TermMergeCandidateIndexTest {
+
+    private final TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+    private final TermMergeCandidateIndex index =
+        new TermMergeCandidateIndex(seeder, 1, 5);
+
+    @Before
+    public void setUp() {
+        seeder.seed();
+    }
+
+    private void add(String name, int count) {
+        for(int i = 0; i < count; ++i) {
+            index.onTermsChanged(new TermsChangedEvent(
+                null, "doc", TermType.ANNOTATION,
+                Collections.singletonList(new Term(name, 1, 1)),
+                Collections.emptyList()));
+        }
+    }
+
+    private static List<String> describe(List<MergeCandidate> candidates) {
+        return candidates.stream()
+            .map(c -> c.getVariant() + ":" + c.getVariantCount() + " -> " +
+                      c.getCanonical() + ":" + c.getCanonicalCount())
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testVariantsAreMergedIntoMoreUsedNames() {
+        add("Huxley", 5);
+        add("huxly", 1);
+        add("Huxly", 1);
+        add("Huxleys", 1);
+        add("Galapagos", 3);
+        add("Galapogos", 3);
+        add("Beagle", 4);
+        add("Cats", 3);
+        add("Cat", 1);   // too short to be compared
+        add("Newton", 2);
+
+        assertThat(describe(index.getMergeCandidates(10, 10)), is(Arrays.asList(
+            "Huxleys:1 -> Huxley:5",
+            "Huxly:2 -> Huxley:5",
+            "Galapogos:3 -> Galapagos:3")));
+
+        assertThat(index.getMergeCandidates(1, 10).size(), is(2));
+        assertThat(index.getMergeCandidates(10, 1).size(), is(1));
+    }
+
+    @Test
+    public void testUnusedNamesAreNotCandidates() {
+        add("Huxley", 2);
+        add("Huxly", 1);
+        index.onTermsChanged(new TermsChangedEvent(
+            null, "doc", TermType.ANNOTATION, Collections.emptyList(),
+            Collections.singletonList(new Term("Huxly", 1, 1))));
+
+        assertThat(index.getMergeCandidates(10, 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testBKTreeFindsStringsWithinDistance() {
+        BKTree tree = new BKTree();
+        for(String s : Arrays.asList("book", "books", "boo", "cake", "cape",
+                                     "boon", "cook", "cart"))
+            tree.add(s);
+        assertThat(tree.add("book"), is(false));
+        assertThat(tree.size(), is(8));
+
+        List<String> found = new ArrayList<>();
+        tree.search("bool", 1, (s, d) -> found.add(s + ":" + d));
+        Collections.sort(found);
+
+        assertThat(found, is(Arrays.asList("boo:1", "book:1", "boon:1")));
+    }
+}
@@ -0,0 +1,125 @@
+package ulcambridge.foundations.viewer.crowdsourcing.compression;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static ulcambridge.foundations.viewer.crowdsourcing.compression.ContentCoding.DEFLATE;
+import static ulcambridge.foundations.viewer.crowdsourcing.compression.ContentCoding.GZIP;
+
+public class ResponseCompressorTest {
+
+    private static final ResponseCompressor COMPRESSOR =
+        new ResponseCompressor(Arrays.asList(GZIP, DEFLATE), 100);
+
+    private static byte[] body(int repeats) {
+        StringBuilder rdf = new StringBuilder();
+        for(int i = 0; i < repeats; ++i)
+            rdf.append("<rdf:Description rdf:about=\"#").append(i)
+               .append("\"><dc:subject>newton</dc:subject></rdf:Description>");
+        return rdf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try(InputStream stream = in) {
+            return ByteStreams.toByteArray(stream);
+        }
+    }
+
+    @Test
+    public void testNegotiation() {
+        assertThat(COMPRESSOR.negotiate(null), nullValue());
+        assertThat(COMPRESSOR.negotiate(""), nullValue());
+        assertThat(COMPRESSOR.negotiate("br"), nullValue());
+        assertThat(COMPRESSOR.negotiate("gzip, deflate, br"), is(GZIP));
+        assertThat(COMPRESSOR.negotiate("deflate, gzip"), is(GZIP));
+        assertThat(COMPRESSOR.negotiate("gzip;q=0.5, deflate"), is(DEFLATE));
+        assertThat(COMPRESSOR.negotiate("GZIP ; Q=0.0"), nullValue());
+        assertThat(COMPRESSOR.negotiate("*"), is(GZIP));
+        assertThat(COMPRESSOR.negotiate("gzip;q=0, *;q=0.1"), is(DEFLATE));
+        assertThat(COMPRESSOR.negotiate("identity, gzip;q=0.5"), nullValue());
+        assertThat(COMPRESSOR.negotiate("gzip;q=x"), nullValue());
+
+        assertThat(new ResponseCompressor(Collections.emptyList(), 0)
+                       .negotiate("gzip"), nullValue());
+    }
+
+    @Test
+    public void testCodingsRoundTrip() throws IOException {
+        byte[] body = body(100);
+
+        byte[] gzip = COMPRESSOR.compress(body, GZIP);
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(gzip))),
+                   is(body));
+        byte[] deflate = COMPRESSOR.compress(body, DEFLATE);
+        assertThat(read(new InflaterInputStream(
+                       new ByteArrayInputStream(deflate))), is(body));
+    }
+
+    @Test
+    public void testSmallAndIncompressibleBodiesAreNotCompressed() {
+        assertThat(COMPRESSOR.compress(new byte[99], GZIP), nullValue());
+
+        byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        assertThat(COMPRESSOR.compress(random, GZIP), nullValue());
+    }
+
+    @Test
+    public void testVariantsAreCompressedOnce() {
+        ResponseCompressor compressor =
+            new ResponseCompressor(Arrays.asList(GZIP, DEFLATE), 100);
+        byte[] identity = body(100);
+        PrecompressedBody body = new PrecompressedBody(compressor, identity);
+
+        PrecompressedBody.Encoded gzip = body.select("gzip");
+        assertThat(gzip.getCoding(), is(GZIP));
+        assertThat(body.select("gzip").getBody(), sameInstance(gzip.getBody()));
+        assertThat(body.select("deflate").getCoding(), is(DEFLATE));
+        assertThat(body.select(null).getBody(), sameInstance(identity));
+
+        assertThat(compressor.getCompressionCount(), is(2L));
+        assertThat(compressor.getBytesCompressed(), is(2L * identity.length));
+        assertThat(compressor.getCompressedResponseCount(), is(3L));
+        assertThat(compressor.getBytesSaved() > 2L * identity.length,
+                   is(true));
+
+        PrecompressedBody small = new PrecompressedBody(compressor, body(1));
+        assertThat(small.select("gzip").getCoding(), nullValue());
+        assertThat(small.select("gzip").getCoding(), nullValue());
+        assertThat(compressor.getCompressionCount(), is(2L));
+    }
+
+    @Test
+    public void testCachedBodiesAreRenderedOncePerVersion() {
+        VersionedBodyCache<String> cache = new VersionedBodyCache<>(
+            COMPRESSOR, 1 << 20, 1, TimeUnit.HOURS);
+        int[] renders = {0};
+        VersionedBodyCache.Renderer<RuntimeException> renderer = () -> {
+            ++renders[0];
+            return body(10);
+        };
+
+        PrecompressedBody first = cache.get("export", "v1", renderer);
+        assertThat(cache.get("export", "v1", renderer), sameInstance(first));
+        assertThat(renders[0], is(1));
+
+        cache.get("export", "v2", renderer);
+        assertThat(renders[0], is(2));
+        assertThat(cache.size(), is(1L));
+    }
+}
@@ -0,0 +1,122 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit;
+import ulcambridge.foundations.viewer.crowdsourcing.async.AdaptiveConcurrencyLimit.Priority;
+import ulcambridge.foundations.viewer.crowdsourcing.async.ServiceOverloadedException;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LoadSheddingCrowdsourcingDaoTest {
+
+    /**
+     * A stand-in for the database DAO whose every call takes the given time
+     * and returns nothing.
+     */
+    private static CrowdsourcingDao slowDao(AtomicLong delayMillis) {
+        return (CrowdsourcingDao) Proxy.newProxyInstance(
+            CrowdsourcingDao.class.getClassLoader(),
+            new Class<?>[] { CrowdsourcingDao.class },
+            (proxy, method, args) -> {
+                Thread.sleep(delayMillis.get());
+                if(method.getReturnType() == boolean.class)
+                    return false;
+                if(method.getReturnType() == int.class)
+                    return 0;
+                return null;
+            });
+    }
+
+    /** Read tag clouds from a number of threads for a while. */
+    private static void readConcurrently(
+        CrowdsourcingDao dao, int threads, long durationMillis)
+        throws InterruptedException {
+
+        long end = System.nanoTime() +
+                   TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Thread> readers = new ArrayList<>();
+        for(int i = 0; i < threads; ++i) {
+            Thread reader = new Thread(() -> {
+                while(System.nanoTime() - end < 0) {
+                    try {
+                        dao.getTagsByDocument("MS-TEST-00001");
+                    }
+                    catch(ServiceOverloadedException e) {
+                        try {
+                            Thread.sleep(1);
+                        }
+                        catch(InterruptedException e1) {
+                            return;
+                        }
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for(Thread reader : readers)
+            reader.join();
+    }
+
+    @Test
+    public void testLimitShrinksAsLatencyRises() throws Exception {
+        AtomicLong delay = new AtomicLong(2);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 32);
+        CrowdsourcingDao dao =
+            new LoadSheddingCrowdsourcingDao(slowDao(delay), limit);
+
+        readConcurrently(dao, 24, 400);
+        double healthyLimit = limit.getLimit();
+        assertThat(healthyLimit > 8, is(true));
+
+        delay.set(20);
+        readConcurrently(dao, 24, 300);
+        assertThat(limit.getLimit() < healthyLimit / 2, is(true));
+        assertThat(limit.getRefusedCount(Priority.READ) > 0, is(true));
+        assertThat(limit.getInFlightCount(), is(0));
+    }
+
+    @Test
+    public void testExportsAreShedBeforeReadsAndReadsBeforeWrites()
+        throws Exception {
+
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 8, 8);
+        CrowdsourcingDao dao =
+            new LoadSheddingCrowdsourcingDao(slowDao(new AtomicLong()), limit);
+
+        List<AdaptiveConcurrencyLimit.Permit> running = new ArrayList<>();
+        for(int i = 0; i < 4; ++i)
+            running.add(limit.tryAcquire(Priority.WRITE));
+
+        try {
+            dao.getAnnotationsByUser("alice");
+            fail("Export wasn't refused");
+        }
+        catch(ServiceOverloadedException e) { }
+        dao.getTagsByDocument("MS-TEST-00001");
+
+        for(int i = 0; i < 2; ++i)
+            running.add(limit.tryAcquire(Priority.WRITE));
+
+        try {
+            dao.getTagsByDocument("MS-TEST-00001");
+            fail("Read wasn't refused");
+        }
+        catch(ServiceOverloadedException e) { }
+        dao.removeAnnotations("alice", "MS-TEST-00001", new ArrayList<>());
+
+        running.forEach(AdaptiveConcurrencyLimit.Permit::release);
+        dao.getAnnotationsByUser("alice");
+        assertThat(limit.getRefusedCount(Priority.EXPORT), is(1L));
+        assertThat(limit.getRefusedCount(Priority.READ), is(1L));
+        assertThat(limit.getRefusedCount(Priority.WRITE), is(0L));
+    }
+}
@@ -0,0 +1,95 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StoredTermsCodec.Mode;
+import ulcambridge.foundations.viewer.crowdsourcing.model.AnnotationModelModule;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentAnnotations;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTags;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StoredTermsCodecTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModules(new Jdk8Module(),
+                         new ParameterNamesModule(JsonCreator.Mode.PROPERTIES),
+                         new AnnotationModelModule());
+
+    private static DocumentTags tags(String name) {
+        return new DocumentTags("user1", "MS-FOO-00001",
+                                Collections.singletonList(new Tag(name, 1, 1)));
+    }
+
+    private static StoredTermsCodec codec(Mode mode) {
+        return new StoredTermsCodec(MAPPER, mode);
+    }
+
+    @Test
+    public void testModesWriteTheirFormats() {
+        DocumentTags tags = tags("newton");
+
+        assertThat(codec(Mode.JSON).writeJson(tags), notNullValue());
+        assertThat(codec(Mode.JSON).writeBinary(tags), nullValue());
+        assertThat(codec(Mode.DUAL).writeJson(tags), notNullValue());
+        assertThat(codec(Mode.DUAL).writeBinary(tags), notNullValue());
+        assertThat(codec(Mode.BINARY).writeJson(tags), nullValue());
+        assertThat(codec(Mode.BINARY).writeBinary(tags), notNullValue());
+    }
+
+    @Test
+    public void testModesPreferTheirFormat() throws IOException {
+        StoredTermsCodec dual = codec(Mode.DUAL);
+        String json = dual.writeJson(tags("json"));
+        byte[] binary = dual.writeBinary(tags("binary"));
+
+        StoredTermsCodec jsonCodec = codec(Mode.JSON);
+        assertThat(jsonCodec.read(DocumentTags.class, json, binary)
+                       .getTerms().get(0).getName(), is("json"));
+        assertThat(jsonCodec.read(DocumentTags.class, null, binary)
+                       .getTerms().get(0).getName(), is("binary"));
+        assertThat(jsonCodec.getJsonReadCount(), is(1L));
+        assertThat(jsonCodec.getBinaryReadCount(), is(1L));
+
+        StoredTermsCodec binaryCodec = codec(Mode.BINARY);
+        assertThat(binaryCodec.read(DocumentTags.class, json, binary)
+                       .getTerms().get(0).getName(), is("binary"));
+        assertThat(binaryCodec.read(DocumentTags.class, json, null)
+                       .getTerms().get(0).getName(), is("json"));
+        assertThat(binaryCodec.read(DocumentTags.class, null, null),
+                   nullValue());
+    }
+
+    @Test
+    public void testDualReadsAreVerified() throws IOException {
+        StoredTermsCodec dual = codec(Mode.DUAL);
+        DocumentTags tags = tags("newton");
+        String json = dual.writeJson(tags);
+
+        dual.read(DocumentTags.class, json, dual.writeBinary(tags));
+        assertThat(dual.getVerifiedReadCount(), is(1L));
+        assertThat(dual.getMismatchedReadCount(), is(0L));
+
+        assertThat(dual.read(DocumentTags.class, json,
+                             dual.writeBinary(tags("hooke")))
+                       .getTerms().get(0).getName(), is("newton"));
+        assertThat(dual.getMismatchedReadCount(), is(1L));
+
+        // Binary columns holding the wrong kind of terms are mismatches
+        byte[] annotations = dual.writeBinary(new DocumentAnnotations(
+            "user1", "MS-FOO-00001", Collections.emptyList()));
+        dual.read(DocumentTags.class, json, annotations);
+        assertThat(dual.getMismatchedReadCount(), is(2L));
+        assertThat(dual.getVerifiedReadCount(), is(3L));
+    }
+}
@@ -0,0 +1,29 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Stand-ins for the {@link CrowdsourcingDao}, for tests of the state derived
+ * from it.
+ */
+public final class StubDaos {
+
+    private static final CrowdsourcingDao EMPTY = (CrowdsourcingDao)
+        Proxy.newProxyInstance(
+            CrowdsourcingDao.class.getClassLoader(),
+            new Class<?>[] {CrowdsourcingDao.class},
+            (proxy, method, args) -> {
+                if(method.getName().equals("replayTerms"))
+                    return 0L;
+                throw new UnsupportedOperationException();
+            });
+
+    private StubDaos() { }
+
+    /**
+     * @return The DAO of an empty database, which can only replay its terms.
+     */
+    public static CrowdsourcingDao empty() {
+        return EMPTY;
+    }
+}
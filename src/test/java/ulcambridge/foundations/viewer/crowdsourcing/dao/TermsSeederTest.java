@@ -0,0 +1,143 @@
+package ulcambridge.foundations.viewer.crowdsourcing.dao;
+
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TermsSeederTest {
+
+    @FunctionalInterface
+    private interface Replay {
+        long replay(Set<TermType> types,
+                    Consumer<? super TermsChangedEvent> consumer);
+    }
+
+    private static CrowdsourcingDao replayingDao(Replay replay) {
+        return (CrowdsourcingDao) Proxy.newProxyInstance(
+            CrowdsourcingDao.class.getClassLoader(),
+            new Class<?>[] {CrowdsourcingDao.class},
+            (proxy, method, args) -> {
+                if(!method.getName().equals("replayTerms"))
+                    throw new UnsupportedOperationException();
+
+                @SuppressWarnings("unchecked")
+                Set<TermType> types = (Set<TermType>) args[0];
+                @SuppressWarnings("unchecked")
+                Consumer<? super TermsChangedEvent> consumer =
+                    (Consumer<? super TermsChangedEvent>) args[1];
+                return replay.replay(types, consumer);
+            });
+    }
+
+    private static TermsChangedEvent event(
+        long sequence, TermType type, String name) {
+
+        return new TermsChangedEvent(
+            sequence, "alice", "doc", type,
+            Collections.singletonList(new Term(name, 1, 1)),
+            Collections.emptyList());
+    }
+
+    private static List<String> names(List<TermsChangedEvent> events) {
+        List<String> names = new ArrayList<>();
+        events.forEach(e -> e.getAdded().forEach(t -> names.add(t.getName())));
+        return names;
+    }
+
+    @Test
+    public void testChangesDuringSeedingAreAppliedOnceAfterTheSnapshot() {
+        List<TermsChangedEvent> applied = new ArrayList<>();
+        AtomicReference<TermsSeeder.Subscriber> subscriber =
+            new AtomicReference<>();
+
+        TermsSeeder seeder = new TermsSeeder(replayingDao((types, consumer) -> {
+            // Published before the snapshot was taken, so included in it
+            subscriber.get().onTermsChanged(
+                event(1, TermType.ANNOTATION, "included"));
+            consumer.accept(event(0, TermType.ANNOTATION, "stored"));
+            consumer.accept(event(0, TermType.ANNOTATION, "included"));
+            // Published after the snapshot
+            subscriber.get().onTermsChanged(
+                event(3, TermType.ANNOTATION, "during"));
+            subscriber.get().onTermsChanged(
+                event(4, TermType.TAG, "other type"));
+            return 2;
+        }));
+        subscriber.set(seeder.subscribe(
+            "test", EnumSet.of(TermType.ANNOTATION), applied::add));
+
+        assertThat(subscriber.get().isSeeded(), is(false));
+        seeder.seed();
+        assertThat(subscriber.get().isSeeded(), is(true));
+        assertThat(names(applied),
+                   is(Arrays.asList("stored", "included", "during")));
+
+        subscriber.get().onTermsChanged(
+            event(5, TermType.ANNOTATION, "after"));
+        assertThat(names(applied),
+                   is(Arrays.asList("stored", "included", "during", "after")));
+    }
+
+    @Test
+    public void testSubscribersShareOneReplayOfTheirTypes() {
+        List<Set<TermType>> replays = new ArrayList<>();
+        TermsSeeder seeder = new TermsSeeder(replayingDao((types, consumer) -> {
+            replays.add(types);
+            consumer.accept(event(0, TermType.ANNOTATION, "annotation"));
+            consumer.accept(event(0, TermType.TAG, "tag"));
+            return 0;
+        }));
+
+        List<TermsChangedEvent> annotations = new ArrayList<>();
+        List<TermsChangedEvent> all = new ArrayList<>();
+        AtomicInteger seeded = new AtomicInteger();
+        seeder.subscribe("annotations", EnumSet.of(TermType.ANNOTATION),
+                         annotations::add, seeded::incrementAndGet);
+        seeder.subscribe("all", EnumSet.of(TermType.ANNOTATION, TermType.TAG),
+                         all::add, seeded::incrementAndGet);
+
+        seeder.seed();
+        assertThat(replays, is(Collections.singletonList(
+            EnumSet.of(TermType.ANNOTATION, TermType.TAG))));
+        assertThat(names(annotations),
+                   is(Collections.singletonList("annotation")));
+        assertThat(names(all), is(Arrays.asList("annotation", "tag")));
+        assertThat(seeded.get(), is(2));
+    }
+
+    @Test
+    public void testChangesDuringAFailedSeedAreAllApplied() {
+        List<TermsChangedEvent> applied = new ArrayList<>();
+        AtomicReference<TermsSeeder.Subscriber> subscriber =
+            new AtomicReference<>();
+
+        TermsSeeder seeder = new TermsSeeder(replayingDao((types, consumer) -> {
+            subscriber.get().onTermsChanged(
+                event(1, TermType.ANNOTATION, "during"));
+            throw new IllegalStateException("The database is down");
+        }));
+        subscriber.set(seeder.subscribe(
+            "test", EnumSet.allOf(TermType.class), applied::add));
+
+        seeder.seed();
+        assertThat(subscriber.get().isSeeded(), is(false));
+        assertThat(names(applied), is(Collections.singletonList("during")));
+
+        subscriber.get().onTermsChanged(event(2, TermType.TAG, "after"));
+        assertThat(names(applied), is(Arrays.asList("during", "after")));
+    }
+}
@@ -0,0 +1,69 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures replacing the annotation matching an added one, as
+ * {@code CrowdsourcingDBDao.addAnnotation} does, by partitioning a user's
+ * annotations of a document on {@link Annotation#equals(Object)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationDedupeBenchmark {
+
+    @Param({"5000"})
+    public int annotationCount;
+
+    private List<Annotation> annotations;
+    private Annotation added;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        annotations = new ArrayList<>(annotationCount);
+        for(int i = 0; i < annotationCount; ++i) {
+            double x = random.nextInt(4000), y = random.nextInt(4000);
+            annotations.add(new Annotation(
+                "term-" + random.nextInt(300), 1, 1, "tag", "person",
+                1 + random.nextInt(300), UUID.randomUUID(), Instant.now(),
+                Position.of("point", x, y)));
+        }
+        Annotation existing = annotations.get(annotationCount / 2);
+        added = new Annotation(
+            existing.getName(), 1, 1, existing.getTarget(), existing.getType(),
+            existing.getPage(), UUID.randomUUID(), Instant.now(),
+            existing.getPosition());
+    }
+
+    @Benchmark
+    public List<Annotation> partition() {
+        Map<Boolean, List<Annotation>> partitioned = annotations.stream()
+            .collect(Collectors.partitioningBy(added::equals));
+        List<Annotation> kept = partitioned.get(false);
+        kept.add(added);
+        return kept;
+    }
+}
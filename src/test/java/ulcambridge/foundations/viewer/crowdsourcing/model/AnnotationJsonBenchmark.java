@@ -0,0 +1,101 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing a user's annotations of a document, as the
+ * DAO does, with the {@link AnnotationModelModule} streaming serializers and
+ * with the reflective serializers derived from the model's annotations.
+ *
+ * <p>Run with {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationJsonBenchmark {
+
+    @Param({"100"})
+    public int annotationCount;
+
+    private ObjectReader reflectiveReader;
+    private ObjectWriter reflectiveWriter;
+    private ObjectReader streamingReader;
+    private ObjectWriter streamingWriter;
+
+    private DocumentAnnotations annotations;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper reflective = AnnotationModelModuleTest.reflectiveMapper();
+        ObjectMapper streaming = AnnotationModelModuleTest.streamingMapper();
+        reflectiveReader = reflective.readerFor(DocumentAnnotations.class);
+        reflectiveWriter = reflective.writerFor(DocumentAnnotations.class);
+        streamingReader = streaming.readerFor(DocumentAnnotations.class);
+        streamingWriter = streaming.writerFor(DocumentAnnotations.class);
+
+        Random random = new Random(42);
+        List<Annotation> list = new ArrayList<>(annotationCount);
+        for(int i = 0; i < annotationCount; ++i) {
+            double x = random.nextInt(4000), y = random.nextInt(4000);
+            double w = 1 + random.nextInt(500), h = 1 + random.nextInt(500);
+            Position position = new Position("rect", Arrays.asList(
+                new Point2D(x, y), new Point2D(x + w, y),
+                new Point2D(x + w, y + h), new Point2D(x, y + h),
+                new Point2D(x, y)));
+            list.add(new Annotation(
+                "term-" + random.nextInt(2000), 1, 1, "tag", "person",
+                1 + random.nextInt(300), new UUID(random.nextLong(),
+                                                  random.nextLong()),
+                Instant.ofEpochSecond(1400000000L + random.nextInt(1 << 28)),
+                position));
+        }
+        annotations = new DocumentAnnotations("user1", "MS-FOO-00001", list);
+        json = reflectiveWriter.writeValueAsBytes(annotations);
+    }
+
+    @Benchmark
+    public DocumentAnnotations readReflective() throws IOException {
+        return reflectiveReader.readValue(json);
+    }
+
+    @Benchmark
+    public DocumentAnnotations readStreaming() throws IOException {
+        return streamingReader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] writeReflective() throws IOException {
+        return reflectiveWriter.writeValueAsBytes(annotations);
+    }
+
+    @Benchmark
+    public byte[] writeStreaming() throws IOException {
+        return streamingWriter.writeValueAsBytes(annotations);
+    }
+}
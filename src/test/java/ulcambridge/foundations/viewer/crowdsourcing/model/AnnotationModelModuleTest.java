@@ -0,0 +1,170 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AnnotationModelModuleTest {
+
+    /** Configured as the Spring Boot ObjectMapper is. */
+    static ObjectMapper reflectiveMapper() {
+        return reflectiveMapper(new JsonFactory());
+    }
+
+    static ObjectMapper reflectiveMapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
+            .registerModules(new GuavaModule(), new Jdk8Module(),
+                             new ParameterNamesModule(
+                                 JsonCreator.Mode.PROPERTIES))
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    static ObjectMapper streamingMapper() {
+        return streamingMapper(new JsonFactory());
+    }
+
+    static ObjectMapper streamingMapper(JsonFactory factory) {
+        return reflectiveMapper(factory)
+            .registerModule(new AnnotationModelModule());
+    }
+
+    private final ObjectMapper reflective = reflectiveMapper();
+    private final ObjectMapper streaming = streamingMapper();
+
+    private static DocumentAnnotations documentAnnotations() {
+        Position box = new Position("rect", Arrays.asList(
+            new Point2D(1, 2), new Point2D(3.5, 2), new Point2D(3.5, 4),
+            new Point2D(1, 4), new Point2D(1, 2)));
+        return new DocumentAnnotations("user1", "MS-FOO-00001", Arrays.asList(
+            new Annotation("Darwin", 1, 0.5, "tag", "person", 3,
+                           UUID.fromString(
+                               "0b7e9d3c-5a39-4f3e-9a8e-2d1c6f0e8a11"),
+                           Instant.parse("2016-11-02T14:05:09Z"), box),
+            new Annotation("Café \"quoted\"", 1, 1.0, "doc", "about", 0,
+                           null, null, new Position(null,
+                                                    Collections.emptyList())),
+            new Annotation((String)null, 0, 0, null, null, 7, null, null, null)));
+    }
+
+    private void assertSameJson(Object value) throws IOException {
+        assertThat(streaming.writeValueAsString(value),
+                   is(reflective.writeValueAsString(value)));
+    }
+
+    private <T> void assertReadsTheSame(String json, Class<T> type)
+        throws IOException {
+
+        assertThat(
+            reflective.writeValueAsString(streaming.readValue(json, type)),
+            is(reflective.writeValueAsString(reflective.readValue(json, type))));
+    }
+
+    @Test
+    public void testSerializationMatchesReflectiveSerialization()
+        throws IOException {
+
+        DocumentAnnotations doc = documentAnnotations();
+
+        assertSameJson(doc);
+        assertSameJson(doc.getTerms());
+        assertSameJson(doc.getTerms().get(0).getPosition());
+        assertSameJson(new Term("foo", 3, 1.5));
+        assertSameJson(new Term((String)null, 0, 0));
+        assertSameJson(new Tag("foo", -1, -2.25));
+        assertSameJson(new DocumentAnnotations(null, "MS-FOO-00001",
+                                               Collections.emptyList()));
+    }
+
+    @Test
+    public void testDeserializationMatchesReflectiveDeserialization()
+        throws IOException {
+
+        String json = reflective.writeValueAsString(documentAnnotations());
+        assertReadsTheSame(json, DocumentAnnotations.class);
+
+        // Defaulted and null values, unknown and ignored properties, and
+        // fields in an unusual order
+        assertReadsTheSame(
+            "{\"annotations\": [{\"raw\": 2, \"extra\": {\"a\": [1]}, " +
+            "\"name\": \"x\", \"value\": null, \"page\": 2.0, " +
+            "\"position\": {\"coordinates\": [{\"y\": 1, \"x\": 2}]}}, " +
+            "{\"raw\": \"4\", \"date\": \"2016-11-02 14:05:09 GMT\", " +
+            "\"uuid\": null}], \"terms\": [{\"name\": \"ignored\"}], " +
+            "\"docId\": \"MS-FOO-00001\"}",
+            DocumentAnnotations.class);
+
+        assertReadsTheSame("{\"name\": \"a\", \"raw\": 3}", Tag.class);
+        assertReadsTheSame("{\"name\": \"a\", \"raw\": 3, \"value\": 0.25}",
+                           Tag.class);
+        assertReadsTheSame("{\"name\": \"a\", \"raw\": 3}", Term.class);
+        assertReadsTheSame("{\"type\": \"point\", \"coordinates\": []}",
+                           Position.class);
+    }
+
+    @Test
+    public void testUuidsRoundTrip() throws IOException {
+        for(int i = 0; i < 100; ++i) {
+            UUID uuid = UUID.randomUUID();
+            String json = streaming.writeValueAsString(new Annotation(
+                "a", 1, 1, "tag", "about", 1, uuid, null, null));
+
+            assertThat(json, is(reflective.writeValueAsString(
+                reflective.readValue(json, Annotation.class))));
+            assertThat(streaming.readValue(json, Annotation.class).getUuid(),
+                       is(uuid));
+        }
+        assertThat(AnnotationModelModule.parseUuid("1-2-3-4-5"),
+                   is(UUID.fromString("1-2-3-4-5")));
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testPositionRequiresCoordinates() throws IOException {
+        streaming.readValue("{\"type\": \"point\"}", Position.class);
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testDocumentAnnotationsRequiresDocId() throws IOException {
+        streaming.readValue("{\"annotations\": []}",
+                            DocumentAnnotations.class);
+    }
+
+    @Test
+    public void testValuesOfTheWrongShapeFail() throws IOException {
+        String[] invalid = {
+            "{\"docId\": \"MS-FOO-00001\", \"annotations\": {}}",
+            "{\"docId\": \"MS-FOO-00001\", \"annotations\": [[]]}",
+            "{\"docId\": \"MS-FOO-00001\", \"annotations\": " +
+            "[{\"position\": {\"coordinates\": 1}}]}"
+        };
+        for(String json : invalid) {
+            try {
+                streaming.readValue(json, DocumentAnnotations.class);
+                fail("Read invalid JSON: " + json);
+            }
+            catch(JsonMappingException e) { }
+        }
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testUnknownPropertiesFailWhenConfiguredTo() throws IOException {
+        streaming.copy()
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .readValue("{\"name\": \"a\", \"colour\": \"red\"}", Tag.class);
+    }
+}
@@ -0,0 +1,57 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AnnotationTest {
+
+    private static Annotation annotation(
+        String name, String target, int page, Position position, long uuid) {
+
+        return new Annotation(name, 1, 1, target, "person", page,
+                              new UUID(0, uuid), null, position);
+    }
+
+    private static final Annotation PRINCIPIA = annotation(
+        "principia", "tag", 1, Position.of("point", 1, 2), 1);
+    private static final Annotation MICROGRAPHIA = annotation(
+        "micrographia", "tag", 1, Position.of("point", 1, 2), 2);
+    private static final Annotation OPTICKS = annotation(
+        "opticks", "doc", 1, Position.EMPTY, 3);
+
+    @Test
+    public void testIdentity() {
+        // tag annotations are identified by name, page, type and position
+        Annotation moved = annotation("principia", "tag", 1,
+                                      Position.of("point", 1, 3), 4);
+        Annotation same = annotation("principia", "tag", 1,
+                                     Position.of("point", 1, 2), 5);
+        assertThat(same.equals(PRINCIPIA), is(true));
+        assertThat(same.hashCode(), is(PRINCIPIA.hashCode()));
+        assertThat(moved.equals(PRINCIPIA), is(false));
+        assertThat(MICROGRAPHIA.equals(PRINCIPIA), is(false));
+
+        // doc annotations ignore name and position
+        Annotation otherDoc = annotation("hydrostatics", "doc", 1,
+                                         Position.of("point", 0, 0), 6);
+        assertThat(otherDoc.equals(OPTICKS), is(true));
+        assertThat(otherDoc.hashCode(), is(OPTICKS.hashCode()));
+        assertThat(annotation("opticks", "doc", 2, Position.EMPTY, 7)
+                       .equals(OPTICKS), is(false));
+    }
+
+    @Test
+    public void testAnnotationsWithoutTargetsCanBeCompared() {
+        Annotation untargeted = annotation("principia", null, 1,
+                                           Position.of("point", 1, 2), 10);
+
+        assertThat(untargeted.equals(PRINCIPIA), is(false));
+        assertThat(PRINCIPIA.equals(untargeted), is(false));
+        assertThat(untargeted.equals(annotation(
+            "principia", null, 1, Position.of("point", 1, 2), 11)), is(true));
+    }
+}
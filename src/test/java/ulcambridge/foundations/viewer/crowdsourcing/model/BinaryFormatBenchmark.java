@@ -0,0 +1,99 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing a user's annotations of a document as JSON,
+ * Smile and CBOR, with the {@link AnnotationModelModule} serializers.
+ *
+ * <p>The size of each encoding is printed during setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"100"})
+    public int annotationCount;
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+
+    private DocumentAnnotations annotations;
+    private byte[] encoded;
+
+    private static JsonFactory factory(String format) {
+        switch(format) {
+            case "json": return new JsonFactory();
+            case "smile": return new SmileFactory();
+            case "cbor": return new CBORFactory();
+            default: throw new IllegalArgumentException(format);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper =
+            AnnotationModelModuleTest.streamingMapper(factory(format));
+        reader = mapper.readerFor(DocumentAnnotations.class);
+        writer = mapper.writerFor(DocumentAnnotations.class);
+
+        Random random = new Random(42);
+        List<Annotation> list = new ArrayList<>(annotationCount);
+        for(int i = 0; i < annotationCount; ++i) {
+            double x = random.nextInt(4000), y = random.nextInt(4000);
+            double w = 1 + random.nextInt(500), h = 1 + random.nextInt(500);
+            list.add(new Annotation(
+                "term-" + random.nextInt(2000), 1, 1, "tag", "person",
+                1 + random.nextInt(300), new UUID(random.nextLong(),
+                                                  random.nextLong()),
+                Instant.ofEpochSecond(1400000000L + random.nextInt(1 << 28)),
+                Position.of("rect", x, y, x + w, y, x + w, y + h, x, y + h,
+                            x, y)));
+        }
+        annotations = new DocumentAnnotations("user1", "MS-FOO-00001", list);
+        encoded = writer.writeValueAsBytes(annotations);
+
+        System.out.printf("%n%s: %d bytes%n", format, encoded.length);
+    }
+
+    @Benchmark
+    public DocumentAnnotations read() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(annotations);
+    }
+}
@@ -0,0 +1,98 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing the stored form of a user's annotations of a
+ * document as JSON, with the {@link AnnotationModelModule} serializers, and
+ * in {@link BinaryTermsFormat}.
+ *
+ * <p>The size of each encoding is printed during setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryTermsFormatBenchmark {
+
+    @Param({"100"})
+    public int annotationCount;
+
+    private ObjectReader jsonReader;
+    private ObjectWriter jsonWriter;
+
+    private DocumentAnnotations annotations;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = AnnotationModelModuleTest.streamingMapper();
+        jsonReader = mapper.readerFor(DocumentAnnotations.class);
+        jsonWriter = mapper.writerFor(DocumentAnnotations.class);
+
+        // Users annotate pages with a few hundred distinct terms
+        Random random = new Random(42);
+        List<Annotation> list = new ArrayList<>(annotationCount);
+        for(int i = 0; i < annotationCount; ++i) {
+            double x = random.nextInt(4000), y = random.nextInt(4000);
+            double w = 1 + random.nextInt(500), h = 1 + random.nextInt(500);
+            list.add(new Annotation(
+                "term-" + random.nextInt(300), 1, 1, "tag", "person",
+                1 + random.nextInt(300), new UUID(random.nextLong(),
+                                                  random.nextLong()),
+                Instant.ofEpochSecond(1400000000L + random.nextInt(1 << 28)),
+                Position.of("rect", x, y, x + w, y, x + w, y + h, x, y + h,
+                            x, y)));
+        }
+        annotations = new DocumentAnnotations("user1", "MS-FOO-00001", list);
+        json = jsonWriter.writeValueAsString(annotations);
+        binary = BinaryTermsFormat.write(annotations);
+
+        System.out.printf("%njson: %d bytes, binary: %d bytes%n",
+                          json.length(), binary.length);
+    }
+
+    @Benchmark
+    public DocumentAnnotations readJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public DocumentTerms readBinary() throws IOException {
+        return BinaryTermsFormat.read(binary);
+    }
+
+    @Benchmark
+    public String writeJson() throws IOException {
+        return jsonWriter.writeValueAsString(annotations);
+    }
+
+    @Benchmark
+    public byte[] writeBinary() {
+        return BinaryTermsFormat.write(annotations);
+    }
+}
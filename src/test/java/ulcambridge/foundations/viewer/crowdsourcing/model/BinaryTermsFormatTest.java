@@ -0,0 +1,117 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryTermsFormatTest {
+
+    private final ObjectMapper mapper =
+        AnnotationModelModuleTest.streamingMapper();
+
+    private static DocumentAnnotations documentAnnotations() {
+        return new DocumentAnnotations("user1", "MS-FOO-00001", Arrays.asList(
+            new Annotation("Ampère", 1, 1, "tag", "person", 3,
+                           new UUID(1, 2),
+                           Instant.parse("2016-11-02T14:05:09Z"),
+                           Position.of("rect", 10, 20, 10, 70, 110, 70, 110,
+                                       20, 10, 20)),
+            new Annotation("Ampère", 2, 0.5, "tag", "person", 4,
+                           new UUID(-1, -2),
+                           Instant.parse("1969-12-31T23:59:59Z"),
+                           Position.of("point", -3.25, 1e300)),
+            new Annotation("cartography", 1, 1, "doc", "about", 0,
+                           UUID.randomUUID(), null, Position.EMPTY),
+            new Annotation((String)null, -7, -0.0, null, null, -1, null, null,
+                           Position.of("point", -0.0, 4))));
+    }
+
+    private void assertSameJson(Object expected, Object actual)
+        throws IOException {
+
+        assertThat(mapper.writeValueAsString(actual),
+                   is(mapper.writeValueAsString(expected)));
+    }
+
+    private static void assertRejected(byte[] value) {
+        try {
+            BinaryTermsFormat.read(value);
+            fail("Read " + Arrays.toString(value));
+        }
+        catch(IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAnnotationsRoundTrip() throws IOException {
+        DocumentAnnotations annotations = documentAnnotations();
+        byte[] binary = BinaryTermsFormat.write(annotations);
+
+        DocumentTerms read = BinaryTermsFormat.read(binary);
+        assertThat(read, instanceOf(DocumentAnnotations.class));
+        assertSameJson(annotations, read);
+        assertThat(read.getTerms().get(0).getNameEntry(),
+                   sameInstance(annotations.getTerms().get(0).getNameEntry()));
+        assertThat(((DocumentAnnotations)read).getTerms().get(1)
+                       .getPosition(),
+                   is(annotations.getTerms().get(1).getPosition()));
+        assertThat(binary.length < mapper.writeValueAsBytes(annotations).length,
+                   is(true));
+    }
+
+    @Test
+    public void testTagsRoundTrip() throws IOException {
+        DocumentTags tags = new DocumentTags("user1", "MS-FOO-00001",
+            Arrays.asList(new Tag("newton", 2, 2), new Tag("hooke", 1, 0.25)));
+
+        DocumentTerms read = BinaryTermsFormat.read(
+            BinaryTermsFormat.write(tags));
+        assertThat(read, instanceOf(DocumentTags.class));
+        assertSameJson(tags, read);
+
+        DocumentTags empty = new DocumentTags(null, "MS-FOO-00001");
+        assertSameJson(empty, BinaryTermsFormat.read(
+            BinaryTermsFormat.write(empty)));
+    }
+
+    @Test
+    public void testInvalidValuesAreRejected() throws IOException {
+        byte[] binary = BinaryTermsFormat.write(documentAnnotations());
+
+        for(int length = 0; length < binary.length; ++length)
+            assertRejected(Arrays.copyOf(binary, length));
+        assertRejected(Arrays.copyOf(binary, binary.length + 1));
+
+        byte[] nextVersion = binary.clone();
+        nextVersion[3] = (byte)(BinaryTermsFormat.VERSION + 1);
+        assertRejected(nextVersion);
+
+        assertRejected(mapper.writeValueAsBytes(documentAnnotations()));
+        assertThat(BinaryTermsFormat.isBinaryTerms(binary), is(true));
+        assertThat(BinaryTermsFormat.isBinaryTerms("{}".getBytes()), is(false));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedCoordinatesAreRejected() throws IOException {
+        DocumentAnnotations annotations = new DocumentAnnotations(
+            "user1", "MS-FOO-00001", Collections.singletonList(
+                new Annotation("x", 1, 1, "tag", "person", 1, null, null,
+                               Position.of("point", 1.5, 2.5))));
+        byte[] binary = BinaryTermsFormat.write(annotations);
+
+        BinaryTermsFormat.read(Arrays.copyOf(binary, binary.length - 1));
+    }
+}
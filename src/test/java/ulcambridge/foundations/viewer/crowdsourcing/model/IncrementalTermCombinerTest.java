@@ -0,0 +1,113 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.junit.Assert.assertThat;
+
+public class IncrementalTermCombinerTest {
+
+    private static Map<TermType, Double> weights() {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 5d);
+        weights.put(TermType.REMOVED_TAG, 2d);
+        return weights;
+    }
+
+    @Test
+    public void testDeltasMatchBatchCombining() {
+        Random random = new Random(3);
+        IncrementalTermCombiner<TermType> incremental =
+            new IncrementalTermCombiner<>(weights());
+        Map<TermType, List<Term>> current = new EnumMap<>(TermType.class);
+        for(TermType type : TermType.values())
+            current.put(type, new ArrayList<>());
+
+        for(int i = 0; i < 10000; ++i) {
+            TermType type = TermType.values()[random.nextInt(3)];
+            List<Term> terms = current.get(type);
+
+            if(!terms.isEmpty() && random.nextInt(3) == 0) {
+                incremental.removeTerm(
+                    type, terms.remove(random.nextInt(terms.size())));
+            }
+            else {
+                Term term = new Term(
+                    "t" + random.nextInt(100), 1, random.nextDouble());
+                terms.add(term);
+                incremental.addTerm(type, term);
+            }
+        }
+
+        TermCombiner<TermType, Term, Term, Map<String, Term>> batch =
+            TermCombiners.weightedToMap(weights()).newInstance();
+        current.forEach((type, terms) -> batch.addTerms(type, terms::stream));
+        Map<String, Term> expected = batch.getCombinedTerms();
+
+        Map<String, Term> actual = incremental.getCombinedTerms().toMap();
+        assertThat(actual.keySet(), is(expected.keySet()));
+        expected.forEach((name, term) -> {
+            assertThat(actual.get(name).getRaw(), is(term.getRaw()));
+            assertThat(actual.get(name).getValue(),
+                       closeTo(term.getValue(), 1e-9));
+        });
+    }
+
+    @Test
+    public void testNamesAreDroppedWhenAllTermsAreRemoved() {
+        IncrementalTermCombiner<TermType> combiner =
+            new IncrementalTermCombiner<>(weights());
+        Term tag = new Term("foo", 1, 0.3);
+
+        combiner.addTerm(TermType.TAG, tag);
+        combiner.addTerm(TermType.ANNOTATION, new Term("bar", 1, 1));
+        combiner.removeTerm(TermType.TAG, tag);
+
+        Map<String, Term> terms = combiner.getCombinedTerms().toMap();
+        assertThat(terms.get("foo"), is(nullValue()));
+        assertThat(terms.get("bar").getValue(), is(1.0));
+    }
+
+    @Test
+    public void testReportedSpellingIsOneStillContributing() {
+        IncrementalTermCombiner<TermType> combiner =
+            new IncrementalTermCombiner<>(weights());
+        Term capitalised = new Term("Bates", 1, 1);
+
+        combiner.addTerm(TermType.ANNOTATION, new Term("bates", 1, 1));
+        combiner.addTerm(TermType.ANNOTATION, capitalised);
+        assertThat(combiner.getCombinedTerms().toTerms().get(0).getName(),
+                   is("Bates"));
+
+        combiner.removeTerm(TermType.ANNOTATION, capitalised);
+        List<Term> terms = combiner.getCombinedTerms().toTerms();
+        assertThat(terms.get(0).getName(), is("bates"));
+        assertThat(terms.get(0).getRaw(), is(1));
+    }
+
+    @Test
+    public void testSnapshotsAreReusedUntilUpdated() {
+        IncrementalTermCombiner<TermType> combiner =
+            new IncrementalTermCombiner<>(weights());
+        combiner.addTerm(TermType.ANNOTATION, new Term("foo", 1, 1));
+
+        IncrementalTermCombiner.Snapshot first = combiner.getCombinedTerms();
+        assertThat(combiner.getCombinedTerms(), is(sameInstance(first)));
+
+        combiner.addTerm(TermType.ANNOTATION, new Term("foo", 1, 1));
+        IncrementalTermCombiner.Snapshot second = combiner.getCombinedTerms();
+
+        assertThat(first.toMap().get("foo").getRaw(), is(1));
+        assertThat(second.toMap().get("foo").getRaw(), is(2));
+    }
+}
@@ -0,0 +1,63 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares formatting and parsing annotation dates in UTC with
+ * {@link JsonDateFormat}'s fixed offset codec and with its
+ * {@link java.time.format.DateTimeFormatter}.
+ *
+ * <p>Run with {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonDateFormatBenchmark {
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private Instant instant;
+    private String date;
+
+    @Setup
+    public void setUp() {
+        instant = Instant.parse("2016-11-02T14:05:09Z");
+        date = JsonDateFormat.formatDate(instant);
+    }
+
+    @Benchmark
+    public String formatWithFormatter() {
+        return JsonDateFormat.DATE_FORMATTER.format(instant.atZone(UTC));
+    }
+
+    @Benchmark
+    public String format() {
+        return JsonDateFormat.formatDate(instant);
+    }
+
+    @Benchmark
+    public Instant parseWithFormatter() {
+        return JsonDateFormat.DATE_FORMATTER.parse(date, Instant::from);
+    }
+
+    @Benchmark
+    public Instant parse() {
+        return JsonDateFormat.parseDate(date);
+    }
+}
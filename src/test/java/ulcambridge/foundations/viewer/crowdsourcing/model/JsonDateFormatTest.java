@@ -0,0 +1,89 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class JsonDateFormatTest {
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private static void assertRoundTrips(Instant instant) {
+        String formatted = JsonDateFormat.formatDate(instant);
+
+        assertThat(formatted,
+                   is(JsonDateFormat.DATE_FORMATTER.format(instant.atZone(UTC))));
+        assertThat(JsonDateFormat.parseDate(formatted),
+                   is(Instant.ofEpochSecond(instant.getEpochSecond())));
+        assertThat(JsonDateFormat.parseDate(formatted),
+                   is(JsonDateFormat.DATE_FORMATTER.parse(
+                       formatted, Instant::from)));
+    }
+
+    private static void assertRejected(String date) {
+        try {
+            JsonDateFormat.parseDate(date);
+            fail("Parsed " + date);
+        }
+        catch(DateTimeParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDatesInUtcRoundTrip() {
+        Random random = new Random(42);
+        long min = Instant.parse("0000-01-01T00:00:00Z").getEpochSecond();
+        long max = Instant.parse("9999-12-31T23:59:59Z").getEpochSecond();
+
+        for(int i = 0; i < 100000; ++i) {
+            long seconds = min + (long)(random.nextDouble() * (max - min));
+            assertRoundTrips(Instant.ofEpochSecond(
+                seconds, random.nextInt(1000000000)));
+        }
+        for(String date : new String[] {
+            "0000-01-01T00:00:00Z", "0000-02-29T12:00:00Z",
+            "1900-02-28T23:59:59Z", "1900-03-01T00:00:00Z",
+            "1969-12-31T23:59:59Z", "1970-01-01T00:00:00Z",
+            "2000-02-29T00:00:00Z", "2016-12-31T23:59:59.999Z",
+            "9999-12-31T23:59:59Z"}) {
+            assertRoundTrips(Instant.parse(date));
+        }
+    }
+
+    @Test
+    public void testDatesInOtherZonesUseTheFormatter() {
+        for(String date : new String[] {
+            "2016-07-01 12:00:00 BST", "2016-07-01 12:00:00 CET",
+            "2016-07-01 12:00:00 PST"}) {
+            assertThat(JsonDateFormat.parseDate(date),
+                       is(JsonDateFormat.DATE_FORMATTER.parse(
+                           date, Instant::from)));
+        }
+        assertThat(JsonDateFormat.parseDate("2016-07-01 12:00:00 GMT"),
+                   is(Instant.parse("2016-07-01T12:00:00Z")));
+    }
+
+    @Test
+    public void testInvalidDatesAreRejected() {
+        assertRejected("2015-02-29 00:00:00 UTC");
+        assertRejected("1900-02-29 00:00:00 UTC");
+        assertRejected("2016-04-31 00:00:00 UTC");
+        assertRejected("2016-13-01 00:00:00 UTC");
+        assertRejected("2016-00-01 00:00:00 UTC");
+        assertRejected("2016-01-01 24:00:00 UTC");
+        assertRejected("2016-01-01 00:60:00 UTC");
+        assertRejected("2016-01-01 00:00:60 UTC");
+        assertRejected("2016-01-01T00:00:00 UTC");
+        assertRejected("2016-1-01 00:00:00 UTC");
+        assertRejected("2016-01-01 00:00:00 XYZ");
+        assertRejected("2016-01-01 00:00:00");
+    }
+}
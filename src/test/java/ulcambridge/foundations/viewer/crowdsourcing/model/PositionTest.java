@@ -0,0 +1,60 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class PositionTest {
+
+    private static final Position RECT = Position.of(
+        "rect", 10, 20, 10, 70, 110.5, 70, 110.5, 20, 10, 20);
+
+    @Test
+    public void testPointsArePacked() {
+        Position fromPoints = new Position("rect", Arrays.asList(
+            new Point2D(10, 20), new Point2D(10, 70),
+            new Point2D(110.5, 70), new Point2D(110.5, 20),
+            new Point2D(10, 20)));
+
+        assertThat(fromPoints, is(RECT));
+        assertThat(fromPoints.hashCode(), is(RECT.hashCode()));
+        assertThat(RECT.getPointCount(), is(5));
+        assertThat(RECT.getX(2), is(110.5));
+        assertThat(RECT.getY(2), is(70d));
+        assertThat(RECT.getCoordinates().get(1).getX(), is(10d));
+        assertThat(RECT.getCoordinates().size(), is(5));
+
+        assertThat(Position.of("rect", 10, 20), is(not(RECT)));
+        assertThat(Position.of("point", 10, 20),
+                   is(not(Position.of("rect", 10, 20))));
+    }
+
+    @Test
+    public void testBoundingBox() {
+        assertThat(RECT.getMinX(), is(10d));
+        assertThat(RECT.getMinY(), is(20d));
+        assertThat(RECT.getMaxX(), is(110.5));
+        assertThat(RECT.getMaxY(), is(70d));
+        assertThat(Position.EMPTY.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFragmentSelector() {
+        assertThat(RECT.formatCoordinatesToFragmentSelector(),
+                   is("10,20,100,50"));
+        assertThat(Position.of("point", 3.7, 4)
+                       .formatCoordinatesToFragmentSelector(),
+                   is("3,4,1,1"));
+        assertThat(Position.EMPTY.formatCoordinatesToFragmentSelector(),
+                   is("0,0,0,0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddCoordinatesAreRejected() {
+        Position.of("point", 1, 2, 3);
+    }
+}
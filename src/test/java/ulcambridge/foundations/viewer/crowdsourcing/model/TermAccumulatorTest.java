@@ -0,0 +1,146 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TermAccumulatorTest {
+
+    @Test
+    public void testDuplicateNamesAreSummed() {
+        TermAccumulator acc = new TermAccumulator();
+        acc.add("foo", 1, 1.5);
+        acc.add(new String("foo"), 2, 0.5);
+        acc.add("bar", -1, -1);
+
+        Map<String, Term> terms = acc.toMap();
+
+        assertThat(acc.size(), is(2));
+        assertThat(terms.get("foo").getRaw(), is(3));
+        assertThat(terms.get("foo").getValue(), is(2.0));
+        assertThat(terms.get("bar").getRaw(), is(-1));
+        assertThat(terms.get("bar").getValue(), is(-1.0));
+    }
+
+    @Test
+    public void testVariantsAreMergedUnderTheSameSpellingInAnyOrder() {
+        TermAccumulator first = new TermAccumulator();
+        first.add("wallace", 1, 1);
+        first.add("Wallace ", 1, 1);
+
+        TermAccumulator second = new TermAccumulator();
+        second.add("Wallace", 1, 1);
+        second.add("wallace", 1, 1);
+
+        for(TermAccumulator acc : Arrays.asList(first, second)) {
+            List<Term> terms = acc.toTerms();
+            assertThat(terms.size(), is(1));
+            assertThat(terms.get(0).getName(), is("Wallace"));
+            assertThat(terms.get(0).getRaw(), is(2));
+        }
+    }
+
+    @Test
+    public void testWeightScalesValueOnly() {
+        TermAccumulator acc = new TermAccumulator();
+        acc.add(new Term("foo", 2, 3), 5);
+
+        Term foo = acc.toTerms().get(0);
+        assertThat(foo.getRaw(), is(2));
+        assertThat(foo.getValue(), is(15.0));
+    }
+
+    @Test
+    public void testMatchesMapBasedMergeAcrossResizes() {
+        Random random = new Random(1);
+        Map<String, int[]> expected = new HashMap<>();
+        TermAccumulator acc = new TermAccumulator(0);
+
+        for(int i = 0; i < 20000; ++i) {
+            String name = "t" + random.nextInt(3000);
+            int raw = random.nextInt(5) - 2;
+            acc.add(name, raw, raw * 2);
+            expected.computeIfAbsent(name, k -> new int[1])[0] += raw;
+        }
+
+        Map<String, Term> actual = acc.toMap();
+        assertThat(actual.size(), is(expected.size()));
+        expected.forEach((name, raw) -> {
+            assertThat(actual.get(name).getRaw(), is(raw[0]));
+            assertThat(actual.get(name).getValue(), is(raw[0] * 2.0));
+        });
+    }
+
+    @Test
+    public void testSelectMatchesSortAndTruncate() {
+        Random random = new Random(2);
+        TermAccumulator acc = new TermAccumulator();
+        for(int i = 0; i < 5000; ++i)
+            acc.add("t" + random.nextInt(1000), 1, random.nextInt(20) - 5);
+
+        List<Term> expected = acc.toTerms().stream()
+            .filter(t -> t.getValue() >= 3)
+            .sorted(Comparator.comparing(Term::getValue).reversed()
+                .thenComparing(Term::getName))
+            .limit(50)
+            .collect(Collectors.toList());
+
+        List<Term> selected = acc.select(3, 50);
+
+        assertThat(selected.size(), is(50));
+        for(int i = 0; i < expected.size(); ++i) {
+            assertThat(selected.get(i).getName(),
+                       is(expected.get(i).getName()));
+            assertThat(selected.get(i).getValue(),
+                       is(expected.get(i).getValue()));
+        }
+    }
+
+    @Test
+    public void testSelectWithoutLimitReturnsAllMatching() {
+        TermAccumulator acc = new TermAccumulator();
+        acc.add("a", 1, 1);
+        acc.add("b", 1, 3);
+        acc.add("c", 1, -1);
+        acc.add("d", 1, 2);
+
+        List<String> names = acc.select(Double.MIN_VALUE, Integer.MAX_VALUE)
+            .stream().map(Term::getName).collect(Collectors.toList());
+
+        assertThat(names, is(Arrays.asList("b", "d", "a")));
+        assertThat(acc.select(0, 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testClearResetsSums() {
+        TermAccumulator acc = new TermAccumulator();
+        acc.add("foo", 5, 5);
+        acc.clear();
+        acc.add("foo", 1, 1);
+
+        assertThat(acc.size(), is(1));
+        assertThat(acc.toTerms().get(0).getRaw(), is(1));
+    }
+
+    @Test
+    public void testCollectorMergesParallelStreams() {
+        Map<String, Term> merged = IntStream.range(0, 10000).parallel()
+            .mapToObj(i -> new Term("t" + (i % 10), 1, 1))
+            .collect(Terms.mergeTerms(true));
+
+        assertThat(merged.keySet(), is(equalTo(IntStream.range(0, 10)
+            .mapToObj(i -> "t" + i).collect(Collectors.toSet()))));
+        merged.values().forEach(t -> assertThat(t.getRaw(), is(1000)));
+    }
+}
@@ -0,0 +1,120 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TermDictionaryTest {
+
+    @Test
+    public void testEqualNamesShareAName() {
+        TermDictionary dictionary = new TermDictionary();
+
+        TermDictionary.Name a = dictionary.intern(new String("foo"));
+        TermDictionary.Name b = dictionary.intern(new String("foo"));
+
+        assertThat(a, is(sameInstance(b)));
+        assertThat(a.getEntry().getId(),
+                   is(not(dictionary.intern("bar").getEntry().getId())));
+        assertThat(dictionary.hitCount(), is(1L));
+        assertThat(dictionary.missCount(), is(2L));
+    }
+
+    @Test
+    public void testNamesAreNormalised() {
+        TermDictionary dictionary = new TermDictionary();
+
+        // "café" with a precomposed é, and with e + combining acute accent
+        TermDictionary.Name composed = dictionary.intern("caf\u00e9");
+        TermDictionary.Name decomposed = dictionary.intern("cafe\u0301");
+
+        assertThat(decomposed, is(sameInstance(composed)));
+        assertThat(decomposed.getName(), is("caf\u00e9"));
+    }
+
+    @Test
+    public void testVariantsDifferingInCaseAndWhitespaceShareAnEntry() {
+        TermDictionary dictionary = new TermDictionary();
+
+        TermDictionary.Name name = dictionary.intern(" Charles\tDarwin ");
+        TermDictionary.Name lower = dictionary.intern("charles  darwin");
+
+        assertThat(name.getName(), is("Charles Darwin"));
+        assertThat(lower.getName(), is("charles darwin"));
+        assertThat(lower.getEntry(), is(sameInstance(name.getEntry())));
+        assertThat(dictionary.intern("CHARLES DARWIN").getEntry(),
+                   is(sameInstance(name.getEntry())));
+        assertThat(dictionary.intern("Charles Darwin"),
+                   is(sameInstance(name)));
+    }
+
+    @Test
+    public void testFindingNamesDoesNotAddThem() {
+        TermDictionary dictionary = new TermDictionary();
+        TermDictionary.Name name = dictionary.intern("Charles Darwin");
+
+        assertThat(dictionary.find("charles  DARWIN"),
+                   is(sameInstance(name.getEntry())));
+        assertThat(dictionary.find("Wallace"), is(nullValue()));
+        assertThat(dictionary.find("Wallace"), is(nullValue()));
+        assertThat(dictionary.size(), is(1L));
+        assertThat(dictionary.hitCount(), is(0L));
+        assertThat(dictionary.missCount(), is(1L));
+    }
+
+    @Test
+    public void testPreferredNameDoesNotDependOnInterningOrder() {
+        TermDictionary first = new TermDictionary();
+        TermDictionary.Name a1 = first.intern("darwin");
+        TermDictionary.Name b1 = first.intern("Darwin");
+
+        TermDictionary second = new TermDictionary();
+        TermDictionary.Name b2 = second.intern("Darwin");
+        TermDictionary.Name a2 = second.intern("darwin");
+
+        assertThat(TermDictionary.preferredName(a1, b1).getName(),
+                   is("Darwin"));
+        assertThat(TermDictionary.preferredName(b1, a1).getName(),
+                   is("Darwin"));
+        assertThat(TermDictionary.preferredName(a2, b2).getName(),
+                   is("Darwin"));
+        assertThat(TermDictionary.preferredName(a1, a1).getName(),
+                   is("darwin"));
+    }
+
+    @Test
+    public void testAliasesAreMergedWithTheCanonicalName() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.addAlias("Darwn", "Darwin");
+
+        TermDictionary.Name alias = dictionary.intern("darwn ");
+        TermDictionary.Name lower = dictionary.intern("darwin");
+
+        assertThat(alias.getName(), is("darwn"));
+        assertThat(alias.getEntry(), is(sameInstance(lower.getEntry())));
+        assertThat(TermDictionary.preferredName(alias, lower).getName(),
+                   is("Darwin"));
+        assertThat(TermDictionary.preferredName(lower, lower).getName(),
+                   is("Darwin"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAliasChainsAreRejected() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.addAlias("Darwn", "Darwin");
+        dictionary.addAlias("Drwn", "darwn");
+    }
+
+    @Test
+    public void testTermsShareNameInstances() {
+        Term a = new Term(new String("foo"), 1, 1);
+        Term b = new Tag(new String("foo"), 1, 1);
+
+        assertThat(a.getInternedName(), is(sameInstance(b.getInternedName())));
+        assertThat(a.getName(), is(sameInstance(b.getName())));
+    }
+}
@@ -0,0 +1,101 @@
+package ulcambridge.foundations.viewer.crowdsourcing.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the weighted term combiner, which merges into a
+ * {@link TermAccumulator}, with the stream collector implementation it
+ * replaced, which created a weighted Term per input and a merged Term per
+ * duplicate.
+ *
+ * <p>Run with {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TermMergeBenchmark {
+
+    @Param({"50000"})
+    public int annotationCount;
+
+    @Param({"2000"})
+    public int vocabularySize;
+
+    private List<Term> annotations;
+    private List<Term> tags;
+    private List<Term> removedTags;
+    private Map<TermType, Double> weights;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>(vocabularySize);
+        for(int i = 0; i < vocabularySize; ++i)
+            names.add("term-" + Integer.toString(random.nextInt(), 36));
+
+        annotations = new ArrayList<>(annotationCount);
+        for(int i = 0; i < annotationCount; ++i) {
+            // Skewed towards the start of the vocabulary, as real tags are
+            String name = names.get(
+                (int)(vocabularySize * Math.pow(random.nextDouble(), 3)));
+            // Copy names, as names parsed from JSON are distinct instances
+            annotations.add(new Term(new String(name), 1, 1));
+        }
+
+        tags = new ArrayList<>();
+        for(int i = 0; i < vocabularySize / 4; ++i)
+            tags.add(new Term(new String(names.get(i)), 5, random.nextDouble()));
+
+        removedTags = new ArrayList<>();
+        for(int i = 0; i < vocabularySize / 20; ++i)
+            removedTags.add(new Term(new String(names.get(i)), -1, -1));
+
+        weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 5d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+    }
+
+    private <C> C combine(TermCombiner<TermType, Term, Term, C> combiner) {
+        return combiner
+            .addTerms(TermType.TAG, tags::stream)
+            .addTerms(TermType.ANNOTATION, annotations::stream)
+            .addTerms(TermType.REMOVED_TAG, removedTags::stream)
+            .getCombinedTerms();
+    }
+
+    @Benchmark
+    public Map<String, Term> streamCollector() {
+        return combine(new TermCombiners.DefaultTermCombiner<
+            TermType, Term, Term, Map<String, Term>, String>(
+            (type, terms) -> terms.map(Terms.weightTerms(weights.get(type))),
+            () -> Terms.<Term, Term, String>mergeTerms(
+                true, Term::getName, Terms::createTerm,
+                Terms::mergeTermsByAddingValues)));
+    }
+
+    @Benchmark
+    public Map<String, Term> termAccumulator() {
+        return combine(TermCombiners.weightedToMap(weights).newInstance());
+    }
+}
@@ -0,0 +1,224 @@
+package ulcambridge.foundations.viewer.crowdsourcing.ratelimit;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.async.RequestPool;
+import ulcambridge.foundations.viewer.crowdsourcing.async.ServiceOverloadedException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class WriteAdmissionControlTest {
+
+    private static class FakeTicker extends Ticker {
+        long nanos = 123456789L;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+
+    @Test
+    public void testUsersAreLimitedToTheirRate() {
+        FakeTicker ticker = new FakeTicker();
+        UserRateLimiter limiter = new UserRateLimiter(2, 3, ticker);
+
+        for(int i = 0; i < 3; ++i)
+            assertThat(limiter.tryAcquire("alice"), is(0L));
+        assertThat(limiter.tryAcquire("alice"),
+                   is(TimeUnit.MILLISECONDS.toNanos(500)));
+        assertThat(limiter.tryAcquire("bob"), is(0L));
+
+        ticker.advance(500, TimeUnit.MILLISECONDS);
+        assertThat(limiter.tryAcquire("alice"), is(0L));
+        assertThat(limiter.tryAcquire("alice") > 0, is(true));
+    }
+
+    @Test
+    public void testRefilledBucketsAreEvicted() {
+        FakeTicker ticker = new FakeTicker();
+        UserRateLimiter limiter = new UserRateLimiter(1, 2, ticker);
+
+        limiter.tryAcquire("alice");
+        limiter.tryAcquire("bob");
+        limiter.tryAcquire("bob");
+        ticker.advance(1, TimeUnit.SECONDS);
+
+        limiter.evictIdle();
+        assertThat(limiter.size(), is(1));
+        assertThat(limiter.getEvictedCount(), is(1L));
+
+        // Bob's bucket holds the token he's regained
+        assertThat(limiter.tryAcquire("bob"), is(0L));
+        assertThat(limiter.tryAcquire("bob") > 0, is(true));
+    }
+
+    @Test
+    public void testConcurrentWritesAreLimited() {
+        WriteAdmissionControl admission = new WriteAdmissionControl(
+            new UserRateLimiter(1000, 1000), 2);
+
+        WriteAdmissionControl.Permit first = admission.admit("alice");
+        admission.admit("bob");
+        try {
+            admission.admit("carol");
+            fail("Third concurrent write was admitted");
+        }
+        catch(RateLimitExceededException e) {
+            assertThat(e.getRetryAfterSeconds(), is(1L));
+        }
+
+        first.release();
+        first.release();
+        assertThat(admission.getInFlightCount(), is(1));
+        admission.admit("carol");
+        assertThat(admission.getAdmittedCount(), is(3L));
+        assertThat(admission.getBusyCount(), is(1L));
+    }
+
+    @Test
+    public void testRateLimitedWritesDontHoldPermits() {
+        WriteAdmissionControl admission = new WriteAdmissionControl(
+            new UserRateLimiter(0.1, 1), 1);
+
+        admission.admit("alice").release();
+        try {
+            admission.admit("alice");
+            fail("Write over the rate limit was admitted");
+        }
+        catch(RateLimitExceededException e) {
+            assertThat(e.getRetryAfterSeconds() >= 9, is(true));
+        }
+
+        assertThat(admission.getInFlightCount(), is(0));
+        assertThat(admission.getRateLimitedCount(), is(1L));
+        admission.admit("bob");
+    }
+
+    /** Run a write in a pool, as the controller does. */
+    private static <T> CompletableFuture<T> submitWrite(
+        RequestPool pool, WriteAdmissionControl.Permit permit,
+        Callable<T> work) {
+
+        return pool.submit(permit.holdWhile(work), null)
+            .whenComplete((result, e) -> permit.abandon());
+    }
+
+    @Test
+    public void testWritesOutlivingTheirRequestHoldTheirPermit()
+        throws Exception {
+
+        WriteAdmissionControl admission = new WriteAdmissionControl(
+            new UserRateLimiter(1000, 1000), 1);
+        ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor();
+        RequestPool pool = new RequestPool("test", 1, 1, 50, timer);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch finish = new CountDownLatch(1);
+            CompletableFuture<Void> write = submitWrite(
+                pool, admission.admit("alice"), () -> {
+                    started.countDown();
+                    finish.await();
+                    return null;
+                });
+            started.await();
+
+            try {
+                write.get();
+                fail("Write didn't time out");
+            }
+            catch(ExecutionException e) {
+                assertThat(e.getCause(),
+                           instanceOf(ServiceOverloadedException.class));
+            }
+
+            // The write is still running, so holds its permit
+            assertThat(admission.getInFlightCount(), is(1));
+            try {
+                admission.admit("bob");
+                fail("Write was admitted while another was running");
+            }
+            catch(RateLimitExceededException e) { }
+
+            finish.countDown();
+            for(int i = 0; i < 100 && admission.getInFlightCount() > 0; ++i)
+                Thread.sleep(10);
+            assertThat(admission.getInFlightCount(), is(0));
+        }
+        finally {
+            pool.shutdown();
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWritesWhichNeverRunReleaseTheirPermit() throws Exception {
+        WriteAdmissionControl admission = new WriteAdmissionControl(
+            new UserRateLimiter(1000, 1000), 3);
+        ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor();
+        RequestPool pool = new RequestPool("test", 1, 1, 50, timer);
+        try {
+            CountDownLatch finish = new CountDownLatch(1);
+            AtomicBoolean ran = new AtomicBoolean();
+
+            CompletableFuture<Void> running = submitWrite(
+                pool, admission.admit("alice"), () -> {
+                    finish.await();
+                    return null;
+                });
+            CompletableFuture<Void> queued = submitWrite(
+                pool, admission.admit("bob"), () -> {
+                    ran.set(true);
+                    return null;
+                });
+            CompletableFuture<Void> rejected = submitWrite(
+                pool, admission.admit("carol"), () -> {
+                    ran.set(true);
+                    return null;
+                });
+
+            assertThat(rejected.isCompletedExceptionally(), is(true));
+            assertThat(admission.getInFlightCount(), is(2));
+
+            // The queued write times out and is dropped before it runs
+            try {
+                queued.get();
+                fail("Queued write didn't time out");
+            }
+            catch(ExecutionException e) { }
+            assertThat(admission.getInFlightCount(), is(1));
+
+            finish.countDown();
+            try {
+                running.get();
+            }
+            catch(ExecutionException e) { }
+            for(int i = 0; i < 100 && admission.getInFlightCount() > 0; ++i)
+                Thread.sleep(10);
+            assertThat(admission.getInFlightCount(), is(0));
+            assertThat(ran.get(), is(false));
+        }
+        finally {
+            pool.shutdown();
+            timer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ulcambridge.foundations.viewer.crowdsourcing.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DocumentTermIndexTest {
+
+    private DocumentTermIndex index;
+
+    @Before
+    public void setUp() {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 2d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        index = new DocumentTermIndex(seeder, weights);
+        seeder.seed();
+    }
+
+    private void add(String doc, TermType type, Term... terms) {
+        index.onTermsChanged(new TermsChangedEvent(
+            null, doc, type, Arrays.asList(terms), Collections.emptyList()));
+    }
+
+    private List<String> search(DocumentTermIndex.Operator op,
+                                String... terms) {
+        return index.search(Arrays.asList(terms), op, 10, null)
+            .getResults().stream()
+            .map(DocumentTermIndex.Match::getDocumentId)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBooleanQueriesRankByCombinedValue() {
+        add("a", TermType.TAG, new Term("darwin", 1, 1));
+        add("b", TermType.ANNOTATION,
+            new Term("darwin", 1, 1), new Term("beagle", 1, 1));
+        add("c", TermType.ANNOTATION, new Term("beagle", 1, 5));
+        add("d", TermType.TAG, new Term("darwin", 1, 1));
+        add("d", TermType.REMOVED_TAG, new Term("darwin", 1, -2));
+
+        // d's darwin tag is cancelled by its removal
+        assertThat(search(DocumentTermIndex.Operator.AND, "darwin"),
+                   is(Arrays.asList("a", "b")));
+        assertThat(search(DocumentTermIndex.Operator.AND, "darwin", "beagle"),
+                   is(Collections.singletonList("b")));
+        assertThat(search(DocumentTermIndex.Operator.OR, "darwin", "beagle"),
+                   is(Arrays.asList("c", "a", "b")));
+        assertThat(search(DocumentTermIndex.Operator.OR, "unknown"),
+                   is(Collections.emptyList()));
+    }
+
+    @Test
+    public void testCursorPagesThroughAllResults() {
+        for(int i = 0; i < 25; ++i)
+            add("doc" + i, TermType.ANNOTATION, new Term("foo", 1, i % 4 + 1));
+
+        List<String> all = index.search(
+            Collections.singletonList("foo"), DocumentTermIndex.Operator.AND,
+            100, null).getResults().stream()
+            .map(DocumentTermIndex.Match::getDocumentId)
+            .collect(Collectors.toList());
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            SearchResults page = index.search(
+                Collections.singletonList("foo"),
+                DocumentTermIndex.Operator.AND, 7, cursor);
+            assertThat(page.getTotal(), is(25));
+            page.getResults().forEach(m -> paged.add(m.getDocumentId()));
+            cursor = page.getNext();
+        } while(cursor != null);
+
+        assertThat(all.size(), is(25));
+        assertThat(paged, is(all));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCursorIsRejected() {
+        index.search(Collections.singletonList("foo"),
+                     DocumentTermIndex.Operator.AND, 10, "not-a-cursor");
+    }
+
+    @Test
+    public void testRemovingAllTermsRemovesDocument() {
+        Term term = new Term("foo", 1, 1);
+        add("a", TermType.ANNOTATION, term);
+        index.onTermsChanged(new TermsChangedEvent(
+            "user", "a", TermType.ANNOTATION, Collections.emptyList(),
+            Collections.singletonList(term)));
+
+        SearchResults results = index.search(
+            Collections.singletonList("foo"), DocumentTermIndex.Operator.AND,
+            10, null);
+        assertThat(results.getTotal(), is(0));
+        assertThat(results.getNext(), is(nullValue()));
+    }
+}
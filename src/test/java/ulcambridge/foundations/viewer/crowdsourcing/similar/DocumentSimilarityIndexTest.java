@@ -0,0 +1,132 @@
+package ulcambridge.foundations.viewer.crowdsourcing.similar;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+import ulcambridge.foundations.viewer.crowdsourcing.search.DocumentTermIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DocumentSimilarityIndexTest {
+
+    private DocumentTermIndex terms;
+
+    private static DocumentTermIndex termIndex(TermsSeeder seeder) {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 1d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+
+        return new DocumentTermIndex(seeder, weights);
+    }
+
+    @Before
+    public void setUp() {
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        terms = termIndex(seeder);
+        seeder.seed();
+    }
+
+    private void tag(String doc, String... names) {
+        tag(terms, 0, doc, names);
+    }
+
+    private static void tag(DocumentTermIndex terms, long sequence, String doc,
+                            String... names) {
+        terms.onTermsChanged(new TermsChangedEvent(
+            sequence, null, doc, TermType.TAG,
+            Arrays.stream(names)
+                .map(n -> new Term(n, 1, 1))
+                .collect(Collectors.toList()),
+            Collections.emptyList()));
+    }
+
+    private static List<String> ids(List<SimilarDocument> docs) {
+        return docs.stream()
+            .map(SimilarDocument::getDocumentId)
+            .collect(Collectors.toList());
+    }
+
+    private DocumentSimilarityIndex build(int maxTerms, long budgetBytes) {
+        DocumentSimilarityIndex index = new DocumentSimilarityIndex(
+            terms, maxTerms, budgetBytes, 1, TimeUnit.HOURS);
+        index.rebuild();
+        return index;
+    }
+
+    @Test
+    public void testSimilarDocumentsAreRankedByCosineSimilarity() {
+        tag("a", "darwin", "beagle", "finch", "galapagos");
+        tag("b", "darwin", "beagle", "finch", "galapagos");
+        tag("c", "darwin", "beagle", "finch", "tortoise");
+        tag("d", "newton", "apple", "gravity", "optics");
+
+        DocumentSimilarityIndex index = build(50, Long.MAX_VALUE);
+        List<SimilarDocument> similar = index.getSimilarDocuments("a", 10);
+
+        assertThat(ids(similar), is(Arrays.asList("b", "c")));
+        assertThat(similar.get(0).getSimilarity() > 0.999, is(true));
+        assertThat(similar.get(1).getSimilarity() < 0.76, is(true));
+        assertThat(index.getSimilarDocuments("a", 1).size(), is(1));
+        assertThat(index.getSimilarDocuments("unknown", 10).isEmpty(),
+                   is(true));
+    }
+
+    @Test
+    public void testNearDuplicatesAreFoundAmongManyDocuments() {
+        for(int i = 0; i < 2000; ++i)
+            tag("doc" + i, "t" + i, "t" + (i + 1), "u" + (i % 37));
+        tag("x", "t500", "t501", "u19");
+
+        List<SimilarDocument> similar = build(50, Long.MAX_VALUE)
+            .getSimilarDocuments("x", 1);
+
+        assertThat(ids(similar), is(Collections.singletonList("doc500")));
+    }
+
+    @Test
+    public void testMemoryBudgetLimitsTermsPerDocument() {
+        tag("a", "t1", "t2", "t3", "t4", "t5", "t6", "t7", "t8");
+        tag("b", "t1", "t2", "t3", "t4", "t5", "t6", "t7", "t8");
+
+        // Only room for two terms per document
+        long budget = 2 * (DocumentSimilarityIndex.BYTES_PER_DOCUMENT +
+                           2 * DocumentSimilarityIndex.BYTES_PER_TERM);
+        List<SimilarDocument> similar = build(8, budget)
+            .getSimilarDocuments("a", 10);
+
+        assertThat(ids(similar), is(Collections.singletonList("b")));
+        assertThat(similar.get(0).getSimilarity() > 0.999, is(true));
+    }
+
+    @Test
+    public void testRefreshWaitsForTermIndexToBeSeeded() {
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        DocumentTermIndex unseeded = termIndex(seeder);
+        tag(unseeded, 1, "a", "darwin");
+        tag(unseeded, 2, "b", "darwin");
+
+        DocumentSimilarityIndex index = new DocumentSimilarityIndex(
+            unseeded, 50, Long.MAX_VALUE, 1, TimeUnit.HOURS);
+        index.refresh();
+        assertThat(index.getSimilarDocuments("a", 10).isEmpty(), is(true));
+
+        seeder.seed();
+        index.refresh();
+        assertThat(ids(index.getSimilarDocuments("a", 10)),
+                   is(Collections.singletonList("b")));
+    }
+}
@@ -0,0 +1,79 @@
+package ulcambridge.foundations.viewer.crowdsourcing.spatial;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Point2D;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Position;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AnnotationRegionIndexTest {
+
+    private final TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+    private final AnnotationRegionIndex index =
+        new AnnotationRegionIndex(seeder);
+
+    @Before
+    public void setUp() {
+        seeder.seed();
+    }
+
+    private static Annotation annotation(
+        String name, int page, Point2D... points) {
+
+        return new Annotation(name, 1, 1d, "tag", "about", page,
+                              UUID.randomUUID(), Instant.now(),
+                              new Position("point", Arrays.asList(points)));
+    }
+
+    private void publish(String user, List<Annotation> added,
+                         List<Annotation> removed) {
+        index.onTermsChanged(new TermsChangedEvent(
+            user, "doc", TermType.ANNOTATION, added, removed));
+    }
+
+    private List<String> names(int page, double minX, double minY,
+                               double maxX, double maxY) {
+        return index.getAnnotations("doc", page, minX, minY, maxX, maxY)
+            .stream().map(Annotation::getName).sorted()
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRegionQueriesSpanUsersAndRespectPages() {
+        Annotation a = annotation("a", 1, new Point2D(10, 10));
+        Annotation b = annotation("b", 1, new Point2D(50, 50),
+                                  new Point2D(60, 70));
+        Annotation c = annotation("c", 2, new Point2D(10, 10));
+        Annotation whole = new Annotation("doc", 1, 1d, "doc", "about", 1,
+                                          UUID.randomUUID(), Instant.now(),
+                                          Position.EMPTY);
+
+        publish("alice", Arrays.asList(a, whole), Collections.emptyList());
+        publish("bob", Arrays.asList(b, c), Collections.emptyList());
+
+        assertThat(names(1, 0, 0, 100, 100), is(Arrays.asList("a", "b")));
+        assertThat(names(1, 55, 65, 56, 66),
+                   is(Collections.singletonList("b")));
+        assertThat(names(2, 0, 0, 20, 20),
+                   is(Collections.singletonList("c")));
+
+        publish("alice", Collections.emptyList(),
+                Collections.singletonList(a));
+        assertThat(names(1, 0, 0, 100, 100),
+                   is(Collections.singletonList("b")));
+    }
+}
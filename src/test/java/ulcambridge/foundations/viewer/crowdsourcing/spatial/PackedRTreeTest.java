@@ -0,0 +1,64 @@
+package ulcambridge.foundations.viewer.crowdsourcing.spatial;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PackedRTreeTest {
+
+    private static boolean intersects(double[] a, double[] b) {
+        return a[0] <= b[2] && a[1] <= b[3] && a[2] >= b[0] && a[3] >= b[1];
+    }
+
+    @Test
+    public void testSearchMatchesExhaustiveSearch() {
+        Random random = new Random(11);
+
+        for(int n : new int[] {0, 1, 15, 16, 17, 300, 5000}) {
+            List<double[]> boxes = new ArrayList<>();
+            for(int i = 0; i < n; ++i) {
+                double x = random.nextDouble() * 1000;
+                double y = random.nextDouble() * 1000;
+                boxes.add(new double[] {
+                    x, y, x + random.nextDouble() * 50,
+                    y + random.nextDouble() * 50});
+            }
+            PackedRTree<double[]> tree = new PackedRTree<>(boxes, b -> b);
+            assertThat(tree.size(), is(n));
+
+            for(int q = 0; q < 50; ++q) {
+                double x = random.nextDouble() * 1000;
+                double y = random.nextDouble() * 1000;
+                double[] query = {x, y, x + random.nextDouble() * 200,
+                                  y + random.nextDouble() * 200};
+
+                Set<double[]> expected = boxes.stream()
+                    .filter(b -> intersects(b, query))
+                    .collect(Collectors.toSet());
+                List<double[]> actual = tree.search(
+                    query[0], query[1], query[2], query[3]);
+
+                assertThat(actual.size(), is(expected.size()));
+                assertThat(new HashSet<>(actual), is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testPointsOnEdgesAreFound() {
+        PackedRTree<double[]> tree = new PackedRTree<>(
+            Collections.singletonList(new double[] {5, 5, 5, 5}), b -> b);
+
+        assertThat(tree.search(0, 0, 5, 5).size(), is(1));
+        assertThat(tree.search(5.1, 0, 10, 10).size(), is(0));
+    }
+}
@@ -0,0 +1,98 @@
+package ulcambridge.foundations.viewer.crowdsourcing.suggest;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TermSuggestionIndexTest {
+
+    private TermSuggestionIndex index;
+
+    @Before
+    public void setUp() {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 1d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        index = new TermSuggestionIndex(seeder, weights);
+        seeder.seed();
+    }
+
+    private void add(TermType type, List<Term> terms) {
+        index.onTermsChanged(new TermsChangedEvent(
+            "user", "doc", type, terms, Collections.emptyList()));
+    }
+
+    private static List<String> names(List<Term> terms) {
+        return terms.stream().map(Term::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPrefixMatchingIgnoresCaseAndAccents() {
+        add(TermType.ANNOTATION, Arrays.asList(
+            new Term("\u00c9lise", 1, 3), new Term("elephant", 1, 2),
+            new Term("Ely", 1, 1), new Term("emu", 1, 5),
+            new Term("el", 1, 2)));
+        add(TermType.REMOVED_TAG, Collections.singletonList(
+            new Term("Ely", 1, -1)));
+        index.refresh();
+
+        // Ely's value is cancelled by its removal; equal values are ordered
+        // by name
+        assertThat(names(index.suggest("el", 10)),
+                   is(Arrays.asList("\u00c9lise", "el", "elephant")));
+        assertThat(names(index.suggest("\u00c9LI", 10)),
+                   is(Collections.singletonList("\u00c9lise")));
+        assertThat(names(index.suggest("", 2)),
+                   is(Arrays.asList("emu", "\u00c9lise")));
+        assertThat(index.suggest("x", 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testResultsMatchExhaustiveSearch() {
+        Random random = new Random(7);
+        List<Term> terms = new ArrayList<>();
+        for(int i = 0; i < 5000; ++i) {
+            StringBuilder name = new StringBuilder();
+            for(int j = 1 + random.nextInt(6); j > 0; --j)
+                name.append((char)('a' + random.nextInt(4)));
+            terms.add(new Term(name.toString(), 1, random.nextDouble()));
+        }
+        add(TermType.TAG, terms);
+        index.refresh();
+
+        Map<String, Double> totals = terms.stream().collect(Collectors.groupingBy(
+            Term::getName, Collectors.summingDouble(Term::getValue)));
+
+        for(String prefix : Arrays.asList("", "a", "bc", "dab", "cccc")) {
+            List<String> expected = totals.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(prefix))
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(20)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+            assertThat(prefix, names(index.suggest(prefix, 20)), is(expected));
+        }
+    }
+}
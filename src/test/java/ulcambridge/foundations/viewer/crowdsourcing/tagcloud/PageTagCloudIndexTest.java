@@ -0,0 +1,83 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PageTagCloudIndexTest {
+
+    private final PageTagCloudIndex index;
+
+    public PageTagCloudIndexTest() {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 2d);
+        weights.put(TermType.TAG, 1d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        index = new PageTagCloudIndex(seeder, weights);
+        seeder.seed();
+    }
+
+    private static Annotation annotation(String name, String target,
+                                         int page) {
+        return new Annotation(name, 1, 1d, target, "about", page,
+                              UUID.randomUUID(), Instant.now(), null);
+    }
+
+    private void publish(String user, List<Annotation> added,
+                         List<Annotation> removed) {
+        index.onTermsChanged(new TermsChangedEvent(
+            user, "doc", TermType.ANNOTATION, added, removed));
+    }
+
+    private List<String> terms(int page, TagCloudQuery query) {
+        return index.getTagCloud("doc", page, query).getTerms().stream()
+            .map(t -> t.getName() + "=" + t.getValue())
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPageTermsCombineTagAnnotationsOfAllUsers() {
+        Annotation alicesFoo = annotation("foo", "tag", 1);
+        publish("alice", Arrays.asList(
+            alicesFoo, annotation("bar", "tag", 1),
+            annotation("foo", "tag", 2), annotation("whole", "doc", 1)),
+            Collections.emptyList());
+        publish("bob", Collections.singletonList(annotation("foo", "tag", 1)),
+                Collections.emptyList());
+
+        assertThat(terms(1, TagCloudQuery.DEFAULT),
+                   is(Arrays.asList("foo=4.0", "bar=2.0")));
+        assertThat(terms(2, TagCloudQuery.DEFAULT),
+                   is(Collections.singletonList("foo=2.0")));
+        assertThat(terms(1, new TagCloudQuery(
+                       EnumSet.allOf(TermType.class), 3, 10)),
+                   is(Collections.singletonList("foo=4.0")));
+        assertThat(terms(1, new TagCloudQuery(
+                       EnumSet.of(TermType.TAG), 0, 10)),
+                   is(Collections.<String>emptyList()));
+
+        publish("alice", Collections.emptyList(),
+                Collections.singletonList(alicesFoo));
+        assertThat(terms(1, TagCloudQuery.DEFAULT),
+                   is(Arrays.asList("bar=2.0", "foo=2.0")));
+    }
+}
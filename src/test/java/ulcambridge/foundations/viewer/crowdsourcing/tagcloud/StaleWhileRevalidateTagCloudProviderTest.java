@@ -0,0 +1,195 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class StaleWhileRevalidateTagCloudProviderTest {
+
+    private static class FakeTicker extends Ticker {
+        long nanos = 123456789L;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+
+    /** Queues refreshes until they're run, optionally rejecting them. */
+    private static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if(rejecting)
+                throw new RejectedExecutionException();
+            tasks.add(command);
+        }
+
+        void runAll() {
+            for(Runnable task; (task = tasks.poll()) != null; )
+                task.run();
+        }
+    }
+
+    /**
+     * A tag cloud source whose results hold the number of times it's been
+     * called, so that each computation can be told apart.
+     */
+    private static class CountingSource implements TagCloudProvider {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile Runnable onCall = () -> { };
+
+        @Override
+        public DocumentTerms getTagCloud(
+            String documentId, TagCloudQuery query) {
+
+            int call = calls.incrementAndGet();
+            onCall.run();
+            return new DocumentTerms(null, documentId, Collections.singletonList(
+                new Term("computed", call, call)));
+        }
+    }
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final ManualExecutor executor = new ManualExecutor();
+    private final CountingSource source = new CountingSource();
+    private final StaleWhileRevalidateTagCloudProvider provider =
+        new StaleWhileRevalidateTagCloudProvider(
+            source, executor, 1, TimeUnit.MINUTES, 10, 2, ticker);
+
+    private int get() {
+        return provider.getTagCloud("doc").getTerms().get(0).getRaw();
+    }
+
+    @Test
+    public void testStaleValuesAreServedWhileRefreshing() {
+        assertThat(get(), is(1));
+        assertThat(get(), is(1));
+        assertThat(executor.tasks.isEmpty(), is(true));
+
+        ticker.advance(2, TimeUnit.MINUTES);
+        assertThat(get(), is(1));
+        assertThat(executor.tasks.size(), is(1));
+        assertThat(source.calls.get(), is(1));
+
+        executor.runAll();
+        assertThat(get(), is(2));
+        assertThat(executor.tasks.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testInvalidationDuringRefreshRefreshesAgain() {
+        get();
+        provider.invalidate("doc");
+
+        // The terms change again while the first refresh computes
+        source.onCall = () -> {
+            source.onCall = () -> { };
+            provider.invalidate("doc");
+        };
+        executor.tasks.remove().run();
+        assertThat(get(), is(2));
+        assertThat(executor.tasks.size(), is(1));
+
+        executor.runAll();
+        assertThat(get(), is(3));
+        assertThat(executor.tasks.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRefreshesAreDeduplicated() {
+        get();
+        provider.invalidate("doc");
+        get();
+        provider.invalidate("doc");
+        get();
+
+        assertThat(executor.tasks.size(), is(1));
+        executor.runAll();
+        assertThat(source.calls.get(), is(2));
+        assertThat(get(), is(2));
+    }
+
+    @Test
+    public void testRejectedRefreshesAreRetriedOnTheNextRequest() {
+        get();
+        executor.rejecting = true;
+        provider.invalidate("doc");
+        assertThat(executor.tasks.isEmpty(), is(true));
+
+        executor.rejecting = false;
+        assertThat(get(), is(1));
+        assertThat(executor.tasks.size(), is(1));
+        executor.runAll();
+        assertThat(get(), is(2));
+    }
+
+    @Test
+    public void testConcurrentMissesShareTheFirstLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        source.onCall = () -> {
+            loading.countDown();
+            try {
+                finish.await();
+            }
+            catch(InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(
+            this::get);
+        loading.await();
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(
+            this::get);
+
+        // Other queries for the document aren't held up by the load
+        source.onCall = () -> { };
+        TagCloudQuery other = new TagCloudQuery(
+            TagCloudQuery.DEFAULT.getTypes(), 1, 10);
+        assertThat(provider.getTagCloud("doc", other).getTerms().get(0)
+                       .getRaw(), is(2));
+
+        finish.countDown();
+        assertThat(first.get(), is(1));
+        assertThat(second.get(), is(1));
+        assertThat(source.calls.get(), is(2));
+    }
+
+    @Test
+    public void testFailedFirstLoadsAreNotCached() {
+        source.onCall = () -> {
+            source.onCall = () -> { };
+            throw new IllegalStateException("The database is down");
+        };
+
+        try {
+            get();
+            fail("Failed load wasn't reported");
+        }
+        catch(IllegalStateException e) { }
+        assertThat(get(), is(2));
+    }
+}
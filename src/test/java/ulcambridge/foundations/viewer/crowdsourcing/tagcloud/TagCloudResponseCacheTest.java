@@ -0,0 +1,124 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.compression.ResponseCompressor;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static ulcambridge.foundations.viewer.crowdsourcing.compression.ContentCoding.GZIP;
+
+public class TagCloudResponseCacheTest {
+
+    private static class FakeTicker extends Ticker {
+        long nanos = 123456789L;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final AtomicInteger computed = new AtomicInteger();
+    private final TagCloudAccessStatistics statistics =
+        new TagCloudAccessStatistics(10, Optional.empty(), new ObjectMapper());
+
+    /** A provider which computes a new instance on every request. */
+    private final TagCloudProvider uncached = (documentId, query) -> {
+        computed.incrementAndGet();
+        return new DocumentTerms(null, documentId, Collections.emptyList());
+    };
+
+    private TagCloudResponseCache cache(
+        TagCloudProvider provider, boolean providerServesStale) {
+
+        return new TagCloudResponseCache(
+            provider, providerServesStale, statistics, new ObjectMapper(),
+            new ResponseCompressor(Collections.singletonList(GZIP), 100),
+            10, 2, 1, TimeUnit.MINUTES, ticker);
+    }
+
+    private static TermsChangedEvent changed(String documentId) {
+        return new TermsChangedEvent(
+            "alice", documentId, TermType.ANNOTATION, Collections.emptyList(),
+            Collections.emptyList());
+    }
+
+    @Test
+    public void testSerialisationsAreReusedUntilTheDocumentChanges() {
+        TagCloudResponseCache cache = cache(uncached, false);
+
+        SerializedTagCloud first = cache.getTagCloud("a", TagCloudQuery.DEFAULT);
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   sameInstance(first));
+        assertThat(computed.get(), is(1));
+
+        cache.onTermsChanged(changed("b"));
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   sameInstance(first));
+
+        cache.onTermsChanged(changed("a"));
+        SerializedTagCloud second =
+            cache.getTagCloud("a", TagCloudQuery.DEFAULT);
+        assertThat(second, not(sameInstance(first)));
+        assertThat(computed.get(), is(2));
+
+        ticker.nanos += TimeUnit.MINUTES.toNanos(2);
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   not(sameInstance(second)));
+        assertThat(computed.get(), is(3));
+
+        // Every request is recorded, whether or not it was cached
+        assertThat(statistics.getRanking(),
+                   is(Collections.singletonList("a")));
+    }
+
+    @Test
+    public void testProvidersServingStaleValuesAreAskedOnEveryRequest() {
+        DocumentTerms[] current = {
+            new DocumentTerms(null, "a", Collections.emptyList())
+        };
+        TagCloudResponseCache cache = cache((documentId, query) -> {
+            computed.incrementAndGet();
+            return current[0];
+        }, true);
+
+        SerializedTagCloud first = cache.getTagCloud("a", TagCloudQuery.DEFAULT);
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   sameInstance(first));
+
+        // The provider refreshes its value after the change is published
+        cache.onTermsChanged(changed("a"));
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   sameInstance(first));
+        current[0] = new DocumentTerms(null, "a", Collections.emptyList());
+        assertThat(cache.getTagCloud("a", TagCloudQuery.DEFAULT),
+                   not(sameInstance(first)));
+        assertThat(computed.get(), is(4));
+    }
+
+    @Test
+    public void testQueriesBeyondTheLimitAreNotCached() {
+        TagCloudResponseCache cache = cache(uncached, false);
+
+        for(int limit = 1; limit <= 3; ++limit) {
+            TagCloudQuery query = new TagCloudQuery(
+                TagCloudQuery.DEFAULT.getTypes(), 0, limit);
+            cache.getTagCloud("a", query);
+            cache.getTagCloud("a", query);
+        }
+        assertThat(computed.get(), is(4));
+    }
+}
@@ -0,0 +1,57 @@
+package ulcambridge.foundations.viewer.crowdsourcing.tagcloud;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.CrowdsourcingDao;
+import ulcambridge.foundations.viewer.crowdsourcing.model.DocumentTerms;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TagCloudWarmerTest {
+
+    private static CrowdsourcingDao documents(String... documentIds) {
+        return (CrowdsourcingDao) Proxy.newProxyInstance(
+            CrowdsourcingDao.class.getClassLoader(),
+            new Class<?>[] {CrowdsourcingDao.class},
+            (proxy, method, args) -> {
+                if(method.getName().equals("getTaggedDocuments"))
+                    return Arrays.asList(documentIds);
+                if(method.getName().equals("getAnnotatedDocuments"))
+                    return Collections.emptyList();
+                throw new UnsupportedOperationException();
+            });
+    }
+
+    @Test
+    public void testFailedLoadsCountTowardsReadiness() throws Exception {
+        TagCloudProvider failingForB = (documentId, query) -> {
+            if(documentId.equals("b"))
+                throw new RuntimeException("Failed to load: " + documentId);
+            return new DocumentTerms(
+                null, documentId, Collections.emptyList());
+        };
+        TagCloudWarmer warmer = new TagCloudWarmer(
+            failingForB, documents("a", "b", "c"),
+            new TagCloudAccessStatistics(
+                10, Optional.empty(), new ObjectMapper()),
+            10, 2, 1000, 1.0);
+
+        assertThat(warmer.isReady(), is(false));
+
+        warmer.start();
+        for(int i = 0; i < 200 && !warmer.isReady(); ++i)
+            Thread.sleep(10);
+
+        assertThat(warmer.isReady(), is(true));
+        assertThat(warmer.health().getStatus(), is(Status.UP));
+        assertThat(warmer.health().getDetails().get("warmed"), is(2));
+        assertThat(warmer.health().getDetails().get("failed"), is(1));
+    }
+}
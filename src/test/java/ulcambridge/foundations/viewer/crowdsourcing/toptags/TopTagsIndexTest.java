@@ -0,0 +1,123 @@
+package ulcambridge.foundations.viewer.crowdsourcing.toptags;
+
+import org.junit.Before;
+import org.junit.Test;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.StubDaos;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsChangedEvent;
+import ulcambridge.foundations.viewer.crowdsourcing.dao.TermsSeeder;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Annotation;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Tag;
+import ulcambridge.foundations.viewer.crowdsourcing.model.Term;
+import ulcambridge.foundations.viewer.crowdsourcing.model.TermType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TopTagsIndexTest {
+
+    private static class MutableClock extends Clock {
+        Instant now = Instant.parse("2016-11-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private MutableClock clock;
+    private TopTagsIndex index;
+
+    @Before
+    public void setUp() {
+        Map<TermType, Double> weights = new EnumMap<>(TermType.class);
+        weights.put(TermType.ANNOTATION, 1d);
+        weights.put(TermType.TAG, 5d);
+        weights.put(TermType.REMOVED_TAG, 1d);
+
+        clock = new MutableClock();
+        // A 7 day window of daily buckets, without caching
+        TermsSeeder seeder = new TermsSeeder(StubDaos.empty());
+        index = new TopTagsIndex(seeder, weights, 100, 7, TimeUnit.DAYS,
+                                 7, 0, clock);
+        seeder.seed();
+    }
+
+    private Annotation annotation(String name, Instant date) {
+        return new Annotation(name, 1, 1d, "tag", "about", 1,
+                              UUID.randomUUID(), date, null);
+    }
+
+    private void publish(TermType type, List<? extends Term> added,
+                         List<? extends Term> removed) {
+        index.onTermsChanged(
+            new TermsChangedEvent("user", "doc", type, added, removed));
+    }
+
+    private static List<String> names(List<Term> terms) {
+        return terms.stream().map(Term::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testTrendingOnlyCountsUserTermsInWindow() {
+        publish(TermType.TAG, Collections.singletonList(
+            new Tag("mined", 10, 1)), Collections.emptyList());
+        publish(TermType.ANNOTATION, Collections.singletonList(
+            annotation("old", clock.now.minus(Duration.ofDays(8)))),
+            Collections.emptyList());
+        publish(TermType.ANNOTATION, Collections.singletonList(
+            annotation("recent", clock.now.minus(Duration.ofDays(2)))),
+            Collections.emptyList());
+        // Removed tags have no date, so aren't placed in the window
+        publish(TermType.REMOVED_TAG, Collections.singletonList(
+            new Tag("removed", 1, 1)), Collections.emptyList());
+
+        assertThat(names(index.getTopTerms(10)),
+                   is(Arrays.asList("mined", "old", "recent", "removed")));
+        assertThat(names(index.getTrendingTerms(10)),
+                   is(Collections.singletonList("recent")));
+
+        clock.now = clock.now.plus(Duration.ofDays(6));
+        assertThat(index.getTrendingTerms(10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRemovalSubtractsFromBucketOfAnnotationDate() {
+        Annotation a = annotation("foo", clock.now.minus(Duration.ofDays(3)));
+        Annotation b = annotation("foo", clock.now);
+
+        publish(TermType.ANNOTATION, Collections.singletonList(a),
+                Collections.emptyList());
+        publish(TermType.ANNOTATION, Collections.singletonList(b),
+                Collections.emptyList());
+        assertThat(index.getTrendingTerms(1).get(0).getRaw(), is(2));
+
+        publish(TermType.ANNOTATION, Collections.emptyList(),
+                Collections.singletonList(a));
+        assertThat(index.getTrendingTerms(1).get(0).getRaw(), is(1));
+        assertThat(index.getTopTerms(1).get(0).getRaw(), is(1));
+    }
+}